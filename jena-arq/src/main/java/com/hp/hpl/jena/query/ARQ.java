@@ -126,6 +126,15 @@ public class ARQ
     public static final Symbol enableExecutionTimeLogging =
         ARQConstants.allocSymbol("enableExecutionTimeLogging") ;
 
+    /**
+     * Context key: if true, record an execution profile of the query: rows and
+     * time for each operator, and counters from the storage layer. The profile is
+     * put in the context of the query execution under {@link ARQConstants#sysProfile}
+     * and is logged, at the end of execution, when explain logging is on.
+     * Profiling adds overhead to every operator so it is off by default.
+     */
+    public static final Symbol profile = ARQConstants.allocSymbol("profile") ;
+
     /** If true, XML result sets written will contain the graph bNode label
      *  See also inputGraphBNodeLabels
      */
@@ -427,6 +436,33 @@ public class ARQ
      */
     public static final Symbol extensionValueTypes = ARQConstants.allocSymbol("extensionValueTypesExpr") ;
 
+    /**
+     * Context key controlling whether FILTER, BIND and ORDER BY expressions
+     * are compiled before execution, with fast paths for comparisons of
+     * numbers, strings and dateTimes.
+     * Default is "true".
+     */
+    public static final Symbol compileExpressions = ARQConstants.allocSymbol("compileExpressions") ;
+
+    /**
+     * Context key controlling whether OPTIONAL, when executed by substitution,
+     * and FILTER EXISTS / NOT EXISTS evaluate their pattern once per distinct
+     * join key, keeping a bounded number of results, rather than once per solution.
+     * Patterns that are not deterministic, e.g. using BNODE() or SERVICE
+     * (see {@link com.hp.hpl.jena.sparql.algebra.OpDeterministic}), are always
+     * evaluated once per solution.
+     * Default is "true".
+     */
+    public static final Symbol batchProbes = ARQConstants.allocSymbol("batchProbes") ;
+
+    /**
+     * Context key controlling whether the bindings of a query execution keep
+     * their values in arrays indexed by a slot number given to each variable
+     * when the query is planned, rather than in a chain of maps.
+     * Default is "true".
+     */
+    public static final Symbol slotBindings = ARQConstants.allocSymbol("slotBindings") ;
+
     /**
      * Generate the ToList operation in the algebra (as ARQ is stream based, ToList is a non-op).
      * Default is not to do so.  Strict mode will also enable this.
@@ -25,6 +25,7 @@ import org.apache.jena.atlas.web.auth.HttpAuthenticator ;
 import com.hp.hpl.jena.rdf.model.Model ;
 import com.hp.hpl.jena.sparql.core.DatasetGraph ;
 import com.hp.hpl.jena.sparql.engine.Plan ;
+import com.hp.hpl.jena.sparql.engine.QueryCache ;
 import com.hp.hpl.jena.sparql.engine.QueryEngineFactory ;
 import com.hp.hpl.jena.sparql.engine.QueryEngineRegistry ;
 import com.hp.hpl.jena.sparql.engine.QueryExecutionBase ;
@@ -513,15 +514,18 @@ public class QueryExecutionFactory
     
     // Make query
     
+    // The query can be a shared one from the cache: the execution does not
+    // change it and QueryExecution.getQuery() returns a copy.
+
     static private Query makeQuery(String queryStr)
     {
-        return QueryFactory.create(queryStr) ;
+        return makeQuery(queryStr, Syntax.defaultQuerySyntax) ;
     }
 
 
     static private Query makeQuery(String queryStr, Syntax syntax)
     {
-        return QueryFactory.create(queryStr, syntax);
+        return QueryCache.parse(queryStr, null, syntax) ;
     }
     
     // ---- Make executions
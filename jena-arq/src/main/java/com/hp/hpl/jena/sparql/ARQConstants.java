@@ -219,6 +219,12 @@ public class ARQConstants
 //    /** Context key for the algebra execution engine of the query execution */
 //    public static final Symbol sysCurrentOpExec   = Symbol.create(systemVarNS+"opExec") ;
 
+    /** Context key for the execution profile of the query execution, when profiling is enabled
+     *  (see {@link com.hp.hpl.jena.query.ARQ#profile}).
+     *  The value is a {@link com.hp.hpl.jena.sparql.engine.main.QueryProfile}.
+     */
+    public static final Symbol sysProfile               = Symbol.create(systemVarNS+"profile") ;
+
     /** Context key for the current time of query execution */
     public static final Symbol sysCurrentTime           = Symbol.create(systemVarNS+"now") ;
     
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.algebra;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.query.ARQ ;
+import com.hp.hpl.jena.query.SortCondition ;
+import com.hp.hpl.jena.sparql.algebra.op.* ;
+import com.hp.hpl.jena.sparql.core.Quad ;
+import com.hp.hpl.jena.sparql.core.VarExprList ;
+import com.hp.hpl.jena.sparql.expr.* ;
+import com.hp.hpl.jena.sparql.expr.aggregate.AggCustom ;
+import com.hp.hpl.jena.sparql.function.FunctionRegistry ;
+import com.hp.hpl.jena.sparql.pfunction.PropertyFunctionRegistry ;
+import com.hp.hpl.jena.sparql.util.Context ;
+
+/** Whether the results of an algebra expression depend only on the data it
+ * is evaluated over, so that they may be cached or shared between evaluations.
+ * <p>
+ * Not deterministic: NOW(), RAND(), UUID(), STRUUID(), BNODE(), SERVICE,
+ * procedures, extensions to the algebra, custom aggregates, and any extension
+ * function or property function not recorded as deterministic in its registry
+ * ({@link FunctionRegistry#setDeterministic}, {@link PropertyFunctionRegistry#setDeterministic}).
+ */
+public class OpDeterministic
+{
+    /** Check using the registries of the global context. */
+    public static boolean isDeterministic(Op op)
+    {
+        return isDeterministic(op, ARQ.getContext()) ;
+    }
+
+    /** Check using the function and property function registries of the context. */
+    public static boolean isDeterministic(Op op, Context context)
+    {
+        try {
+            OpWalker.walk(op, new NotDeterministicFinder(context)) ;
+            return true ;
+        } catch (NotDeterministic ex) { return false ; }
+    }
+
+    private static class NotDeterministic extends RuntimeException
+    {
+        NotDeterministic() { super(null, null, false, false) ; }
+    }
+
+    /** Throws {@link NotDeterministic} on finding anything that may make the
+     * results vary from one evaluation to the next on the same data. */
+    private static class NotDeterministicFinder extends OpVisitorBase
+    {
+        private final FunctionRegistry functions ;
+        private final PropertyFunctionRegistry propertyFunctions ;
+
+        NotDeterministicFinder(Context context)
+        {
+            FunctionRegistry reg = FunctionRegistry.get(context) ;
+            this.functions = ( reg != null ) ? reg : FunctionRegistry.get() ;
+            this.propertyFunctions = PropertyFunctionRegistry.chooseRegistry(context) ;
+        }
+
+        private final ExprVisitor exprFinder = new ExprVisitorBase() {
+            @Override public void visit(ExprFunction0 func)     { check(func) ; }
+            @Override public void visit(ExprFunction1 func)     { check(func) ; }
+            @Override public void visit(ExprFunction2 func)     { check(func) ; }
+            @Override public void visit(ExprFunction3 func)     { check(func) ; }
+            @Override public void visit(ExprFunctionN func)     { check(func) ; }
+            @Override public void visit(ExprFunctionOp funcOp)  { OpWalker.walk(funcOp.getGraphPattern(), NotDeterministicFinder.this) ; }
+            @Override public void visit(ExprAggregator eAgg)    { check(eAgg) ; }
+        } ;
+
+        private void check(ExprFunction func)
+        {
+            if ( func instanceof E_Now || func instanceof E_Random || func instanceof E_UUID
+                 || func instanceof E_StrUUID || func instanceof E_BNode )
+                throw new NotDeterministic() ;
+            // Function named at execution time.
+            if ( func instanceof E_Call )
+                throw new NotDeterministic() ;
+            if ( func instanceof E_Function && ! functions.isDeterministic(((E_Function)func).getFunctionIRI()) )
+                throw new NotDeterministic() ;
+        }
+
+        private void check(ExprAggregator eAgg)
+        {
+            if ( eAgg.getAggregator() instanceof AggCustom )
+                throw new NotDeterministic() ;
+            walk(eAgg.getAggregator().getExpr()) ;
+        }
+
+        private void check(Node predicate)
+        {
+            if ( ! predicate.isURI() )
+                return ;
+            String uri = predicate.getURI() ;
+            if ( propertyFunctions.manages(uri) && ! propertyFunctions.isDeterministic(uri) )
+                throw new NotDeterministic() ;
+        }
+
+        private void walk(Expr expr)
+        {
+            if ( expr != null )
+                ExprWalker.walk(exprFinder, expr) ;
+        }
+
+        private void walk(ExprList exprs)
+        {
+            if ( exprs != null )
+            {
+                for ( Expr expr : exprs )
+                    walk(expr) ;
+            }
+        }
+
+        private void walk(VarExprList exprs)
+        {
+            for ( Expr expr : exprs.getExprs().values() )
+                walk(expr) ;
+        }
+
+        @Override public void visit(OpService opService)        { throw new NotDeterministic() ; }
+        @Override public void visit(OpProcedure opProc)         { throw new NotDeterministic() ; }
+        @Override public void visit(OpExt opExt)                { throw new NotDeterministic() ; }
+        @Override public void visit(OpPropFunc opPropFunc)      { check(opPropFunc.getProperty()) ; }
+        @Override public void visit(OpTriple opTriple)          { check(opTriple.getTriple().getPredicate()) ; }
+        @Override public void visit(OpQuad opQuad)              { check(opQuad.getQuad().getPredicate()) ; }
+        @Override public void visit(OpFilter opFilter)          { walk(opFilter.getExprs()) ; }
+        @Override public void visit(OpLeftJoin opLeftJoin)      { walk(opLeftJoin.getExprs()) ; }
+        @Override public void visit(OpAssign opAssign)          { walk(opAssign.getVarExprList()) ; }
+        @Override public void visit(OpExtend opExtend)          { walk(opExtend.getVarExprList()) ; }
+
+        @Override public void visit(OpBGP opBGP)
+        {
+            for ( Triple t : opBGP.getPattern() )
+                check(t.getPredicate()) ;
+        }
+
+        @Override public void visit(OpQuadPattern quadPattern)
+        {
+            for ( Quad q : quadPattern.getPattern() )
+                check(q.getPredicate()) ;
+        }
+
+        @Override public void visit(OpOrder opOrder)
+        {
+            for ( SortCondition sc : opOrder.getConditions() )
+                walk(sc.getExpression()) ;
+        }
+
+        @Override public void visit(OpTopN opTop)
+        {
+            for ( SortCondition sc : opTop.getConditions() )
+                walk(sc.getExpression()) ;
+        }
+
+        @Override public void visit(OpGroup opGroup)
+        {
+            walk(opGroup.getGroupVars()) ;
+            for ( ExprAggregator agg : opGroup.getAggregators() )
+                check(agg) ;
+        }
+    }
+}
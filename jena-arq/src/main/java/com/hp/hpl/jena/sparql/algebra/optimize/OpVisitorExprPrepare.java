@@ -18,11 +18,17 @@
 
 package com.hp.hpl.jena.sparql.algebra.optimize;
 
+import com.hp.hpl.jena.query.SortCondition ;
 import com.hp.hpl.jena.sparql.algebra.OpVisitorBase ;
-import com.hp.hpl.jena.sparql.algebra.op.OpFilter ;
-import com.hp.hpl.jena.sparql.algebra.op.OpLeftJoin ;
+import com.hp.hpl.jena.sparql.algebra.OpWalker ;
+import com.hp.hpl.jena.sparql.algebra.op.* ;
+import com.hp.hpl.jena.sparql.core.VarExprList ;
+import com.hp.hpl.jena.sparql.expr.* ;
 import com.hp.hpl.jena.sparql.util.Context ;
 
+/** Prepare (bind functions in) the expressions of an algebra expression,
+ * including those in the patterns of EXISTS and NOT EXISTS.
+ */
 public class OpVisitorExprPrepare extends OpVisitorBase
 {
     final private Context context ;
@@ -33,16 +39,74 @@ public class OpVisitorExprPrepare extends OpVisitorBase
     @Override
     public void visit(OpFilter opFilter)
     {
-        opFilter.getExprs().prepareExprs(context) ;
+        prepare(opFilter.getExprs()) ;
     }
     
-    // Assignment
-    // ProcEval
-    
     @Override
     public void visit(OpLeftJoin opLeftJoin)
     {
         if ( opLeftJoin.getExprs() != null )
-            opLeftJoin.getExprs().prepareExprs(context) ;
+            prepare(opLeftJoin.getExprs()) ;
+    }
+
+    @Override
+    public void visit(OpAssign opAssign)
+    {
+        prepare(opAssign.getVarExprList()) ;
+    }
+
+    @Override
+    public void visit(OpExtend opExtend)
+    {
+        prepare(opExtend.getVarExprList()) ;
+    }
+
+    @Override
+    public void visit(OpOrder opOrder)
+    {
+        for ( SortCondition sc : opOrder.getConditions() )
+            prepare(sc.getExpression()) ;
+    }
+
+    @Override
+    public void visit(OpTopN opTop)
+    {
+        for ( SortCondition sc : opTop.getConditions() )
+            prepare(sc.getExpression()) ;
+    }
+
+    @Override
+    public void visit(OpGroup opGroup)
+    {
+        prepare(opGroup.getGroupVars()) ;
+        for ( ExprAggregator agg : opGroup.getAggregators() )
+        {
+            // COUNT(*) has no expression.
+            if ( agg.getAggregator().getExpr() != null )
+                prepare(agg.getAggregator().getExpr()) ;
+        }
+    }
+
+    private void prepare(VarExprList exprs)
+    {
+        for ( Expr expr : exprs.getExprs().values() )
+            prepare(expr) ;
+    }
+
+    private void prepare(ExprList exprs)
+    {
+        for ( Expr expr : exprs )
+            prepare(expr) ;
+    }
+
+    private void prepare(Expr expr)
+    {
+        ExprWalker.walk(new ExprBuild(context) {
+            @Override
+            public void visit(ExprFunctionOp funcOp)
+            {
+                OpWalker.walk(funcOp.getGraphPattern(), OpVisitorExprPrepare.this) ;
+            }
+        }, expr) ;
     }
 }
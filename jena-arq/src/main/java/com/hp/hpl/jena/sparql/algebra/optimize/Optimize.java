@@ -30,6 +30,7 @@ import com.hp.hpl.jena.sparql.algebra.TransformCopy;
 import com.hp.hpl.jena.sparql.algebra.Transformer ;
 import com.hp.hpl.jena.sparql.algebra.op.OpLabel ;
 import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.sparql.engine.QueryCache ;
 import com.hp.hpl.jena.sparql.util.Context ;
 import com.hp.hpl.jena.sparql.util.Symbol ;
 
@@ -101,7 +102,7 @@ public class Optimize implements Rewrite
     
     /** Globably set the factory for making optimizers */ 
     public static void setFactory(RewriterFactory aFactory)
-    { factory = aFactory ; }
+    { factory = aFactory ; QueryCache.invalidate() ; }
 
     /** Get the global factory for making optimizers */ 
     public static RewriterFactory getFactory()
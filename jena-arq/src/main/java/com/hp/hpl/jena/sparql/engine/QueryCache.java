@@ -0,0 +1,375 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine;
+
+import java.util.* ;
+import java.util.concurrent.atomic.AtomicLong ;
+
+import org.apache.jena.atlas.lib.ActionKeyValue ;
+import org.apache.jena.atlas.lib.Cache ;
+import org.apache.jena.atlas.lib.CacheFactory ;
+import org.apache.jena.atlas.lib.Lib ;
+
+import com.hp.hpl.jena.query.ARQ ;
+import com.hp.hpl.jena.query.Query ;
+import com.hp.hpl.jena.query.QueryFactory ;
+import com.hp.hpl.jena.query.SortCondition ;
+import com.hp.hpl.jena.query.Syntax ;
+import com.hp.hpl.jena.sparql.ARQConstants ;
+import com.hp.hpl.jena.sparql.algebra.Algebra ;
+import com.hp.hpl.jena.sparql.algebra.Op ;
+import com.hp.hpl.jena.sparql.algebra.TransformCopy ;
+import com.hp.hpl.jena.sparql.algebra.Transformer ;
+import com.hp.hpl.jena.sparql.algebra.op.OpTopN ;
+import com.hp.hpl.jena.sparql.algebra.optimize.Optimize ;
+import com.hp.hpl.jena.sparql.expr.* ;
+import com.hp.hpl.jena.sparql.syntax.ElementGroup ;
+import com.hp.hpl.jena.sparql.util.Context ;
+import com.hp.hpl.jena.sparql.util.Symbol ;
+
+/**
+ * A cache of parsed queries, their algebra and their optimized algebra.
+ * <p>
+ * {@link #parse} returns the same {@link Query} object for the same query
+ * string, base URI and syntax, so the query must be treated as read-only.
+ * Query executions do not change it.
+ * {@link com.hp.hpl.jena.query.QueryExecution#getQuery()} gives the execution
+ * its own copy, which it then runs, so changes made to it before execution
+ * take effect as before.
+ * For a query obtained from the cache, the algebra is generated once
+ * ({@link #compile}) and the result of the high-level optimizer is kept
+ * for each combination of optimizer settings in the context
+ * ({@link #optimize}). Queries created any other way are not cached and
+ * are compiled and optimized each time.
+ * <p>
+ * Extension functions are not required to be thread-safe, so the algebra is
+ * kept without functions bound, and each execution is given a copy of the
+ * function calls in it, bound when the execution evaluates them. The rest of
+ * the algebra is shared. Registering or removing a function or property
+ * function, or changing the optimizer factory, invalidates all algebra held in
+ * the cache (see {@link #invalidate}). Parsed queries are not affected.
+ * <p>
+ * This class is thread-safe.
+ */
+public class QueryCache
+{
+    private static volatile boolean enabled = true ;
+    private static int maxSize = 1000 ;
+
+    // The generation of the algebra in the cache, changed by invalidate().
+    private static final AtomicLong generation = new AtomicLong(0) ;
+
+    // All guarded by the class lock.
+    private static Cache<QueryKey, CachedQuery> queries = createCache(maxSize) ;
+    private static final Map<Query, CachedQuery> byQuery = new IdentityHashMap<>() ;
+    private static final Map<Op, CachedQuery> byOp = new IdentityHashMap<>() ;
+
+    // Per query, the number of different optimizer settings kept.
+    private static final int maxPlansPerQuery = 4 ;
+
+    private static final String optSymbolPrefix = ARQ.arqParamNS+"opt" ;
+    // Other settings used by the optimizer.
+    private static final Symbol[] optSymbols = { ARQ.propertyFunctions, Optimize.filterPlacementOldName } ;
+    // Settings where it is the object in the context that matters.
+    private static final Symbol[] optObjects = { ARQConstants.sysOptimizerFactory,
+                                                 ARQConstants.registryFunctions,
+                                                 ARQConstants.registryPropertyFunctions } ;
+
+    private QueryCache() {}
+
+    private static Cache<QueryKey, CachedQuery> createCache(int size) {
+        Cache<QueryKey, CachedQuery> cache = CacheFactory.createCache(size) ;
+        cache.setDropHandler(new ActionKeyValue<QueryKey, CachedQuery>() {
+            @Override
+            public void apply(QueryKey key, CachedQuery cq) { forget(cq) ; }
+        }) ;
+        return cache ;
+    }
+
+    /** Whether the cache is used. On by default. */
+    public static boolean isEnabled()                       { return enabled ; }
+
+    public static void setEnabled(boolean enabled) {
+        QueryCache.enabled = enabled ;
+        if ( ! enabled )
+            clear() ;
+    }
+
+    /** Maximum number of queries in the cache. */
+    public static int getMaxSize()                          { return maxSize ; }
+
+    public static synchronized void setMaxSize(int maxSize) {
+        if ( maxSize <= 0 )
+            throw new IllegalArgumentException("Maximum size must be greater than zero") ;
+        QueryCache.maxSize = maxSize ;
+        clear() ;
+        queries = createCache(maxSize) ;
+    }
+
+    /** Number of queries in the cache. */
+    public static synchronized long size()                  { return queries.size() ; }
+
+    /** Remove everything from the cache. */
+    public static synchronized void clear() {
+        queries.clear() ;
+        byQuery.clear() ;
+        byOp.clear() ;
+    }
+
+    /** Discard all cached algebra. Called when anything that the optimizer
+     * depends on, other than the settings in the context, changes.
+     */
+    public static void invalidate() {
+        generation.incrementAndGet() ;
+    }
+
+    /** Parse a query, or return the query from the cache.
+     * The query returned must not be modified.
+     * @throws com.hp.hpl.jena.query.QueryException Thrown when a parse error occurs
+     */
+    public static Query parse(String queryString, String baseURI, Syntax syntax) {
+        if ( ! enabled )
+            return QueryFactory.create(queryString, baseURI, syntax) ;
+        QueryKey key = new QueryKey(queryString, baseURI, syntax) ;
+        synchronized(QueryCache.class) {
+            CachedQuery cq = queries.get(key) ;
+            if ( cq != null )
+                return cq.query ;
+        }
+        // Parse errors are not cached.
+        Query query = QueryFactory.create(queryString, baseURI, syntax) ;
+        prepare(query) ;
+        synchronized(QueryCache.class) {
+            CachedQuery cq = queries.get(key) ;
+            // Another thread got there first.
+            if ( cq != null )
+                return cq.query ;
+            cq = new CachedQuery(query) ;
+            queries.put(key, cq) ;
+            byQuery.put(query, cq) ;
+        }
+        return query ;
+    }
+
+    /** Make the changes a query execution makes to the query before the
+     * query is shared, so executions then find them already done. */
+    private static void prepare(Query query) {
+        if ( query.isConstructType() )
+            query.setQueryResultStar(true) ;
+        if ( query.isDescribeType() && query.getQueryPattern() == null )
+            query.setQueryPattern(new ElementGroup()) ;
+        query.setResultVars() ;
+    }
+
+    /** The algebra for a query, from the cache if the query came from {@link #parse}. */
+    public static Op compile(Query query) {
+        CachedQuery cq = lookup(query) ;
+        if ( cq == null )
+            return Algebra.compile(query) ;
+        synchronized(cq) {
+            cq.checkGeneration() ;
+            if ( cq.op == null ) {
+                cq.op = Algebra.compile(query) ;
+                synchronized(QueryCache.class) {
+                    // Not if dropped from the cache meanwhile.
+                    if ( byQuery.get(query) == cq )
+                        byOp.put(cq.op, cq) ;
+                }
+            }
+            return cq.op ;
+        }
+    }
+
+    /** The result of the high-level optimizer on the algebra. This is cached
+     * when the algebra is that of a query from the cache ({@link #compile}),
+     * and the caller then gets its own copy of the function calls. */
+    public static Op optimize(Op op, Context context) {
+        CachedQuery cq ;
+        synchronized(QueryCache.class) {
+            cq = byOp.get(op) ;
+        }
+        if ( cq == null )
+            return Algebra.optimize(op, context) ;
+        List<Object> settings = optimizerSettings(context) ;
+        synchronized(cq) {
+            cq.checkGeneration() ;
+            if ( cq.op != op )
+                // Invalidated; the caller has old algebra.
+                return Algebra.optimize(op, context) ;
+            long gen = cq.generation ;
+            Op opt = cq.plans.get(settings) ;
+            if ( opt == null ) {
+                opt = Algebra.optimize(op, context) ;
+                if ( gen == generation.get() )
+                    cq.plans.put(settings, opt) ;
+            }
+            return copyFunctions(opt) ;
+        }
+    }
+
+    /** Copy the algebra where it contains function calls, unbound, so that
+     * each execution has its own instances of the functions. */
+    static Op copyFunctions(Op op) {
+        return Transformer.transform(new TransformCopyFunctions(), new ExprTransformCopyFunctions(), op) ;
+    }
+
+    private static class ExprTransformCopyFunctions extends ExprTransformCopy
+    {
+        @Override
+        public Expr transform(ExprFunctionN func, ExprList args) {
+            // E_Call keeps the functions it has called.
+            if ( func instanceof E_Function || func instanceof E_Call )
+                return func.copy(args) ;
+            return super.transform(func, args) ;
+        }
+
+        @Override
+        public Expr transform(ExprFunctionOp funcOp, ExprList args, Op opArg) {
+            return super.transform(funcOp, args, copyFunctions(opArg)) ;
+        }
+    }
+
+    // The expressions of OpTopN are not transformed by the Transformer.
+    private static class TransformCopyFunctions extends TransformCopy
+    {
+        @Override
+        public Op transform(OpTopN opTop, Op subOp) {
+            ExprTransform exprTransform = new ExprTransformCopyFunctions() ;
+            List<SortCondition> conditions = new ArrayList<>(opTop.getConditions().size()) ;
+            boolean changed = false ;
+            for ( SortCondition sc : opTop.getConditions() ) {
+                Expr e = ExprTransformer.transform(exprTransform, sc.getExpression()) ;
+                changed |= ( e != sc.getExpression() ) ;
+                conditions.add(new SortCondition(e, sc.getDirection())) ;
+            }
+            if ( ! changed )
+                return super.transform(opTop, subOp) ;
+            return new OpTopN(subOp, opTop.getLimit(), conditions) ;
+        }
+    }
+
+    /** Whether the query is a shared one from the cache. */
+    public static boolean isShared(Query query) {
+        return lookup(query) != null ;
+    }
+
+    private static synchronized CachedQuery lookup(Query query) {
+        return byQuery.get(query) ;
+    }
+
+    private static synchronized void forget(CachedQuery cq) {
+        byQuery.remove(cq.query) ;
+        if ( cq.op != null )
+            byOp.remove(cq.op) ;
+    }
+
+    private static List<Object> optimizerSettings(Context context) {
+        // Sorted so the same settings give equal lists.
+        SortedMap<String, Object> settings = new TreeMap<>() ;
+        for ( Symbol sym : context.keys() ) {
+            if ( sym.getSymbol().startsWith(optSymbolPrefix) )
+                settings.put(sym.getSymbol(), context.get(sym)) ;
+        }
+        for ( Symbol sym : optSymbols ) {
+            if ( context.isDefined(sym) )
+                settings.put(sym.getSymbol(), context.get(sym)) ;
+        }
+        List<Object> x = new ArrayList<>(2*settings.size()+optObjects.length+1) ;
+        for ( Map.Entry<String, Object> e : settings.entrySet() ) {
+            x.add(e.getKey()) ;
+            x.add(e.getValue()) ;
+        }
+        for ( Symbol sym : optObjects )
+            x.add(new Identity(context.get(sym))) ;
+        x.add(new Identity(Optimize.getFactory())) ;
+        return x ;
+    }
+
+    private static final class CachedQuery
+    {
+        final Query query ;
+        // Guarded by this object.
+        long generation = QueryCache.generation.get() ;
+        Op op = null ;
+        final Map<List<Object>, Op> plans = new LinkedHashMap<List<Object>, Op>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, Op> eldest) {
+                return size() > maxPlansPerQuery ;
+            }
+        } ;
+
+        CachedQuery(Query query) { this.query = query ; }
+
+        void checkGeneration() {
+            long gen = QueryCache.generation.get() ;
+            if ( generation == gen )
+                return ;
+            generation = gen ;
+            plans.clear() ;
+            if ( op != null ) {
+                synchronized(QueryCache.class) {
+                    byOp.remove(op) ;
+                }
+                op = null ;
+            }
+        }
+    }
+
+    private static final class QueryKey
+    {
+        private final String queryString ;
+        private final String baseURI ;
+        private final Syntax syntax ;
+
+        QueryKey(String queryString, String baseURI, Syntax syntax) {
+            this.queryString = queryString ;
+            this.baseURI = baseURI ;
+            this.syntax = syntax ;
+        }
+
+        @Override
+        public int hashCode() {
+            return queryString.hashCode() ^ Lib.hashCodeObject(baseURI) ^ Lib.hashCodeObject(syntax) ;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if ( this == other ) return true ;
+            if ( ! ( other instanceof QueryKey ) ) return false ;
+            QueryKey k = (QueryKey)other ;
+            return queryString.equals(k.queryString) && Lib.equal(baseURI, k.baseURI) && Lib.equal(syntax, k.syntax) ;
+        }
+    }
+
+    /** Equality by object identity. */
+    private static final class Identity
+    {
+        private final Object object ;
+
+        Identity(Object object) { this.object = object ; }
+
+        @Override
+        public int hashCode()                   { return System.identityHashCode(object) ; }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Identity && ((Identity)other).object == object ;
+        }
+    }
+}
@@ -23,7 +23,6 @@ import org.apache.jena.atlas.logging.Log ;
 
 import com.hp.hpl.jena.query.Query ;
 import com.hp.hpl.jena.sparql.ARQConstants ;
-import com.hp.hpl.jena.sparql.algebra.Algebra ;
 import com.hp.hpl.jena.sparql.algebra.Op ;
 import com.hp.hpl.jena.sparql.core.DatasetGraph ;
 import com.hp.hpl.jena.sparql.core.Substitute ;
@@ -117,7 +116,7 @@ public abstract class QueryEngineBase implements OpEval, Closeable
     
     protected Op createOp(Query query)
     {
-        Op op = Algebra.compile(query) ;
+        Op op = QueryCache.compile(query) ;
         return op ;
     }
     
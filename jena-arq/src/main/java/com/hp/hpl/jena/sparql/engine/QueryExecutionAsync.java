@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine;
+
+import java.util.concurrent.Callable ;
+import java.util.concurrent.Executor ;
+import java.util.concurrent.Future ;
+import java.util.concurrent.FutureTask ;
+import java.util.concurrent.atomic.AtomicBoolean ;
+
+import com.hp.hpl.jena.query.QueryExecution ;
+import com.hp.hpl.jena.query.ResultSet ;
+import com.hp.hpl.jena.query.ResultSetFactory ;
+import com.hp.hpl.jena.query.ResultSetRewindable ;
+import com.hp.hpl.jena.rdf.model.Model ;
+import com.hp.hpl.jena.sparql.resultset.ResultSetApply ;
+import com.hp.hpl.jena.sparql.resultset.ResultSetProcessor ;
+
+/**
+ * Run a {@link QueryExecution} on an {@link Executor}, returning a
+ * {@link Future} for the results so the calling thread is not blocked while
+ * the query runs.
+ * <p>
+ * The query execution is closed when the work finishes. Cancelling the future
+ * aborts the query execution if it is running, or closes it if it has not yet
+ * started.
+ * <p>
+ * Query execution happens on a thread of the executor, so this is not suitable
+ * for datasets whose transactions are bound to the calling thread (e.g. TDB in
+ * a transaction started by the caller); the work itself must handle any
+ * transaction.
+ */
+public class QueryExecutionAsync
+{
+    private QueryExecutionAsync() {}
+
+    /** Execute a SELECT query, the results are read completely into memory. */
+    public static Future<ResultSetRewindable> execSelect(final QueryExecution qe, Executor executor) {
+        return submit(qe, executor, new Callable<ResultSetRewindable>() {
+            @Override
+            public ResultSetRewindable call() {
+                return ResultSetFactory.copyResults(qe.execSelect()) ;
+            }
+        }) ;
+    }
+
+    /**
+     * Execute a SELECT query, passing each row to the processor as it is
+     * produced. The next row is not produced until the processor has handled
+     * the current one. The future gives the number of rows.
+     */
+    public static Future<Long> execSelect(final QueryExecution qe, final ResultSetProcessor proc, Executor executor) {
+        return submit(qe, executor, new Callable<Long>() {
+            @Override
+            public Long call() {
+                ResultSet rs = qe.execSelect() ;
+                ResultSetApply.apply(rs, proc) ;
+                return (long)rs.getRowNumber() ;
+            }
+        }) ;
+    }
+
+    /** Execute an ASK query */
+    public static Future<Boolean> execAsk(final QueryExecution qe, Executor executor) {
+        return submit(qe, executor, new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return qe.execAsk() ;
+            }
+        }) ;
+    }
+
+    /** Execute a CONSTRUCT query */
+    public static Future<Model> execConstruct(final QueryExecution qe, Executor executor) {
+        return submit(qe, executor, new Callable<Model>() {
+            @Override
+            public Model call() {
+                return qe.execConstruct() ;
+            }
+        }) ;
+    }
+
+    /** Execute a DESCRIBE query */
+    public static Future<Model> execDescribe(final QueryExecution qe, Executor executor) {
+        return submit(qe, executor, new Callable<Model>() {
+            @Override
+            public Model call() {
+                return qe.execDescribe() ;
+            }
+        }) ;
+    }
+
+    private static <T> Future<T> submit(QueryExecution qe, Executor executor, Callable<T> work) {
+        QueryTask<T> task = new QueryTask<>(qe, work) ;
+        executor.execute(task) ;
+        return task ;
+    }
+
+    /** Task that ties cancellation to the query execution. */
+    private static class QueryTask<T> extends FutureTask<T>
+    {
+        private final QueryExecution qe ;
+        // Set by whichever of running and cancelling happens first.
+        private final AtomicBoolean claimed ;
+
+        QueryTask(QueryExecution qe, Callable<T> work) {
+            this(qe, work, new AtomicBoolean(false)) ;
+        }
+
+        private QueryTask(final QueryExecution qe, final Callable<T> work, final AtomicBoolean claimed) {
+            super(new Callable<T>() {
+                @Override
+                public T call() throws Exception {
+                    if ( ! claimed.compareAndSet(false, true) )
+                        return null ;
+                    try { return work.call() ; }
+                    finally { qe.close() ; }
+                }
+            }) ;
+            this.qe = qe ;
+            this.claimed = claimed ;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean b = super.cancel(mayInterruptIfRunning) ;
+            if ( b ) {
+                if ( claimed.compareAndSet(false, true) )
+                    // Never started.
+                    qe.close() ;
+                else
+                    qe.abort() ;
+            }
+            return b ;
+        }
+    }
+}
@@ -236,7 +236,9 @@ public class QueryExecutionBase implements QueryExecution
             throw new QueryExecException("Attempt to get a CONSTRUCT model from a "+labelForQuery(query)+" query") ;
         // This causes there to be no PROJECT around the pattern.
         // That in turn, exposes the initial bindings.  
-        query.setQueryResultStar(true) ;
+        // The query may be shared (QueryCache): only change it if needed.
+        if ( ! query.isQueryResultStar() )
+            query.setQueryResultStar(true) ;
 
         startQueryIterator() ;
         
@@ -584,7 +586,18 @@ public class QueryExecutionBase implements QueryExecution
     public Dataset getDataset() { return dataset ; }
 
     @Override
-    public Query getQuery()     { return query ; }
+    public Query getQuery()
+    {
+        // A query from the cache is shared between executions. The caller may
+        // change the query, so this execution takes its own copy and runs that,
+        // without the cached algebra.
+        if ( QueryCache.isShared(query) )
+        {
+            query = query.cloneQuery() ;
+            context.put(ARQConstants.sysCurrentQuery, query) ;
+        }
+        return query ;
+    }
 
     private static DatasetGraph prepareDataset(Dataset dataset, Query query)
     {
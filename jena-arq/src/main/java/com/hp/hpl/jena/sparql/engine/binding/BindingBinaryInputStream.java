@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.binding;
+
+import static com.hp.hpl.jena.sparql.engine.binding.BindingBinaryOutputStream.* ;
+
+import java.io.BufferedInputStream ;
+import java.io.EOFException ;
+import java.io.IOException ;
+import java.io.InputStream ;
+import java.nio.charset.StandardCharsets ;
+import java.util.ArrayList ;
+import java.util.List ;
+
+import org.apache.jena.atlas.iterator.IteratorSlotted ;
+import org.apache.jena.atlas.lib.Closeable ;
+import org.apache.jena.riot.RiotException ;
+
+import com.hp.hpl.jena.datatypes.TypeMapper ;
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.NodeFactory ;
+import com.hp.hpl.jena.rdf.model.AnonId ;
+import com.hp.hpl.jena.sparql.core.Var ;
+
+/** Read bindings written by {@link BindingBinaryOutputStream}. */
+public class BindingBinaryInputStream extends IteratorSlotted<Binding> implements Closeable
+{
+    private final InputStream in ;
+    private final List<Var> vars = new ArrayList<>() ;
+    private final List<Node> previous = new ArrayList<>() ;
+    private byte[] buffer = new byte[256] ;
+
+    public BindingBinaryInputStream(InputStream in)
+    {
+        this.in = new BufferedInputStream(in, 64*1024) ;
+    }
+
+    @Override
+    protected Binding moveToNext()
+    {
+        try {
+            int first = in.read() ;
+            if ( first < 0 )
+                return null ;
+            int size = readVarInt(first) ;
+            BindingMap b = BindingFactory.create() ;
+            for ( int i = 0 ; i < size ; i++ )
+            {
+                int code = readVarInt(readByte()) ;
+                int id = code >>> 1 ;
+                if ( (code & 1) != 0 )
+                {
+                    vars.add(Var.alloc(readString())) ;
+                    previous.add(null) ;
+                }
+                Node n = readNode() ;
+                if ( n == null )
+                    n = previous.get(id) ;
+                else
+                    previous.set(id, n) ;
+                b.add(vars.get(id), n) ;
+            }
+            return b ;
+        } catch (IOException ex) { throw new RiotException(ex) ; }
+    }
+
+    @Override
+    protected boolean hasMore()
+    {
+        return true ;
+    }
+
+    // Null for "same as last row".
+    private Node readNode() throws IOException
+    {
+        int tag = readByte() ;
+        switch (tag)
+        {
+            case TagURI:
+                return NodeFactory.createURI(readString()) ;
+            case TagBlank:
+                return NodeFactory.createAnon(AnonId.create(readString())) ;
+            case TagLiteral:
+                return NodeFactory.createLiteral(readString()) ;
+            case TagLiteralLang:
+            {
+                String lex = readString() ;
+                return NodeFactory.createLiteral(lex, readString(), false) ;
+            }
+            case TagLiteralDT:
+            {
+                String lex = readString() ;
+                String dt = readString() ;
+                return NodeFactory.createLiteral(lex, TypeMapper.getInstance().getSafeTypeByName(dt)) ;
+            }
+            case TagVar:
+                return Var.alloc(readString()) ;
+            case TagRepeat:
+                return null ;
+            default:
+                throw new RiotException("Bad term tag: "+tag) ;
+        }
+    }
+
+    private String readString() throws IOException
+    {
+        int len = readVarInt(readByte()) ;
+        if ( len > buffer.length )
+            buffer = new byte[Math.max(len, 2*buffer.length)] ;
+        int n = 0 ;
+        while ( n < len )
+        {
+            int r = in.read(buffer, n, len-n) ;
+            if ( r < 0 )
+                throw new EOFException() ;
+            n += r ;
+        }
+        return new String(buffer, 0, len, StandardCharsets.UTF_8) ;
+    }
+
+    private int readByte() throws IOException
+    {
+        int b = in.read() ;
+        if ( b < 0 )
+            throw new EOFException() ;
+        return b ;
+    }
+
+    private int readVarInt(int b) throws IOException
+    {
+        int x = b & 0x7F ;
+        for ( int shift = 7 ; (b & 0x80) != 0 ; shift += 7 )
+        {
+            b = readByte() ;
+            x |= (b & 0x7F) << shift ;
+        }
+        return x ;
+    }
+
+    @Override
+    protected void closeIterator()
+    {
+        try { in.close() ; }
+        catch (IOException ex) { throw new RiotException(ex) ; }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.binding;
+
+import java.io.BufferedOutputStream ;
+import java.io.IOException ;
+import java.io.OutputStream ;
+import java.nio.charset.StandardCharsets ;
+import java.util.ArrayList ;
+import java.util.HashMap ;
+import java.util.Iterator ;
+import java.util.List ;
+import java.util.Map ;
+
+import org.apache.jena.atlas.lib.Sink ;
+import org.apache.jena.riot.RiotException ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.core.Var ;
+
+/** Write bindings in a compact binary form, for temporary files such as
+ * the spill files of sorting.  Read with {@link BindingBinaryInputStream}.
+ * <p>
+ * Each row is the number of variables bound, then for each variable its
+ * number (the name is written the first time the variable is seen) and
+ * its term.  A term that is the same as the previous row for the same
+ * variable, as is common in sorted data, is written as one byte.
+ */
+public class BindingBinaryOutputStream implements Sink<Binding>
+{
+    static final int TagURI             = 1 ;
+    static final int TagBlank           = 2 ;
+    static final int TagLiteral         = 3 ;
+    static final int TagLiteralLang     = 4 ;
+    static final int TagLiteralDT       = 5 ;
+    static final int TagVar             = 6 ;
+    static final int TagRepeat          = 7 ;
+
+    private final OutputStream out ;
+    private final Map<Var, Integer> varIds = new HashMap<>() ;
+    private final List<Node> previous = new ArrayList<>() ;
+
+    public BindingBinaryOutputStream(OutputStream out)
+    {
+        this.out = new BufferedOutputStream(out, 64*1024) ;
+    }
+
+    @Override
+    public void send(Binding binding)
+    {
+        try {
+            writeVarInt(binding.size()) ;
+            Iterator<Var> vIter = binding.vars() ;
+            for ( ; vIter.hasNext() ; )
+            {
+                Var v = vIter.next() ;
+                Integer id = varIds.get(v) ;
+                if ( id == null )
+                {
+                    id = varIds.size() ;
+                    varIds.put(v, id) ;
+                    previous.add(null) ;
+                    // Odd: new variable, followed by its name.
+                    writeVarInt(2*id+1) ;
+                    writeString(v.getVarName()) ;
+                }
+                else
+                    writeVarInt(2*id) ;
+                Node n = binding.get(v) ;
+                if ( n.equals(previous.get(id)) )
+                {
+                    out.write(TagRepeat) ;
+                    continue ;
+                }
+                previous.set(id, n) ;
+                writeNode(n) ;
+            }
+        } catch (IOException ex) { throw new RiotException(ex) ; }
+    }
+
+    private void writeNode(Node n) throws IOException
+    {
+        if ( n.isURI() )
+        {
+            out.write(TagURI) ;
+            writeString(n.getURI()) ;
+        }
+        else if ( n.isBlank() )
+        {
+            out.write(TagBlank) ;
+            writeString(n.getBlankNodeLabel()) ;
+        }
+        else if ( n.isLiteral() )
+        {
+            String lang = n.getLiteralLanguage() ;
+            String dt = n.getLiteralDatatypeURI() ;
+            if ( lang != null && ! lang.isEmpty() )
+            {
+                out.write(TagLiteralLang) ;
+                writeString(n.getLiteralLexicalForm()) ;
+                writeString(lang) ;
+            }
+            else if ( dt != null )
+            {
+                out.write(TagLiteralDT) ;
+                writeString(n.getLiteralLexicalForm()) ;
+                writeString(dt) ;
+            }
+            else
+            {
+                out.write(TagLiteral) ;
+                writeString(n.getLiteralLexicalForm()) ;
+            }
+        }
+        else if ( n.isVariable() )
+        {
+            out.write(TagVar) ;
+            writeString(n.getName()) ;
+        }
+        else
+            throw new RiotException("Can't write node: "+n) ;
+    }
+
+    private void writeString(String s) throws IOException
+    {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8) ;
+        writeVarInt(b.length) ;
+        out.write(b) ;
+    }
+
+    private void writeVarInt(int x) throws IOException
+    {
+        while ( (x & ~0x7F) != 0 )
+        {
+            out.write((x & 0x7F) | 0x80) ;
+            x >>>= 7 ;
+        }
+        out.write(x) ;
+    }
+
+    @Override
+    public void flush()
+    {
+        try { out.flush() ; }
+        catch (IOException ex) { throw new RiotException(ex) ; }
+    }
+
+    @Override
+    public void close()
+    {
+        try { out.close() ; }
+        catch (IOException ex) { throw new RiotException(ex) ; }
+    }
+}
@@ -37,6 +37,9 @@ import com.hp.hpl.jena.sparql.expr.Expr ;
 import com.hp.hpl.jena.sparql.expr.ExprEvalException ;
 import com.hp.hpl.jena.sparql.expr.NodeValue ;
 import com.hp.hpl.jena.sparql.expr.VariableNotBoundException ;
+import com.hp.hpl.jena.sparql.expr.compile.CompiledExpr ;
+import com.hp.hpl.jena.sparql.expr.compile.ExprCompiler ;
+import com.hp.hpl.jena.sparql.expr.compile.NodeCompare ;
 import com.hp.hpl.jena.sparql.function.FunctionEnv ;
 import com.hp.hpl.jena.sparql.function.FunctionEnvBase ;
 import com.hp.hpl.jena.sparql.util.NodeUtils ;
@@ -53,22 +56,53 @@ public class BindingComparator implements java.util.Comparator<Binding>
         };
     
     private List<SortCondition> conditions ;
+    private CompiledExpr[] compiled ;
     private FunctionEnv env ;
     
     public BindingComparator(List<SortCondition> conditions, ExecutionContext execCxt)
     {
         this.conditions = conditions ;
         env = execCxt ;
+        compiled = compile(conditions, execCxt) ;
     }
     
     public BindingComparator(List<SortCondition> _conditions)
     {
         conditions = _conditions ;
         this.env = new FunctionEnvBase();
+        compiled = compile(conditions, null) ;
+    }
+
+    private static CompiledExpr[] compile(List<SortCondition> conditions, ExecutionContext execCxt)
+    {
+        CompiledExpr[] compiled = new CompiledExpr[conditions.size()] ;
+        for ( int i = 0 ; i < compiled.length ; i++ )
+        {
+            Expr expr = conditions.get(i).expression ;
+            if ( expr != null )
+                compiled[i] = ExprCompiler.compile(expr, execCxt == null ? null : execCxt.getContext()) ;
+        }
+        return compiled ;
     }
     
     public List<SortCondition> getConditions() { return Collections.unmodifiableList(conditions) ; } 
 
+    /** Whether the i'th sort condition is a variable or a constant, rather
+     * than an expression to be evaluated. */
+    public boolean isTerm(int i)
+    {
+        return compiled[i] != null && compiled[i].isTerm() ;
+    }
+
+    /** The value of the i'th sort condition for a binding, as a node, or null
+     * if it is unbound or an error.  A sort can calculate this once for each
+     * binding, rather than on each comparison. */
+    public Node sortKey(int i, Binding binding)
+    {
+        NodeValue nv = eval(compiled[i], binding) ;
+        return nv == null ? null : nv.asNode() ;
+    }
+
     // Compare bindings by iterating.
     // Node comparsion is:
     //  Compare by 
@@ -76,43 +110,23 @@ public class BindingComparator implements java.util.Comparator<Binding>
     @Override
     public int compare(Binding bind1, Binding bind2)
     {
-        for ( SortCondition sc : conditions )
+        for ( int i = 0 ; i < compiled.length ; i++ )
         {
+            SortCondition sc = conditions.get(i) ;
             if ( sc.expression == null )
             {
                 throw new QueryExecException( "Broken sort condition" );
             }
 
-            NodeValue nv1 = null;
-            NodeValue nv2 = null;
-
-            try
-            {
-                nv1 = sc.expression.eval( bind1, env );
-            }
-            catch ( VariableNotBoundException ex )
-            {
-            }
-            catch ( ExprEvalException ex )
-            {
-                Log.warn( this, ex.getMessage() );
-            }
-
-            try
-            {
-                nv2 = sc.expression.eval( bind2, env );
-            }
-            catch ( VariableNotBoundException ex )
+            int x ;
+            if ( compiled[i].isTerm() )
+                x = compareTerms(compiled[i], bind1, bind2, sc.direction) ;
+            else
             {
+                NodeValue nv1 = eval(compiled[i], bind1) ;
+                NodeValue nv2 = eval(compiled[i], bind2) ;
+                x = compareNodes( nv1, nv2, sc.direction );
             }
-            catch ( ExprEvalException ex )
-            {
-                Log.warn( this, ex.getMessage() );
-            }
-
-            Node n1 = NodeValue.toNode( nv1 );
-            Node n2 = NodeValue.toNode( nv2 );
-            int x = compareNodes( nv1, nv2, sc.direction );
             if ( x != Expr.CMP_EQUAL )
             {
                 return x;
@@ -122,6 +136,55 @@ public class BindingComparator implements java.util.Comparator<Binding>
         return compareBindingsSyntactic(bind1, bind2) ;
         //return 0 ;
     }
+
+    private NodeValue eval(CompiledExpr expr, Binding binding)
+    {
+        try
+        {
+            return expr.eval( binding, env );
+        }
+        catch ( VariableNotBoundException ex )
+        {
+        }
+        catch ( ExprEvalException ex )
+        {
+            Log.warn( this, ex.getMessage() );
+        }
+        return null ;
+    }
+
+    // Variables and constants: compare the terms, without NodeValues, where possible.
+    private int compareTerms(CompiledExpr expr, Binding bind1, Binding bind2, int direction)
+    {
+        Node n1 = evalNode(expr, bind1) ;
+        Node n2 = evalNode(expr, bind2) ;
+        if ( n1 == null || n2 == null )
+            return compareNodes(n1 == null ? null : NodeValue.makeNode(n1),
+                                n2 == null ? null : NodeValue.makeNode(n2), direction) ;
+        int x = NodeCompare.compare(n1, n2) ;
+        // Equal values, different terms are ordered by NodeValue.compareAlways.
+        if ( x == NodeCompare.UNKNOWN || ( x == Expr.CMP_EQUAL && ! n1.equals(n2) ) )
+            return compareNodes(NodeValue.makeNode(n1), NodeValue.makeNode(n2), direction) ;
+        if ( direction == Query.ORDER_DESCENDING )
+            x = -x ;
+        return x ;
+    }
+
+    private Node evalNode(CompiledExpr expr, Binding binding)
+    {
+        try
+        {
+            return expr.evalNode( binding, env );
+        }
+        catch ( VariableNotBoundException ex )
+        {
+        }
+        catch ( ExprEvalException ex )
+        {
+            Log.warn( this, ex.getMessage() );
+        }
+        return null ;
+    }
     
     private static int compareNodes(NodeValue nv1, NodeValue nv2, int direction)
     {
@@ -31,20 +31,36 @@ public class BindingFactory
     public static Binding binding() { return binding(noParent) ; }
     
     /** Create a binding of no pairs */
-    public static Binding binding(Binding parent) { return new Binding0(parent)  ; }
+    public static Binding binding(Binding parent)
+    {
+        if ( parent instanceof BindingSlots )
+            return new BindingSlots((BindingSlots)parent) ;
+        return new Binding0(parent)  ;
+    }
     
     public static Binding binding(Var var, Node node) { return binding(noParent, var, node) ; }
     
     /** Create a binding of one (var, value) pair */
     public static Binding binding(Binding parent, Var var, Node node)
     {
+        if ( parent instanceof BindingSlots )
+        {
+            BindingSlots b = new BindingSlots((BindingSlots)parent) ;
+            b.add(var, node) ;
+            return b ;
+        }
         if ( Var.isAnonVar(var) )
             return new Binding0(parent) ;
         return new Binding1(parent, var, node) ;
     }
     
     public static BindingMap create() { return create(noParent) ; }
-    public static BindingMap create(Binding parent) { return new BindingHashMap(parent)  ; }
+    public static BindingMap create(Binding parent)
+    {
+        if ( parent instanceof BindingSlots )
+            return new BindingSlots((BindingSlots)parent) ;
+        return new BindingHashMap(parent)  ;
+    }
     
     public static Binding root() { return BindingRoot.create() ; }
 
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.binding ;
+
+import java.nio.charset.StandardCharsets ;
+import java.util.Arrays ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.core.Var ;
+
+/**
+ * Encoding of the terms of a binding as compact byte string keys, for hash
+ * based DISTINCT and REDUCED.  Two terms must have the same encoding if and
+ * only if they are the same RDF term.
+ * <p/>
+ * The default, {@link #nodeEncoder}, writes out the node; a storage layer
+ * can provide an encoder that writes its own internal identifiers.
+ */
+public abstract class BindingKeyEncoder
+{
+    private static final byte TagURI       = 1 ;
+    private static final byte TagBlank     = 2 ;
+    private static final byte TagLiteral   = 3 ;
+    private static final byte TagOther     = 4 ;
+
+    /** Encode terms by writing out the node. */
+    public static final BindingKeyEncoder nodeEncoder = new BindingKeyEncoder() {
+        @Override
+        public void writeTerm(Binding binding, Var var, KeyBuffer key) {
+            writeNode(binding.get(var), key) ;
+        }
+    } ;
+
+    /** Append the encoding of the term bound to the variable, which must be bound. */
+    public abstract void writeTerm(Binding binding, Var var, KeyBuffer key) ;
+
+    /** Append the encoding of a node. Tags below 16 are used by this encoding. */
+    public static void writeNode(Node node, KeyBuffer key) {
+        if ( node.isURI() ) {
+            key.writeByte(TagURI) ;
+            key.writeString(node.getURI()) ;
+        } else if ( node.isBlank() ) {
+            key.writeByte(TagBlank) ;
+            key.writeString(node.getBlankNodeLabel()) ;
+        } else if ( node.isLiteral() ) {
+            key.writeByte(TagLiteral) ;
+            key.writeString(node.getLiteralLexicalForm()) ;
+            key.writeString(node.getLiteralLanguage()) ;
+            String dt = node.getLiteralDatatypeURI() ;
+            key.writeString(dt == null ? "" : dt) ;
+        } else {
+            key.writeByte(TagOther) ;
+            key.writeString(node.toString()) ;
+        }
+    }
+
+    /** A reusable, growable byte buffer for building a key. */
+    public static final class KeyBuffer {
+        private byte[] bytes = new byte[256] ;
+        private int    length = 0 ;
+
+        public byte[] bytes()       { return bytes ; }
+        public int length()         { return length ; }
+        public void reset()         { length = 0 ; }
+
+        public void writeByte(int b) {
+            ensure(1) ;
+            bytes[length++] = (byte)b ;
+        }
+
+        /** Write a non-negative integer in 1 to 5 bytes. */
+        public void writeVarInt(int x) {
+            ensure(5) ;
+            while ( (x & ~0x7F) != 0 ) {
+                bytes[length++] = (byte)((x & 0x7F) | 0x80) ;
+                x >>>= 7 ;
+            }
+            bytes[length++] = (byte)x ;
+        }
+
+        public void writeLong(long x) {
+            ensure(8) ;
+            for ( int i = 56 ; i >= 0 ; i -= 8 )
+                bytes[length++] = (byte)(x >>> i) ;
+        }
+
+        /** Write a string as its length and UTF-8 bytes. */
+        public void writeString(String s) {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8) ;
+            writeVarInt(b.length) ;
+            ensure(b.length) ;
+            System.arraycopy(b, 0, bytes, length, b.length) ;
+            length += b.length ;
+        }
+
+        private void ensure(int n) {
+            if ( length+n > bytes.length )
+                bytes = Arrays.copyOf(bytes, Math.max(2*bytes.length, length+n)) ;
+        }
+    }
+}
@@ -40,6 +40,11 @@ public abstract class BindingProjectBase extends BindingBase {
 
     protected abstract boolean accept(Var var) ;
 
+    /** The binding being projected. */
+    public Binding getBinding() {
+        return binding ;
+    }
+
     @Override
     protected boolean contains1(Var var) {
         return accept(var) && binding.contains(var) ;
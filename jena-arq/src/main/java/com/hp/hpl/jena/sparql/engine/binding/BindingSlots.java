@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.binding;
+
+import java.util.Arrays ;
+import java.util.Iterator ;
+import java.util.NoSuchElementException ;
+
+import org.apache.jena.atlas.logging.Log ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.ARQInternalErrorException ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.util.FmtUtils ;
+
+/** A binding that keeps its values in an array indexed by the slot of each
+ *  variable in a {@link VarLayout} shared by the bindings of a query execution.
+ *  <p>
+ *  A new binding that extends a BindingSlots copies the array rather than
+ *  pointing to it as a parent, so finding a value is one lookup and does not
+ *  walk a chain of bindings. {@link BindingFactory} extends a BindingSlots as a
+ *  BindingSlots.
+ */
+public class BindingSlots extends BindingBase implements BindingMap
+{
+    private final VarLayout layout ;
+    private Node[] values ;
+    private int count ;
+
+    /** A binding with the layout, and the variables and values of another binding. */
+    public static BindingSlots create(VarLayout layout, Binding binding)
+    {
+        BindingSlots b = new BindingSlots(layout) ;
+        BindingUtils.addAll(b, binding) ;
+        return b ;
+    }
+
+    private BindingSlots(VarLayout layout)
+    {
+        super(null) ;
+        this.layout = layout ;
+        this.values = new Node[layout.size()] ;
+        this.count = 0 ;
+    }
+
+    /** A binding to extend another : it starts with a copy of the other's values. */
+    public BindingSlots(BindingSlots other)
+    {
+        super(null) ;
+        this.layout = other.layout ;
+        this.values = Arrays.copyOf(other.values, Math.max(other.values.length, layout.size())) ;
+        this.count = other.count ;
+    }
+
+    public VarLayout getLayout() { return layout ; }
+
+    @Override
+    protected int size1() { return count ; }
+
+    @Override
+    protected boolean isEmpty1() { return count == 0 ; }
+
+    @Override
+    protected Iterator<Var> vars1()
+    {
+        return new Iterator<Var>() {
+            private int i = next(0) ;
+
+            private int next(int x)
+            {
+                while ( x < values.length && values[x] == null )
+                    x++ ;
+                return x ;
+            }
+
+            @Override
+            public boolean hasNext()    { return i < values.length ; }
+
+            @Override
+            public Var next()
+            {
+                if ( ! hasNext() )
+                    throw new NoSuchElementException("BindingSlots") ;
+                Var v = layout.var(i) ;
+                i = next(i+1) ;
+                return v ;
+            }
+
+            @Override
+            public void remove()        { throw new UnsupportedOperationException() ; }
+        } ;
+    }
+
+    @Override
+    protected boolean contains1(Var var)
+    {
+        return get1(var) != null ;
+    }
+
+    @Override
+    protected Node get1(Var var)
+    {
+        int x = layout.slot(var) ;
+        if ( x < 0 || x >= values.length )
+            return null ;
+        return values[x] ;
+    }
+
+    /** Add a (var,value) - the node value is never null */
+    @Override
+    public void add(Var var, Node node)
+    {
+        if ( node == null )
+        {
+            Log.warn(this, "Binding.add: null value - ignored") ;
+            return ;
+        }
+        if ( CHECKING )
+        {
+            if ( var == null )
+                throw new ARQInternalErrorException("check("+var+", "+node+"): null var" ) ;
+            if ( UNIQUE_NAMES_CHECK && contains(var) )
+                throw new ARQInternalErrorException("Attempt to reassign '"+var+
+                                                    "' from '"+FmtUtils.stringForNode(get(var))+
+                                                    "' to '"+FmtUtils.stringForNode(node)+"'") ;
+        }
+        if ( Var.isAnonVar(var) )
+            return ;
+        int x = layout.allocate(var) ;
+        if ( x >= values.length )
+            values = Arrays.copyOf(values, layout.size()) ;
+        if ( values[x] == null )
+            count++ ;
+        values[x] = node ;
+    }
+
+    @Override
+    public void addAll(Binding other)
+    {
+        BindingUtils.addAll(this, other) ;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.binding;
+
+import java.util.Arrays ;
+import java.util.Collection ;
+import java.util.HashMap ;
+import java.util.Map ;
+
+import com.hp.hpl.jena.sparql.core.Var ;
+
+/** The slot number of each variable of a query execution, for {@link BindingSlots}.
+ * The variables of the query are given slots when it is planned; any other
+ * variable seen during execution (e.g. the result of an aggregate in a
+ * sub-query) is given the next slot when first bound.
+ */
+public final class VarLayout
+{
+    // Copy-on-write: lookups do not lock.
+    private volatile Map<Var, Integer> slots ;
+    private volatile Var[] vars ;
+
+    public static VarLayout create(Collection<Var> vars)
+    {
+        return new VarLayout(vars) ;
+    }
+
+    private VarLayout(Collection<Var> vars)
+    {
+        Map<Var, Integer> x = new HashMap<>() ;
+        Var[] v = new Var[vars.size()] ;
+        for ( Var var : vars )
+        {
+            if ( x.containsKey(var) )
+                continue ;
+            v[x.size()] = var ;
+            x.put(var, x.size()) ;
+        }
+        this.slots = x ;
+        this.vars = Arrays.copyOf(v, x.size()) ;
+    }
+
+    /** The slot of a variable, or -1 if it has none. */
+    public int slot(Var var)
+    {
+        Integer x = slots.get(var) ;
+        return ( x == null ) ? -1 : x ;
+    }
+
+    /** The slot of a variable, giving it one if it has none. */
+    public int allocate(Var var)
+    {
+        int x = slot(var) ;
+        if ( x >= 0 )
+            return x ;
+        synchronized(this)
+        {
+            x = slot(var) ;
+            if ( x >= 0 )
+                return x ;
+            Map<Var, Integer> slots2 = new HashMap<>(slots) ;
+            x = slots2.size() ;
+            slots2.put(var, x) ;
+            Var[] vars2 = Arrays.copyOf(vars, x+1) ;
+            vars2[x] = var ;
+            vars = vars2 ;
+            slots = slots2 ;
+            return x ;
+        }
+    }
+
+    /** The variable with a slot. */
+    public Var var(int slot)
+    {
+        return vars[slot] ;
+    }
+
+    /** The number of slots. */
+    public int size()
+    {
+        return vars.length ;
+    }
+
+    @Override
+    public String toString()
+    {
+        return Arrays.asList(vars).toString() ;
+    }
+}
@@ -28,7 +28,6 @@ import org.apache.http.client.HttpClient ;
 import org.apache.http.conn.params.ConnManagerPNames ;
 import org.apache.http.impl.client.AbstractHttpClient ;
 import org.apache.http.impl.client.DecompressingHttpClient ;
-import org.apache.http.impl.client.SystemDefaultHttpClient ;
 import org.apache.http.params.CoreConnectionPNames ;
 import org.apache.http.protocol.BasicHttpContext ;
 import org.apache.http.protocol.HttpContext ;
@@ -37,6 +36,7 @@ import org.apache.jena.atlas.web.TypedInputStream ;
 import org.apache.jena.atlas.web.auth.HttpAuthenticator ;
 import org.apache.jena.atlas.web.auth.SimpleAuthenticator ;
 import org.apache.jena.riot.WebContent ;
+import org.apache.jena.riot.web.HttpConnectionPool ;
 import org.apache.jena.riot.web.HttpOp ;
 import org.slf4j.Logger ;
 import org.slf4j.LoggerFactory ;
@@ -429,8 +429,10 @@ public class HttpQuery extends Params {
         this.client = HttpOp.getDefaultHttpClient();
         if (this.client == null || (this.authenticator != null && !HttpOp.getUseDefaultClientWithAuthentication())) {
             // If no configured default or authentication is in-use and the user has not configured
-            // to use authentication with the default client use a fresh SystemDefaultHttpClient instance
-            this.client = new SystemDefaultHttpClient();
+            // to use authentication with the default client use a fresh client instance, this
+            // reuses pooled connections where pooling is enabled and then must not be shut down
+            this.client = HttpConnectionPool.createHttpClient();
+            this.requireClientShutdown = !HttpConnectionPool.usesPool(this.client);
         } else {
             // When using the configured default client we don't want to shut it down at the end of a request
             this.requireClientShutdown = false;
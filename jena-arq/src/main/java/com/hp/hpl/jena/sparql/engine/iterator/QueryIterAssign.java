@@ -18,6 +18,8 @@
 
 package com.hp.hpl.jena.sparql.engine.iterator;
 
+import java.util.List ;
+
 import org.apache.jena.atlas.io.IndentedWriter ;
 
 import com.hp.hpl.jena.graph.Node ;
@@ -30,6 +32,10 @@ import com.hp.hpl.jena.sparql.engine.binding.Binding ;
 import com.hp.hpl.jena.sparql.engine.binding.BindingFactory ;
 import com.hp.hpl.jena.sparql.engine.binding.BindingMap ;
 import com.hp.hpl.jena.sparql.expr.Expr ;
+import com.hp.hpl.jena.sparql.expr.ExprEvalException ;
+import com.hp.hpl.jena.sparql.expr.NodeValue ;
+import com.hp.hpl.jena.sparql.expr.compile.CompiledExpr ;
+import com.hp.hpl.jena.sparql.expr.compile.ExprCompiler ;
 import com.hp.hpl.jena.sparql.serializer.SerializationContext ;
 import com.hp.hpl.jena.sparql.util.Utils ;
 
@@ -38,6 +44,8 @@ import com.hp.hpl.jena.sparql.util.Utils ;
 public class QueryIterAssign extends QueryIterProcessBinding
 {
     private VarExprList exprs ;
+    // The expression for each of exprs.getVars(), null for a variable without an expression.
+    private final CompiledExpr[] compiled ;
     private final boolean mustBeNewVar ;
     
     public QueryIterAssign(QueryIterator input, Var var, Expr expr, ExecutionContext qCxt)
@@ -54,18 +62,28 @@ public class QueryIterAssign extends QueryIterProcessBinding
         super(input, qCxt) ;
         this.exprs = exprs ;
         this.mustBeNewVar = mustBeNewVar ;
+        List<Var> vars = exprs.getVars() ;
+        this.compiled = new CompiledExpr[vars.size()] ;
+        for ( int i = 0 ; i < compiled.length ; i++ )
+        {
+            Expr expr = exprs.getExpr(vars.get(i)) ;
+            if ( expr != null )
+                compiled[i] = ExprCompiler.compile(expr, qCxt == null ? null : qCxt.getContext()) ;
+        }
     }
     
     @Override
     public Binding accept(Binding binding)
     {
         BindingMap b = BindingFactory.create(binding) ;
-        for ( Var v : exprs.getVars() )
+        List<Var> vars = exprs.getVars() ;
+        for ( int i = 0 ; i < compiled.length ; i++ )
         {
+            Var v = vars.get(i) ;
             // Not this, where expressions do not see the new bindings.
             // Node n = exprs.get(v, bind, funcEnv) ;
             // which gives (Lisp) "let" semantics, not "let*" semantics 
-            Node n = exprs.get(v, b, getExecContext()) ;
+            Node n = get(i, v, b) ;
             
             if ( n == null )
                 // Expression failed to evaluate - no assignment
@@ -89,6 +107,20 @@ public class QueryIterAssign extends QueryIterProcessBinding
         }
         return b ;
     }
+
+    // As VarExprList.get
+    private Node get(int i, Var v, Binding b)
+    {
+        if ( compiled[i] == null )
+            return b.get(v) ;
+        try {
+            NodeValue nv = compiled[i].eval(b, getExecContext()) ;
+            if ( nv == null )
+                return null ;
+            return nv.asNode() ;
+        } catch (ExprEvalException ex) {}
+        return null ;
+    }
     
     @Override
     protected void details(IndentedWriter out, SerializationContext cxt)
@@ -18,51 +18,278 @@
 
 package com.hp.hpl.jena.sparql.engine.iterator ;
 
-import java.util.ArrayList ;
-import java.util.Comparator ;
+import java.io.BufferedInputStream ;
+import java.io.BufferedOutputStream ;
+import java.io.File ;
+import java.io.FileInputStream ;
+import java.io.FileNotFoundException ;
+import java.io.FileOutputStream ;
+import java.nio.ByteBuffer ;
+import java.util.* ;
 
-import org.apache.jena.atlas.data.BagFactory ;
-import org.apache.jena.atlas.data.DistinctDataNet ;
+import org.apache.jena.atlas.data.HashKeySet ;
+import org.apache.jena.atlas.data.SerializationFactory ;
 import org.apache.jena.atlas.data.ThresholdPolicy ;
 import org.apache.jena.atlas.data.ThresholdPolicyFactory ;
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.atlas.lib.Sink ;
 import org.apache.jena.riot.system.SerializationFactoryFinder ;
 
-import com.hp.hpl.jena.query.SortCondition ;
+import com.hp.hpl.jena.query.QueryExecException ;
 import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
 import com.hp.hpl.jena.sparql.engine.QueryIterator ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
-import com.hp.hpl.jena.sparql.engine.binding.BindingComparator ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingKeyEncoder ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingKeyEncoder.KeyBuffer ;
 
 /**
- * A QueryIterator that suppresses items already seen. This will stream results
- * until the spill to disk threshold is passed. At that point, it will not
- * return any results until the input iterator has been exhausted.
+ * A QueryIterator that suppresses items already seen, using a hash table of
+ * encoded bindings held outside the Java heap.  Distinct results are
+ * returned as soon as they are seen.
+ * <p/>
+ * When the spill to disk threshold is passed, or the table cannot grow, the
+ * table stops growing: bindings already in the table are still suppressed,
+ * and the rest are written to disk, split by hash into partitions.  When the
+ * input has been exhausted, each partition is read back and its distinct
+ * bindings returned; a partition that is itself too large is split again.
+ * After several splits the hash is not separating the keys, and a partition
+ * is held in memory whatever its size: in the table, then, if that cannot
+ * grow, in a set on the Java heap.
  * 
- * @see DistinctDataNet
+ * @see BindingKeyEncoder
+ * @see HashKeySet
  */
 public class QueryIterDistinct extends QueryIterDistinctReduced
 {
-    final DistinctDataNet<Binding> db ;
+    private static final int Partitions = 16 ;
+    // Beyond this depth of splitting, partitions are handled in memory.
+    private static final int MaxLevel = 6 ;
+
+    private final ThresholdPolicy<Binding> policy ;
+    private final BindingKeyEncoder encoder ;
+    private final SerializationFactory<Binding> serializationFactory ;
+    private final int maxLevel ;
+    private HashKeySet seen ;
+    // Keys past a full table, for a partition at the last level.
+    private Set<ByteBuffer> overflow = null ;
+
+    // Spill in progress, for the input or for the partition being read.
+    private Spill spill = null ;
+    private int level = 0 ;
+    // Partitions waiting to be read.
+    private final Deque<Partition> pending = new ArrayDeque<>() ;
+    private Partition current = null ;
+    private Iterator<Binding> reader = null ;
 
     public QueryIterDistinct(QueryIterator qIter, ExecutionContext context)
+    {
+        this(qIter, context, BindingKeyEncoder.nodeEncoder) ;
+    }
+
+    public QueryIterDistinct(QueryIterator qIter, ExecutionContext context, BindingKeyEncoder encoder)
+    {
+        this(qIter, context, encoder, Long.MAX_VALUE, MaxLevel) ;
+    }
+
+    // Testing: limits on the memory of the table and on splitting.
+    QueryIterDistinct(QueryIterator qIter, ExecutionContext context, BindingKeyEncoder encoder, long maxTableBytes, int maxLevel)
     {
         super(qIter, context) ;
-        ThresholdPolicy<Binding> policy = ThresholdPolicyFactory.policyFromContext(context.getContext()) ;
-        Comparator<Binding> comparator = new BindingComparator(new ArrayList<SortCondition>(), context) ;
-        this.db = BagFactory.newDistinctNet(policy, SerializationFactoryFinder.bindingSerializationFactory(), comparator) ;
+        this.seen = new HashKeySet(maxTableBytes) ;
+        this.maxLevel = maxLevel ;
+        this.policy = ThresholdPolicyFactory.policyFromContext(context.getContext()) ;
+        this.encoder = encoder ;
+        this.serializationFactory = SerializationFactoryFinder.bindingSerializationFactory() ;
     }
-    
+
     @Override
     protected void closeSubIterator()
-    { db.close() ; }
+    {
+        if ( spill != null )
+            spill.delete() ;
+        spill = null ;
+        if ( reader != null )
+            Iter.close(reader) ;
+        reader = null ;
+        if ( current != null )
+            current.delete() ;
+        current = null ;
+        for ( Partition p : pending )
+            p.delete() ;
+        pending.clear() ;
+        if ( seen != null )
+            seen.close() ;
+        seen = null ;
+        overflow = null ;
+        super.closeSubIterator() ;
+    }
 
+    // Cancelling is asynchronous: the table and the files are released by
+    // the close that follows, in the thread using the iterator.
     @Override
     protected void requestSubCancel()
-    { db.close() ; }
+    { }
 
     @Override
     protected boolean isFreshSighting(Binding binding)
     {
-        return db.netAdd(binding) ;
+        KeyBuffer key = encodeKey(binding, encoder) ;
+        if ( spill == null )
+        {
+            if ( overflow != null )
+                return ! seen.contains(key.bytes(), key.length())
+                       && overflow.add(ByteBuffer.wrap(Arrays.copyOf(key.bytes(), key.length()))) ;
+            try {
+                if ( ! seen.add(key.bytes(), key.length()) )
+                    return false ;
+            } catch (HashKeySet.FullException ex) {
+                // The table cannot grow: the binding is new.
+                if ( level < maxLevel )
+                {
+                    spill = new Spill(level+1) ;
+                    spill.add(binding, key) ;
+                    return false ;
+                }
+                overflow = new HashSet<>() ;
+                overflow.add(ByteBuffer.wrap(Arrays.copyOf(key.bytes(), key.length()))) ;
+                return true ;
+            }
+            policy.increment(binding) ;
+            if ( policy.isThresholdExceeded() && level < maxLevel )
+                spill = new Spill(level+1) ;
+            return true ;
+        }
+        if ( ! seen.contains(key.bytes(), key.length()) )
+            spill.add(binding, key) ;
+        return false ;
+    }
+
+    @Override
+    protected Binding nextHeldBack()
+    {
+        for ( ;; )
+        {
+            if ( reader != null )
+            {
+                while ( reader.hasNext() )
+                {
+                    Binding b = reader.next() ;
+                    if ( isFreshSighting(b) )
+                        return b ;
+                }
+                Iter.close(reader) ;
+                reader = null ;
+                current.delete() ;
+                current = null ;
+            }
+            // Input or partition finished.
+            if ( spill != null )
+            {
+                // Depth first: partitions of this partition go next.
+                List<Partition> parts = spill.finish() ;
+                for ( int i = parts.size()-1 ; i >= 0 ; i-- )
+                    pending.addFirst(parts.get(i)) ;
+                spill = null ;
+            }
+            if ( pending.isEmpty() || seen == null )
+                return null ;
+            current = pending.removeFirst() ;
+            level = current.level ;
+            seen.clear() ;
+            overflow = null ;
+            policy.reset() ;
+            reader = current.open() ;
+        }
+    }
+
+    /** A file of bindings whose keys all fall in the same hash partition. */
+    private final class Partition
+    {
+        final File file ;
+        final int level ;
+        Sink<Binding> sink = null ;
+        boolean written = false ;
+
+        Partition(int level)
+        {
+            this.file = new File(System.getProperty("java.io.tmpdir"), "Distinct-" + UUID.randomUUID().toString() + ".tmp") ;
+            this.level = level ;
+        }
+
+        void add(Binding binding)
+        {
+            if ( sink == null )
+            {
+                try { sink = serializationFactory.createSerializer(new BufferedOutputStream(new FileOutputStream(file))) ; }
+                catch (FileNotFoundException ex) { throw new QueryExecException("Failed to create spill file: "+file, ex) ; }
+                written = true ;
+            }
+            sink.send(binding) ;
+        }
+
+        void finishWrite()
+        {
+            if ( sink != null )
+                sink.close() ;
+            sink = null ;
+        }
+
+        Iterator<Binding> open()
+        {
+            try { return serializationFactory.createDeserializer(new BufferedInputStream(new FileInputStream(file))) ; }
+            catch (FileNotFoundException ex) { throw new QueryExecException("Failed to open spill file: "+file, ex) ; }
+        }
+
+        void delete()
+        {
+            finishWrite() ;
+            if ( written )
+                FileOps.delete(file, false) ;
+        }
+    }
+
+    /** Bindings written out, split by hash of their keys. */
+    private final class Spill
+    {
+        final int level ;
+        final Partition[] parts = new Partition[Partitions] ;
+
+        Spill(int level)
+        {
+            this.level = level ;
+        }
+
+        void add(Binding binding, KeyBuffer key)
+        {
+            // A different hash for each level, so partitions split again.
+            int h = HashKeySet.hash(key.bytes(), key.length(), level) ;
+            int idx = h & (Partitions-1) ;
+            if ( parts[idx] == null )
+                parts[idx] = new Partition(level) ;
+            parts[idx].add(binding) ;
+        }
+
+        List<Partition> finish()
+        {
+            List<Partition> x = new ArrayList<>() ;
+            for ( Partition p : parts )
+            {
+                if ( p == null )
+                    continue ;
+                p.finishWrite() ;
+                x.add(p) ;
+            }
+            return x ;
+        }
+
+        void delete()
+        {
+            for ( Partition p : parts )
+            {
+                if ( p != null )
+                    p.delete() ;
+            }
+        }
     }
 }
@@ -45,6 +45,6 @@ public class QueryIterDistinctMem extends QueryIterDistinctReduced
     @Override
     protected boolean isFreshSighting(Binding binding)
     {
-        return seen.contains(binding) ;
+        return seen.add(binding) ;
     }
 }
\ No newline at end of file
@@ -18,9 +18,18 @@
 
 package com.hp.hpl.jena.sparql.engine.iterator;
 
+import java.util.Arrays ;
+import java.util.HashMap ;
+import java.util.Iterator ;
+import java.util.Map ;
+
+import com.hp.hpl.jena.sparql.core.Var ;
 import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
 import com.hp.hpl.jena.sparql.engine.QueryIterator ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingKeyEncoder ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingKeyEncoder.KeyBuffer ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingProjectBase ;
 import com.hp.hpl.jena.sparql.engine.binding.BindingProjectNamed ;
 
 /** Implementation skeleton for DISTINCT and REDUCED. */
@@ -28,6 +37,12 @@ import com.hp.hpl.jena.sparql.engine.binding.BindingProjectNamed ;
 public abstract class QueryIterDistinctReduced extends QueryIter1
 {
     private Binding slot = null ;       // ready to go.
+
+    // Key encoding: variables are numbered in order of first appearance.
+    private final Map<Var, Integer> varIndex = new HashMap<>() ;
+    private final KeyBuffer key = new KeyBuffer() ;
+    private int[] keyOrder = new int[8] ;
+    private Var[] keyVars = new Var[8] ;
     
     public QueryIterDistinctReduced(QueryIterator iter, ExecutionContext context)
     { super(iter, context)  ; }
@@ -64,7 +79,9 @@ public abstract class QueryIterDistinctReduced extends QueryIter1
                 return true ;
             }
         }
-        return false ;
+        // Input finished - anything held back?
+        slot = nextHeldBack() ;
+        return slot != null ;
     }
 
     @Override
@@ -77,4 +94,57 @@ public abstract class QueryIterDistinctReduced extends QueryIter1
     }
     
     protected abstract boolean isFreshSighting(Binding binding) ;
+
+    /** Called when the input is exhausted; return bindings not yet
+     * returned, one per call, then null.
+     */
+    protected Binding nextHeldBack()
+    { return null ; }
+
+    /**
+     * Encode a binding, as passed to {@link #isFreshSighting}, as a key.
+     * Equal bindings give equal keys.  The buffer returned is reused by
+     * the next call.
+     */
+    protected KeyBuffer encodeKey(Binding binding, BindingKeyEncoder encoder)
+    {
+        // Encoders see the binding before projection, which may carry
+        // storage-specific information.
+        Binding base = binding ;
+        while ( base instanceof BindingProjectBase )
+            base = ((BindingProjectBase)base).getBinding() ;
+        int n = 0 ;
+        Iterator<Var> vIter = binding.vars() ;
+        for ( ; vIter.hasNext() ; )
+        {
+            Var v = vIter.next() ;
+            Integer idx = varIndex.get(v) ;
+            if ( idx == null )
+            {
+                idx = varIndex.size() ;
+                varIndex.put(v, idx) ;
+            }
+            if ( n == keyOrder.length )
+            {
+                keyOrder = Arrays.copyOf(keyOrder, 2*n) ;
+                keyVars = Arrays.copyOf(keyVars, 2*n) ;
+            }
+            // Insertion sort by variable number.
+            int i = n++ ;
+            for ( ; i > 0 && keyOrder[i-1] > idx ; i-- )
+            {
+                keyOrder[i] = keyOrder[i-1] ;
+                keyVars[i] = keyVars[i-1] ;
+            }
+            keyOrder[i] = idx ;
+            keyVars[i] = v ;
+        }
+        key.reset() ;
+        for ( int i = 0 ; i < n ; i++ )
+        {
+            key.writeVarInt(keyOrder[i]) ;
+            encoder.writeTerm(base, keyVars[i], key) ;
+        }
+        return key ;
+    }
 }
@@ -26,6 +26,8 @@ import com.hp.hpl.jena.sparql.engine.QueryIterator ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
 import com.hp.hpl.jena.sparql.expr.Expr ;
 import com.hp.hpl.jena.sparql.expr.ExprException ;
+import com.hp.hpl.jena.sparql.expr.compile.CompiledExpr ;
+import com.hp.hpl.jena.sparql.expr.compile.ExprCompiler ;
 import com.hp.hpl.jena.sparql.serializer.SerializationContext ;
 import com.hp.hpl.jena.sparql.util.ExprUtils ;
 import com.hp.hpl.jena.sparql.util.Utils ;
@@ -36,18 +38,20 @@ import com.hp.hpl.jena.sparql.util.Utils ;
 public class QueryIterFilterExpr extends QueryIterProcessBinding
 {
     private final Expr expr ;
+    private final CompiledExpr compiled ;
     
     public QueryIterFilterExpr(QueryIterator input, Expr expr, ExecutionContext context)
     {
         super(input, context) ;
         this.expr = expr ;
+        this.compiled = ExprCompiler.compile(expr, context == null ? null : context.getContext()) ;
     }
     
     @Override
     public Binding accept(Binding binding)
     {
         try {
-            if ( expr.isSatisfied(binding, super.getExecContext()) )
+            if ( compiled.isSatisfied(binding, super.getExecContext()) )
                 return binding ;
             return null ;
         } catch (ExprException ex)
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.iterator;
+
+import com.hp.hpl.jena.sparql.engine.QueryIterator ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.main.QueryProfile ;
+import com.hp.hpl.jena.sparql.engine.main.QueryProfile.ProfileNode ;
+
+/** Record the rows produced by, and the time spent in, the iterator of an operator.
+ * @see QueryProfile
+ */
+public class QueryIterProfile extends QueryIteratorWrapper
+{
+    private final QueryProfile profile ;
+    private final ProfileNode node ;
+
+    public QueryIterProfile(QueryIterator qIter, QueryProfile profile, ProfileNode node)
+    {
+        super(qIter) ;
+        this.profile = profile ;
+        this.node = node ;
+    }
+
+    @Override
+    protected boolean hasNextBinding()
+    {
+        profile.startRun(node) ;
+        try { return super.hasNextBinding() ; }
+        finally { profile.finishRun(node, 0) ; }
+    }
+
+    @Override
+    protected Binding moveToNextBinding()
+    {
+        profile.startRun(node) ;
+        try { return super.moveToNextBinding() ; }
+        finally { profile.finishRun(node, 1) ; }
+    }
+
+    @Override
+    protected void closeIterator()
+    {
+        profile.startRun(node) ;
+        try { super.closeIterator() ; }
+        finally { profile.finishRun(node, 0) ; }
+    }
+}
@@ -18,36 +18,59 @@
 
 package com.hp.hpl.jena.sparql.engine.iterator;
 
-import java.util.ArrayList ;
-import java.util.List ;
+import org.apache.jena.atlas.data.HashKeySet ;
 
 import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
 import com.hp.hpl.jena.sparql.engine.QueryIterator ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingKeyEncoder ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingKeyEncoder.KeyBuffer ;
 
+/** REDUCED: suppress duplicates of recently seen bindings.  The encoded
+ * bindings seen are held, outside the Java heap, up to a fixed number, then
+ * forgotten.  */
 public class QueryIterReduced extends QueryIterDistinctReduced
 {
-    List<Binding> window = new ArrayList<>() ;
-    int N = 1 ;
+    private static final int WindowSize = 100*1000 ;
+    private final BindingKeyEncoder encoder ;
+    private HashKeySet window = new HashKeySet() ;
     
     public QueryIterReduced(QueryIterator iter, ExecutionContext context)
-    { super(iter, context)  ; }
+    { this(iter, context, BindingKeyEncoder.nodeEncoder) ; }
+
+    public QueryIterReduced(QueryIterator iter, ExecutionContext context, BindingKeyEncoder encoder)
+    {
+        super(iter, context)  ;
+        this.encoder = encoder ;
+    }
 
     @Override
     protected void closeSubIterator()
     {
+        if ( window != null )
+            window.close() ;
         window = null ;
         super.closeSubIterator() ;
     }
 
+    // Cancelling is asynchronous: the window is released by the close that
+    // follows, in the thread using the iterator.
+    @Override
+    protected void requestSubCancel()
+    { }
+
     @Override
     protected boolean isFreshSighting(Binding b)
     {
-        if ( window.contains(b) )
-            return false ;
-        if ( window.size() >= N )
-            window.remove(window.size()-1) ;
-        window.add(0, b) ;
-        return true ;
+        KeyBuffer key = encodeKey(b, encoder) ;
+        if ( window.size() >= WindowSize )
+            window.clear() ;
+        try {
+            return window.add(key.bytes(), key.length()) ;
+        } catch (HashKeySet.FullException ex) {
+            // Out of memory for the window: forget it early.
+            window.clear() ;
+            return window.add(key.bytes(), key.length()) ;
+        }
     }
 }
@@ -18,24 +18,37 @@
 
 package com.hp.hpl.jena.sparql.engine.iterator;
 
+import java.util.ArrayList ;
 import java.util.Comparator ;
+import java.util.HashSet ;
 import java.util.Iterator ;
 import java.util.List ;
+import java.util.Set ;
 
 import org.apache.jena.atlas.data.BagFactory ;
 import org.apache.jena.atlas.data.SortedDataBag ;
 import org.apache.jena.atlas.data.ThresholdPolicy ;
 import org.apache.jena.atlas.data.ThresholdPolicyFactory ;
+import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.iterator.IteratorDelayedInitialization ;
+import org.apache.jena.atlas.iterator.Transform ;
 import org.apache.jena.atlas.lib.Closeable ;
 import org.apache.jena.riot.system.SerializationFactoryFinder ;
 
+import com.hp.hpl.jena.graph.Node ;
 import com.hp.hpl.jena.query.QueryCancelledException ;
 import com.hp.hpl.jena.query.SortCondition ;
+import com.hp.hpl.jena.sparql.ARQConstants ;
+import com.hp.hpl.jena.sparql.core.Var ;
 import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
 import com.hp.hpl.jena.sparql.engine.QueryIterator ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingBase ;
 import com.hp.hpl.jena.sparql.engine.binding.BindingComparator ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingHashMap ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingMap ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingProjectBase ;
+import com.hp.hpl.jena.sparql.expr.ExprVar ;
 
 /** 
  * Sort a query iterator.  The sort will happen in-memory unless the size of the
@@ -48,6 +61,7 @@ public class QueryIterSort extends QueryIterPlainWrapper
 {
 	private final QueryIterator embeddedIterator;      // Keep a record of the underlying source for .cancel.
 	final SortedDataBag<Binding> db;
+	private final SortKeys sortKeys ;                  // Null if the comparator only looks up variables.
 	
     public QueryIterSort(QueryIterator qIter, List<SortCondition> conditions, ExecutionContext context)
     {
@@ -59,8 +73,19 @@ public class QueryIterSort extends QueryIterPlainWrapper
         super(null, context) ;
         this.embeddedIterator = qIter ;
         
+        Comparator<Binding> cmp = comparator ;
+        if ( comparator instanceof BindingComparator )
+        {
+            BindingComparator bc = (BindingComparator)comparator ;
+            this.sortKeys = SortKeys.create(bc, context) ;
+            if ( sortKeys != null )
+                cmp = sortKeys.comparator ;
+        }
+        else
+            this.sortKeys = null ;
+        
         ThresholdPolicy<Binding> policy = ThresholdPolicyFactory.policyFromContext(context.getContext());
-        this.db = BagFactory.newSortedBag(policy, SerializationFactoryFinder.bindingSerializationFactory(), comparator);
+        this.db = BagFactory.newSortedBag(policy, SerializationFactoryFinder.bindingSerializationFactory(), cmp);
         
         this.setIterator(new SortedBindingIterator(qIter));
     }
@@ -86,7 +111,10 @@ public class QueryIterSort extends QueryIterPlainWrapper
         {
             try
             {
-                db.addAll(qIter);
+                if ( sortKeys == null )
+                    db.addAll(qIter);
+                else
+                    db.addAll(Iter.map(qIter, sortKeys.add));
             }
             // Should we catch other exceptions too?  Theoretically the user should be using this
             // iterator in a try/finally block, and thus will call close() themselves. 
@@ -96,7 +124,9 @@ public class QueryIterSort extends QueryIterPlainWrapper
                 throw e;
             }
             
-            return db.iterator();
+            if ( sortKeys == null )
+                return db.iterator();
+            return Iter.map(db.iterator(), sortKeys.remove);
         }
 
         @Override
@@ -106,4 +136,86 @@ public class QueryIterSort extends QueryIterPlainWrapper
         }
     }
     
+    /**
+     * Sort conditions that are expressions are evaluated once for each
+     * binding, when it is added, and the values kept in the binding in
+     * hidden variables, which are then what is compared.  The variables are
+     * removed as the sorted bindings are returned.
+     */
+    private static class SortKeys
+    {
+        final BindingComparator comparator ;
+        final Transform<Binding, Binding> add ;
+        final Transform<Binding, Binding> remove ;
+
+        static SortKeys create(final BindingComparator bc, ExecutionContext context)
+        {
+            List<SortCondition> conditions = bc.getConditions() ;
+            List<SortCondition> keyConditions = new ArrayList<>(conditions.size()) ;
+            final Var[] keyVars = new Var[conditions.size()] ;
+            boolean any = false ;
+            for ( int i = 0 ; i < conditions.size() ; i++ )
+            {
+                SortCondition sc = conditions.get(i) ;
+                if ( sc.expression == null || bc.isTerm(i) )
+                {
+                    keyConditions.add(sc) ;
+                    continue ;
+                }
+                keyVars[i] = Var.alloc(ARQConstants.allocVarMarker+"sortkey"+i) ;
+                keyConditions.add(new SortCondition(new ExprVar(keyVars[i]), sc.direction)) ;
+                any = true ;
+            }
+            if ( ! any )
+                return null ;
+            return new SortKeys(bc, new BindingComparator(keyConditions, context), keyVars) ;
+        }
+
+        private SortKeys(final BindingComparator bc, BindingComparator keyComparator, final Var[] keyVars)
+        {
+            this.comparator = keyComparator ;
+            final Set<Var> hidden = new HashSet<>() ;
+            for ( Var v : keyVars )
+            {
+                if ( v != null )
+                    hidden.add(v) ;
+            }
+            this.add = new Transform<Binding, Binding>()
+            {
+                @Override
+                public Binding convert(Binding binding)
+                {
+                    // Not BindingFactory.create : the parent is needed to remove the keys.
+                    BindingMap b = new BindingHashMap(binding) ;
+                    for ( int i = 0 ; i < keyVars.length ; i++ )
+                    {
+                        if ( keyVars[i] == null )
+                            continue ;
+                        Node n = bc.sortKey(i, binding) ;
+                        if ( n != null )
+                            b.add(keyVars[i], n) ;
+                    }
+                    return b ;
+                }
+            } ;
+            this.remove = new Transform<Binding, Binding>()
+            {
+                @Override
+                public Binding convert(Binding binding)
+                {
+                    // Bindings that were not written to disk still have the original as parent.
+                    if ( binding instanceof BindingBase && ((BindingBase)binding).getParent() != null )
+                        return ((BindingBase)binding).getParent() ;
+                    return new BindingProjectBase(binding)
+                    {
+                        @Override
+                        protected boolean accept(Var var)
+                        {
+                            return ! hidden.contains(var) ;
+                        }
+                    } ;
+                }
+            } ;
+        }
+    }
 }
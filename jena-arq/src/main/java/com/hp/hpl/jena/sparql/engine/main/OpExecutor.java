@@ -31,6 +31,7 @@ import com.hp.hpl.jena.query.ARQ ;
 import com.hp.hpl.jena.query.QueryExecException ;
 import com.hp.hpl.jena.sparql.ARQNotImplemented ;
 import com.hp.hpl.jena.sparql.algebra.Op ;
+import com.hp.hpl.jena.sparql.algebra.OpDeterministic ;
 import com.hp.hpl.jena.sparql.algebra.OpVars ;
 import com.hp.hpl.jena.sparql.algebra.op.* ;
 import com.hp.hpl.jena.sparql.core.BasicPattern ;
@@ -40,13 +41,18 @@ import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
 import com.hp.hpl.jena.sparql.engine.QueryIterator ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
 import com.hp.hpl.jena.sparql.engine.iterator.* ;
+import com.hp.hpl.jena.sparql.engine.main.iterator.QueryIterExistsBatch ;
 import com.hp.hpl.jena.sparql.engine.main.iterator.QueryIterGraph ;
 import com.hp.hpl.jena.sparql.engine.main.iterator.QueryIterJoin ;
 import com.hp.hpl.jena.sparql.engine.main.iterator.QueryIterLeftJoin ;
+import com.hp.hpl.jena.sparql.engine.main.iterator.QueryIterOptionalBatch ;
 import com.hp.hpl.jena.sparql.engine.main.iterator.QueryIterOptionalIndex ;
 import com.hp.hpl.jena.sparql.engine.main.iterator.QueryIterService ;
 import com.hp.hpl.jena.sparql.engine.main.iterator.QueryIterUnion ;
+import com.hp.hpl.jena.sparql.expr.E_Exists ;
+import com.hp.hpl.jena.sparql.expr.E_NotExists ;
 import com.hp.hpl.jena.sparql.expr.Expr ;
+import com.hp.hpl.jena.sparql.expr.ExprFunctionOp ;
 import com.hp.hpl.jena.sparql.expr.ExprList ;
 import com.hp.hpl.jena.sparql.procedure.ProcEval ;
 import com.hp.hpl.jena.sparql.procedure.Procedure ;
@@ -103,6 +109,8 @@ public class OpExecutor
     protected int                  level      = TOP_LEVEL - 1 ;
     private final boolean          hideBNodeVars ;
     protected final StageGenerator stageGenerator ;
+    // Null if not profiling.
+    private final QueryProfile     profile ;
 
     protected OpExecutor(ExecutionContext execCxt)
     {
@@ -110,6 +118,7 @@ public class OpExecutor
         this.dispatcher = new ExecutionDispatch(this) ;
         this.hideBNodeVars = execCxt.getContext().isTrue(ARQ.hideNonDistiguishedVariables) ;
         this.stageGenerator = StageBuilder.chooseStageGenerator(execCxt.getContext()) ;
+        this.profile = QueryProfile.get(execCxt.getContext()) ;
     }
 
     // Public interface 
@@ -119,6 +128,8 @@ public class OpExecutor
     
     // ---- The recursive step.
     protected QueryIterator exec(Op op, QueryIterator input) {
+        if ( profile != null )
+            return execProfile(op, input) ;
         level++ ;
         QueryIterator qIter = dispatcher.exec(op, input) ;
         // Intentionally not try/finally so exceptions leave some evidence
@@ -127,6 +138,17 @@ public class OpExecutor
         return qIter ;
     }
 
+    private QueryIterator execProfile(Op op, QueryIterator input) {
+        QueryProfile.ProfileNode node = profile.startBuild(op) ;
+        QueryIterator qIter ;
+        try {
+            level++ ;
+            qIter = dispatcher.exec(op, input) ;
+            level-- ;
+        } finally { profile.finishBuild() ; }
+        return profile.wrap(qIter, node) ;
+    }
+
     // ---- All the cases
 
     protected QueryIterator execute(OpBGP opBGP, QueryIterator input) {
@@ -248,6 +270,8 @@ public class OpExecutor
 
     protected QueryIterator execute(OpConditional opCondition, QueryIterator input) {
         QueryIterator left = exec(opCondition.getLeft(), input) ;
+        if ( batchProbes(opCondition.getRight()) )
+            return new QueryIterOptionalBatch(left, opCondition.getRight(), execCxt) ;
         QueryIterator qIter = new QueryIterOptionalIndex(left, opCondition.getRight(), execCxt) ;
         return qIter ;
     }
@@ -307,11 +331,22 @@ public class OpExecutor
         Op base = opFilter.getSubOp() ;
         QueryIterator qIter = exec(base, input) ;
 
-        for (Expr expr : exprs)
-            qIter = new QueryIterFilterExpr(qIter, expr, execCxt) ;
+        for (Expr expr : exprs) {
+            if ( ( expr instanceof E_Exists || expr instanceof E_NotExists ) && batchProbes(((ExprFunctionOp)expr).getGraphPattern()) )
+                qIter = new QueryIterExistsBatch(qIter, (ExprFunctionOp)expr, execCxt) ;
+            else
+                qIter = new QueryIterFilterExpr(qIter, expr, execCxt) ;
+        }
         return qIter ;
     }
 
+    /** Whether to share the evaluation of a probe between input rows with the
+     * same values of its variables: not if each evaluation may differ. */
+    private boolean batchProbes(Op op) {
+        return execCxt.getContext().isTrueOrUndef(ARQ.batchProbes)
+            && OpDeterministic.isDeterministic(op, execCxt.getContext()) ;
+    }
+
     protected QueryIterator execute(OpService opService, QueryIterator input) {
         return new QueryIterService(input, opService, execCxt) ;
     }
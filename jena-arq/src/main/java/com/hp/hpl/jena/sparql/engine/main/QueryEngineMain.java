@@ -20,12 +20,14 @@ package com.hp.hpl.jena.sparql.engine.main;
 
 import com.hp.hpl.jena.query.ARQ ;
 import com.hp.hpl.jena.query.Query ;
-import com.hp.hpl.jena.sparql.algebra.Algebra ;
 import com.hp.hpl.jena.sparql.algebra.Op ;
+import com.hp.hpl.jena.sparql.algebra.OpVars ;
 import com.hp.hpl.jena.sparql.algebra.optimize.TransformScopeRename ;
 import com.hp.hpl.jena.sparql.core.DatasetGraph ;
 import com.hp.hpl.jena.sparql.engine.* ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingSlots ;
+import com.hp.hpl.jena.sparql.engine.binding.VarLayout ;
 import com.hp.hpl.jena.sparql.engine.iterator.QueryIterRoot ;
 import com.hp.hpl.jena.sparql.engine.iterator.QueryIteratorCheck ;
 import com.hp.hpl.jena.sparql.engine.iterator.QueryIteratorTiming ;
@@ -49,8 +51,14 @@ public class QueryEngineMain extends QueryEngineBase
     public QueryIterator eval(Op op, DatasetGraph dsg, Binding input, Context context)
     {
         ExecutionContext execCxt = new ExecutionContext(context, dsg.getDefaultGraph(), dsg, QC.getFactory(context)) ;
+        QueryProfile profile = QueryProfile.create(context) ;
+        if ( context.isTrueOrUndef(ARQ.slotBindings) )
+            // Slots for the variables of the query.
+            input = BindingSlots.create(VarLayout.create(OpVars.mentionedVars(op)), input) ;
         QueryIterator qIter1 = QueryIterRoot.create(input, execCxt) ;
         QueryIterator qIter = QC.execute(op, qIter1, execCxt) ;
+        if ( profile != null )
+            qIter = profile.finishOnClose(qIter, context) ;
         // Wrap with something to check for closed iterators.
         qIter = QueryIteratorCheck.check(qIter, execCxt) ;
         // Need call back.
@@ -64,7 +72,7 @@ public class QueryEngineMain extends QueryEngineBase
     { 
         if ( context.isFalse(ARQ.optimization) )
             return minimalModifyOp(op) ;
-        return Algebra.optimize(op, super.context) ;
+        return QueryCache.optimize(op, super.context) ;
     }
     
     protected Op minimalModifyOp(Op op)
@@ -0,0 +1,376 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.main;
+
+import java.util.* ;
+
+import org.apache.jena.atlas.io.IndentedLineBuffer ;
+import org.apache.jena.atlas.io.IndentedWriter ;
+import org.apache.jena.atlas.json.JsonArray ;
+import org.apache.jena.atlas.json.JsonNumber ;
+import org.apache.jena.atlas.json.JsonObject ;
+
+import com.hp.hpl.jena.query.ARQ ;
+import com.hp.hpl.jena.sparql.ARQConstants ;
+import com.hp.hpl.jena.sparql.algebra.Op ;
+import com.hp.hpl.jena.sparql.algebra.op.* ;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.sparql.engine.QueryEngineBase ;
+import com.hp.hpl.jena.sparql.engine.QueryIterator ;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterProfile ;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIteratorWrapper ;
+import com.hp.hpl.jena.sparql.mgt.Explain ;
+import com.hp.hpl.jena.sparql.util.Context ;
+
+/**
+ * Execution profile of a query: for each operator of the algebra executed,
+ * the number of rows produced, the time spent and any counters recorded by
+ * the storage layer (for example, index scans).
+ * <p>
+ * Profiling is enabled by setting {@link ARQ#profile} in the context of the
+ * query execution; the profile is then available from that context with
+ * {@link #get(Context)}, while the query executes and after it has finished.
+ * <p>
+ * Operators that are executed many times, for each row of their input (e.g.
+ * the right hand side of an index join), appear once in the profile with
+ * the number of executions and the totals over all of them. The time of an
+ * operator is the time spent in the operator itself, not including the
+ * operators it reads from; the total for an operator includes the operators
+ * below it in the profile.
+ */
+public class QueryProfile
+{
+    /** Counter name for the number of index scans. */
+    public static final String IndexScans    = "indexScans" ;
+    /** Counter name for the number of look-ups of a node from a node id. */
+    public static final String NodeLookups   = "nodeLookups" ;
+    /** Counter name for the number of look-ups of a node id from a node. */
+    public static final String NodeIdLookups = "nodeIdLookups" ;
+    /** Counter name for the number of index pages read. */
+    public static final String PageReads     = "pageReads" ;
+
+    /** Get the profile for a query execution, or null if profiling is not enabled. */
+    public static QueryProfile get(Context context) {
+        Object x = context.get(ARQConstants.sysProfile) ;
+        return ( x instanceof QueryProfile ) ? (QueryProfile)x : null ;
+    }
+
+    /** Create a profile in the context if profiling is enabled, otherwise return null. */
+    public static QueryProfile create(Context context) {
+        if ( ! context.isTrue(ARQ.profile) )
+            return null ;
+        QueryProfile profile = new QueryProfile() ;
+        context.set(ARQConstants.sysProfile, profile) ;
+        return profile ;
+    }
+
+    /** Add to a counter of the operator currently executing, if profiling. */
+    public static void count(ExecutionContext execCxt, String counter, long n) {
+        QueryProfile profile = get(execCxt.getContext()) ;
+        if ( profile != null )
+            profile.count(counter, n) ;
+    }
+
+    /** The profile of the operator currently executing, or null if not profiling. */
+    public static ProfileNode current(ExecutionContext execCxt) {
+        QueryProfile profile = get(execCxt.getContext()) ;
+        return ( profile == null ) ? null : profile.current() ;
+    }
+
+    private final ProfileNode root = new ProfileNode(null, false) ;
+    private final Deque<Frame> active = new ArrayDeque<>() ;
+    private long lastSwitch = System.nanoTime() ;
+    private boolean finished = false ;
+
+    private QueryProfile() {}
+
+    /** The top of the profile tree. It is not an operator: its children are
+     * the operators executed from outside any other operator. */
+    public ProfileNode getRoot()                { return root ; }
+
+    /** Whether the query execution has finished. */
+    public synchronized boolean isFinished()    { return finished ; }
+
+    synchronized void count(String counter, long n) {
+        current().add(counter, n) ;
+    }
+
+    /** Add to a counter of an operator. */
+    public synchronized void count(ProfileNode node, String counter, long n) {
+        node.add(counter, n) ;
+    }
+
+    synchronized ProfileNode current() {
+        Frame f = active.peek() ;
+        return ( f == null ) ? root : f.node ;
+    }
+
+    /** Start building the execution of an operator. */
+    synchronized ProfileNode startBuild(Op op) {
+        Frame parent = active.peek() ;
+        ProfileNode node ;
+        if ( parent == null )
+            node = root.dynamicChild(op) ;
+        else if ( parent.building )
+            node = parent.node.child(parent.nextChild++, op) ;
+        else
+            // Executed while another operator is producing results.
+            node = parent.node.dynamicChild(op) ;
+        node.executions++ ;
+        push(new Frame(node, true)) ;
+        return node ;
+    }
+
+    synchronized void finishBuild() {
+        pop() ;
+    }
+
+    /** An operator is working on producing results. */
+    public synchronized void startRun(ProfileNode node) {
+        push(new Frame(node, false)) ;
+    }
+
+    /** An operator has stopped working, having produced {@code rows} results. */
+    public synchronized void finishRun(ProfileNode node, long rows) {
+        pop() ;
+        node.rows += rows ;
+    }
+
+    /** The query execution has finished. */
+    public void finish(Context context) {
+        synchronized(this) {
+            if ( finished )
+                return ;
+            finished = true ;
+        }
+        QueryEngineBase.queryEngineInfo.setLastProfile(this) ;
+        Explain.explain(this, context) ;
+    }
+
+    /** Wrap the results of the query execution to finish the profile when they are closed. */
+    QueryIterator finishOnClose(QueryIterator qIter, final Context context) {
+        return new QueryIteratorWrapper(qIter) {
+            @Override
+            protected void closeIterator() {
+                super.closeIterator() ;
+                finish(context) ;
+            }
+        } ;
+    }
+
+    // Time is charged to the operator on the top of the stack.
+    private void push(Frame frame) {
+        charge() ;
+        active.push(frame) ;
+    }
+
+    private void pop() {
+        charge() ;
+        active.pop() ;
+    }
+
+    private void charge() {
+        long now = System.nanoTime() ;
+        current().nanos += now-lastSwitch ;
+        lastSwitch = now ;
+    }
+
+    /** Wrap the iterator of an operator to record its rows and time. */
+    QueryIterator wrap(QueryIterator qIter, ProfileNode node) {
+        return new QueryIterProfile(qIter, this, node) ;
+    }
+
+    public synchronized JsonObject asJson() {
+        return root.asJson() ;
+    }
+
+    @Override
+    public synchronized String toString() {
+        IndentedLineBuffer out = new IndentedLineBuffer() ;
+        for ( ProfileNode n : root.children )
+            n.output(out) ;
+        return out.asString() ;
+    }
+
+    private static class Frame
+    {
+        final ProfileNode node ;
+        final boolean building ;
+        int nextChild = 0 ;
+        Frame(ProfileNode node, boolean building) {
+            this.node = node ;
+            this.building = building ;
+        }
+    }
+
+    /** The profile of one operator. */
+    public static class ProfileNode
+    {
+        private final Op op ;
+        private final List<ProfileNode> children = new ArrayList<>() ;
+        private final Map<String, Long> counters = new TreeMap<>() ;
+        private long executions = 0 ;
+        private long rows = 0 ;
+        private long nanos = 0 ;
+        private final boolean dynamic ;
+
+        ProfileNode(Op op, boolean dynamic) {
+            this.op = op ;
+            this.dynamic = dynamic ;
+        }
+
+        /** The operator, as first executed. */
+        public Op getOp()                           { return op ; }
+        public List<ProfileNode> getChildren()      { return Collections.unmodifiableList(children) ; }
+        /** Number of times the operator was executed. */
+        public long getExecutions()                 { return executions ; }
+        /** Number of rows produced, over all executions. */
+        public long getRows()                       { return rows ; }
+        /** Time spent in this operator, in nanoseconds. */
+        public long getTime()                       { return nanos ; }
+
+        /** Time spent in this operator and the operators below it, in nanoseconds. */
+        public long getTotalTime() {
+            long x = nanos ;
+            for ( ProfileNode n : children )
+                x += n.getTotalTime() ;
+            return x ;
+        }
+
+        /** Value of a counter, or zero. */
+        public long getCounter(String name) {
+            Long x = counters.get(name) ;
+            return ( x == null ) ? 0 : x ;
+        }
+
+        public Map<String, Long> getCounters()      { return Collections.unmodifiableMap(counters) ; }
+
+        void add(String counter, long n) {
+            Long x = counters.get(counter) ;
+            counters.put(counter, ( x == null ) ? n : x+n) ;
+        }
+
+        // Operators are built in the same order each time the parent is
+        // executed, so they are matched by position.
+        private ProfileNode child(int idx, Op op) {
+            int i = 0 ;
+            for ( ProfileNode n : children ) {
+                if ( n.dynamic )
+                    continue ;
+                if ( i++ == idx && n.op.getName().equals(op.getName()) )
+                    return n ;
+            }
+            return newChild(op, false) ;
+        }
+
+        // Operators executed while the parent is producing results are
+        // usually a different operator each time (with values substituted)
+        // so they are matched by kind of operator.
+        private ProfileNode dynamicChild(Op op) {
+            for ( ProfileNode n : children ) {
+                if ( n.dynamic && n.op.getName().equals(op.getName()) )
+                    return n ;
+            }
+            return newChild(op, true) ;
+        }
+
+        private ProfileNode newChild(Op op, boolean dynamic) {
+            ProfileNode n = new ProfileNode(op, dynamic) ;
+            children.add(n) ;
+            return n ;
+        }
+
+        JsonObject asJson() {
+            JsonObject obj = new JsonObject() ;
+            if ( op != null ) {
+                obj.put("op", label(op)) ;
+                obj.put("executions", executions) ;
+                obj.put("rows", rows) ;
+            }
+            obj.put("time", JsonNumber.value(millis(nanos))) ;
+            obj.put("total", JsonNumber.value(millis(getTotalTime()))) ;
+            for ( Map.Entry<String, Long> e : counters.entrySet() )
+                obj.put(e.getKey(), e.getValue()) ;
+            JsonArray a = new JsonArray() ;
+            for ( ProfileNode n : children )
+                a.add(n.asJson()) ;
+            obj.put("children", a) ;
+            return obj ;
+        }
+
+        void output(IndentedWriter out) {
+            out.print(label(op)) ;
+            out.print("  rows=") ;
+            out.print(Long.toString(rows)) ;
+            if ( executions != 1 ) {
+                out.print(" executions=") ;
+                out.print(Long.toString(executions)) ;
+            }
+            out.print(String.format(" time=%.3fms total=%.3fms", millis(nanos), millis(getTotalTime()))) ;
+            for ( Map.Entry<String, Long> e : counters.entrySet() ) {
+                out.print(" ") ;
+                out.print(e.getKey()) ;
+                out.print("=") ;
+                out.print(e.getValue().toString()) ;
+            }
+            out.println() ;
+            out.incIndent() ;
+            for ( ProfileNode n : children )
+                n.output(out) ;
+            out.decIndent() ;
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos/1.0e6 ;
+    }
+
+    private static final int MaxLabelLength = 100 ;
+
+    /** One line description of an operator: the whole operator for leaves
+     * in the algebra, otherwise its name and main argument. */
+    private static String label(Op op) {
+        String x ;
+        if ( op instanceof Op0 )
+            x = oneLine(op.toString()) ;
+        else if ( op instanceof OpFilter )
+            x = op.getName()+" "+((OpFilter)op).getExprs() ;
+        else if ( op instanceof OpProject )
+            x = op.getName()+" "+((OpProject)op).getVars() ;
+        else if ( op instanceof OpExtend )
+            x = op.getName()+" "+((OpExtend)op).getVarExprList().getExprs() ;
+        else if ( op instanceof OpOrder )
+            x = op.getName()+" "+((OpOrder)op).getConditions() ;
+        else if ( op instanceof OpLeftJoin && ((OpLeftJoin)op).getExprs() != null )
+            x = op.getName()+" "+((OpLeftJoin)op).getExprs() ;
+        else if ( op instanceof OpSlice )
+            x = op.getName()+" "+((OpSlice)op).getStart()+" "+((OpSlice)op).getLength() ;
+        else if ( op instanceof OpGraph )
+            x = op.getName()+" "+((OpGraph)op).getNode() ;
+        else
+            x = op.getName() ;
+        if ( x.length() > MaxLabelLength )
+            x = x.substring(0, MaxLabelLength-3)+"..." ;
+        return x ;
+    }
+
+    private static String oneLine(String s) {
+        return s.trim().replaceAll("\\s+", " ") ;
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.main.iterator;
+
+import java.util.* ;
+
+import org.apache.jena.atlas.io.IndentedWriter ;
+import org.apache.jena.atlas.iterator.Iter ;
+
+import com.hp.hpl.jena.sparql.algebra.Op ;
+import com.hp.hpl.jena.sparql.algebra.OpVars ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.sparql.engine.QueryIterator ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingMap ;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIter1 ;
+import com.hp.hpl.jena.sparql.engine.main.VarFinder ;
+import com.hp.hpl.jena.sparql.serializer.SerializationContext ;
+import com.hp.hpl.jena.sparql.util.Utils ;
+
+/** Evaluate a pattern for each binding of the input, as a semi-join: the pattern
+ *  is evaluated once per distinct binding of the variables it uses (the join key),
+ *  and its results are kept and reused for later input with the same key.
+ *  <p>
+ *  The results are kept for up to {@link #MaxBatchSize} input bindings, and at
+ *  most {@link #MaxHeldRows} of them at any time; when a probe has more results
+ *  than that, they are streamed for that binding and not kept, as when evaluating
+ *  once per binding. When only the first result of a probe is needed, only
+ *  whether there is one is kept. The output keeps the order of the input.
+ */
+public abstract class QueryIterBatchProbe extends QueryIter1
+{
+    public static final int MaxBatchSize = 1024 ;
+    public static final int MaxHeldRows = 10000 ;
+
+    protected final Op op ;
+    private final Var[] keyVars ;
+    private final Map<Binding, List<Binding>> matches = new HashMap<>() ;
+    private int batchCount = 0 ;
+    private int heldRows = 0 ;
+    private Iterator<Binding> output = null ;
+    private volatile QueryIterator probe = null ;
+
+    public QueryIterBatchProbe(QueryIterator input, Op op, ExecutionContext execCxt)
+    {
+        super(input, execCxt) ;
+        this.op = op ;
+        this.keyVars = keyVars(op) ;
+    }
+
+    // All variables the pattern may use, in patterns, filters and assignments.
+    private static Var[] keyVars(Op op)
+    {
+        Set<Var> vars = new LinkedHashSet<>() ;
+        OpVars.mentionedVars(op, vars) ;
+        VarFinder vf = new VarFinder(op) ;
+        vars.addAll(vf.getFixed()) ;
+        vars.addAll(vf.getOpt()) ;
+        vars.addAll(vf.getFilter()) ;
+        vars.addAll(vf.getAssign()) ;
+        return vars.toArray(new Var[vars.size()]) ;
+    }
+
+    /** The results for a binding, given the results of the pattern for its key.
+     *  If only the first match is needed, a match is only tested for. */
+    protected abstract Iterator<Binding> output(Binding binding, Iterator<Binding> matches) ;
+
+    /** Evaluate the pattern for one key. */
+    protected abstract QueryIterator probe(Binding key) ;
+
+    /** Whether the first result of a probe is enough. */
+    protected abstract boolean firstMatchOnly() ;
+
+    /** The key of a binding : its values for the variables of the pattern. */
+    protected final Binding key(Binding binding)
+    {
+        BindingMap key = BindingFactory.create() ;
+        for ( Var v : keyVars )
+        {
+            if ( binding.contains(v) )
+                key.add(v, binding.get(v)) ;
+        }
+        return key ;
+    }
+
+    @Override
+    protected boolean hasNextBinding()
+    {
+        while ( output == null || ! output.hasNext() )
+        {
+            closeProbe() ;
+            if ( ! getInput().hasNext() )
+                return false ;
+            if ( batchCount == MaxBatchSize )
+            {
+                matches.clear() ;
+                heldRows = 0 ;
+                batchCount = 0 ;
+            }
+            batchCount++ ;
+            Binding binding = getInput().nextBinding() ;
+            output = output(binding, matches(key(binding))) ;
+        }
+        return true ;
+    }
+
+    private Iterator<Binding> matches(Binding key)
+    {
+        List<Binding> x = matches.get(key) ;
+        if ( x != null )
+            return x.iterator() ;
+
+        QueryIterator qIter = probe(key) ;
+        probe = qIter ;
+        if ( firstMatchOnly() )
+        {
+            // The key stands for "some match".
+            x = qIter.hasNext() ? Collections.singletonList(key) : Collections.<Binding>emptyList() ;
+            closeProbe() ;
+            matches.put(key, x) ;
+            return x.iterator() ;
+        }
+
+        x = new ArrayList<>() ;
+        while ( qIter.hasNext() )
+        {
+            // Too many to keep: stream the rest, closed when the output moves on.
+            if ( heldRows + x.size() >= MaxHeldRows )
+                return Iter.concat(x.iterator(), qIter) ;
+            x.add(qIter.nextBinding()) ;
+        }
+        closeProbe() ;
+        matches.put(key, x) ;
+        heldRows += x.size() ;
+        return x.iterator() ;
+    }
+
+    private void closeProbe()
+    {
+        QueryIterator qIter = probe ;
+        probe = null ;
+        if ( qIter != null )
+            qIter.close() ;
+    }
+
+    @Override
+    protected Binding moveToNextBinding()
+    {
+        return output.next() ;
+    }
+
+    @Override
+    protected void closeSubIterator()
+    {
+        closeProbe() ;
+        output = null ;
+        matches.clear() ;
+    }
+
+    @Override
+    protected void requestSubCancel()
+    {
+        QueryIterator qIter = probe ;
+        if ( qIter != null )
+            qIter.cancel() ;
+    }
+
+    @Override
+    protected void details(IndentedWriter out, SerializationContext sCxt)
+    {
+        out.println(Utils.className(this)) ;
+        out.incIndent() ;
+        op.output(out, sCxt) ;
+        out.decIndent() ;
+    }
+}
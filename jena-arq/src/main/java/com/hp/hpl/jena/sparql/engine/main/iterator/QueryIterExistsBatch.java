@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.main.iterator;
+
+import java.util.Iterator ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+
+import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.sparql.engine.QueryIterator ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterSingleton ;
+import com.hp.hpl.jena.sparql.engine.main.QC ;
+import com.hp.hpl.jena.sparql.expr.E_Exists ;
+import com.hp.hpl.jena.sparql.expr.E_NotExists ;
+import com.hp.hpl.jena.sparql.expr.ExprFunctionOp ;
+
+/** FILTER EXISTS and FILTER NOT EXISTS as a semi-join and an anti-join: the
+ *  pattern is evaluated, up to the first result, once per distinct join key of
+ *  the input, and the input is filtered by whether its key matched.
+ */
+public class QueryIterExistsBatch extends QueryIterBatchProbe
+{
+    private final boolean negated ;
+
+    public QueryIterExistsBatch(QueryIterator input, ExprFunctionOp expr, ExecutionContext context)
+    {
+        super(input, expr.getGraphPattern(), context) ;
+        if ( ! ( expr instanceof E_Exists ) && ! ( expr instanceof E_NotExists ) )
+            throw new IllegalArgumentException("Not EXISTS or NOT EXISTS: "+expr) ;
+        this.negated = ( expr instanceof E_NotExists ) ;
+    }
+
+    @Override
+    protected QueryIterator probe(Binding key)
+    {
+        // As ExprFunctionOp.eval
+        QueryIterator thisStep = QueryIterSingleton.create(key, getExecContext()) ;
+        return QC.execute(op, thisStep, getExecContext()) ;
+    }
+
+    @Override
+    protected boolean firstMatchOnly()
+    {
+        return true ;
+    }
+
+    @Override
+    protected Iterator<Binding> output(Binding binding, Iterator<Binding> matches)
+    {
+        boolean exists = matches.hasNext() ;
+        return ( exists != negated ) ? Iter.singleton(binding) : Iter.<Binding>nullIterator() ;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.main.iterator;
+
+import java.util.Iterator ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.iterator.Transform ;
+
+import com.hp.hpl.jena.sparql.algebra.Op ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.sparql.engine.QueryIterator ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingMap ;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterSingleton ;
+import com.hp.hpl.jena.sparql.engine.main.QC ;
+
+/** OPTIONAL by substitution, as {@link QueryIterOptionalIndex}, with the right
+ *  hand side evaluated once per distinct join key of the left hand side.
+ */
+public class QueryIterOptionalBatch extends QueryIterBatchProbe
+{
+    public QueryIterOptionalBatch(QueryIterator input, Op op, ExecutionContext context)
+    {
+        super(input, op, context) ;
+    }
+
+    @Override
+    protected QueryIterator probe(Binding key)
+    {
+        Op op2 = QC.substitute(op, key) ;
+        QueryIterator thisStep = QueryIterSingleton.create(key, getExecContext()) ;
+        return QC.execute(op2, thisStep, getExecContext()) ;
+    }
+
+    @Override
+    protected boolean firstMatchOnly()
+    {
+        return false ;
+    }
+
+    @Override
+    protected Iterator<Binding> output(final Binding binding, Iterator<Binding> matches)
+    {
+        if ( ! matches.hasNext() )
+            return Iter.singleton(binding) ;
+        return Iter.map(matches, new Transform<Binding, Binding>() {
+            @Override
+            public Binding convert(Binding match)
+            {
+                return merge(binding, match) ;
+            }
+        }) ;
+    }
+
+    // The match extends the key, so it agrees with the binding on shared variables.
+    private static Binding merge(Binding binding, Binding match)
+    {
+        BindingMap b = null ;
+        for ( Iterator<Var> iter = match.vars() ; iter.hasNext() ; )
+        {
+            Var v = iter.next() ;
+            if ( binding.contains(v) )
+                continue ;
+            if ( b == null )
+                b = BindingFactory.create(binding) ;
+            b.add(v, match.get(v)) ;
+        }
+        return b == null ? binding : b ;
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.optimizer.reorder;
+
+import java.util.* ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.core.BasicPattern ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.sse.Item ;
+import com.hp.hpl.jena.sparql.util.FmtUtils ;
+
+/** A reorder transformation that learns from execution.
+ * <p>
+ * Executors record the number of matches of a triple pattern each time it is
+ * evaluated, by the shape of the pattern: its predicate, whether its subject and
+ * object are constants, and which of its variables are bound at that point.
+ * The observations for the most recently used shapes are kept.
+ * <p>
+ * Observed numbers of matches are not on the scale of the weights of the
+ * underlying transformation. When choosing between patterns, they are scaled by
+ * the ratio of the weights to the observations of the patterns that have both,
+ * and used in place of the weights. Until something is recorded, or when no
+ * pattern has both, this is the underlying transformation.
+ */
+public class ReorderFeedback implements ReorderTransformation
+{
+    // Observations are halved when they reach this many evaluations so that
+    // recent executions count for more.
+    private static final long MaxEvaluations = 100000 ;
+    private static final int MaxShapes = 1000 ;
+
+    private final ReorderTransformation base ;
+    private final Map<String, Observation> observations =
+        Collections.synchronizedMap(new LinkedHashMap<String, Observation>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Observation> eldest) {
+                return size() > MaxShapes ;
+            }
+        }) ;
+
+    // Scales each choice by the patterns to choose from.
+    private class Weighted extends ReorderTransformationSubstitution
+    {
+        private double scale = -1 ;
+
+        @Override
+        protected int chooseNext(List<PatternTriple> pTriples) {
+            scale = scale(pTriples) ;
+            return super.chooseNext(pTriples) ;
+        }
+
+        @Override
+        protected double weight(PatternTriple pt) {
+            return estimate(pt, scale) ;
+        }
+
+        @Override
+        protected DefaultChoice defaultChoice(PatternTriple pt) {
+            return ( base instanceof ReorderTransformationSubstitution )
+                ? ((ReorderTransformationSubstitution)base).defaultChoice(pt) : null ;
+        }
+
+        @Override
+        protected double defaultWeight(PatternTriple pt) {
+            return ( base instanceof ReorderTransformationSubstitution )
+                ? ((ReorderTransformationSubstitution)base).defaultWeight(pt) : -1 ;
+        }
+    }
+
+    public ReorderFeedback(ReorderTransformation base)
+    {
+        this.base = base ;
+    }
+
+    public ReorderTransformation getBase()      { return base ; }
+
+    @Override
+    public BasicPattern reorder(BasicPattern pattern)
+    {
+        return reorderIndexes(pattern).reorder(pattern) ;
+    }
+
+    @Override
+    public ReorderProc reorderIndexes(BasicPattern pattern)
+    {
+        if ( observations.isEmpty() )
+            return base.reorderIndexes(pattern) ;
+        return new Weighted().reorderIndexes(pattern) ;
+    }
+
+    /** Record that a pattern of this shape was evaluated a number of times, with a total number of matches. */
+    public void record(String shape, long evaluations, long matches)
+    {
+        if ( evaluations <= 0 )
+            return ;
+        Observation obs ;
+        synchronized(observations)
+        {
+            obs = observations.get(shape) ;
+            if ( obs == null )
+            {
+                obs = new Observation() ;
+                observations.put(shape, obs) ;
+            }
+        }
+        obs.add(evaluations, matches) ;
+    }
+
+    /** The average number of matches observed for a pattern of this shape, or -1 if none. */
+    public double observed(String shape)
+    {
+        Observation obs = observations.get(shape) ;
+        return obs == null ? -1 : obs.average() ;
+    }
+
+    /** The factor that puts observed numbers of matches on the scale of the weights
+     *  of the underlying transformation, from the patterns that have both, or -1 if
+     *  there are none. Null entries are skipped. */
+    public double scale(Collection<PatternTriple> pts)
+    {
+        if ( ! ( base instanceof ReorderTransformationSubstitution ) )
+            return 1 ;
+        double weights = 0 ;
+        double matches = 0 ;
+        boolean any = false ;
+        for ( PatternTriple pt : pts )
+        {
+            if ( pt == null )
+                continue ;
+            double x = observed(shape(pt)) ;
+            double w = ((ReorderTransformationSubstitution)base).weight(pt) ;
+            if ( x < 0 || w < 0 )
+                continue ;
+            any = true ;
+            weights += w ;
+            matches += x ;
+        }
+        if ( ! any )
+            return -1 ;
+        return matches == 0 ? 1 : weights/matches ;
+    }
+
+    /** The weight of a pattern: the observed average, times the scale, if there is one
+     *  and the scale is not -1, otherwise the estimate of the underlying transformation,
+     *  otherwise -1. */
+    public double estimate(PatternTriple pt, double scale)
+    {
+        if ( scale >= 0 )
+        {
+            double x = observed(shape(pt)) ;
+            if ( x >= 0 )
+                return x*scale ;
+        }
+        if ( base instanceof ReorderTransformationSubstitution )
+            return ((ReorderTransformationSubstitution)base).weight(pt) ;
+        return -1 ;
+    }
+
+    /** Forget all observations. */
+    public void reset()
+    {
+        observations.clear() ;
+    }
+
+    /** The shape of a pattern triple. Items are constants, bound terms ({@link PatternElements#TERM}),
+     *  or unbound variables. */
+    public static String shape(PatternTriple pt)
+    {
+        return shape(pt.subject, false)+" "+shape(pt.predicate, true)+" "+shape(pt.object, false) ;
+    }
+
+    /** The shape of a triple pattern, given which slots are variables bound at evaluation. */
+    public static String shape(Node s, boolean sBound, Node p, boolean pBound, Node o, boolean oBound)
+    {
+        return shape(s, sBound, false)+" "+shape(p, pBound, true)+" "+shape(o, oBound, false) ;
+    }
+
+    private static String shape(Item item, boolean keepConstant)
+    {
+        if ( item.isNode() )
+            return shape(item.getNode(), false, keepConstant) ;
+        if ( PatternElements.isAnyTerm(item) )
+            return "*" ;
+        return item.toString() ;
+    }
+
+    // Subjects and objects are only constant or not; predicates are kept.
+    private static String shape(Node node, boolean bound, boolean keepConstant)
+    {
+        if ( Var.isVar(node) )
+            return bound ? "*" : "?" ;
+        return keepConstant ? FmtUtils.stringForNode(node) : "C" ;
+    }
+    private static class Observation
+    {
+        private long evaluations = 0 ;
+        private long matches = 0 ;
+
+        synchronized void add(long n, long m)
+        {
+            evaluations += n ;
+            matches += m ;
+            if ( evaluations >= MaxEvaluations )
+            {
+                evaluations /= 2 ;
+                matches /= 2 ;
+            }
+        }
+
+        synchronized double average()
+        {
+            return evaluations == 0 ? -1 : ((double)matches)/evaluations ;
+        }
+    }
+}
@@ -233,6 +233,11 @@ public abstract class ReorderTransformationSubstitution implements ReorderTransf
     
     /** Return the weight of the pattern, or -1 if no knowledge for it */
     protected abstract double weight(PatternTriple pt) ;
+
+    /** The weight of the pattern, or -1 if no knowledge for it, for estimating
+     * the cost of other ways of matching patterns. */
+    public final double getWeight(PatternTriple pt)
+    { return weight(pt) ; }
     
     protected enum DefaultChoice { ZERO, LAST, FIRST , NUMERIC ; }
     /** What to do if the {@link weight} comes back as "not found".
@@ -18,6 +18,7 @@
 
 package com.hp.hpl.jena.sparql.expr;
 
+import java.util.Collections ;
 import java.util.HashMap ;
 import java.util.List ;
 import java.util.Map ;
@@ -34,7 +35,8 @@ import com.hp.hpl.jena.sparql.util.Context ;
 public class E_Call extends ExprFunctionN
 {
     private static final String symbol = Tags.tagCall ;
-    private Map<String,Expr> functionCache = new HashMap<>();
+    // Synchronized: an execution may evaluate the expression on more than one thread.
+    private Map<String,Expr> functionCache = Collections.synchronizedMap(new HashMap<String,Expr>());
     private Expr identExpr;
     private List<Expr> argExprs;
 
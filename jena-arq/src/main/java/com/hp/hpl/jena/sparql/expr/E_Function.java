@@ -41,8 +41,11 @@ public class E_Function extends ExprFunctionN
     
     // Only set after a copySubstitute has been done by PlanFilter.
     // at which point this instance if not part of the query abstract syntax.  
-    private Function function = null ;
-    private boolean functionBound = false ;
+    // An execution may evaluate the expression on more than one thread
+    // (e.g. sorting in parallel) so binding is done once, under the lock,
+    // and is visible to other threads.
+    private volatile Function function = null ;
+    private volatile boolean functionBound = false ;
 
     public E_Function(String functionIRI, ExprList args)
     {
@@ -90,7 +93,7 @@ public class E_Function extends ExprFunctionN
         }
     }
     
-    private void bindFunction(Context cxt)
+    private synchronized void bindFunction(Context cxt)
     {
         if ( functionBound )
             return ;
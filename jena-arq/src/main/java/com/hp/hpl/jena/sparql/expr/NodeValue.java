@@ -255,7 +255,7 @@ public abstract class NodeValue extends ExprNode
     { return makeNode(NodeFactoryExtra.parseNode(string)) ; }
     
     public static NodeValue makeInteger(long i)
-    { return new NodeValueInteger(BigInteger.valueOf(i)) ; }
+    { return new NodeValueInteger(i) ; }
     
     public static NodeValue makeInteger(BigInteger i)
     { return new NodeValueInteger(i) ; }
@@ -529,6 +529,10 @@ public abstract class NodeValue extends ExprNode
         if ( nv1 == null || nv2 == null )
             throw new ARQInternalErrorException("Attempt to sameValueAs on a null") ;
         
+        int x0 = compareSameKind(nv1, nv2) ;
+        if ( x0 != Expr.CMP_INDETERMINATE )
+            return x0 == Expr.CMP_EQUAL ;
+        
         ValueSpaceClassification compType = classifyValueOp(nv1, nv2) ;
         
         // Special case - date/dateTime comparison is affected by timezones and may be
@@ -701,6 +705,10 @@ public abstract class NodeValue extends ExprNode
         if ( nv2 == null )
             return Expr.CMP_GREATER ;
         
+        int x0 = compareSameKind(nv1, nv2) ;
+        if ( x0 != Expr.CMP_INDETERMINATE )
+            return x0 ;
+        
         ValueSpaceClassification compType = classifyValueOp(nv1, nv2) ;
         
         // Special case - date/dateTime comparison is affected by timezones and may be
@@ -847,6 +855,23 @@ public abstract class NodeValue extends ExprNode
         throw new ARQInternalErrorException("Compare failure "+nv1+" and "+nv2) ;
     }
 
+    /** Compare two integers, or two doubles, without classifying the value spaces
+     * or allocating, else return {@link Expr#CMP_INDETERMINATE}.
+     */
+    private static int compareSameKind(NodeValue nv1, NodeValue nv2)
+    {
+        if ( nv1 instanceof NodeValueInteger && nv2 instanceof NodeValueInteger )
+        {
+            NodeValueInteger i1 = (NodeValueInteger)nv1 ;
+            NodeValueInteger i2 = (NodeValueInteger)nv2 ;
+            if ( i1.isLong() && i2.isLong() )
+                return XSDFuncOp.compareLong(i1.getLong(), i2.getLong()) ;
+        }
+        if ( nv1 instanceof NodeValueDouble && nv2 instanceof NodeValueDouble )
+            return XSDFuncOp.compareDouble(nv1.getDouble(), nv2.getDouble()) ;
+        return Expr.CMP_INDETERMINATE ;
+    }
+
     public static ValueSpaceClassification classifyValueOp(NodeValue nv1, NodeValue nv2)
     {
         ValueSpaceClassification c1 = nv1.getValueSpace() ;
@@ -1074,6 +1099,9 @@ public abstract class NodeValue extends ExprNode
                         s = s.substring(1) ;
                     // Includes subtypes (int, byte, postiveInteger etc).
                     // NB Known to be valid for type by now
+                    // Up to 18 digits always fits in a long.
+                    if ( s.length() <= 18 )
+                        return new NodeValueInteger(Long.parseLong(s), node) ;
                     BigInteger integer = new BigInteger(s) ;
                     return new NodeValueInteger(integer, node) ;
                 }
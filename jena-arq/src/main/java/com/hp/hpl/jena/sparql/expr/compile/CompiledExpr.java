@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.expr.compile;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.expr.Expr ;
+import com.hp.hpl.jena.sparql.expr.ExprEvalException ;
+import com.hp.hpl.jena.sparql.expr.NodeValue ;
+import com.hp.hpl.jena.sparql.expr.nodevalue.XSDFuncOp ;
+import com.hp.hpl.jena.sparql.function.FunctionEnv ;
+
+/** An expression prepared for repeated evaluation, as produced by {@link ExprCompiler}.
+ * Evaluation has the same results, and raises the same errors, as evaluating
+ * the original expression.
+ */
+public abstract class CompiledExpr
+{
+    protected final Expr expr ;
+
+    protected CompiledExpr(Expr expr) { this.expr = expr ; }
+
+    /** The expression this was compiled from. */
+    public Expr getExpr() { return expr ; }
+
+    /** Evaluate, as {@link Expr#eval}. */
+    public abstract NodeValue eval(Binding binding, FunctionEnv env) ;
+
+    /** Whether this is a variable or a constant, for which {@link #evalNode} is cheap. */
+    public boolean isTerm() { return false ; }
+
+    /** Evaluate to an RDF term. Variables and constants do not create a {@link NodeValue}. */
+    public Node evalNode(Binding binding, FunctionEnv env) {
+        return eval(binding, env).asNode() ;
+    }
+
+    /** Evaluate to the effective boolean value, throwing {@link ExprEvalException} on error. */
+    public boolean test(Binding binding, FunctionEnv env) {
+        return XSDFuncOp.booleanEffectiveValue(eval(binding, env)) ;
+    }
+
+    /** As {@link Expr#isSatisfied}: the effective boolean value, with errors being false. */
+    public boolean isSatisfied(Binding binding, FunctionEnv env) {
+        try {
+            return test(binding, env) ;
+        } catch (ExprEvalException ex) {
+            return false ;
+        }
+    }
+
+    @Override
+    public String toString() { return expr.toString() ; }
+}
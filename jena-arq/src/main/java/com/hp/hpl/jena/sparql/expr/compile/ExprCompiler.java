@@ -0,0 +1,438 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.expr.compile;
+
+import java.util.Map ;
+import java.util.concurrent.ConcurrentHashMap ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.query.ARQ ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.expr.* ;
+import com.hp.hpl.jena.sparql.function.FunctionEnv ;
+import com.hp.hpl.jena.sparql.util.Context ;
+
+/** Compile an expression for repeated evaluation, for FILTER, BIND and ORDER BY.
+ * <p>
+ * Compilation resolves, once, the work the interpreter does for every
+ * solution: variables and constants are evaluated to RDF terms without
+ * creating {@link NodeValue NodeValues}, comparisons of numbers, strings and
+ * dateTimes are done directly on the terms ({@link NodeCompare}), and
+ * {@code &&}, {@code ||} and {@code !} work on booleans. Functions without a
+ * special form are called on the compiled arguments; anything else is
+ * evaluated by the interpreter.
+ * <p>
+ * Compilation is controlled by {@link ARQ#compileExpressions}.
+ */
+public class ExprCompiler
+{
+    /** Compile an expression, if {@link ARQ#compileExpressions} is not false in the context. */
+    public static CompiledExpr compile(Expr expr, Context context) {
+        if ( context != null && ! context.isTrueOrUndef(ARQ.compileExpressions) )
+            return new Interpreted(expr) ;
+        return compile(expr) ;
+    }
+
+    /** Compile an expression. */
+    public static CompiledExpr compile(Expr expr) {
+        if ( expr.isConstant() )
+            return new Constant(expr) ;
+        if ( expr.isVariable() )
+            return new Variable(expr) ;
+
+        if ( expr instanceof E_LogicalAnd ) {
+            E_LogicalAnd e = (E_LogicalAnd)expr ;
+            return new And(e, compile(e.getArg1()), compile(e.getArg2())) ;
+        }
+        if ( expr instanceof E_LogicalOr ) {
+            E_LogicalOr e = (E_LogicalOr)expr ;
+            return new Or(e, compile(e.getArg1()), compile(e.getArg2())) ;
+        }
+        if ( expr instanceof E_LogicalNot )
+            return new Not(expr, compile(((E_LogicalNot)expr).getArg())) ;
+        if ( expr instanceof E_Bound )
+            return new Bound(expr, compile(((E_Bound)expr).getArg())) ;
+
+        int op = compareOp(expr) ;
+        if ( op != OP_NONE ) {
+            ExprFunction2 f = (ExprFunction2)expr ;
+            return new Compare(f, op, compile(f.getArg1()), compile(f.getArg2())) ;
+        }
+
+        if ( expr instanceof ExprFunction1 && ! hasSpecialForm(expr) ) {
+            ExprFunction1 f = (ExprFunction1)expr ;
+            if ( f.getArg() != null )
+                return new Function1(f, compile(f.getArg())) ;
+        }
+        if ( expr instanceof ExprFunction2 && ! hasSpecialForm(expr) ) {
+            ExprFunction2 f = (ExprFunction2)expr ;
+            if ( f.getArg1() != null && f.getArg2() != null )
+                return new Function2(f, compile(f.getArg1()), compile(f.getArg2())) ;
+        }
+        if ( expr instanceof ExprFunction3 && ! hasSpecialForm(expr) ) {
+            ExprFunction3 f = (ExprFunction3)expr ;
+            if ( f.getArg1() != null && f.getArg2() != null && f.getArg3() != null )
+                return new Function3(f, compile(f.getArg1()), compile(f.getArg2()), compile(f.getArg3())) ;
+        }
+        return new Interpreted(expr) ;
+    }
+
+    private static final int OP_NONE    = 0 ;
+    private static final int OP_EQ      = 1 ;
+    private static final int OP_NE      = 2 ;
+    private static final int OP_LT      = 3 ;
+    private static final int OP_LE      = 4 ;
+    private static final int OP_GT      = 5 ;
+    private static final int OP_GE      = 6 ;
+
+    private static int compareOp(Expr expr) {
+        if ( expr instanceof E_Equals )             return OP_EQ ;
+        if ( expr instanceof E_NotEquals )          return OP_NE ;
+        if ( expr instanceof E_LessThan )           return OP_LT ;
+        if ( expr instanceof E_LessThanOrEqual )    return OP_LE ;
+        if ( expr instanceof E_GreaterThan )        return OP_GT ;
+        if ( expr instanceof E_GreaterThanOrEqual ) return OP_GE ;
+        return OP_NONE ;
+    }
+
+    // Classes whose evaluation is not just the function of the values of the arguments.
+    private static final Map<Class<?>, Boolean> specialForms = new ConcurrentHashMap<>() ;
+
+    private static boolean hasSpecialForm(Expr expr) {
+        Class<?> cls = expr.getClass() ;
+        Boolean b = specialForms.get(cls) ;
+        if ( b == null ) {
+            b = declaresEvalSpecial(cls) ;
+            specialForms.put(cls, b) ;
+        }
+        return b ;
+    }
+
+    private static boolean declaresEvalSpecial(Class<?> cls) {
+        for ( Class<?> c = cls ; c != null ; c = c.getSuperclass() ) {
+            if ( c == ExprFunction1.class || c == ExprFunction2.class || c == ExprFunction3.class )
+                return false ;
+            try {
+                c.getDeclaredMethod("evalSpecial", Binding.class, FunctionEnv.class) ;
+                return true ;
+            } catch (NoSuchMethodException ex) {}
+        }
+        return false ;
+    }
+
+    /** Evaluated by the interpreter. */
+    private static class Interpreted extends CompiledExpr
+    {
+        Interpreted(Expr expr) { super(expr) ; }
+
+        @Override
+        public NodeValue eval(Binding binding, FunctionEnv env) {
+            return expr.eval(binding, env) ;
+        }
+
+        @Override
+        public boolean isSatisfied(Binding binding, FunctionEnv env) {
+            return expr.isSatisfied(binding, env) ;
+        }
+    }
+
+    private static class Constant extends CompiledExpr
+    {
+        private final NodeValue value ;
+        private final Node node ;
+
+        Constant(Expr expr) {
+            super(expr) ;
+            this.value = expr.getConstant() ;
+            this.node = value.asNode() ;
+        }
+
+        @Override
+        public boolean isTerm()                                     { return true ; }
+
+        @Override
+        public NodeValue eval(Binding binding, FunctionEnv env)     { return value ; }
+
+        @Override
+        public Node evalNode(Binding binding, FunctionEnv env)      { return node ; }
+    }
+
+    private static class Variable extends CompiledExpr
+    {
+        private final Var var ;
+
+        Variable(Expr expr) {
+            super(expr) ;
+            this.var = expr.asVar() ;
+        }
+
+        @Override
+        public boolean isTerm() { return true ; }
+
+        @Override
+        public NodeValue eval(Binding binding, FunctionEnv env) {
+            return NodeValue.makeNode(evalNode(binding, env)) ;
+        }
+
+        @Override
+        public Node evalNode(Binding binding, FunctionEnv env) {
+            // As ExprVar.
+            if ( binding == null )
+                throw new VariableNotBoundException("Not bound: (no binding): "+var) ;
+            Node n = binding.get(var) ;
+            if ( n == null )
+                throw new VariableNotBoundException("Not bound: variable "+var) ;
+            return n ;
+        }
+    }
+
+    /** Expressions with a boolean result. */
+    private static abstract class BooleanExpr extends CompiledExpr
+    {
+        BooleanExpr(Expr expr) { super(expr) ; }
+
+        @Override
+        public final NodeValue eval(Binding binding, FunctionEnv env) {
+            return NodeValue.booleanReturn(test(binding, env)) ;
+        }
+
+        @Override
+        public abstract boolean test(Binding binding, FunctionEnv env) ;
+    }
+
+    /** =, !=, <, <=, >, >=. */
+    private static class Compare extends BooleanExpr
+    {
+        private final ExprFunction2 function ;
+        private final int op ;
+        private final CompiledExpr left ;
+        private final CompiledExpr right ;
+        // Both arguments are RDF terms (variables or constants).
+        private final boolean terms ;
+
+        Compare(ExprFunction2 function, int op, CompiledExpr left, CompiledExpr right) {
+            super(function) ;
+            this.function = function ;
+            this.op = op ;
+            this.left = left ;
+            this.right = right ;
+            this.terms = left.isTerm() && right.isTerm() ;
+        }
+
+        @Override
+        public boolean test(Binding binding, FunctionEnv env) {
+            if ( ! terms )
+                return generic(left.eval(binding, env), right.eval(binding, env), env) ;
+            Node n1 = left.evalNode(binding, env) ;
+            Node n2 = right.evalNode(binding, env) ;
+            switch (op) {
+                case OP_EQ: case OP_NE: {
+                    int x = NodeCompare.sameAs(n1, n2) ;
+                    if ( x == NodeCompare.UNKNOWN )
+                        break ;
+                    return ( op == OP_EQ ) == ( x == 1 ) ;
+                }
+                default: {
+                    int x = NodeCompare.compare(n1, n2) ;
+                    if ( x == NodeCompare.UNKNOWN )
+                        break ;
+                    switch (op) {
+                        case OP_LT: return x == Expr.CMP_LESS ;
+                        case OP_LE: return x != Expr.CMP_GREATER ;
+                        case OP_GT: return x == Expr.CMP_GREATER ;
+                        case OP_GE: return x != Expr.CMP_LESS ;
+                    }
+                }
+            }
+            return generic(NodeValue.makeNode(n1), NodeValue.makeNode(n2), env) ;
+        }
+
+        private boolean generic(NodeValue x, NodeValue y, FunctionEnv env) {
+            return function.eval(x, y, env).getBoolean() ;
+        }
+    }
+
+    /** As E_LogicalAnd. */
+    private static class And extends BooleanExpr
+    {
+        private final CompiledExpr left ;
+        private final CompiledExpr right ;
+
+        And(Expr expr, CompiledExpr left, CompiledExpr right) {
+            super(expr) ;
+            this.left = left ;
+            this.right = right ;
+        }
+
+        @Override
+        public boolean test(Binding binding, FunctionEnv env) {
+            ExprEvalException error = null ;
+            try {
+                if ( ! left.test(binding, env) )
+                    return false ;
+            } catch (ExprEvalException ex) { error = ex ; }
+            // Left was true or an error.
+            boolean b ;
+            try {
+                b = right.test(binding, env) ;
+            } catch (ExprEvalException ex) {
+                // Report the first error.
+                throw ( error != null ) ? error : ex ;
+            }
+            if ( ! b )
+                return false ;
+            if ( error != null )
+                throw error ;
+            return true ;
+        }
+    }
+
+    /** As E_LogicalOr. */
+    private static class Or extends BooleanExpr
+    {
+        private final CompiledExpr left ;
+        private final CompiledExpr right ;
+
+        Or(Expr expr, CompiledExpr left, CompiledExpr right) {
+            super(expr) ;
+            this.left = left ;
+            this.right = right ;
+        }
+
+        @Override
+        public boolean test(Binding binding, FunctionEnv env) {
+            ExprEvalException error = null ;
+            try {
+                if ( left.test(binding, env) )
+                    return true ;
+            } catch (ExprEvalException ex) { error = ex ; }
+            // Left was false or an error.
+            boolean b ;
+            try {
+                b = right.test(binding, env) ;
+            } catch (ExprEvalException ex) {
+                throw ( error != null ) ? error : ex ;
+            }
+            if ( b )
+                return true ;
+            if ( error != null )
+                throw error ;
+            return false ;
+        }
+    }
+
+    private static class Not extends BooleanExpr
+    {
+        private final CompiledExpr arg ;
+
+        Not(Expr expr, CompiledExpr arg) {
+            super(expr) ;
+            this.arg = arg ;
+        }
+
+        @Override
+        public boolean test(Binding binding, FunctionEnv env) {
+            return ! arg.test(binding, env) ;
+        }
+    }
+
+    /** As E_Bound. */
+    private static class Bound extends BooleanExpr
+    {
+        private final CompiledExpr arg ;
+
+        Bound(Expr expr, CompiledExpr arg) {
+            super(expr) ;
+            this.arg = arg ;
+        }
+
+        @Override
+        public boolean test(Binding binding, FunctionEnv env) {
+            try {
+                arg.evalNode(binding, env) ;
+                return true ;
+            } catch (VariableNotBoundException ex) {
+                return false ;
+            }
+        }
+    }
+
+    private static class Function1 extends CompiledExpr
+    {
+        private final ExprFunction1 function ;
+        private final CompiledExpr arg ;
+
+        Function1(ExprFunction1 function, CompiledExpr arg) {
+            super(function) ;
+            this.function = function ;
+            this.arg = arg ;
+        }
+
+        @Override
+        public NodeValue eval(Binding binding, FunctionEnv env) {
+            return function.eval(arg.eval(binding, env), env) ;
+        }
+    }
+
+    private static class Function2 extends CompiledExpr
+    {
+        private final ExprFunction2 function ;
+        private final CompiledExpr arg1 ;
+        private final CompiledExpr arg2 ;
+
+        Function2(ExprFunction2 function, CompiledExpr arg1, CompiledExpr arg2) {
+            super(function) ;
+            this.function = function ;
+            this.arg1 = arg1 ;
+            this.arg2 = arg2 ;
+        }
+
+        @Override
+        public NodeValue eval(Binding binding, FunctionEnv env) {
+            NodeValue x = arg1.eval(binding, env) ;
+            NodeValue y = arg2.eval(binding, env) ;
+            return function.eval(x, y, env) ;
+        }
+    }
+
+    private static class Function3 extends CompiledExpr
+    {
+        private final ExprFunction3 function ;
+        private final CompiledExpr arg1 ;
+        private final CompiledExpr arg2 ;
+        private final CompiledExpr arg3 ;
+
+        Function3(ExprFunction3 function, CompiledExpr arg1, CompiledExpr arg2, CompiledExpr arg3) {
+            super(function) ;
+            this.function = function ;
+            this.arg1 = arg1 ;
+            this.arg2 = arg2 ;
+            this.arg3 = arg3 ;
+        }
+
+        @Override
+        public NodeValue eval(Binding binding, FunctionEnv env) {
+            NodeValue x = arg1.eval(binding, env) ;
+            NodeValue y = arg2.eval(binding, env) ;
+            NodeValue z = arg3.eval(binding, env) ;
+            return function.eval(x, y, z, env) ;
+        }
+    }
+}
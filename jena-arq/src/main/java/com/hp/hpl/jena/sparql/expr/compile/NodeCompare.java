@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.expr.compile;
+
+import java.math.BigDecimal ;
+import java.math.BigInteger ;
+
+import com.hp.hpl.jena.datatypes.RDFDatatype ;
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype ;
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.impl.LiteralLabel ;
+import com.hp.hpl.jena.sparql.expr.Expr ;
+
+/** Comparison by value of RDF terms for the common cases (numbers, strings
+ * and dateTimes) directly on the {@link Node}, without creating
+ * {@link com.hp.hpl.jena.sparql.expr.NodeValue NodeValues}.
+ * <p>
+ * The results are those of {@code NodeValue.compare} and {@code NodeValue.sameAs}.
+ * Where the outcome is not certain to be the same, for example for
+ * dateTimes in different timezones, the result is {@link #UNKNOWN} and the
+ * caller uses the general comparison.
+ */
+public class NodeCompare
+{
+    /** No fast comparison for these terms. */
+    public static final int UNKNOWN = Integer.MIN_VALUE ;
+
+    private static final int KIND_NONE      = 0 ;
+    private static final int KIND_INTEGER   = 1 ;
+    private static final int KIND_DECIMAL   = 2 ;
+    private static final int KIND_DOUBLE    = 3 ;
+    private static final int KIND_STRING    = 4 ;
+    private static final int KIND_DATETIME  = 5 ;
+
+    /** Compare by value: {@link Expr#CMP_LESS}, {@link Expr#CMP_EQUAL},
+     * {@link Expr#CMP_GREATER} or {@link #UNKNOWN}.
+     */
+    public static int compare(Node n1, Node n2) {
+        int k1 = kind(n1) ;
+        if ( k1 == KIND_NONE )
+            return UNKNOWN ;
+        int k2 = kind(n2) ;
+        if ( k2 == KIND_NONE )
+            return UNKNOWN ;
+        if ( isNumeric(k1) && isNumeric(k2) )
+            return compareNumeric(n1, k1, n2, k2) ;
+        if ( k1 != k2 )
+            return UNKNOWN ;
+        switch (k1) {
+            case KIND_STRING:
+                // Plain literals and xsd:strings are not always the same value.
+                if ( ! sameDatatype(n1, n2) )
+                    return UNKNOWN ;
+                return sign(n1.getLiteralLexicalForm().compareTo(n2.getLiteralLexicalForm())) ;
+            case KIND_DATETIME:
+                return compareDateTime(n1.getLiteralLexicalForm(), n2.getLiteralLexicalForm()) ;
+        }
+        return UNKNOWN ;
+    }
+
+    /** Compare for equality by value: 1 for the same value, 0 for different
+     * values, or {@link #UNKNOWN}.
+     */
+    public static int sameAs(Node n1, Node n2) {
+        if ( n1.equals(n2) )
+            return 1 ;
+        if ( ! n1.isLiteral() && ! n2.isLiteral() )
+            return 0 ;
+        int x = compare(n1, n2) ;
+        if ( x == UNKNOWN )
+            return UNKNOWN ;
+        return x == Expr.CMP_EQUAL ? 1 : 0 ;
+    }
+
+    private static boolean isNumeric(int kind) {
+        return kind == KIND_INTEGER || kind == KIND_DECIMAL || kind == KIND_DOUBLE ;
+    }
+
+    private static int kind(Node n) {
+        if ( ! n.isLiteral() )
+            return KIND_NONE ;
+        if ( ! n.getLiteralLanguage().isEmpty() )
+            return KIND_NONE ;
+        RDFDatatype dt = n.getLiteralDatatype() ;
+        if ( dt == null || dt.equals(XSDDatatype.XSDstring) )
+            return KIND_STRING ;
+        if ( ! n.getLiteral().isWellFormed() )
+            return KIND_NONE ;
+        if ( dt.equals(XSDDatatype.XSDinteger) || dt.equals(XSDDatatype.XSDint) || dt.equals(XSDDatatype.XSDlong) ||
+             dt.equals(XSDDatatype.XSDshort) || dt.equals(XSDDatatype.XSDbyte) ||
+             dt.equals(XSDDatatype.XSDnonNegativeInteger) || dt.equals(XSDDatatype.XSDpositiveInteger) ||
+             dt.equals(XSDDatatype.XSDnonPositiveInteger) || dt.equals(XSDDatatype.XSDnegativeInteger) ||
+             dt.equals(XSDDatatype.XSDunsignedLong) || dt.equals(XSDDatatype.XSDunsignedInt) ||
+             dt.equals(XSDDatatype.XSDunsignedShort) || dt.equals(XSDDatatype.XSDunsignedByte) )
+            return KIND_INTEGER ;
+        if ( dt.equals(XSDDatatype.XSDdecimal) )
+            return KIND_DECIMAL ;
+        if ( dt.equals(XSDDatatype.XSDdouble) )
+            return KIND_DOUBLE ;
+        if ( dt.equals(XSDDatatype.XSDdateTime) )
+            return KIND_DATETIME ;
+        return KIND_NONE ;
+    }
+
+    private static boolean sameDatatype(Node n1, Node n2) {
+        return n1.getLiteralDatatype() == null ? n2.getLiteralDatatype() == null : n1.getLiteralDatatype().equals(n2.getLiteralDatatype()) ;
+    }
+
+    // Type promotion as XSDFuncOp.compareNumeric.
+    private static int compareNumeric(Node n1, int k1, Node n2, int k2) {
+        Object v1 = value(n1) ;
+        Object v2 = value(n2) ;
+        if ( ! ( v1 instanceof Number ) || ! ( v2 instanceof Number ) )
+            return UNKNOWN ;
+        Number x1 = (Number)v1 ;
+        Number x2 = (Number)v2 ;
+        if ( k1 == KIND_DOUBLE || k2 == KIND_DOUBLE )
+            return sign(Double.compare(x1.doubleValue(), x2.doubleValue())) ;
+        if ( k1 == KIND_INTEGER && k2 == KIND_INTEGER && isLong(x1) && isLong(x2) )
+            return sign(Long.compare(x1.longValue(), x2.longValue())) ;
+        BigDecimal d1 = decimal(x1) ;
+        BigDecimal d2 = decimal(x2) ;
+        if ( d1 == null || d2 == null )
+            return UNKNOWN ;
+        return sign(d1.compareTo(d2)) ;
+    }
+
+    private static Object value(Node n) {
+        LiteralLabel lit = n.getLiteral() ;
+        return lit.getValue() ;
+    }
+
+    private static boolean isLong(Number x) {
+        return x instanceof Long || x instanceof Integer || x instanceof Short || x instanceof Byte ;
+    }
+
+    private static BigDecimal decimal(Number x) {
+        if ( x instanceof BigDecimal )
+            return (BigDecimal)x ;
+        if ( x instanceof BigInteger )
+            return new BigDecimal((BigInteger)x) ;
+        if ( isLong(x) )
+            return BigDecimal.valueOf(x.longValue()) ;
+        return null ;
+    }
+
+    /** dateTimes with the same layout (year digits, fractional seconds) and
+     * the same timezone compare as their lexical forms.
+     */
+    private static int compareDateTime(String s1, String s2) {
+        if ( s1.length() != s2.length() )
+            return UNKNOWN ;
+        if ( s1.isEmpty() || s1.charAt(0) == '-' || s2.charAt(0) == '-' )
+            return UNKNOWN ;
+        // 24:00:00 is the same as 00:00:00 on the next day.
+        if ( s1.contains("T24") || s2.contains("T24") )
+            return UNKNOWN ;
+        if ( s1.indexOf('.') != s2.indexOf('.') )
+            return UNKNOWN ;
+        String tz1 = timezone(s1) ;
+        String tz2 = timezone(s2) ;
+        if ( ! tz1.equals(tz2) )
+            return UNKNOWN ;
+        return sign(s1.compareTo(s2)) ;
+    }
+
+    private static String timezone(String s) {
+        int n = s.length() ;
+        if ( s.charAt(n-1) == 'Z' )
+            return "Z" ;
+        // After the time part, which includes ':' at a fixed place.
+        if ( n >= 6 && ( s.charAt(n-6) == '+' || s.charAt(n-6) == '-' ) && s.charAt(n-3) == ':' && s.indexOf('T') < n-6 )
+            return s.substring(n-6) ;
+        return "" ;
+    }
+
+    private static int sign(int x) {
+        if ( x < 0 )
+            return Expr.CMP_LESS ;
+        if ( x > 0 )
+            return Expr.CMP_GREATER ;
+        return Expr.CMP_EQUAL ;
+    }
+}
@@ -29,15 +29,47 @@ import com.hp.hpl.jena.sparql.expr.NodeValue ;
 
 public class NodeValueInteger extends NodeValue
 {
-    //long integer = Integer.MIN_VALUE ;
-    // The performance impact of this seems to be very low
-    // After all, much of the work is pattern matching. 
-    BigInteger integer ;
+    // Values that fit in a long are kept as a long and the BigInteger is
+    // only created if asked for; most integers in data are small and
+    // arithmetic and comparison can then be done without allocation.
+    private final long value ;
+    private final boolean isLong ;
+    private BigInteger integer ;
     
-    public NodeValueInteger(BigInteger i)         { super() ; integer = i ; }
-    public NodeValueInteger(BigInteger i, Node n) { super(n) ; integer = i ; }
-//   public NodeValueInteger(long i, Node n)       { super(n) ; integer = new BigInteger(Long.toString(i)) ; }
-    public NodeValueInteger(long i)               { super() ; integer = new BigInteger(Long.toString(i)) ; }
+    public NodeValueInteger(BigInteger i)         { this(i, null) ; }
+    public NodeValueInteger(BigInteger i, Node n)
+    { 
+        super(n) ;
+        integer = i ;
+        isLong = ( i.bitLength() < 64 ) ;
+        value = isLong ? i.longValue() : 0 ;
+    }
+    public NodeValueInteger(long i, Node n)       { super(n) ; value = i ; isLong = true ; }
+    public NodeValueInteger(long i)               { super() ; value = i ; isLong = true ; }
+
+    // Small integers, shared, for the results of arithmetic.
+    private static final int smallMin = -128 ;
+    private static final int smallMax = 1024 ;
+    private static final NodeValueInteger[] small = new NodeValueInteger[smallMax-smallMin+1] ;
+    static {
+        for ( int i = 0 ; i < small.length ; i++ )
+            small[i] = new NodeValueInteger(i+smallMin) ;
+    }
+
+    /** An integer value, which may be shared with other uses of the same value.
+     * Unlike {@link NodeValue#makeInteger(long)}, the result may already have a node.
+     */
+    public static NodeValueInteger valueOf(long i)
+    {
+        if ( i >= smallMin && i <= smallMax )
+            return small[(int)i-smallMin] ;
+        return new NodeValueInteger(i) ;
+    }
+
+    /** Whether the value fits in a long. */
+    public boolean isLong()     { return isLong ; }
+    /** The value as a long; only valid if {@link #isLong()}. */
+    public long getLong()       { return value ; }
 
     @Override
     public boolean isNumber() { return true ; }
@@ -51,17 +83,26 @@ public class NodeValueInteger extends NodeValue
     public boolean isDouble() { return true ; }
     
     @Override
-    public BigInteger  getInteger()   { return integer ; }
+    public BigInteger  getInteger()
+    {
+        // Racing threads create equal values.
+        if ( integer == null )
+            integer = BigInteger.valueOf(value) ;
+        return integer ;
+    }
     @Override
-    public double getDouble()  { return integer.doubleValue() ; }
+    public double getDouble()  { return isLong ? (double)value : integer.doubleValue() ; }
     @Override
-    public float  getFloat()   { return integer.floatValue() ; }
+    public float  getFloat()   { return isLong ? (float)value : integer.floatValue() ; }
     @Override
-    public BigDecimal getDecimal()  { return new BigDecimal(integer) ; }
+    public BigDecimal getDecimal()  { return isLong ? BigDecimal.valueOf(value) : new BigDecimal(integer) ; }
 
     @Override
     protected Node makeNode()
-    { return NodeFactory.createLiteral(integer.toString(), null, XSDDatatype.XSDinteger) ; }
+    { return NodeFactory.createLiteral(lexicalForm(), null, XSDDatatype.XSDinteger) ; }
+
+    private String lexicalForm()
+    { return isLong ? Long.toString(value) : integer.toString() ; }
     
     @Override
     public String asString() { return toString() ; }
@@ -71,7 +112,7 @@ public class NodeValueInteger extends NodeValue
     { 
         // Preserve lexical form
         if ( getNode() != null ) return super.asString() ;  // str()
-        return integer.toString() ;
+        return lexicalForm() ;
     }
     
     @Override
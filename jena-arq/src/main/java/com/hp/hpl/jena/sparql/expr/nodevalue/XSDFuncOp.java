@@ -73,8 +73,17 @@ public class XSDFuncOp
     
     public static NodeValue numAdd(NodeValue nv1, NodeValue nv2) {
         switch (classifyNumeric("add", nv1, nv2)) {
-            case OP_INTEGER :
+            case OP_INTEGER : {
+                if ( bothLong(nv1, nv2) ) {
+                    long x = ((NodeValueInteger)nv1).getLong() ;
+                    long y = ((NodeValueInteger)nv2).getLong() ;
+                    long r = x + y ;
+                    // Overflow iff both arguments have the opposite sign of the result.
+                    if ( ((x ^ r) & (y ^ r)) >= 0 )
+                        return NodeValueInteger.valueOf(r) ;
+                }
                 return NodeValue.makeInteger(nv1.getInteger().add(nv2.getInteger())) ;
+            }
             case OP_DECIMAL :
                 return NodeValue.makeDecimal(nv1.getDecimal().add(nv2.getDecimal())) ;
             case OP_FLOAT :
@@ -88,8 +97,16 @@ public class XSDFuncOp
     
     public static NodeValue numSubtract(NodeValue nv1, NodeValue nv2) {
         switch (classifyNumeric("subtract", nv1, nv2)) {
-            case OP_INTEGER :
+            case OP_INTEGER : {
+                if ( bothLong(nv1, nv2) ) {
+                    long x = ((NodeValueInteger)nv1).getLong() ;
+                    long y = ((NodeValueInteger)nv2).getLong() ;
+                    long r = x - y ;
+                    if ( ((x ^ y) & (x ^ r)) >= 0 )
+                        return NodeValueInteger.valueOf(r) ;
+                }
                 return NodeValue.makeInteger(nv1.getInteger().subtract(nv2.getInteger())) ;
+            }
             case OP_DECIMAL :
                 return NodeValue.makeDecimal(nv1.getDecimal().subtract(nv2.getDecimal())) ;
             case OP_FLOAT :
@@ -103,8 +120,19 @@ public class XSDFuncOp
     
     public static NodeValue numMultiply(NodeValue nv1, NodeValue nv2) {
         switch (classifyNumeric("multiply", nv1, nv2)) {
-            case OP_INTEGER :
+            case OP_INTEGER : {
+                if ( bothLong(nv1, nv2) ) {
+                    long x = ((NodeValueInteger)nv1).getLong() ;
+                    long y = ((NodeValueInteger)nv2).getLong() ;
+                    long r = x * y ;
+                    boolean overflow = false ;
+                    if ( ((Math.abs(x) | Math.abs(y)) >>> 31) != 0 )
+                        overflow = ( y != 0 && r / y != x ) || ( x == Long.MIN_VALUE && y == -1 ) ;
+                    if ( ! overflow )
+                        return NodeValueInteger.valueOf(r) ;
+                }
                 return NodeValue.makeInteger(nv1.getInteger().multiply(nv2.getInteger())) ;
+            }
             case OP_DECIMAL :
                 return NodeValue.makeDecimal(nv1.getDecimal().multiply(nv2.getDecimal())) ;
             case OP_FLOAT :
@@ -772,6 +800,22 @@ public class XSDFuncOp
     // Comparisons operations
     // Do not confuse with sameValueAs/notSamevalueAs
 
+    /** Compare longs, returning {@link Expr#CMP_LESS}, {@link Expr#CMP_EQUAL} or {@link Expr#CMP_GREATER}. */
+    public static int compareLong(long x, long y) {
+        return ( x < y ) ? Expr.CMP_LESS : ( x == y ? Expr.CMP_EQUAL : Expr.CMP_GREATER ) ;
+    }
+
+    /** Compare doubles, in the order of {@link Double#compare}. */
+    public static int compareDouble(double x, double y) {
+        return calcReturn(Double.compare(x, y)) ;
+    }
+
+    // Both integers held as longs.
+    private static boolean bothLong(NodeValue nv1, NodeValue nv2) {
+        return nv1 instanceof NodeValueInteger && ((NodeValueInteger)nv1).isLong() &&
+               nv2 instanceof NodeValueInteger && ((NodeValueInteger)nv2).isLong() ;
+    }
+
     private static int calcReturn(int x) {
         if ( x < 0 )
             return Expr.CMP_LESS ;
@@ -785,13 +829,15 @@ public class XSDFuncOp
 
         switch (opType) {
             case OP_INTEGER :
+                if ( bothLong(nv1, nv2) )
+                    return compareLong(((NodeValueInteger)nv1).getLong(), ((NodeValueInteger)nv2).getLong()) ;
                 return calcReturn(nv1.getInteger().compareTo(nv2.getInteger())) ;
             case OP_DECIMAL :
                 return calcReturn(nv1.getDecimal().compareTo(nv2.getDecimal())) ;
             case OP_FLOAT :
                 return calcReturn(Float.compare(nv1.getFloat(), nv2.getFloat())) ;
             case OP_DOUBLE :
-                return calcReturn(Double.compare(nv1.getDouble(), nv2.getDouble())) ;
+                return compareDouble(nv1.getDouble(), nv2.getDouble()) ;
             default :
                 throw new ARQInternalErrorException("Unrecognized numeric operation : (" + nv1 + " ," + nv2 + ")") ;
         }
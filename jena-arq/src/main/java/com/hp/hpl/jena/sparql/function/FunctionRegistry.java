@@ -25,6 +25,7 @@ import java.util.Set ;
 
 import com.hp.hpl.jena.query.ARQ ;
 import com.hp.hpl.jena.sparql.ARQConstants ;
+import com.hp.hpl.jena.sparql.engine.QueryCache ;
 
 import org.apache.jena.atlas.logging.Log ;
 
@@ -36,6 +37,7 @@ public class FunctionRegistry //extends HashMap<String, Function>
     // Extract a Registry class and do casting and initialization here.
     Map<String, FunctionFactory> registry = new HashMap<>() ;
     Set<String> attemptedLoads = new HashSet<>() ;
+    Set<String> deterministic = new HashSet<>() ;
     
     public synchronized static FunctionRegistry standardRegistry()
     {
@@ -76,7 +78,7 @@ public class FunctionRegistry //extends HashMap<String, Function>
      * @param uri
      * @param f
      */
-    public void put(String uri, FunctionFactory f) { registry.put(uri,f) ; }
+    public void put(String uri, FunctionFactory f) { registry.put(uri,f) ; deterministic.remove(uri) ; QueryCache.invalidate() ; }
 
     /** Insert a class that is the function implementation 
      * 
@@ -92,6 +94,8 @@ public class FunctionRegistry //extends HashMap<String, Function>
         }
         
         registry.put(uri, new FunctionFactoryAuto(funcClass)) ;
+        deterministic.remove(uri) ;
+        QueryCache.invalidate() ;
     }
     
     /** Lookup by URI */
@@ -117,9 +121,25 @@ public class FunctionRegistry //extends HashMap<String, Function>
     public boolean isRegistered(String uri) { return registry.containsKey(uri) ; }
     
     /** Remove by URI */
-    public FunctionFactory remove(String uri) { return registry.remove(uri) ; } 
+    public FunctionFactory remove(String uri)
+    {
+        FunctionFactory f = registry.remove(uri) ;
+        deterministic.remove(uri) ;
+        QueryCache.invalidate() ;
+        return f ;
+    } 
     
     /** Iterate over URIs */
     public Iterator<String> keys() { return registry.keySet().iterator() ; }
 
+    /** Record that the function registered under the URI gives the same results
+     * whenever it is called with the same arguments on the same data, so that
+     * results using it may be cached or shared. Registering the URI again
+     * clears this. An extension function is not assumed to be deterministic.
+     */
+    public void setDeterministic(String uri) { deterministic.add(uri) ; }
+
+    /** Whether the function registered under the URI has been recorded as deterministic. */
+    public boolean isDeterministic(String uri) { return deterministic.contains(uri) ; }
+
 }
@@ -117,26 +117,31 @@ public class StandardFunctions
     private static void addCast(FunctionRegistry registry, XSDDatatype dt)
     {
         registry.put(dt.getURI(), new CastXSD(dt) ) ;
+        registry.setDeterministic(dt.getURI()) ;
     }
     
     private static void addCastNumeric(FunctionRegistry registry, XSDDatatype dt)
     {
         registry.put(dt.getURI(), new CastXSD_Numeric(dt) ) ;
+        registry.setDeterministic(dt.getURI()) ;
     }
 
     private static void addCastBoolean(FunctionRegistry registry, XSDDatatype dt)
     {
         registry.put(dt.getURI(), new CastXSD_Boolean(dt) ) ;
+        registry.setDeterministic(dt.getURI()) ;
     }
 
     private static void addCastDT(FunctionRegistry registry, XSDDatatype dt)
     {
         registry.put(dt.getURI(), new CastXSD_DateTime(dt) ) ;
+        registry.setDeterministic(dt.getURI()) ;
     }
 
     private static void add(FunctionRegistry registry, String uri, Class<?> funcClass)
     {
         registry.put(uri, funcClass) ;
+        registry.setDeterministic(uri) ;
     }
 
 }
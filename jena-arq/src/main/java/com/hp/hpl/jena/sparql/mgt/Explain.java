@@ -30,6 +30,7 @@ import com.hp.hpl.jena.sparql.algebra.Op ;
 import com.hp.hpl.jena.sparql.core.BasicPattern ;
 import com.hp.hpl.jena.sparql.core.Quad ;
 import com.hp.hpl.jena.sparql.core.QuadPattern ;
+import com.hp.hpl.jena.sparql.engine.main.QueryProfile ;
 import com.hp.hpl.jena.sparql.path.Path ;
 import com.hp.hpl.jena.sparql.serializer.SerializationContext ;
 import com.hp.hpl.jena.sparql.sse.SSE ;
@@ -175,6 +176,15 @@ public class Explain {
         }
     }
 
+    // ---- Execution profile
+
+    public static void explain(QueryProfile profile, Context context) {
+        if ( explaining(InfoLevel.INFO, logExec, context) ) {
+            String x = profile.toString() ;
+            _explain(logExec, "Profile", x, true) ;
+        }
+    }
+
     // ---- BGP and quads
 
     public static void explain(BasicPattern bgp, Context context) {
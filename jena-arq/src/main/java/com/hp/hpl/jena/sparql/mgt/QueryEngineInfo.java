@@ -22,6 +22,7 @@ import java.util.concurrent.atomic.AtomicLong ;
 
 import com.hp.hpl.jena.query.Query ;
 import com.hp.hpl.jena.sparql.algebra.Op ;
+import com.hp.hpl.jena.sparql.engine.main.QueryProfile ;
 import com.hp.hpl.jena.sparql.util.Utils ;
 
 public class QueryEngineInfo implements QueryEngineInfoMBean
@@ -60,6 +61,15 @@ public class QueryEngineInfo implements QueryEngineInfoMBean
     public String getLastQueryExecAt()          { return timeSeen ; }
     public void setLastQueryExecAt()            { timeSeen = Utils.nowAsString() ; }
 
+    private QueryProfile profile = null ;
+    @Override
+    public String getLastProfile()
+    {
+        QueryProfile _profile = profile ;   // Get once.
+        return _profile == null ? "none" : _profile.toString() ;
+    }
+    public void setLastProfile(QueryProfile profile) { this.profile = profile ; }
+
 //    private long lastExecTime ;
 //    public long getLastQueryExecTime()          { return lastExecTime ; }
 //    public void setLastQueryExecTime(long timeMillis)   { lastExecTime = timeMillis ; }
@@ -33,6 +33,9 @@ public interface QueryEngineInfoMBean
     /** Point in time when last query seen */
     String getLastQueryExecAt() ;
 
+    /** Execution profile of the last query executed with profiling enabled, as a string */
+    String getLastProfile() ;
+
 //    /** Length of elapsed time (in microseconds) for the last query : -1 for unknown */  
 //    long getLastQueryExecTime() ;
 }
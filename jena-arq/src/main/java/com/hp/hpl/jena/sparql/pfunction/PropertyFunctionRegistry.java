@@ -25,6 +25,7 @@ import java.util.Set ;
 
 import com.hp.hpl.jena.query.ARQ ;
 import com.hp.hpl.jena.sparql.ARQConstants ;
+import com.hp.hpl.jena.sparql.engine.QueryCache ;
 
 import org.apache.jena.atlas.logging.Log ;
 
@@ -40,6 +41,7 @@ public class PropertyFunctionRegistry
     
     Map<String, PropertyFunctionFactory> registry = new HashMap<>() ;
     Set<String> attemptedLoads = new HashSet<>() ;
+    Set<String> deterministic = new HashSet<>() ;
     
     public synchronized static PropertyFunctionRegistry standardRegistry()
     {
@@ -87,7 +89,7 @@ public class PropertyFunctionRegistry
      * @param uri        String URI for the PropertyFunction
      * @param factory    Factory to make PropertyFunction instances
      */
-    public void put(String uri, PropertyFunctionFactory factory) { registry.put(uri,factory) ; }
+    public void put(String uri, PropertyFunctionFactory factory) { registry.put(uri,factory) ; deterministic.remove(uri) ; QueryCache.invalidate() ; }
 
     /** Insert an PropertyFunction class.
      *  Re-inserting with the same URI overwrites the old entry.
@@ -105,6 +107,8 @@ public class PropertyFunctionRegistry
         }
         
         registry.put(uri,new PropertyFunctionFactoryAuto(extClass)) ;
+        deterministic.remove(uri) ;
+        QueryCache.invalidate() ;
     }
 
     public boolean manages(String uri)
@@ -139,10 +143,26 @@ public class PropertyFunctionRegistry
     public boolean isRegistered(String uri) { return registry.containsKey(uri) ; }
     
     /** Remove by URI */
-    public PropertyFunctionFactory remove(String uri) { return registry.remove(uri) ; } 
+    public PropertyFunctionFactory remove(String uri)
+    {
+        PropertyFunctionFactory f = registry.remove(uri) ;
+        deterministic.remove(uri) ;
+        QueryCache.invalidate() ;
+        return f ;
+    } 
     
     /** Iterate over URIs */
     public Iterator<String> keys() { return registry.keySet().iterator() ; }
+
+    /** Record that the property function registered under the URI gives the same results
+     * whenever it is called with the same arguments on the same data, so that
+     * results using it may be cached or shared. Registering the URI again
+     * clears this. An extension property function is not assumed to be deterministic.
+     */
+    public void setDeterministic(String uri) { deterministic.add(uri) ; }
+
+    /** Whether the property function registered under the URI has been recorded as deterministic. */
+    public boolean isDeterministic(String uri) { return deterministic.contains(uri) ; }
     
     @SuppressWarnings("deprecation")
     private void loadStdDefs()
@@ -157,5 +177,8 @@ public class PropertyFunctionRegistry
         put(ListPFunction.listLength.getURI() , com.hp.hpl.jena.sparql.pfunction.library.listLength.class) ;
         
         put(RDFS.member.getURI(), com.hp.hpl.jena.sparql.pfunction.library.container.class) ;
+
+        for ( String uri : registry.keySet() )
+            setDeterministic(uri) ;
     }
 }
@@ -0,0 +1,318 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.atlas.data;
+
+import java.lang.reflect.Field ;
+import java.lang.reflect.Method ;
+import java.nio.ByteBuffer ;
+import java.nio.LongBuffer ;
+
+import org.apache.jena.atlas.AtlasException ;
+import org.apache.jena.atlas.lib.Closeable ;
+import org.slf4j.Logger ;
+import org.slf4j.LoggerFactory ;
+
+/**
+ * A set of byte string keys, held outside the Java heap.
+ * <p/>
+ * Keys are appended to an arena of direct memory and found through an open
+ * addressing hash table, also in direct memory, where each slot holds the
+ * hash of the key and its offset in the arena.  Keys can only be added;
+ * {@link #clear()} empties the set and keeps the memory for reuse.
+ * <p/>
+ * The memory is released by {@link #close()}, and when the table or arena
+ * is replaced by a larger one, where the JVM allows it; otherwise it is
+ * released when the buffers are collected.  The set must not be used after
+ * it has been closed.
+ * <p/>
+ * At most {@link #MaxKeys} keys can be held, in an arena of at most
+ * {@link #MaxArena} bytes, where each key takes its length plus 4 bytes.
+ * A set may also be given a smaller limit on the memory it uses.  When the
+ * set cannot grow to take a new key, because of these limits or because
+ * direct memory has run out, adding it throws a {@link FullException} and
+ * leaves the set as it was, so the caller can carry on another way.
+ * <p/>
+ * The set is not thread safe.
+ */
+public class HashKeySet implements Closeable
+{
+    private static final Logger log = LoggerFactory.getLogger(HashKeySet.class) ;
+
+    // Slots are 8 bytes, in one buffer, and the table is at most half full.
+    public static final int MaxKeys = 1<<26 ;
+    // Offsets are ints; a direct buffer can be a little under 2G bytes.
+    public static final int MaxArena = Integer.MAX_VALUE-8 ;
+
+    private static final int initialSlots = 1024 ;
+    private static final int initialArena = 64*1024 ;
+    // Empty slots are zero; arena offsets are stored plus one.
+    private static final long offsetMask = 0xFFFFFFFFL ;
+
+    private ByteBuffer slotBytes ;
+    private LongBuffer slots ;
+    private int slotMask ;
+    private ByteBuffer arena ;
+    private int size = 0 ;
+    private final long maxBytes ;
+
+    /** The set cannot add a key without growing, and cannot grow. */
+    public static class FullException extends AtlasException
+    {
+        public FullException(String msg) { super(msg) ; }
+    }
+
+    public HashKeySet()
+    {
+        this(Long.MAX_VALUE) ;
+    }
+
+    /** A set that grows to use at most about maxBytes of memory; see {@link #bytesUsed()}. */
+    public HashKeySet(long maxBytes)
+    {
+        this.maxBytes = maxBytes ;
+        slotBytes = allocate(initialSlots*8) ;
+        slots = slotBytes.asLongBuffer() ;
+        slotMask = initialSlots-1 ;
+        arena = allocate(initialArena) ;
+    }
+
+    /** The number of keys in the set. */
+    public int size()
+    {
+        return size ;
+    }
+
+    /** The number of bytes of memory, outside the heap, in use by the set. */
+    public long bytesUsed()
+    {
+        if ( slots == null )
+            return 0 ;
+        return 8L*slots.capacity()+arena.capacity() ;
+    }
+
+    /**
+     * Add a key.
+     * @return true if the key was not already in the set.
+     * @throws FullException if the key is new and the set cannot grow to hold it.
+     */
+    public boolean add(byte[] key, int len)
+    {
+        checkOpen() ;
+        int hash = hash(key, len, 0) ;
+        int idx = find(key, len, hash) ;
+        if ( idx >= 0 )
+            return false ;
+        // Grow first, so that a set that cannot grow is left as it was.
+        if ( 2*(size+1) > slotMask )
+        {
+            rehash() ;
+            idx = find(key, len, hash) ;
+        }
+        idx = -idx-1 ;
+        int offset = append(key, len) ;
+        slots.put(idx, ((long)hash << 32) | ((offset+1) & offsetMask)) ;
+        size++ ;
+        return true ;
+    }
+
+    /** Test whether the set contains a key. */
+    public boolean contains(byte[] key, int len)
+    {
+        checkOpen() ;
+        return find(key, len, hash(key, len, 0)) >= 0 ;
+    }
+
+    /** Remove all keys. */
+    public void clear()
+    {
+        checkOpen() ;
+        for ( int i = 0 ; i <= slotMask ; i++ )
+            slots.put(i, 0) ;
+        arena.clear() ;
+        size = 0 ;
+    }
+
+    @Override
+    public void close()
+    {
+        if ( slots == null )
+            return ;
+        ByteBuffer b1 = slotBytes ;
+        ByteBuffer b2 = arena ;
+        slotBytes = null ;
+        slots = null ;
+        arena = null ;
+        size = 0 ;
+        release(b1) ;
+        release(b2) ;
+    }
+
+    private void checkOpen()
+    {
+        if ( slots == null )
+            throw new AtlasException("HashKeySet: closed") ;
+    }
+
+    /**
+     * Hash of a byte string; different seeds give independent hashes, as
+     * needed when a set of keys is split by hash more than once.
+     */
+    public static int hash(byte[] key, int len, int seed)
+    {
+        int h = seed ^ len ;
+        for ( int i = 0 ; i < len ; i++ )
+            h = 31*h + key[i] ;
+        // Finalization step of MurmurHash3.
+        h ^= h >>> 16 ;
+        h *= 0x85ebca6b ;
+        h ^= h >>> 13 ;
+        h *= 0xc2b2ae35 ;
+        h ^= h >>> 16 ;
+        return h ;
+    }
+
+    /** Slot of the key if present, else (-(insertion slot)-1). */
+    private int find(byte[] key, int len, int hash)
+    {
+        int idx = hash & slotMask ;
+        for ( ;; )
+        {
+            long x = slots.get(idx) ;
+            if ( x == 0 )
+                return -idx-1 ;
+            if ( (int)(x >>> 32) == hash && equalKey((int)(x & offsetMask)-1, key, len) )
+                return idx ;
+            idx = (idx+1) & slotMask ;
+        }
+    }
+
+    private boolean equalKey(int offset, byte[] key, int len)
+    {
+        if ( arena.getInt(offset) != len )
+            return false ;
+        offset += 4 ;
+        for ( int i = 0 ; i < len ; i++ )
+        {
+            if ( arena.get(offset+i) != key[i] )
+                return false ;
+        }
+        return true ;
+    }
+
+    private int append(byte[] key, int len)
+    {
+        if ( arena.remaining() < len+4 )
+        {
+            long needed = (long)arena.position()+len+4 ;
+            long newSize = Math.min(Math.max(2L*arena.capacity(), needed), MaxArena) ;
+            if ( needed > newSize )
+                throw new FullException("HashKeySet: key space exhausted (max "+MaxArena+" bytes)") ;
+            if ( 8L*slots.capacity()+newSize > maxBytes )
+                throw new FullException("HashKeySet: over the memory limit of "+maxBytes+" bytes") ;
+            ByteBuffer bb = allocate((int)newSize) ;
+            arena.flip() ;
+            bb.put(arena) ;
+            release(arena) ;
+            arena = bb ;
+        }
+        int offset = arena.position() ;
+        arena.putInt(len) ;
+        arena.put(key, 0, len) ;
+        return offset ;
+    }
+
+    private void rehash()
+    {
+        LongBuffer old = slots ;
+        ByteBuffer oldBytes = slotBytes ;
+        int oldSlots = slotMask+1 ;
+        if ( 16L*oldSlots > Integer.MAX_VALUE )
+            throw new FullException("HashKeySet: too many keys (max "+MaxKeys+")") ;
+        int n = 2*oldSlots ;
+        if ( 8L*n+arena.capacity() > maxBytes )
+            throw new FullException("HashKeySet: over the memory limit of "+maxBytes+" bytes") ;
+        slotBytes = allocate(8*n) ;
+        slots = slotBytes.asLongBuffer() ;
+        slotMask = n-1 ;
+        for ( int i = 0 ; i < oldSlots ; i++ )
+        {
+            long x = old.get(i) ;
+            if ( x == 0 )
+                continue ;
+            int idx = (int)(x >>> 32) & slotMask ;
+            while ( slots.get(idx) != 0 )
+                idx = (idx+1) & slotMask ;
+            slots.put(idx, x) ;
+        }
+        release(oldBytes) ;
+    }
+
+    private static ByteBuffer allocate(int bytes)
+    {
+        try { return ByteBuffer.allocateDirect(bytes) ; }
+        catch (OutOfMemoryError ex) {
+            // Direct memory (-XX:MaxDirectMemorySize) has run out; the heap is unaffected.
+            throw new FullException("HashKeySet: no direct memory for "+bytes+" bytes") ;
+        }
+    }
+
+    // Freeing direct memory before the buffer is collected is not in the
+    // Java API. Java 9 and later have Unsafe.invokeCleaner; before that, the
+    // buffer has a cleaner. If neither can be used, the buffer is left for
+    // the garbage collector.
+    private static final Object unsafe ;
+    private static final Method invokeCleaner ;
+    static {
+        Object u = null ;
+        Method m = null ;
+        try {
+            Class<?> c = Class.forName("sun.misc.Unsafe") ;
+            m = c.getMethod("invokeCleaner", ByteBuffer.class) ;
+            Field f = c.getDeclaredField("theUnsafe") ;
+            f.setAccessible(true) ;
+            u = f.get(null) ;
+        } catch (Throwable ex) { u = null ; m = null ; }
+        unsafe = u ;
+        invokeCleaner = m ;
+    }
+
+    private static void release(ByteBuffer bb)
+    {
+        if ( bb == null || ! bb.isDirect() )
+            return ;
+        try {
+            if ( invokeCleaner != null )
+            {
+                invokeCleaner.invoke(unsafe, bb) ;
+                return ;
+            }
+            Method cleanerMethod = bb.getClass().getMethod("cleaner") ;
+            cleanerMethod.setAccessible(true) ;
+            Object cleaner = cleanerMethod.invoke(bb) ;
+            if ( cleaner != null )
+            {
+                Method clean = cleaner.getClass().getMethod("clean") ;
+                clean.setAccessible(true) ;
+                clean.invoke(cleaner) ;
+            }
+        } catch (Throwable ex) {
+            log.debug("Direct memory left for the garbage collector: "+ex.getMessage()) ;
+        }
+    }
+}
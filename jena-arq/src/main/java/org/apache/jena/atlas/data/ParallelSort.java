@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.atlas.data;
+
+import java.util.Arrays ;
+import java.util.Comparator ;
+import java.util.concurrent.ForkJoinPool ;
+import java.util.concurrent.RecursiveAction ;
+
+/**
+ * Sort an array using all available processors: the array is split into
+ * pieces that are sorted in parallel, then the pieces are merged pairwise,
+ * with the merges at each level running in parallel.  Small arrays are
+ * sorted directly.  The sort is stable.
+ */
+public class ParallelSort
+{
+    /** Below this size, sort in the calling thread. */
+    public static int MinParallelSize = 16*1024 ;
+
+    private static final ForkJoinPool pool = new ForkJoinPool() ;
+
+    private ParallelSort() {}
+
+    public static <T> void sort(T[] array, Comparator<? super T> comparator)
+    {
+        if ( array.length < MinParallelSize || pool.getParallelism() < 2 )
+        {
+            Arrays.sort(array, comparator) ;
+            return ;
+        }
+        T[] work = Arrays.copyOf(array, array.length) ;
+        int pieceSize = Math.max(MinParallelSize/2, array.length/(4*pool.getParallelism())) ;
+        pool.invoke(new SortTask<>(array, work, 0, array.length, pieceSize, comparator)) ;
+    }
+
+    /** Sort array[lo, hi), using work[lo, hi) as space. */
+    private static class SortTask<T> extends RecursiveAction
+    {
+        private final T[] array ;
+        private final T[] work ;
+        private final int lo ;
+        private final int hi ;
+        private final int pieceSize ;
+        private final Comparator<? super T> comparator ;
+
+        SortTask(T[] array, T[] work, int lo, int hi, int pieceSize, Comparator<? super T> comparator)
+        {
+            this.array = array ;
+            this.work = work ;
+            this.lo = lo ;
+            this.hi = hi ;
+            this.pieceSize = pieceSize ;
+            this.comparator = comparator ;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if ( hi-lo <= pieceSize )
+            {
+                Arrays.sort(array, lo, hi, comparator) ;
+                return ;
+            }
+            int mid = (lo+hi) >>> 1 ;
+            invokeAll(new SortTask<>(array, work, lo, mid, pieceSize, comparator),
+                      new SortTask<>(array, work, mid, hi, pieceSize, comparator)) ;
+            if ( comparator.compare(array[mid-1], array[mid]) <= 0 )
+                // Already in order.
+                return ;
+            System.arraycopy(array, lo, work, lo, hi-lo) ;
+            merge(work, lo, mid, hi, array, comparator) ;
+        }
+    }
+
+    // Merge src[lo,mid) and src[mid,hi) into dst[lo,hi).
+    private static <T> void merge(T[] src, int lo, int mid, int hi, T[] dst, Comparator<? super T> comparator)
+    {
+        int i = lo ;
+        int j = mid ;
+        int k = lo ;
+        while ( i < mid && j < hi )
+        {
+            // Take from the left on equality for a stable sort.
+            if ( comparator.compare(src[j], src[i]) < 0 )
+                dst[k++] = src[j++] ;
+            else
+                dst[k++] = src[i++] ;
+        }
+        while ( i < mid )
+            dst[k++] = src[i++] ;
+        while ( j < hi )
+            dst[k++] = src[j++] ;
+    }
+}
@@ -29,7 +29,11 @@ import java.util.Comparator ;
 import java.util.Iterator ;
 import java.util.List ;
 import java.util.NoSuchElementException ;
-import java.util.PriorityQueue ;
+import java.util.concurrent.ExecutionException ;
+import java.util.concurrent.ExecutorService ;
+import java.util.concurrent.Executors ;
+import java.util.concurrent.Future ;
+import java.util.concurrent.ThreadFactory ;
 
 import org.apache.jena.atlas.AtlasException ;
 import org.apache.jena.atlas.iterator.Iter ;
@@ -56,8 +60,9 @@ import org.apache.jena.atlas.lib.Sink ;
  * </p>
  * <p>
  * Implementation Notes: Data is stored in an ArrayList as it comes in.  When it is time to spill, that
- * data is sorted and written to disk.  An iterator will read in each file and perform a merge-sort as
- * the results are returned.
+ * data is sorted, using all available processors, and written to disk in the background while the next
+ * run is gathered.  The comparator must therefore be safe to use from several threads at once.
+ * An iterator will read in each file and perform a merge-sort as the results are returned.
  * </p>
  */
 public class SortedDataBag<E> extends AbstractDataBag<E>
@@ -67,10 +72,24 @@ public class SortedDataBag<E> extends AbstractDataBag<E>
      */
     protected static int MAX_SPILL_FILES = 100 ;
     
+    private static final ExecutorService spillExecutor = Executors.newCachedThreadPool(new ThreadFactory()
+    {
+        @Override
+        public Thread newThread(Runnable r)
+        {
+            Thread t = new Thread(r, "SortedDataBag-spill");
+            t.setDaemon(true);
+            return t;
+        }
+    });
+    
     protected final ThresholdPolicy<E> policy;
     protected final SerializationFactory<E> serializationFactory;
     protected final Comparator<? super E> comparator;
     
+    // The run being sorted and written in the background.
+    private Future<?> pendingSpill = null;
+    
     protected boolean finishedAdding = false;
     protected boolean spilled = false;
     protected boolean closed = false;
@@ -124,7 +143,11 @@ public class SortedDataBag<E> extends AbstractDataBag<E>
         // Make sure we have something to spill.
         if (memory.size() > 0)
         {
-            OutputStream out;
+            // One run is sorted and written at a time, in the background,
+            // while the next run is gathered.  So at most two runs are in memory.
+            waitForSpill();
+            
+            final OutputStream out;
             try
             {
                 out = getSpillStream();
@@ -134,30 +157,61 @@ public class SortedDataBag<E> extends AbstractDataBag<E>
                 throw new AtlasException(e);
             }
             
-            // Sort the tuples
-            // Collections.sort() will copy to an array, sort, and then copy back.  Avoid that
-            // extra copy by copying to an array and using Arrays.sort().  Also it lets us use
-            // Collection<E> instead of List<E> as the type for the memory object.  Unfortunately
-            // because of Java's crazy generics we have to do it as an Object array.
-            Object[] array = memory.toArray();
-            Arrays.sort(array, (Comparator)comparator);
-            
-            Sink<E> serializer = serializationFactory.createSerializer(out);
-            try
-            {
-                for (Object tuple : array)
-                {
-                    serializer.send((E)tuple);
-                }
-            }
-            finally
-            {
-                serializer.close();
-            }
+            // Copy to an array to sort.  Also it lets us use Collection<E> instead of List<E> as the
+            // type for the memory object.  Unfortunately because of Java's crazy generics we have
+            // to do it as an Object array.
+            final Object[] array = memory.toArray();
             
             spilled = true;
             policy.reset();
             memory.clear();
+            
+            pendingSpill = spillExecutor.submit(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    ParallelSort.sort(array, (Comparator)comparator);
+                    Sink<E> serializer = serializationFactory.createSerializer(out);
+                    try
+                    {
+                        for (Object tuple : array)
+                        {
+                            serializer.send((E)tuple);
+                        }
+                    }
+                    finally
+                    {
+                        serializer.close();
+                    }
+                }
+            });
+        }
+    }
+    
+    /**
+     * Wait for the run being written in the background, if any, to finish.
+     */
+    protected void waitForSpill()
+    {
+        if (pendingSpill == null)
+        {
+            return;
+        }
+        Future<?> f = pendingSpill;
+        pendingSpill = null;
+        try
+        {
+            f.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new AtlasException("Interrupted while writing a spill file", e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new AtlasException("Failed to write a spill file", e.getCause());
         }
     }
 
@@ -165,10 +219,13 @@ public class SortedDataBag<E> extends AbstractDataBag<E>
     public void flush()
     {
         spill();
+        waitForSpill();
     }
     
     protected Iterator<E> getInputIterator(File spillFile) throws FileNotFoundException
     {
+        // The file may still be being written.
+        waitForSpill();
         InputStream in = getInputStream(spillFile);
         Iterator<E> deserializer = serializationFactory.createDeserializer(in) ;
         return new IteratorResourceClosing<>(deserializer, in);
@@ -201,7 +258,7 @@ public class SortedDataBag<E> extends AbstractDataBag<E>
         {
             // Again, some ugliness for speed
             Object[] array = memory.toArray();
-            Arrays.sort(array, (Comparator)comparator);
+            ParallelSort.sort(array, (Comparator)comparator);
             memory = Arrays.asList((E[])array);
         }
         
@@ -304,6 +361,14 @@ public class SortedDataBag<E> extends AbstractDataBag<E>
     {
         if (!closed)
         {
+            try
+            {
+                waitForSpill();
+            }
+            catch (AtlasException e)
+            {
+                // Closing anyway; the spill file is deleted below.
+            }
             closeIterators();
             deleteSpillFiles();
             
@@ -313,41 +378,105 @@ public class SortedDataBag<E> extends AbstractDataBag<E>
     }
     
     /**
-     * An iterator that handles getting the next tuple from the bag.
+     * An iterator that handles getting the next tuple from the bag: a k-way
+     * merge of sorted inputs using a loser tree, which needs one comparison
+     * per level of the tree (log k) for each item returned.
      */
     protected static class SpillSortIterator<T> implements Iterator<T>, Closeable
     {
         private final List<Iterator<T>> inputs;
         private final Comparator<? super T> comp;
-        private final PriorityQueue<Item<T>> minHeap;
+        private final int k;
+        // The current item of each input; exhausted inputs are marked in done.
+        private final Object[] heads;
+        private final boolean[] done;
+        // tree[0] is the input with the least item, tree[1..k-1] are the losers
+        // at each internal node.  Leaves are nodes k..2k-1.
+        private final int[] tree;
         
         public SpillSortIterator(List<Iterator<T>> inputs, Comparator<? super T> comp)
         {
             this.inputs = inputs;
             this.comp = comp;
-            this.minHeap = new PriorityQueue<>(inputs.size());
+            this.k = inputs.size();
+            this.heads = new Object[k];
+            this.done = new boolean[k];
+            this.tree = new int[Math.max(k, 1)];
             
-            // Prime the heap
-            for (int i=0; i<inputs.size(); i++)
+            for (int i=0; i<k; i++)
             {
-                replaceItem(i);
+                advance(i);
+            }
+            if (k > 0)
+            {
+                tree[0] = build(1);
             }
         }
         
-        private void replaceItem(int index)
+        private void advance(int index)
         {
             Iterator<T> it = inputs.get(index);
             if (it.hasNext())
             {
-                T tuple = it.next();
-                minHeap.add(new Item<>(index, tuple, comp));
+                heads[index] = it.next();
+            }
+            else
+            {
+                heads[index] = null;
+                done[index] = true;
+            }
+        }
+        
+        // Winner of the subtree at node; records the losers on the way.
+        private int build(int node)
+        {
+            if (node >= k)
+            {
+                return node - k;
+            }
+            int left = build(2*node);
+            int right = build(2*node+1);
+            if (less(left, right))
+            {
+                tree[node] = right;
+                return left;
             }
+            tree[node] = left;
+            return right;
+        }
+        
+        // Replay the matches from the leaf of an input to the root.
+        private void replay(int index)
+        {
+            int winner = index;
+            for (int node = (index + k) >>> 1; node >= 1; node >>>= 1)
+            {
+                if (less(tree[node], winner))
+                {
+                    int t = tree[node];
+                    tree[node] = winner;
+                    winner = t;
+                }
+            }
+            tree[0] = winner;
+        }
+        
+        @SuppressWarnings("unchecked")
+        private boolean less(int a, int b)
+        {
+            if (done[a]) return false;
+            if (done[b]) return true;
+            T x = (T)heads[a];
+            T y = (T)heads[b];
+            int c = (null != comp) ? comp.compare(x, y) : ((Comparable<T>)x).compareTo(y);
+            // Ties go to the earlier input.
+            return c < 0 || (c == 0 && a < b);
         }
 
         @Override
         public boolean hasNext()
         {
-            return (minHeap.peek() != null);
+            return k > 0 && !done[tree[0]];
         }
 
         @Override
@@ -358,11 +487,14 @@ public class SortedDataBag<E> extends AbstractDataBag<E>
                 throw new NoSuchElementException();
             }
             
-            Item<T> curr = minHeap.poll();
+            int index = tree[0];
+            @SuppressWarnings("unchecked")
+            T tuple = (T)heads[index];
             // Read replacement item
-            replaceItem(curr.getIndex());
+            advance(index);
+            replay(index);
             
-            return curr.getTuple();
+            return tuple;
         }
 
         @Override
@@ -379,56 +511,6 @@ public class SortedDataBag<E> extends AbstractDataBag<E>
                 Iter.close(it);
             }
         }
-        
-        private final class Item<U> implements Comparable<Item<U>>
-        {
-            private final int index;
-            private final U tuple;
-            private final Comparator<? super U> c;
-            
-            public Item(int index, U tuple, Comparator<? super U> c)
-            {
-                this.index = index;
-                this.tuple = tuple;
-                this.c = c;
-            }
-            
-            public int getIndex()
-            {
-                return index;
-            }
-            
-            public U getTuple()
-            {
-                return tuple;
-            }
-            
-            @Override
-            @SuppressWarnings("unchecked")
-            public int compareTo(Item<U> o)
-            {
-                return (null != c) ? c.compare(tuple, o.getTuple()) : ((Comparable<U>)tuple).compareTo(o.getTuple());
-            }
-            
-            @SuppressWarnings("unchecked")
-            @Override
-            public boolean equals(Object obj)
-            {
-                if (obj instanceof Item)
-                {
-                    return compareTo((Item<U>)obj) == 0;
-                }
-                
-                return false;
-            }
-            
-            @Override
-            public int hashCode()
-            {
-                return tuple.hashCode();
-            }
-        }
-        
     }
 
 }
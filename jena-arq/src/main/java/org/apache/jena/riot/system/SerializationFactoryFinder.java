@@ -39,8 +39,8 @@ import org.apache.jena.riot.tokens.TokenizerFactory ;
 import com.hp.hpl.jena.graph.Triple ;
 import com.hp.hpl.jena.sparql.core.Quad ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
-import com.hp.hpl.jena.sparql.engine.binding.BindingInputStream ;
-import com.hp.hpl.jena.sparql.engine.binding.BindingOutputStream ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingBinaryInputStream ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingBinaryOutputStream ;
 
 public class SerializationFactoryFinder
 {
@@ -51,13 +51,13 @@ public class SerializationFactoryFinder
             @Override
             public Sink<Binding> createSerializer(OutputStream out)
             {
-                return new BindingOutputStream(out);
+                return new BindingBinaryOutputStream(out);
             }
             
             @Override
             public Iterator<Binding> createDeserializer(InputStream in)
             {
-                return new BindingInputStream(in);
+                return new BindingBinaryInputStream(in);
             }
 
             @Override
@@ -106,6 +106,10 @@ public class StreamRDFLib
     public static StreamRDF extendTriplesToQuads(Node graphNode, StreamRDF base)
     { return new ParserOutputSinkTriplesToQuads(graphNode, base) ; }
     
+    /** Pass on at most {@code limit} triples and quads, or any number if the limit is -1 */
+    public static StreamRDF limit(StreamRDF other, long limit)
+    { return new StreamRDFLimited(other, limit) ; }
+
     public static StreamRDFCounting count()
     { return new StreamRDFCountingBase(sinkNull()) ; }
 
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.system;
+
+import org.apache.jena.riot.RiotException ;
+
+import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.sparql.core.Quad ;
+
+/**
+ * A {@link StreamRDF} that passes on at most a fixed number of triples and
+ * quads (together), throwing {@link LimitExceededException} if there are more.
+ * This guards a destination, such as a dataset being updated directly from
+ * a parser, against unbounded input.
+ */
+public class StreamRDFLimited extends StreamRDFWrapper
+{
+    private final long limit ;
+    private long count = 0 ;
+
+    /**
+     * @param sink  Stream to pass data on to.
+     * @param limit Maximum number of triples and quads, or -1 for no limit.
+     */
+    public StreamRDFLimited(StreamRDF sink, long limit) {
+        super(sink) ;
+        this.limit = limit ;
+    }
+
+    @Override
+    public void triple(Triple triple) {
+        check() ;
+        super.triple(triple) ;
+    }
+
+    @Override
+    public void quad(Quad quad) {
+        check() ;
+        super.quad(quad) ;
+    }
+
+    private void check() {
+        count++ ;
+        if ( limit >= 0 && count > limit )
+            throw new LimitExceededException("Limit of "+limit+" triples and quads exceeded") ;
+    }
+
+    /** The limit, or -1 for no limit */
+    public long getLimit() { return limit ; }
+
+    /** Number of triples and quads so far, including any over the limit. */
+    public long count()    { return count ; }
+
+    /** Thrown when the limit is exceeded. */
+    public static class LimitExceededException extends RiotException
+    {
+        public LimitExceededException(String msg) { super(msg) ; }
+    }
+}
@@ -0,0 +1,353 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.web;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.HttpClient;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.params.ConnManagerPNames;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.client.SystemDefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.conn.SchemeRegistryFactory;
+import org.apache.http.params.CoreConnectionPNames;
+import org.apache.http.params.DefaultedHttpParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.params.SyncBasicHttpParams;
+import org.apache.http.pool.PoolStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The pool of keep-alive HTTP connections shared by HTTP operations that are
+ * not given a specific {@link HttpClient}, see {@link HttpOp} and
+ * {@link com.hp.hpl.jena.sparql.engine.http.HttpQuery}.
+ * <p>
+ * Each operation still gets its own {@link HttpClient} from
+ * {@link #createHttpClient()}, so credentials and per-request settings such
+ * as timeouts are never shared between operations, but the connections those
+ * clients open are returned to this pool and reused by later operations to the
+ * same host. This avoids paying for TCP (and TLS) setup on every request.
+ * </p>
+ * <p>
+ * Connections are limited per route (host) and in total, and connections that
+ * have been idle for longer than the idle timeout are closed by a background
+ * thread. The per route limit defaults to the {@code http.maxConnections}
+ * system property, if set, and pooling is off if the {@code http.keepAlive}
+ * system property is {@code false}.
+ * </p>
+ * <p>
+ * A response must be fully read, or its stream closed, for its connection to
+ * return to the pool. Leases on a connection time out after
+ * {@link #getLeaseTimeout()} so a leaked response cannot lock up the system.
+ * </p>
+ */
+public class HttpConnectionPool {
+
+    static private Logger log = LoggerFactory.getLogger(HttpConnectionPool.class);
+
+    /** Default maximum connections per route */
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 10;
+
+    /** Default maximum connections in total */
+    public static final int DEFAULT_MAX_CONNECTIONS = 100;
+
+    /** Default time in milliseconds after which idle connections are closed */
+    public static final long DEFAULT_IDLE_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+
+    /** Default time in milliseconds to wait for a connection from the pool */
+    public static final long DEFAULT_LEASE_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+    static private boolean enabled = !"false".equalsIgnoreCase(System.getProperty("http.keepAlive", "true"));
+    static private int maxConnectionsPerRoute = Integer.getInteger("http.maxConnections",
+            DEFAULT_MAX_CONNECTIONS_PER_ROUTE);
+    static private int maxConnections = Math.max(DEFAULT_MAX_CONNECTIONS, maxConnectionsPerRoute);
+    static private long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+
+    /**
+     * Settings shared by the clients created over the pool, a client may
+     * override these locally
+     */
+    static private final HttpParams sharedParams = new SyncBasicHttpParams();
+    static {
+        sharedParams.setLongParameter(ConnManagerPNames.TIMEOUT, DEFAULT_LEASE_TIMEOUT);
+    }
+
+    static private PoolingClientConnectionManager connectionManager = null;
+    static private Thread evictor = null;
+
+    private HttpConnectionPool() {}
+
+    /**
+     * Creates a HTTP client for a single operation. When pooling is enabled the
+     * client uses the shared pool of connections and must not be shut down,
+     * otherwise it is a fresh {@link SystemDefaultHttpClient}.
+     *
+     * @return HTTP Client
+     */
+    public static HttpClient createHttpClient() {
+        if (!enabled)
+            return new SystemDefaultHttpClient();
+
+        final ClientConnectionManager connmgr = getConnectionManager();
+        HttpParams params = new SyncBasicHttpParams();
+        DefaultHttpClient.setDefaultHttpParams(params);
+        return new SystemDefaultHttpClient(new DefaultedHttpParams(params, sharedParams)) {
+            @Override
+            protected ClientConnectionManager createClientConnectionManager() {
+                return connmgr;
+            }
+        };
+    }
+
+    /**
+     * Gets whether a HTTP client uses the shared pool of connections, such a
+     * client must not be shut down
+     *
+     * @param client
+     *            HTTP Client
+     * @return True if the client uses the shared pool
+     */
+    public static boolean usesPool(HttpClient client) {
+        if (client == null)
+            return false;
+        synchronized (HttpConnectionPool.class) {
+            return connectionManager != null && client.getConnectionManager() == connectionManager;
+        }
+    }
+
+    private static synchronized PoolingClientConnectionManager getConnectionManager() {
+        if (connectionManager == null) {
+            connectionManager = new PoolingClientConnectionManager(SchemeRegistryFactory.createSystemDefault());
+            connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+            connectionManager.setMaxTotal(maxConnections);
+            evictor = new Thread(new IdleConnectionEvictor(connectionManager), "HttpConnectionPool-Evictor");
+            evictor.setDaemon(true);
+            evictor.start();
+        }
+        return connectionManager;
+    }
+
+    /**
+     * Gets the current statistics for the pool: connections leased, available
+     * for reuse, and requests waiting for a connection
+     *
+     * @return Pool statistics
+     */
+    public static synchronized PoolStats getStats() {
+        if (connectionManager == null)
+            return new PoolStats(0, 0, 0, maxConnections);
+        return connectionManager.getTotalStats();
+    }
+
+    /**
+     * Closes all pooled connections and stops the idle connection thread. Any
+     * later operation starts a new pool.
+     */
+    public static synchronized void shutdown() {
+        if (connectionManager == null)
+            return;
+        evictor.interrupt();
+        evictor = null;
+        connectionManager.shutdown();
+        connectionManager = null;
+    }
+
+    /**
+     * Gets whether HTTP operations share a pool of connections
+     *
+     * @return True if pooling is enabled
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets whether HTTP operations share a pool of connections, when disabled
+     * each operation opens its own connections
+     *
+     * @param enabled
+     *            True to enable pooling, false to disable it
+     */
+    public static void setEnabled(boolean enabled) {
+        HttpConnectionPool.enabled = enabled;
+        if (!enabled)
+            shutdown();
+    }
+
+    /**
+     * Gets the maximum number of connections to a single route (host)
+     *
+     * @return Maximum connections per route
+     */
+    public static int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    /**
+     * Sets the maximum number of connections to a single route (host)
+     *
+     * @param max
+     *            Maximum connections per route
+     */
+    public static synchronized void setMaxConnectionsPerRoute(int max) {
+        if (max <= 0)
+            throw new IllegalArgumentException("Maximum connections per route must be greater than zero");
+        maxConnectionsPerRoute = max;
+        if (connectionManager != null)
+            connectionManager.setDefaultMaxPerRoute(max);
+    }
+
+    /**
+     * Gets the maximum number of connections in total
+     *
+     * @return Maximum connections
+     */
+    public static int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Sets the maximum number of connections in total
+     *
+     * @param max
+     *            Maximum connections
+     */
+    public static synchronized void setMaxConnections(int max) {
+        if (max <= 0)
+            throw new IllegalArgumentException("Maximum connections must be greater than zero");
+        maxConnections = max;
+        if (connectionManager != null)
+            connectionManager.setMaxTotal(max);
+    }
+
+    /**
+     * Gets the time in milliseconds after which idle pooled connections are
+     * closed
+     *
+     * @return Idle timeout
+     */
+    public static long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Sets the time in milliseconds after which idle pooled connections are
+     * closed
+     *
+     * @param timeout
+     *            Idle timeout
+     */
+    public static void setIdleTimeout(long timeout) {
+        if (timeout <= 0)
+            throw new IllegalArgumentException("Idle timeout must be greater than zero");
+        idleTimeout = timeout;
+    }
+
+    /**
+     * Gets the time in milliseconds to wait for a connection from the pool
+     *
+     * @return Lease timeout
+     */
+    public static long getLeaseTimeout() {
+        return sharedParams.getLongParameter(ConnManagerPNames.TIMEOUT, DEFAULT_LEASE_TIMEOUT);
+    }
+
+    /**
+     * Sets the time in milliseconds to wait for a connection from the pool,
+     * zero waits indefinitely
+     *
+     * @param timeout
+     *            Lease timeout
+     */
+    public static void setLeaseTimeout(long timeout) {
+        sharedParams.setLongParameter(ConnManagerPNames.TIMEOUT, timeout);
+    }
+
+    /**
+     * Gets the default connect timeout in milliseconds for pooled clients,
+     * zero meaning no timeout
+     *
+     * @return Connect timeout
+     */
+    public static int getConnectTimeout() {
+        return sharedParams.getIntParameter(CoreConnectionPNames.CONNECTION_TIMEOUT, 0);
+    }
+
+    /**
+     * Sets the default connect timeout in milliseconds for pooled clients,
+     * zero meaning no timeout
+     *
+     * @param timeout
+     *            Connect timeout
+     */
+    public static void setConnectTimeout(int timeout) {
+        sharedParams.setIntParameter(CoreConnectionPNames.CONNECTION_TIMEOUT, timeout);
+    }
+
+    /**
+     * Gets the default read timeout in milliseconds for pooled clients, zero
+     * meaning no timeout
+     *
+     * @return Read timeout
+     */
+    public static int getReadTimeout() {
+        return sharedParams.getIntParameter(CoreConnectionPNames.SO_TIMEOUT, 0);
+    }
+
+    /**
+     * Sets the default read timeout in milliseconds for pooled clients, zero
+     * meaning no timeout
+     *
+     * @param timeout
+     *            Read timeout
+     */
+    public static void setReadTimeout(int timeout) {
+        sharedParams.setIntParameter(CoreConnectionPNames.SO_TIMEOUT, timeout);
+    }
+
+    /**
+     * Periodically closes expired connections and those idle for longer than
+     * the idle timeout
+     */
+    private static class IdleConnectionEvictor implements Runnable {
+        private final ClientConnectionManager connmgr;
+
+        IdleConnectionEvictor(ClientConnectionManager connmgr) {
+            this.connmgr = connmgr;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    long timeout = idleTimeout;
+                    Thread.sleep(Math.min(timeout, TimeUnit.SECONDS.toMillis(5)));
+                    connmgr.closeExpiredConnections();
+                    connmgr.closeIdleConnections(timeout, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                // Pool shut down
+            } catch (RuntimeException e) {
+                log.warn("Idle connection eviction stopped", e);
+            }
+        }
+    }
+}
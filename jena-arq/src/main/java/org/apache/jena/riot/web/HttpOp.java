@@ -204,7 +204,8 @@ public class HttpOp {
     /**
      * Return the current default {@link HttpClient}. This may be null, meaning
      * a new {@linkplain HttpClient} is created each time, if none is provided
-     * in the HttpOp function call.
+     * in the HttpOp function call. Those clients share the connections of the
+     * {@link HttpConnectionPool} unless pooling has been disabled.
      * 
      * @return Default HTTP Client
      */
@@ -228,8 +229,8 @@ public class HttpOp {
      * </p>
      * <p>
      * Set to "null" to create a new HttpClient for each call (default
-     * behaviour, more reliable, but slower when many HTTP operation are
-     * attempted).
+     * behaviour). These clients reuse keep-alive connections from the shared
+     * {@link HttpConnectionPool} but never share credentials or settings.
      * <p>
      * See the Apache Http Client documentation for more details.
      * 
@@ -1077,7 +1078,7 @@ public class HttpOp {
     public static void execHttpDelete(String url, HttpResponseHandler handler, HttpClient httpClient, HttpContext httpContext,
             HttpAuthenticator authenticator) {
         HttpUriRequest httpDelete = new HttpDelete(url);
-        exec(url, httpDelete, null, handler, null, httpContext, authenticator);
+        exec(url, httpDelete, null, handler, httpClient, httpContext, authenticator);
     }
 
     // ---- Perform the operation!
@@ -1118,8 +1119,16 @@ public class HttpOp {
 				throw new HttpException(statusLine.getStatusCode(), statusLine.getReasonPhrase(), contentPayload);
             }
             // Redirects are followed by HttpClient.
-            if (handler != null)
-                handler.handle(baseURI, response);
+            if (handler != null) {
+                try {
+                    handler.handle(baseURI, response);
+                } catch (IOException | RuntimeException ex) {
+                    // Release the connection, a pooled connection would
+                    // otherwise stay leased
+                    request.abort();
+                    throw ex;
+                }
+            }
         } catch (IOException ex) {
             throw new HttpException(ex);
         }
@@ -1143,8 +1152,8 @@ public class HttpOp {
      * the default client with authentication regardless.
      * </p>
      * <p>
-     * In all other cases it creates a fresh instance of a
-     * {@link SystemDefaultHttpClient} each time.
+     * In all other cases it creates a fresh client each time, using the
+     * connections of the {@link HttpConnectionPool} when pooling is enabled.
      * </p>
      * 
      * @param client
@@ -1162,7 +1171,7 @@ public class HttpOp {
             return defaultHttpClient;
 
         // Otherwise use a fresh client each time
-        return new SystemDefaultHttpClient();
+        return HttpConnectionPool.createHttpClient();
     }
 
     private static AbstractHttpClient asAbstractClient(HttpClient client) {
@@ -29,6 +29,7 @@ import org.junit.runners.Suite ;
     TestAlgebraTranslate.class
     , TestClassify.class
     , TestOpAsQuery.class
+    , TestOpDeterministic.class
     , TestOpVars.class
     , TestPattern2Join.class
     , TestTransformQuads.class
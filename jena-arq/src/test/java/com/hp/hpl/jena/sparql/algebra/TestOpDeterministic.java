@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.algebra;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.query.ARQ ;
+import com.hp.hpl.jena.sparql.function.FunctionRegistry ;
+import com.hp.hpl.jena.sparql.function.library.strlen ;
+import com.hp.hpl.jena.sparql.pfunction.PropertyFunctionRegistry ;
+import com.hp.hpl.jena.sparql.pfunction.library.listMember ;
+import com.hp.hpl.jena.sparql.sse.SSE ;
+import com.hp.hpl.jena.sparql.util.Context ;
+
+public class TestOpDeterministic extends BaseTest
+{
+    @Test public void deterministic_01() { test("(bgp (?s :p ?o))", true) ; }
+    @Test public void deterministic_02() { test("(filter (= (<http://www.w3.org/2005/xpath-functions#upper-case> ?o) 'A') (bgp (?s :p ?o)))", true) ; }
+    @Test public void deterministic_03() { test("(extend ((?r (rand))) (bgp (?s :p ?o)))", false) ; }
+    @Test public void deterministic_04() { test("(filter (exists (extend ((?b (bnode))) (table unit))) (bgp (?s :p ?o)))", false) ; }
+    @Test public void deterministic_05() { test("(service <http://example/sparql> (bgp (?s :p ?o)))", false) ; }
+    @Test public void deterministic_06() { test("(order ((uuid)) (bgp (?s :p ?o)))", false) ; }
+    // Standard property function.
+    @Test public void deterministic_07() { test("(bgp (?s <http://jena.hpl.hp.com/ARQ/list#member> ?o))", true) ; }
+
+    // Extension functions are not deterministic unless recorded as such.
+    @Test public void deterministic_10()
+    {
+        String uri = "http://example/f" ;
+        Context context = context() ;
+        FunctionRegistry.get(context).put(uri, strlen.class) ;
+        String x = "(filter (= (<"+uri+"> ?o) 1) (bgp (?s :p ?o)))" ;
+        assertFalse(OpDeterministic.isDeterministic(SSE.parseOp(x), context)) ;
+        FunctionRegistry.get(context).setDeterministic(uri) ;
+        assertTrue(OpDeterministic.isDeterministic(SSE.parseOp(x), context)) ;
+        // Replacing the function clears it.
+        FunctionRegistry.get(context).put(uri, strlen.class) ;
+        assertFalse(OpDeterministic.isDeterministic(SSE.parseOp(x), context)) ;
+    }
+
+    @Test public void deterministic_11()
+    {
+        // Not registered: may be loaded later, so it is not known to be deterministic.
+        test("(filter (= (<http://example/unknown> ?o) 1) (bgp (?s :p ?o)))", false) ;
+    }
+
+    @Test public void deterministic_12()
+    {
+        String uri = "http://example/pf" ;
+        Context context = context() ;
+        PropertyFunctionRegistry.get(context).put(uri, listMember.class) ;
+        String x = "(bgp (?s <"+uri+"> ?o))" ;
+        assertFalse(OpDeterministic.isDeterministic(SSE.parseOp(x), context)) ;
+        assertFalse(OpDeterministic.isDeterministic(SSE.parseOp("(sequence (table unit) (propfunc <"+uri+"> ?s ?o (table unit)))"), context)) ;
+        PropertyFunctionRegistry.get(context).setDeterministic(uri) ;
+        assertTrue(OpDeterministic.isDeterministic(SSE.parseOp(x), context)) ;
+    }
+
+    private static Context context()
+    {
+        Context context = ARQ.getContext().copy() ;
+        FunctionRegistry.set(context, FunctionRegistry.standardRegistry()) ;
+        PropertyFunctionRegistry.set(context, PropertyFunctionRegistry.standardRegistry()) ;
+        return context ;
+    }
+
+    private static void test(String string, boolean expected)
+    {
+        Op op = SSE.parseOp(string) ;
+        assertEquals(expected, OpDeterministic.isDeterministic(op)) ;
+    }
+}
@@ -28,6 +28,8 @@ import org.junit.runners.Suite.SuiteClasses ;
     , TestQueryExecutionCancel.class
     , TestQueryExecutionTimeout1.class
     , TestQueryExecutionTimeout2.class
+    , TestQueryExecutionAsync.class
+    , TestQueryCache.class
 })
 
 public class TS_API
@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.api;
+
+import java.util.Collections ;
+import java.util.IdentityHashMap ;
+import java.util.Set ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.junit.After ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.query.* ;
+import com.hp.hpl.jena.rdf.model.Model ;
+import com.hp.hpl.jena.sparql.algebra.Op ;
+import com.hp.hpl.jena.sparql.algebra.op.OpFilter ;
+import com.hp.hpl.jena.sparql.engine.QueryCache ;
+import com.hp.hpl.jena.sparql.expr.NodeValue ;
+import com.hp.hpl.jena.sparql.function.FunctionBase1 ;
+import com.hp.hpl.jena.sparql.function.FunctionRegistry ;
+import com.hp.hpl.jena.sparql.function.library.wait ;
+import com.hp.hpl.jena.sparql.graph.GraphFactory ;
+import com.hp.hpl.jena.sparql.util.Context ;
+
+public class TestQueryCache extends BaseTest {
+
+    private static final String qs = "SELECT * { ?s ?p ?o FILTER(?o = 1) }" ;
+
+    @After public void after() {
+        QueryCache.clear() ;
+    }
+
+    @Test public void query_cache_parse_1() {
+        Query q1 = QueryCache.parse(qs, null, Syntax.syntaxSPARQL_11) ;
+        Query q2 = QueryCache.parse(qs, null, Syntax.syntaxSPARQL_11) ;
+        assertSame(q1, q2) ;
+    }
+
+    @Test public void query_cache_parse_2() {
+        Query q1 = QueryCache.parse(qs, null, Syntax.syntaxSPARQL_11) ;
+        Query q2 = QueryCache.parse(qs, null, Syntax.syntaxARQ) ;
+        Query q3 = QueryCache.parse(qs, "http://example/base", Syntax.syntaxSPARQL_11) ;
+        assertNotSame(q1, q2) ;
+        assertNotSame(q1, q3) ;
+    }
+
+    @Test(expected=QueryParseException.class)
+    public void query_cache_parse_3() {
+        QueryCache.parse("SELECT * {", null, Syntax.syntaxSPARQL_11) ;
+    }
+
+    @Test public void query_cache_compile_1() {
+        Query q = QueryCache.parse(qs, null, Syntax.syntaxSPARQL_11) ;
+        assertSame(QueryCache.compile(q), QueryCache.compile(q)) ;
+        // Not from the cache.
+        Query q2 = QueryFactory.create(qs) ;
+        assertNotSame(QueryCache.compile(q2), QueryCache.compile(q2)) ;
+    }
+
+    @Test public void query_cache_optimize_1() {
+        Query q = QueryCache.parse(qs, null, Syntax.syntaxSPARQL_11) ;
+        Op op = QueryCache.compile(q) ;
+        Op op1 = QueryCache.optimize(op, ARQ.getContext().copy()) ;
+        Op op2 = QueryCache.optimize(op, ARQ.getContext().copy()) ;
+        assertSame(op1, op2) ;
+    }
+
+    @Test public void query_cache_optimize_2() {
+        // Changed by the filter equality optimization.
+        String qs2 = "SELECT * { ?s ?p ?o FILTER(?o = <http://example/o>) }" ;
+        Query q = QueryCache.parse(qs2, null, Syntax.syntaxSPARQL_11) ;
+        Op op = QueryCache.compile(q) ;
+        Op op1 = QueryCache.optimize(op, ARQ.getContext().copy()) ;
+        Context cxt = ARQ.getContext().copy() ;
+        cxt.set(ARQ.optFilterEquality, false) ;
+        Op op2 = QueryCache.optimize(op, cxt) ;
+        assertFalse(op1.equals(op2)) ;
+        assertSame(op2, QueryCache.optimize(op, cxt)) ;
+    }
+
+    @Test public void query_cache_optimize_3() {
+        // Each caller gets its own function calls, the rest is shared.
+        String uri = "http://example/ns#instance" ;
+        FunctionRegistry.get().put(uri, Instance.class) ;
+        try {
+            Query q = QueryCache.parse("SELECT * { ?s ?p ?o FILTER(<"+uri+">(?o)) }", null, Syntax.syntaxSPARQL_11) ;
+            Op op = QueryCache.compile(q) ;
+            Op op1 = QueryCache.optimize(op, ARQ.getContext().copy()) ;
+            Op op2 = QueryCache.optimize(op, ARQ.getContext().copy()) ;
+            assertNotSame(op1, op2) ;
+            assertEquals(op1, op2) ;
+            OpFilter f1 = (OpFilter)op1 ;
+            OpFilter f2 = (OpFilter)op2 ;
+            assertNotSame(f1.getExprs().get(0), f2.getExprs().get(0)) ;
+            assertSame(f1.getSubOp(), f2.getSubOp()) ;
+        } finally { FunctionRegistry.get().remove(uri) ; }
+    }
+
+    @Test public void query_cache_invalidate_1() {
+        Query q = QueryCache.parse(qs, null, Syntax.syntaxSPARQL_11) ;
+        Op op = QueryCache.compile(q) ;
+        Op op1 = QueryCache.optimize(op, ARQ.getContext().copy()) ;
+        String uri = "http://example/ns#wait" ;
+        FunctionRegistry.get().put(uri, wait.class) ;
+        try {
+            assertSame(q, QueryCache.parse(qs, null, Syntax.syntaxSPARQL_11)) ;
+            Op op2 = QueryCache.compile(q) ;
+            assertNotSame(op, op2) ;
+            assertNotSame(op1, QueryCache.optimize(op2, ARQ.getContext().copy())) ;
+        } finally { FunctionRegistry.get().remove(uri) ; }
+    }
+
+    @Test public void query_cache_exec_1() {
+        Model m = GraphFactory.makeJenaDefaultModel() ;
+        m.add(m.createResource("http://example/s"), m.createProperty("http://example/p"), m.createTypedLiteral(1)) ;
+        for ( int i = 0 ; i < 2 ; i++ ) {
+            try ( QueryExecution qExec = QueryExecutionFactory.create(qs, m) ) {
+                assertEquals(1, ResultSetFormatter.consume(qExec.execSelect())) ;
+            }
+            try ( QueryExecution qExec = QueryExecutionFactory.create("CONSTRUCT WHERE { ?s ?p ?o }", m) ) {
+                assertEquals(1, qExec.execConstruct().size()) ;
+            }
+        }
+    }
+
+    @Test public void query_cache_exec_2() {
+        // The caller does not get the shared query.
+        Model m = GraphFactory.makeJenaDefaultModel() ;
+        Query shared = QueryCache.parse(qs, null, Syntax.defaultQuerySyntax) ;
+        try ( QueryExecution qExec = QueryExecutionFactory.create(qs, m) ) {
+            Query q = qExec.getQuery() ;
+            assertNotSame(shared, q) ;
+            assertEquals(shared, q) ;
+            assertSame(q, qExec.getQuery()) ;
+            q.setLimit(1) ;
+        }
+        assertEquals(Query.NOLIMIT, shared.getLimit()) ;
+    }
+
+    @Test public void query_cache_exec_3() {
+        // Changes to the query of the execution take effect.
+        Model m = GraphFactory.makeJenaDefaultModel() ;
+        for ( int i = 0 ; i < 3 ; i++ )
+            m.add(m.createResource("http://example/s"+i), m.createProperty("http://example/p"), m.createTypedLiteral(1)) ;
+        String qs2 = "SELECT * { ?s ?p ?o }" ;
+        try ( QueryExecution qExec = QueryExecutionFactory.create(qs2, m) ) {
+            assertEquals(3, ResultSetFormatter.consume(qExec.execSelect())) ;
+        }
+        try ( QueryExecution qExec = QueryExecutionFactory.create(qs2, m) ) {
+            qExec.getQuery().setLimit(1) ;
+            assertEquals(1, ResultSetFormatter.consume(qExec.execSelect())) ;
+        }
+        try ( QueryExecution qExec = QueryExecutionFactory.create(qs2, m) ) {
+            assertEquals(3, ResultSetFormatter.consume(qExec.execSelect())) ;
+        }
+    }
+
+    @Test public void query_cache_exec_4() {
+        // Extension functions are not shared between executions.
+        String uri = "http://example/ns#instance" ;
+        FunctionRegistry.get().put(uri, Instance.class) ;
+        Instance.instances.clear() ;
+        try {
+            Model m = GraphFactory.makeJenaDefaultModel() ;
+            m.add(m.createResource("http://example/s"), m.createProperty("http://example/p"), m.createTypedLiteral(1)) ;
+            String qs2 = "SELECT * { ?s ?p ?o FILTER(<"+uri+">(?o)) }" ;
+            for ( int i = 0 ; i < 2 ; i++ ) {
+                try ( QueryExecution qExec = QueryExecutionFactory.create(qs2, m) ) {
+                    assertEquals(1, ResultSetFormatter.consume(qExec.execSelect())) ;
+                }
+            }
+            assertEquals(2, Instance.instances.size()) ;
+        } finally { FunctionRegistry.get().remove(uri) ; }
+    }
+
+    /** Records each instance that is called. */
+    public static class Instance extends FunctionBase1 {
+        static final Set<Instance> instances = Collections.newSetFromMap(new IdentityHashMap<Instance, Boolean>()) ;
+
+        @Override
+        public NodeValue exec(NodeValue v) {
+            instances.add(this) ;
+            return NodeValue.TRUE ;
+        }
+    }
+}
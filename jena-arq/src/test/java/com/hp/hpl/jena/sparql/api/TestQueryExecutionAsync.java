@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.api;
+
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.List ;
+import java.util.concurrent.* ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.junit.AfterClass ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.query.* ;
+import com.hp.hpl.jena.rdf.model.Model ;
+import com.hp.hpl.jena.rdf.model.Property ;
+import com.hp.hpl.jena.rdf.model.RDFNode ;
+import com.hp.hpl.jena.rdf.model.Resource ;
+import com.hp.hpl.jena.sparql.engine.QueryExecutionAsync ;
+import com.hp.hpl.jena.sparql.function.FunctionRegistry ;
+import com.hp.hpl.jena.sparql.function.library.wait ;
+import com.hp.hpl.jena.sparql.graph.GraphFactory ;
+import com.hp.hpl.jena.sparql.resultset.ResultSetProcessor ;
+
+public class TestQueryExecutionAsync extends BaseTest {
+
+    private static final String ns = "http://example/ns#" ;
+
+    static Model m = GraphFactory.makeJenaDefaultModel() ;
+    static Resource r1 = m.createResource() ;
+    static Property p1 = m.createProperty(ns+"p1") ;
+    static Property p2 = m.createProperty(ns+"p2") ;
+    static  {
+        m.add(r1, p1, "x1") ;
+        m.add(r1, p2, "x2") ;
+    }
+
+    static ExecutorService executor ;
+
+    @BeforeClass public static void beforeClass() {
+        FunctionRegistry.get().put(ns + "wait", wait.class) ;
+        executor = Executors.newFixedThreadPool(2) ;
+    }
+
+    @AfterClass  public static void afterClass() {
+        FunctionRegistry.get().remove(ns + "wait") ;
+        executor.shutdownNow() ;
+    }
+
+    @Test public void async_select_1() throws Exception {
+        Future<ResultSetRewindable> f = QueryExecutionAsync.execSelect(makeQExec("SELECT * {?s ?p ?o}"), executor) ;
+        assertEquals(2, f.get().size()) ;
+    }
+
+    @Test public void async_select_2() throws Exception {
+        final List<String> values = new ArrayList<>() ;
+        ResultSetProcessor proc = new ResultSetProcessor() {
+            @Override public void start(ResultSet rs) {}
+            @Override public void finish(ResultSet rs) {}
+            @Override public void start(QuerySolution qs) {}
+            @Override public void finish(QuerySolution qs) {}
+            @Override public void binding(String varName, RDFNode value) { values.add(value.asLiteral().getLexicalForm()) ; }
+        } ;
+        Future<Long> f = QueryExecutionAsync.execSelect(makeQExec("SELECT ?o {?s ?p ?o} ORDER BY ?o"), proc, executor) ;
+        assertEquals(2, f.get().longValue()) ;
+        assertEquals(Arrays.asList("x1", "x2"), values) ;
+    }
+
+    @Test public void async_ask_1() throws Exception {
+        Future<Boolean> f = QueryExecutionAsync.execAsk(makeQExec("ASK {?s ?p 'x1'}"), executor) ;
+        assertTrue(f.get()) ;
+    }
+
+    @Test public void async_construct_1() throws Exception {
+        Future<Model> f = QueryExecutionAsync.execConstruct(makeQExec("CONSTRUCT WHERE {?s ?p ?o}"), executor) ;
+        assertEquals(2, f.get().size()) ;
+    }
+
+    @Test(expected=CancellationException.class)
+    public void async_cancel_1() throws Exception {
+        QueryExecution qExec = makeQExec("PREFIX ex: <" + ns + "> SELECT * {?s ?p ?o . FILTER ex:wait(500) }") ;
+        Future<ResultSetRewindable> f = QueryExecutionAsync.execSelect(qExec, executor) ;
+        Thread.sleep(50) ;
+        assertTrue(f.cancel(false)) ;
+        assertTrue(f.isCancelled()) ;
+        f.get() ;
+    }
+
+    @Test public void async_cancel_2() throws Exception {
+        // Never started : the query execution is closed by the cancel.
+        ExecutorService single = Executors.newSingleThreadExecutor() ;
+        try {
+            final CountDownLatch latch = new CountDownLatch(1) ;
+            single.execute(new Runnable() {
+                @Override public void run() {
+                    try { latch.await() ; } catch (InterruptedException ex) {}
+                }}) ;
+            QueryExecution qExec = makeQExec("SELECT * {?s ?p ?o}") ;
+            Future<ResultSetRewindable> f = QueryExecutionAsync.execSelect(qExec, single) ;
+            assertTrue(f.cancel(false)) ;
+            latch.countDown() ;
+            assertTrue(qExec.isClosed()) ;
+        } finally { single.shutdownNow() ; }
+    }
+
+    private QueryExecution makeQExec(String queryString) {
+        Query q = QueryFactory.create(queryString) ;
+        return QueryExecutionFactory.create(q, m) ;
+    }
+}
@@ -24,6 +24,7 @@ import org.junit.runners.Suite ;
 import com.hp.hpl.jena.sparql.engine.binding.TestBindingStreams ;
 import com.hp.hpl.jena.sparql.engine.http.TestQueryEngineHTTP ;
 import com.hp.hpl.jena.sparql.engine.http.TestService ;
+import com.hp.hpl.jena.sparql.engine.iterator.TestQueryIterDistinct ;
 import com.hp.hpl.jena.sparql.engine.iterator.TestQueryIterSort ;
 
 @RunWith(Suite.class)
@@ -31,9 +32,12 @@ import com.hp.hpl.jena.sparql.engine.iterator.TestQueryIterSort ;
         TestBindingStreams.class
       , TestTableLib.class
       , TestQueryIterSort.class
+      , TestQueryIterDistinct.class
       , TestService.class
       , TestQueryEngineHTTP.class
       , TestQueryEngineMultiThreaded.class
+      , TestQueryProfile.class
+      , TestBatchProbes.class
 })
 
 public class TS_Engine {}
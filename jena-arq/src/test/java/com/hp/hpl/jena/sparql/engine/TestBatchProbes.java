@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine;
+
+import java.util.HashSet ;
+import java.util.Set ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.NodeFactory ;
+import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.query.* ;
+import com.hp.hpl.jena.sparql.core.DatasetGraph ;
+import com.hp.hpl.jena.sparql.core.DatasetGraphFactory ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.main.iterator.QueryIterBatchProbe ;
+import com.hp.hpl.jena.sparql.resultset.ResultSetCompare ;
+
+/** OPTIONAL and FILTER (NOT) EXISTS evaluated per join key
+ *  give the same results, in the same order, as evaluated per solution. */
+public class TestBatchProbes extends BaseTest
+{
+    private static final String NS = "http://example/" ;
+    private static Dataset ds ;
+
+    @BeforeClass public static void beforeClass()
+    {
+        // 100 items in 7 categories; even categories have a label.
+        DatasetGraph dsg = DatasetGraphFactory.createMem() ;
+        for ( int i = 0 ; i < 100 ; i++ )
+        {
+            dsg.getDefaultGraph().add(triple("i"+i, "cat", NodeFactory.createURI(NS+"c"+(i%7)))) ;
+            if ( i % 3 != 0 )
+                dsg.getDefaultGraph().add(triple("i"+i, "price", NodeFactory.createLiteral(Integer.toString(i)))) ;
+        }
+        for ( int j = 0 ; j < 7 ; j += 2 )
+            dsg.getDefaultGraph().add(triple("c"+j, "label", NodeFactory.createLiteral("c"+j))) ;
+        // More members of g1 than are kept for one key.
+        for ( int k = 0 ; k < QueryIterBatchProbe.MaxHeldRows+5 ; k++ )
+            dsg.getDefaultGraph().add(triple("g1", "member", NodeFactory.createURI(NS+"m"+k))) ;
+        for ( int k = 0 ; k < 3 ; k++ )
+            dsg.getDefaultGraph().add(triple("s"+k, "group", NodeFactory.createURI(NS+"g1"))) ;
+        ds = DatasetFactory.create(dsg) ;
+    }
+
+    private static Triple triple(String s, String p, Node o)
+    {
+        return Triple.create(NodeFactory.createURI(NS+s), NodeFactory.createURI(NS+p), o) ;
+    }
+
+    private static ResultSetRewindable exec(String queryString, boolean batch)
+    {
+        Query query = QueryFactory.create("PREFIX : <"+NS+"> "+queryString) ;
+        try ( QueryExecution qExec = QueryExecutionFactory.create(query, ds) ) {
+            qExec.getContext().set(ARQ.batchProbes, batch) ;
+            return ResultSetFactory.copyResults(qExec.execSelect()) ;
+        }
+    }
+
+    private static void test(String queryString, int expectedRows)
+    {
+        ResultSetRewindable rs1 = exec(queryString, true) ;
+        ResultSetRewindable rs2 = exec(queryString, false) ;
+        assertEquals(expectedRows, rs1.size()) ;
+        assertTrue(ResultSetCompare.equalsByTermAndOrder(rs1, rs2)) ;
+    }
+
+    @Test public void optional_01()
+    {
+        test("SELECT * { ?i :cat ?c OPTIONAL { ?c :label ?l } }", 100) ;
+    }
+
+    @Test public void optional_02()
+    {
+        // Nested; the inner OPTIONAL uses ?i from the outer left side.
+        test("SELECT * { ?i :cat ?c OPTIONAL { ?c :label ?l OPTIONAL { ?i :price ?p } } }", 100) ;
+    }
+
+    @Test public void optional_03()
+    {
+        test("SELECT * { ?i :cat ?c OPTIONAL { ?i :price ?p } OPTIONAL { ?c :label ?l } } LIMIT 5", 5) ;
+    }
+
+    @Test public void optional_04()
+    {
+        // Too many matches to keep: streamed for each solution.
+        test("SELECT * { ?s :group ?g OPTIONAL { ?g :member ?m } }", 3*(QueryIterBatchProbe.MaxHeldRows+5)) ;
+    }
+
+    @Test public void optional_05()
+    {
+        // Not deterministic: a new blank node for each solution, not each key.
+        ResultSetRewindable rs = exec("SELECT * { ?i :cat ?c OPTIONAL { ?c :label ?l BIND(BNODE() AS ?b) } }", true) ;
+        Set<Node> bnodes = new HashSet<>() ;
+        while ( rs.hasNext() )
+        {
+            Binding b = rs.nextBinding() ;
+            if ( b.contains(Var.alloc("b")) )
+                bnodes.add(b.get(Var.alloc("b"))) ;
+        }
+        assertEquals(57, bnodes.size()) ;
+    }
+
+    @Test public void exists_01()
+    {
+        // Categories 0, 2, 4, 6
+        test("SELECT * { ?i :cat ?c FILTER EXISTS { ?c :label ?l } }", 57) ;
+    }
+
+    @Test public void exists_02()
+    {
+        test("SELECT * { ?i :cat ?c FILTER NOT EXISTS { ?c :label ?l } }", 43) ;
+    }
+
+    @Test public void exists_03()
+    {
+        test("SELECT * { ?i :cat ?c FILTER NOT EXISTS { ?c :label ?l FILTER(?l != 'c2') } }", 43+14) ;
+    }
+
+    @Test public void exists_04()
+    {
+        test("SELECT * { ?s :group ?g FILTER EXISTS { ?g :member ?m } }", 3) ;
+    }
+}
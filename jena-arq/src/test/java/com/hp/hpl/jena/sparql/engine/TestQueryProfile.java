@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine;
+
+import org.apache.jena.atlas.json.JsonObject ;
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.query.* ;
+import com.hp.hpl.jena.sparql.core.DatasetGraph ;
+import com.hp.hpl.jena.sparql.engine.main.QueryProfile ;
+import com.hp.hpl.jena.sparql.engine.main.QueryProfile.ProfileNode ;
+import com.hp.hpl.jena.sparql.sse.SSE ;
+
+public class TestQueryProfile extends BaseTest
+{
+    private static DatasetGraph dsg = SSE.parseDatasetGraph(
+        "(prefix ((: <http://example/>)) (dataset (graph (:s1 :p 1) (:s1 :q 'a') (:s2 :p 2) (:s2 :q 'b') (:s3 :p 3))))") ;
+    private static Dataset ds = DatasetFactory.create(dsg) ;
+
+    private static QueryProfile exec(String queryString, boolean profile, long expectedRows) {
+        Query query = QueryFactory.create("PREFIX : <http://example/> "+queryString) ;
+        try ( QueryExecution qExec = QueryExecutionFactory.create(query, ds) ) {
+            if ( profile )
+                qExec.getContext().set(ARQ.profile, true) ;
+            ResultSet rs = qExec.execSelect() ;
+            assertEquals(expectedRows, ResultSetFormatter.consume(rs)) ;
+            qExec.close() ;
+            return QueryProfile.get(qExec.getContext()) ;
+        }
+    }
+
+    private static ProfileNode child(ProfileNode node, String opName) {
+        for ( ProfileNode n : node.getChildren() ) {
+            if ( n.getOp().getName().equals(opName) )
+                return n ;
+        }
+        fail("No '"+opName+"' in the profile") ;
+        return null ;
+    }
+
+    @Test public void profile_01() {
+        QueryProfile profile = exec("SELECT * { ?s ?p ?o }", false, 5) ;
+        assertNull(profile) ;
+    }
+
+    @Test public void profile_02() {
+        QueryProfile profile = exec("SELECT * { ?s ?p ?o }", true, 5) ;
+        assertNotNull(profile) ;
+        assertTrue(profile.isFinished()) ;
+        ProfileNode bgp = child(profile.getRoot(), "bgp") ;
+        assertEquals(1, bgp.getExecutions()) ;
+        assertEquals(5, bgp.getRows()) ;
+    }
+
+    @Test public void profile_03() {
+        QueryProfile profile = exec("SELECT ?s { ?s ?p ?o FILTER(?o != 1) }", true, 4) ;
+        ProfileNode project = child(profile.getRoot(), "project") ;
+        assertEquals(4, project.getRows()) ;
+        ProfileNode filter = child(project, "filter") ;
+        assertEquals(4, filter.getRows()) ;
+        ProfileNode bgp = child(filter, "bgp") ;
+        assertEquals(5, bgp.getRows()) ;
+        assertTrue(project.getTotalTime() >= bgp.getTotalTime()) ;
+    }
+
+    @Test public void profile_04() {
+        // The right hand side is executed once for each row of the left hand side.
+        QueryProfile profile = exec("SELECT * { ?s :p ?o OPTIONAL { ?s :q ?z } }", true, 3) ;
+        ProfileNode top = profile.getRoot().getChildren().get(0) ;
+        assertEquals("conditional", top.getOp().getName()) ;
+        assertEquals(3, top.getRows()) ;
+        ProfileNode rhs = top.getChildren().get(1) ;
+        assertEquals(3, rhs.getExecutions()) ;
+        assertEquals(2, rhs.getRows()) ;
+    }
+
+    @Test public void profile_05() {
+        QueryProfile profile = exec("SELECT * { ?s :p ?o }", true, 3) ;
+        JsonObject obj = profile.asJson() ;
+        assertTrue(obj.get("children").isArray()) ;
+        JsonObject bgp = obj.get("children").getAsArray().get(0).getAsObject() ;
+        assertEquals(3, bgp.get("rows").getAsNumber().value().intValue()) ;
+        assertTrue(profile.toString().startsWith("(bgp")) ;
+    }
+}
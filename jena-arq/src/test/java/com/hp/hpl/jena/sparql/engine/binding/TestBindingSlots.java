@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.binding;
+
+import java.util.Arrays ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.query.* ;
+import com.hp.hpl.jena.rdf.model.Model ;
+import com.hp.hpl.jena.rdf.model.ModelFactory ;
+import com.hp.hpl.jena.sparql.ARQInternalErrorException ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.resultset.ResultSetCompare ;
+import com.hp.hpl.jena.sparql.sse.SSE ;
+
+public class TestBindingSlots extends BaseTest
+{
+    private static Var x = Var.alloc("x") ;
+    private static Var y = Var.alloc("y") ;
+    private static Var z = Var.alloc("z") ;
+    private static Node n1 = SSE.parseNode("1") ;
+    private static Node n2 = SSE.parseNode("2") ;
+    private static Node n3 = SSE.parseNode("3") ;
+
+    private static BindingSlots root(Var... vars)
+    {
+        return BindingSlots.create(VarLayout.create(Arrays.asList(vars)), BindingFactory.root()) ;
+    }
+
+    @Test public void slots_01()
+    {
+        BindingSlots b = root(x, y) ;
+        assertTrue(b.isEmpty()) ;
+        Binding b1 = BindingFactory.binding(b, x, n1) ;
+        assertTrue(b1 instanceof BindingSlots) ;
+        assertEquals(n1, b1.get(x)) ;
+        assertNull(b1.get(y)) ;
+        assertTrue(b1.contains(x)) ;
+        assertFalse(b1.contains(y)) ;
+        assertEquals(1, b1.size()) ;
+        // The parent is unchanged.
+        assertTrue(b.isEmpty()) ;
+        assertNull(b.get(x)) ;
+    }
+
+    @Test public void slots_02()
+    {
+        // A variable with no slot in the layout.
+        BindingSlots b = root(x) ;
+        BindingMap b1 = BindingFactory.create(b) ;
+        b1.add(x, n1) ;
+        b1.add(z, n3) ;
+        Binding b2 = BindingFactory.binding(b1, y, n2) ;
+        assertEquals(n1, b2.get(x)) ;
+        assertEquals(n2, b2.get(y)) ;
+        assertEquals(n3, b2.get(z)) ;
+        assertEquals(3, b2.size()) ;
+        assertEquals(3, Iter.count(b2.vars())) ;
+        assertEquals(3, b.getLayout().size()) ;
+        // Extended before z was given a slot.
+        assertNull(b.get(z)) ;
+    }
+
+    @Test public void slots_03()
+    {
+        BindingSlots b = root(x, y) ;
+        BindingMap b1 = BindingFactory.create(b) ;
+        b1.add(x, n1) ;
+        b1.add(y, n2) ;
+        BindingMap b2 = BindingFactory.create() ;
+        b2.add(y, n2) ;
+        b2.add(x, n1) ;
+        assertEquals(b2, b1) ;
+        assertEquals(b1, b2) ;
+        assertEquals(b2.hashCode(), b1.hashCode()) ;
+    }
+
+    @Test(expected=ARQInternalErrorException.class)
+    public void slots_04()
+    {
+        BindingMap b = BindingFactory.create(root(x)) ;
+        b.add(x, n1) ;
+        b.add(x, n2) ;
+    }
+
+    @Test public void slots_05()
+    {
+        // The same results with and without slots.
+        Model m = ModelFactory.createModelForGraph(SSE.parseGraph("(graph (:s :p 1) (:s :p 2) (:s :q 3) (:t :p 4))")) ;
+        String qs = "PREFIX : <http://example/> SELECT ?s ?o ?z (count(*) AS ?c) { ?s :p ?o OPTIONAL { ?s :q ?z } BIND(?o+1 AS ?w) } GROUP BY ?s ?o ?z ORDER BY ?o" ;
+        ResultSetRewindable rs1 = exec(m, qs, true) ;
+        ResultSetRewindable rs2 = exec(m, qs, false) ;
+        assertEquals(3, rs1.size()) ;
+        assertTrue(ResultSetCompare.equalsByTermAndOrder(rs1, rs2)) ;
+    }
+
+    private static ResultSetRewindable exec(Model m, String qs, boolean slots)
+    {
+        try ( QueryExecution qExec = QueryExecutionFactory.create(qs, m) ) {
+            qExec.getContext().set(ARQ.slotBindings, slots) ;
+            return ResultSetFactory.copyResults(qExec.execSelect()) ;
+        }
+    }
+}
@@ -33,6 +33,7 @@ import org.junit.AfterClass ;
 import org.junit.BeforeClass ;
 import org.junit.Test ;
 
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype ;
 import com.hp.hpl.jena.graph.Node ;
 import com.hp.hpl.jena.graph.NodeFactory ;
 import com.hp.hpl.jena.rdf.model.AnonId ;
@@ -107,6 +108,23 @@ public class TestBindingStreams extends BaseTest
 
     @Test public void bindingStream_63()              { testWriteRead(bb3) ; }
 
+    @Test public void bindingBinary_01()        { testWriteReadBinary(b12) ; }
+    @Test public void bindingBinary_02()        { testWriteReadBinary(b0) ; }
+    // Repeated terms, variables appearing and disappearing.
+    @Test public void bindingBinary_03()        { testWriteReadBinary(b12, b19, b02, b10, b12, b0, x10, b12) ; }
+    @Test public void bindingBinary_04()        { testWriteReadBinary(bb1, bb2, bb3) ; }
+
+    @Test
+    public void bindingBinary_05()
+    {
+        BindingMap b = BindingFactory.create() ;
+        b.add(Var.alloc("v"), NodeFactory.createAnon(new AnonId("unusual"))) ;
+        b.add(Var.alloc("w"), NodeFactory.createLiteral("abc", "en", false)) ;
+        b.add(Var.alloc("x"), NodeFactory.createLiteral("abc")) ;
+        b.add(Var.alloc(".0"), NodeFactory.createLiteral("1", XSDDatatype.XSDdecimal)) ;
+        testWriteReadBinary(b, b12, b) ;
+    }
+
     
     static void testRead(String x, Binding ... bindings)
     {
@@ -162,6 +180,27 @@ public class TestBindingStreams extends BaseTest
     }
     
 
+    static void testWriteReadBinary(Binding ... bindings)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        BindingBinaryOutputStream output = new BindingBinaryOutputStream(out) ;
+        for ( Binding b : bindings )
+            output.send(b) ;
+        output.close() ;
+
+        BindingBinaryInputStream input = new BindingBinaryInputStream(new ByteArrayInputStream(out.toByteArray())) ;
+        List<Binding> results = new ArrayList<>() ;
+        for ( ; input.hasNext() ; )
+            results.add(input.next()) ;
+        assertEquals(bindings.length, results.size()) ;
+        for ( int i = 0 ; i < bindings.length ; i++ )
+        {
+            Binding b1 = bindings[i] ;
+            Binding b2 = results.get(i) ;
+            assertTrue("Bindings do not match: expected="+b1+" got="+b2, equalBindings(b1, b2)) ;
+        }
+    }
+
     private static boolean equalBindings(Binding binding1, Binding binding2)
     {
         // Need to have the exact same terms coming back (therefore we can't use BNodeIso to compare values)
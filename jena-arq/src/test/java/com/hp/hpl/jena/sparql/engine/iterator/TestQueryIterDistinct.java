@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.iterator;
+
+import java.util.ArrayList ;
+import java.util.HashSet ;
+import java.util.Iterator ;
+import java.util.List ;
+import java.util.Set ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Graph ;
+import com.hp.hpl.jena.graph.NodeFactory ;
+import com.hp.hpl.jena.query.ARQ ;
+import com.hp.hpl.jena.rdf.model.AnonId ;
+import com.hp.hpl.jena.sparql.core.DatasetGraph ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.sparql.engine.QueryIterator ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingKeyEncoder ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingMap ;
+import com.hp.hpl.jena.sparql.engine.main.OpExecutorFactory ;
+import com.hp.hpl.jena.sparql.util.Context ;
+
+public class TestQueryIterDistinct extends BaseTest
+{
+    private static Var varA = Var.alloc("a") ;
+    private static Var varB = Var.alloc("b") ;
+
+    // N bindings, with `distinct` different values, some with ?b unbound.
+    private static List<Binding> data(int N, int distinct)
+    {
+        List<Binding> x = new ArrayList<>() ;
+        for ( int i = 0 ; i < N ; i++ )
+        {
+            int k = (i*7919) % distinct ;
+            BindingMap b = BindingFactory.create() ;
+            b.add(varA, NodeFactory.createURI("http://example/a"+(k/3))) ;
+            if ( k % 3 == 1 )
+                b.add(varB, NodeFactory.createLiteral("b"+k)) ;
+            else if ( k % 3 == 2 )
+                b.add(varB, NodeFactory.createAnon(new AnonId("bnode"+k))) ;
+            x.add(b) ;
+        }
+        return x ;
+    }
+
+    private static ExecutionContext execCxt(long threshold)
+    {
+        Context context = new Context() ;
+        if ( threshold >= 0 )
+            context.set(ARQ.spillToDiskThreshold, threshold) ;
+        return new ExecutionContext(context, (Graph)null, (DatasetGraph)null, (OpExecutorFactory)null) ;
+    }
+
+    private static void test(int N, int distinct, long threshold)
+    {
+        test(N, distinct, threshold, Long.MAX_VALUE, 6) ;
+    }
+
+    private static void test(int N, int distinct, long threshold, long maxTableBytes, int maxLevel)
+    {
+        List<Binding> data = data(N, distinct) ;
+        QueryIterator qIter = new QueryIterDistinct(new QueryIterPlainWrapper(data.iterator()), execCxt(threshold),
+                                                    BindingKeyEncoder.nodeEncoder, maxTableBytes, maxLevel) ;
+        Set<Binding> results = new HashSet<>() ;
+        int count = 0 ;
+        try {
+            for ( ; qIter.hasNext() ; count++ )
+                results.add(qIter.nextBinding()) ;
+        } finally { qIter.close() ; }
+        assertEquals(distinct, count) ;
+        assertEquals(new HashSet<>(data), results) ;
+    }
+
+    @Test public void distinct_01()     { test(0, 0, -1) ; }
+    @Test public void distinct_02()     { test(100, 10, -1) ; }
+    @Test public void distinct_03()     { test(1000, 1000, -1) ; }
+
+    // Spill to disk.
+    @Test public void distinct_spill_01()   { test(1000, 100, 10) ; }
+    @Test public void distinct_spill_02()   { test(5000, 1000, 100) ; }
+    // Partitions that are split again.
+    @Test public void distinct_spill_03()   { test(2000, 2000, 2) ; }
+    // Split to the last level, then held in memory.
+    @Test public void distinct_spill_04()   { test(100, 50, 1) ; }
+
+    // The table cannot grow: spill without a threshold.
+    @Test public void distinct_full_01()    { test(5000, 3000, -1, 0, 6) ; }
+    // The table cannot grow at the last level: held on the heap.
+    @Test public void distinct_full_02()    { test(5000, 3000, -1, 0, 0) ; }
+    @Test public void distinct_full_03()    { test(30000, 20000, -1, 0, 1) ; }
+    @Test public void distinct_full_04()    { test(3000, 2000, 1, 0, 1) ; }
+
+    @Test public void distinct_stream_01()
+    {
+        // The first result is returned before the input has been read.
+        final int[] count = { 0 } ;
+        final Iterator<Binding> iter = data(1000, 100).iterator() ;
+        Iterator<Binding> counting = new Iterator<Binding>() {
+            @Override public boolean hasNext()  { return iter.hasNext() ; }
+            @Override public Binding next()     { count[0]++ ; return iter.next() ; }
+            @Override public void remove()      { throw new UnsupportedOperationException() ; }
+        } ;
+        QueryIterator qIter = new QueryIterDistinct(new QueryIterPlainWrapper(counting), execCxt(10)) ;
+        try {
+            assertTrue(qIter.hasNext()) ;
+            assertEquals(1, count[0]) ;
+        } finally { qIter.close() ; }
+    }
+
+    @Test public void reduced_01()
+    {
+        List<Binding> data = data(1000, 100) ;
+        QueryIterator qIter = new QueryIterReduced(new QueryIterPlainWrapper(data.iterator()), execCxt(-1)) ;
+        Set<Binding> results = new HashSet<>() ;
+        try {
+            for ( ; qIter.hasNext() ; )
+                results.add(qIter.nextBinding()) ;
+        } finally { qIter.close() ; }
+        assertEquals(new HashSet<>(data), results) ;
+    }
+}
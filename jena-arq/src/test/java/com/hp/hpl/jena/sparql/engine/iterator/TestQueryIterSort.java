@@ -19,10 +19,12 @@
 package com.hp.hpl.jena.sparql.engine.iterator;
 
 import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertFalse ;
 import static org.junit.Assert.assertNotNull ;
 import static org.junit.Assert.assertTrue ;
 
 import java.util.ArrayList ;
+import java.util.Collections ;
 import java.util.Iterator ;
 import java.util.List ;
 import java.util.Random ;
@@ -50,6 +52,7 @@ import com.hp.hpl.jena.sparql.engine.binding.BindingComparator ;
 import com.hp.hpl.jena.sparql.engine.binding.BindingFactory ;
 import com.hp.hpl.jena.sparql.engine.binding.BindingMap ;
 import com.hp.hpl.jena.sparql.engine.main.OpExecutorFactory ;
+import com.hp.hpl.jena.sparql.expr.E_UnaryMinus ;
 import com.hp.hpl.jena.sparql.expr.ExprVar ;
 import com.hp.hpl.jena.sparql.serializer.SerializationContext ;
 import com.hp.hpl.jena.sparql.util.Context ;
@@ -249,6 +252,40 @@ public class TestQueryIterSort {
         assertEquals(0, DataBagExaminer.countTemporaryFiles(qIter.db)) ;
     }
 
+    @Test
+    public void testSortByExpression()
+    {
+        // ?9 is an integer: sorting on -?9 is sorting on ?9, descending.
+        List<SortCondition> conditions = new ArrayList<>();
+        conditions.add(new SortCondition(new E_UnaryMinus(new ExprVar("9")), Query.ORDER_ASCENDING));
+        List<SortCondition> expectedConditions = new ArrayList<>();
+        expectedConditions.add(new SortCondition(new ExprVar("9"), Query.ORDER_DESCENDING));
+        List<Binding> expected = new ArrayList<>(unsorted);
+        Collections.sort(expected, new BindingComparator(expectedConditions));
+        
+        Context context = new Context() ;
+        context.set(ARQ.spillToDiskThreshold, 10L) ;
+        ExecutionContext executionContext = new ExecutionContext(context, (Graph)null, (DatasetGraph)null, (OpExecutorFactory)null) ;
+        QueryIterSort qIter = new QueryIterSort(new QueryIterPlainWrapper(unsorted.iterator()), new BindingComparator(conditions), executionContext) ;
+        Var v9 = Var.alloc("9") ;
+        try
+        {
+            for ( Binding b : expected )
+            {
+                assertTrue(qIter.hasNext()) ;
+                Binding b2 = qIter.next() ;
+                assertEquals(b.get(v9), b2.get(v9)) ;
+                // No hidden sort key variables.
+                assertEquals(b.size(), b2.size()) ;
+            }
+            assertFalse(qIter.hasNext()) ;
+        }
+        finally
+        {
+            qIter.close() ;
+        }
+    }
+
     private Binding randomBinding(Var[] vars)
     {
         BindingMap binding = BindingFactory.create();
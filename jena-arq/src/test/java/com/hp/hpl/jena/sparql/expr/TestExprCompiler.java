@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.expr;
+
+import java.util.ArrayList ;
+import java.util.Collections ;
+import java.util.List ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.query.ARQ ;
+import com.hp.hpl.jena.query.Query ;
+import com.hp.hpl.jena.query.SortCondition ;
+import com.hp.hpl.jena.shared.PrefixMapping ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingComparator ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingMap ;
+import com.hp.hpl.jena.sparql.expr.compile.CompiledExpr ;
+import com.hp.hpl.jena.sparql.expr.compile.ExprCompiler ;
+import com.hp.hpl.jena.sparql.function.FunctionEnvBase ;
+import com.hp.hpl.jena.sparql.sse.SSE ;
+import com.hp.hpl.jena.sparql.util.Context ;
+import com.hp.hpl.jena.sparql.util.ExprUtils ;
+
+/** Compiled expressions give the same results as the interpreter. */
+public class TestExprCompiler extends BaseTest
+{
+    private static String[] values = {
+        null, "1", "2", "-1", "'01'^^xsd:integer", "'1'^^xsd:int", "'123456789012345678901234567890'^^xsd:integer",
+        "1.0", "1.5", "2.5e0", "1e0", "'NaN'^^xsd:double", "'1.5'^^xsd:float", "'x'^^xsd:integer",
+        "'a'", "'b'", "'a'^^xsd:string", "'a'@en", "'a'@fr", "'true'^^xsd:boolean",
+        "'2005-01-01T00:00:00Z'^^xsd:dateTime", "'2006-01-01T00:00:00Z'^^xsd:dateTime",
+        "'2005-01-01T01:00:00+01:00'^^xsd:dateTime", "'2005-01-01T00:00:00'^^xsd:dateTime",
+        "'2005-01-01T00:00:00.5Z'^^xsd:dateTime", "'2004-12-31T24:00:00Z'^^xsd:dateTime",
+        "'2005-01-01'^^xsd:date", "'z'^^<http://example/dt>", "<http://example/a>", "<http://example/b>", "_:b",
+    } ;
+
+    private static String[] exprs = {
+        "?x = ?y", "?x != ?y", "?x < ?y", "?x <= ?y", "?x > ?y", "?x >= ?y",
+        "?x < 2", "?x = 'a'", "?x >= '2005-06-01T00:00:00Z'^^xsd:dateTime",
+        "?x < ?y && ?y > 1", "?x < ?y || ?y > 1", "!(?x = ?y)", "bound(?x)",
+        "?x + ?y", "-?x", "str(?x) = str(?y)", "?x + 1 > ?y", "if(?x, 1, 2)", "concat(?x, ?y)",
+    } ;
+
+    private static Var x = Var.alloc("x") ;
+    private static Var y = Var.alloc("y") ;
+
+    private static Node node(String s) {
+        return s == null ? null : SSE.parseNode(s, PrefixMapping.Standard) ;
+    }
+
+    private static Binding binding(String vx, String vy) {
+        BindingMap b = BindingFactory.create() ;
+        if ( vx != null )
+            b.add(x, node(vx)) ;
+        if ( vy != null )
+            b.add(y, node(vy)) ;
+        return b ;
+    }
+
+    @Test public void compile_eval() {
+        for ( String e : exprs ) {
+            Expr expr = ExprUtils.parse(e, PrefixMapping.Standard) ;
+            CompiledExpr compiled = ExprCompiler.compile(expr) ;
+            for ( String vx : values ) {
+                for ( String vy : values ) {
+                    Binding b = binding(vx, vy) ;
+                    String label = e+" : ?x = "+vx+" , ?y = "+vy ;
+                    assertEquals(label, evalInterpreted(expr, b), evalCompiled(compiled, b)) ;
+                    assertEquals(label, expr.isSatisfied(b, new FunctionEnvBase()), compiled.isSatisfied(b, new FunctionEnvBase())) ;
+                }
+            }
+        }
+    }
+
+    private static String evalInterpreted(Expr expr, Binding b) {
+        try { return expr.eval(b, new FunctionEnvBase()).asNode().toString() ; }
+        catch (ExprEvalException ex) { return "error" ; }
+    }
+
+    private static String evalCompiled(CompiledExpr expr, Binding b) {
+        try { return expr.eval(b, new FunctionEnvBase()).asNode().toString() ; }
+        catch (ExprEvalException ex) { return "error" ; }
+    }
+
+    @Test public void compile_disabled() {
+        Context cxt = new Context() ;
+        cxt.set(ARQ.compileExpressions, false) ;
+        Expr expr = ExprUtils.parse("?x < 2") ;
+        CompiledExpr c1 = ExprCompiler.compile(expr, cxt) ;
+        CompiledExpr c2 = ExprCompiler.compile(expr, new Context()) ;
+        assertFalse(c1.isTerm()) ;
+        assertSame(expr, c1.getExpr()) ;
+        assertTrue(c1.isSatisfied(binding("1", null), new FunctionEnvBase())) ;
+        assertTrue(c2.isSatisfied(binding("1", null), new FunctionEnvBase())) ;
+    }
+
+    @Test public void compile_sort_01() { testSort("?x") ; }
+
+    @Test public void compile_sort_02() { testSort("str(?x)") ; }
+
+    private static void testSort(String exprStr) {
+        Expr expr = ExprUtils.parse(exprStr) ;
+        List<Binding> rows = new ArrayList<>() ;
+        for ( String v : values )
+            rows.add(binding(v, null)) ;
+        for ( int direction : new int[]{Query.ORDER_ASCENDING, Query.ORDER_DESCENDING} ) {
+            List<SortCondition> conditions = Collections.singletonList(new SortCondition(expr, direction)) ;
+            Context off = new Context() ;
+            off.set(ARQ.compileExpressions, false) ;
+            List<Binding> rows1 = new ArrayList<>(rows) ;
+            List<Binding> rows2 = new ArrayList<>(rows) ;
+            Collections.sort(rows1, new BindingComparator(conditions, new ExecutionContext(off, null, null, null))) ;
+            Collections.sort(rows2, new BindingComparator(conditions, new ExecutionContext(new Context(), null, null, null))) ;
+            assertEquals(rows1, rows2) ;
+        }
+    }
+}
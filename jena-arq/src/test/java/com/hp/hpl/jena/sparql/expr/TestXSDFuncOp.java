@@ -18,6 +18,8 @@
 
 package com.hp.hpl.jena.sparql.expr;
 
+import java.math.BigInteger ;
+
 import org.apache.jena.atlas.junit.BaseTest ;
 import org.junit.Assert ;
 import org.junit.Test ;
@@ -46,6 +48,63 @@ public class TestXSDFuncOp extends BaseTest
         assertEquals("Wrong result", 12, r.getInteger().longValue()) ;
     }
 
+    @Test public void testAddIntegerOverflow()
+    {
+        NodeValue nv1 = NodeValue.makeInteger(Long.MAX_VALUE) ;
+        NodeValue nv2 = NodeValue.makeInteger(1) ;
+        NodeValue r = XSDFuncOp.numAdd(nv1, nv2) ;
+        assertTrue("Not an integer: "+r, r.isInteger()) ;
+        assertEquals("Wrong result", BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE), r.getInteger()) ;
+        assertFalse(((NodeValueInteger)r).isLong()) ;
+        // And back into the range of long.
+        NodeValue r2 = XSDFuncOp.numSubtract(r, nv2) ;
+        assertEquals(Long.MAX_VALUE, ((NodeValueInteger)r2).getLong()) ;
+        assertTrue(((NodeValueInteger)r2).isLong()) ;
+    }
+
+    @Test public void testSubtractIntegerOverflow()
+    {
+        NodeValue nv1 = NodeValue.makeInteger(Long.MIN_VALUE) ;
+        NodeValue nv2 = NodeValue.makeInteger(1) ;
+        NodeValue r = XSDFuncOp.numSubtract(nv1, nv2) ;
+        assertEquals("Wrong result", BigInteger.valueOf(Long.MIN_VALUE).subtract(BigInteger.ONE), r.getInteger()) ;
+    }
+
+    @Test public void testMultiplyIntegerOverflow()
+    {
+        NodeValue nv1 = NodeValue.makeInteger(Long.MAX_VALUE/2+1) ;
+        NodeValue nv2 = NodeValue.makeInteger(2) ;
+        NodeValue r = XSDFuncOp.numMultiply(nv1, nv2) ;
+        assertEquals("Wrong result", BigInteger.valueOf(Long.MAX_VALUE/2+1).multiply(BigInteger.valueOf(2)), r.getInteger()) ;
+        NodeValue nv3 = NodeValue.makeInteger(Long.MIN_VALUE) ;
+        NodeValue nv4 = NodeValue.makeInteger(-1) ;
+        NodeValue r2 = XSDFuncOp.numMultiply(nv3, nv4) ;
+        assertEquals("Wrong result", BigInteger.valueOf(Long.MIN_VALUE).negate(), r2.getInteger()) ;
+        NodeValue r3 = XSDFuncOp.numMultiply(NodeValue.makeInteger(-3000000000L), NodeValue.makeInteger(3)) ;
+        assertEquals(-9000000000L, r3.getInteger().longValue()) ;
+    }
+
+    @Test public void testIntegerSmallShared()
+    {
+        NodeValue r1 = XSDFuncOp.numAdd(NodeValue.makeInteger(3), NodeValue.makeInteger(4)) ;
+        NodeValue r2 = XSDFuncOp.numMultiply(NodeValue.makeInteger(7), NodeValue.makeInteger(1)) ;
+        assertSame(r1, r2) ;
+        assertNotSame(NodeValue.makeInteger(7), NodeValue.makeInteger(7)) ;
+    }
+
+    @Test public void testCompareIntegerLongBig()
+    {
+        NodeValue nv1 = NodeValue.makeInteger(Long.MAX_VALUE) ;
+        NodeValue nv2 = NodeValue.makeInteger(BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE)) ;
+        NodeValue nv3 = NodeValue.makeNode("9223372036854775807", XSDDatatype.XSDinteger) ;
+        assertEquals(Expr.CMP_LESS, XSDFuncOp.compareNumeric(nv1, nv2)) ;
+        assertEquals(Expr.CMP_GREATER, NodeValue.compare(nv2, nv1)) ;
+        assertEquals(Expr.CMP_EQUAL, NodeValue.compare(nv1, nv3)) ;
+        assertTrue(NodeValue.sameAs(nv1, nv3)) ;
+        assertEquals(Expr.CMP_LESS, NodeValue.compare(NodeValue.makeDouble(1.5), NodeValue.makeDouble(2))) ;
+        assertEquals(Expr.CMP_LESS, NodeValue.compare(NodeValue.makeInteger(1), NodeValue.makeDouble(1.5))) ;
+    }
+
     @Test public void testAddDecimalDecimal()
     {
         NodeValue nv1 = NodeValue.makeDecimal(4.3) ;
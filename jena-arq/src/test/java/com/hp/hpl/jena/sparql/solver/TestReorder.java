@@ -21,16 +21,22 @@ package com.hp.hpl.jena.sparql.solver;
 import static com.hp.hpl.jena.sparql.solver.TestSolverLib.bgp ;
 import static com.hp.hpl.jena.sparql.solver.TestSolverLib.matcher ;
 import static com.hp.hpl.jena.sparql.solver.TestSolverLib.triple ;
+
+import java.util.Arrays ;
+
 import org.apache.jena.atlas.junit.BaseTest ;
 import org.junit.Test ;
 
 import com.hp.hpl.jena.graph.Triple ;
 import com.hp.hpl.jena.sparql.core.BasicPattern ;
 import com.hp.hpl.jena.sparql.engine.optimizer.StatsMatcher ;
+import com.hp.hpl.jena.sparql.engine.optimizer.reorder.PatternTriple ;
+import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderFeedback ;
 import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderLib ;
 import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderProc ;
 import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderProcIndexes ;
 import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderTransformation ;
+import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderTransformationSubstitution ;
 import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderWeighted ;
 
 public class TestReorder extends BaseTest
@@ -229,5 +235,75 @@ public class TestReorder extends BaseTest
         BasicPattern bgp2 = transform.reorder(bgp) ;
         assertEquals(bgp2, bgp) ;
     }
-  
+
+    @Test public void feedback_01()
+    {
+        // No observations : as the base transformation.
+        ReorderTransformation transform = new ReorderFeedback(ReorderLib.fixed()) ;
+        BasicPattern bgp1 = bgp("(bgp (?a :q ?b) (:x :p ?v))") ;
+        BasicPattern bgp2 = bgp("(bgp (:x :p ?v) (?a :q ?b))") ;
+        assertEquals(bgp2, transform.reorder(bgp1)) ;
+    }
+
+    @Test public void feedback_02()
+    {
+        ReorderFeedback transform = new ReorderFeedback(ReorderLib.fixed()) ;
+        Triple t1 = triple("(:x :p ?v)") ;
+        Triple t2 = triple("(?a :q ?b)") ;
+        transform.record(shape(t1), 10, 10000) ;
+        transform.record(shape(t2), 10, 20) ;
+        assertEquals(1000, transform.observed(shape(t1)), 0) ;
+        assertEquals(2, transform.observed(shape(t2)), 0) ;
+        BasicPattern bgp1 = bgp("(bgp (:x :p ?v) (?a :q ?b))") ;
+        BasicPattern bgp2 = bgp("(bgp (?a :q ?b) (:x :p ?v))") ;
+        assertEquals(bgp2, transform.reorder(bgp1)) ;
+        transform.reset() ;
+        assertEquals(-1, transform.observed(shape(t1)), 0) ;
+        assertEquals(bgp1, transform.reorder(bgp1)) ;
+    }
+
+    @Test public void feedback_03()
+    {
+        // Subject and object constants are abstracted; predicates are not.
+        assertEquals(shape(triple("(:x :p ?v)")), shape(triple("(:y :p ?w)"))) ;
+        assertEquals(shape(triple("(?a :p 1)")), shape(triple("(?b :p 'abc')"))) ;
+        assertFalse(shape(triple("(:x :p ?v)")).equals(shape(triple("(:x :q ?v)")))) ;
+        assertFalse(shape(triple("(:x :p ?v)")).equals(shape(triple("(?x :p ?v)")))) ;
+    }
+
+    @Test public void feedback_04()
+    {
+        // Only the most recently used shapes are kept.
+        ReorderFeedback transform = new ReorderFeedback(ReorderLib.fixed()) ;
+        for ( int i = 0 ; i < 2000 ; i++ )
+            transform.record(shape(triple("(?a :p"+i+" ?b)")), 1, 1) ;
+        assertEquals(-1, transform.observed(shape(triple("(?a :p0 ?b)"))), 0) ;
+        assertEquals(1, transform.observed(shape(triple("(?a :p1999 ?b)"))), 0) ;
+    }
+
+    @Test public void feedback_05()
+    {
+        // Observations are scaled to the weights of the base before they are
+        // compared with the weights of patterns not observed.
+        ReorderFeedback transform = new ReorderFeedback(ReorderLib.fixed()) ;
+        Triple t1 = triple("(:x :p ?v)") ;
+        Triple t2 = triple("(?a :q ?b)") ;
+        transform.record(shape(t1), 1, 1000) ;
+        PatternTriple pt1 = new PatternTriple(t1) ;
+        PatternTriple pt2 = new PatternTriple(t2) ;
+        double w1 = ((ReorderTransformationSubstitution)ReorderLib.fixed()).getWeight(pt1) ;
+        double w2 = ((ReorderTransformationSubstitution)ReorderLib.fixed()).getWeight(pt2) ;
+        double scale = transform.scale(Arrays.asList(pt1, pt2)) ;
+        assertEquals(w1/1000, scale, 1e-9) ;
+        assertEquals(w1, transform.estimate(pt1, scale), 1e-9) ;
+        assertEquals(w2, transform.estimate(pt2, scale), 1e-9) ;
+        // Same order as the base.
+        BasicPattern bgp1 = bgp("(bgp (?a :q ?b) (:x :p ?v))") ;
+        assertEquals(ReorderLib.fixed().reorder(bgp1), transform.reorder(bgp1)) ;
+    }
+
+    private static String shape(Triple t)
+    {
+        return ReorderFeedback.shape(t.getSubject(), false, t.getPredicate(), false, t.getObject(), false) ;
+    }
 }
@@ -30,6 +30,8 @@ import org.junit.runners.Suite.SuiteClasses ;
     TestSortedDataBag.class, 
     TestDistinctDataBag.class,
     TestDistinctDataNet.class,
+    TestHashKeySet.class,
+    TestParallelSort.class,
     TestThresholdPolicyCount.class
 })
 
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.atlas.data;
+
+import java.nio.charset.StandardCharsets ;
+
+import org.apache.jena.atlas.AtlasException ;
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.junit.Test ;
+
+public class TestHashKeySet extends BaseTest
+{
+    private static boolean add(HashKeySet set, String s)
+    {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8) ;
+        return set.add(b, b.length) ;
+    }
+
+    private static boolean contains(HashKeySet set, String s)
+    {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8) ;
+        return set.contains(b, b.length) ;
+    }
+
+    @Test public void hashKeySet_01()
+    {
+        HashKeySet set = new HashKeySet() ;
+        assertEquals(0, set.size()) ;
+        assertTrue(add(set, "abc")) ;
+        assertFalse(add(set, "abc")) ;
+        assertTrue(add(set, "ab")) ;
+        assertTrue(add(set, "")) ;
+        assertFalse(add(set, "")) ;
+        assertEquals(3, set.size()) ;
+        assertTrue(contains(set, "ab")) ;
+        assertFalse(contains(set, "abcd")) ;
+        set.close() ;
+    }
+
+    @Test public void hashKeySet_02()
+    {
+        // Enough keys to grow the table and the arena.
+        HashKeySet set = new HashKeySet() ;
+        int N = 50000 ;
+        for ( int i = 0 ; i < N ; i++ )
+            assertTrue(add(set, "key-"+i)) ;
+        for ( int i = 0 ; i < N ; i++ )
+            assertFalse(add(set, "key-"+i)) ;
+        assertEquals(N, set.size()) ;
+        assertFalse(contains(set, "key-"+N)) ;
+        set.close() ;
+    }
+
+    @Test public void hashKeySet_03()
+    {
+        HashKeySet set = new HashKeySet() ;
+        add(set, "abc") ;
+        add(set, "def") ;
+        set.clear() ;
+        assertEquals(0, set.size()) ;
+        assertFalse(contains(set, "abc")) ;
+        assertTrue(add(set, "def")) ;
+        set.close() ;
+    }
+
+    @Test public void hashKeySet_04()
+    {
+        HashKeySet set = new HashKeySet() ;
+        add(set, "abc") ;
+        assertTrue(set.bytesUsed() > 0) ;
+        set.close() ;
+        assertEquals(0, set.bytesUsed()) ;
+        // Closing again is a no-op.
+        set.close() ;
+    }
+
+    @Test(expected=AtlasException.class)
+    public void hashKeySet_05()
+    {
+        // The memory has been released: using the set is an error, not a crash.
+        HashKeySet set = new HashKeySet() ;
+        set.close() ;
+        contains(set, "abc") ;
+    }
+
+    @Test public void hashKeySet_06()
+    {
+        // A limit on memory: the set is left as it was when it cannot grow.
+        HashKeySet set = new HashKeySet(0) ;
+        int n = 0 ;
+        try {
+            for ( ; ; n++ )
+                add(set, "key-"+n) ;
+        } catch (HashKeySet.FullException ex) {}
+        assertTrue(n > 0) ;
+        assertEquals(n, set.size()) ;
+        assertFalse(contains(set, "key-"+n)) ;
+        for ( int i = 0 ; i < n ; i++ )
+            assertFalse(add(set, "key-"+i)) ;
+        set.clear() ;
+        assertTrue(add(set, "key-"+n)) ;
+        set.close() ;
+    }
+
+    @Test public void hashKeySet_hash()
+    {
+        byte[] b = "abc".getBytes(StandardCharsets.UTF_8) ;
+        assertEquals(HashKeySet.hash(b, 3, 1), HashKeySet.hash(b, 3, 1)) ;
+        assertTrue(HashKeySet.hash(b, 3, 1) != HashKeySet.hash(b, 3, 2)) ;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.atlas.data;
+
+import java.util.Arrays ;
+import java.util.Comparator ;
+import java.util.Random ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.junit.Test ;
+
+public class TestParallelSort extends BaseTest
+{
+    // Compare on the key only, so stability can be checked.
+    private static Comparator<int[]> byKey = new Comparator<int[]>() {
+        @Override
+        public int compare(int[] x, int[] y)
+        {
+            return Integer.compare(x[0], y[0]) ;
+        }
+    } ;
+
+    private static void test(int N, int range)
+    {
+        Random random = new Random(N) ;
+        int[][] array = new int[N][] ;
+        for ( int i = 0 ; i < N ; i++ )
+            array[i] = new int[]{ random.nextInt(range), i } ;
+        int[][] expected = Arrays.copyOf(array, N) ;
+        Arrays.sort(expected, byKey) ;
+        ParallelSort.sort(array, byKey) ;
+        // Same objects in the same order: sorted and stable.
+        for ( int i = 0 ; i < N ; i++ )
+            assertSame(expected[i], array[i]) ;
+    }
+
+    @Test public void parallelSort_01()     { test(0, 10) ; }
+    @Test public void parallelSort_02()     { test(100, 10) ; }
+    @Test public void parallelSort_03()     { test(200000, 1000) ; }
+    @Test public void parallelSort_04()     { test(100000, 1000000) ; }
+}
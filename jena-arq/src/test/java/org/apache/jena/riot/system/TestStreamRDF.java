@@ -58,5 +58,27 @@ public class TestStreamRDF extends BaseTest {
         
         stream.finish();
     }
-}
 
+    @Test public void stream_limit_01() {
+        StreamRDFCounting dest = StreamRDFLib.count() ;
+        StreamRDF stream = StreamRDFLib.limit(dest, 2) ;
+        stream.start();
+        stream.triple(triple1) ;
+        stream.quad(quad1) ;
+        try {
+            stream.triple(triple1) ;
+            fail("Expected LimitExceededException") ;
+        } catch (StreamRDFLimited.LimitExceededException ex) {}
+        assertEquals(2, dest.count()) ;
+    }
+
+    @Test public void stream_limit_02() {
+        StreamRDFCounting dest = StreamRDFLib.count() ;
+        StreamRDF stream = StreamRDFLib.limit(dest, -1) ;
+        stream.start();
+        for ( int i = 0 ; i < 10 ; i++ )
+            stream.triple(triple1) ;
+        stream.finish();
+        assertEquals(10, dest.count()) ;
+    }
+}
@@ -20,6 +20,7 @@ package org.apache.jena.fuseki.http;
 
 import java.io.IOException ;
 
+import org.apache.http.pool.PoolStats ;
 import org.apache.jena.atlas.io.IO ;
 import org.apache.jena.atlas.junit.BaseTest ;
 import org.apache.jena.atlas.web.HttpException ;
@@ -27,6 +28,7 @@ import org.apache.jena.atlas.web.TypedInputStream ;
 import org.apache.jena.fuseki.ServerTest ;
 import org.apache.jena.riot.WebContent ;
 import org.apache.jena.riot.system.IRILib ;
+import org.apache.jena.riot.web.HttpConnectionPool ;
 import org.apache.jena.riot.web.HttpOp ;
 import org.apache.jena.web.HttpSC ;
 import org.junit.AfterClass ;
@@ -78,6 +80,18 @@ public class TestHttpOp extends BaseTest {
         String x = HttpOp.execHttpGetString(ServerTest.urlRoot+"does-not-exist") ;
         assertNull(x) ;
     }
+
+    @Test public void httpGet_pool_01() {
+        // Connections are returned to the pool and reused
+        for ( int i = 0 ; i < 2*HttpConnectionPool.getMaxConnectionsPerRoute() ; i++ ) {
+            TypedInputStream in = HttpOp.execHttpGet(pingURL) ;
+            IO.close(in) ;
+            HttpOp.execHttpGetString(ServerTest.urlRoot+"does-not-exist") ;
+        }
+        PoolStats stats = HttpConnectionPool.getStats() ;
+        assertEquals(0, stats.getLeased()) ;
+        assertTrue(stats.getAvailable() <= HttpConnectionPool.getMaxConnectionsPerRoute()) ;
+    }
     
     @Test public void httpGet_05() {
         TypedInputStream in = HttpOp.execHttpGet(simpleQuery) ;
@@ -0,0 +1,326 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.fuseki.async;
+
+import java.io.IOException ;
+import java.util.Map ;
+import java.util.concurrent.* ;
+import java.util.concurrent.atomic.AtomicBoolean ;
+import java.util.concurrent.atomic.AtomicInteger ;
+
+import javax.servlet.AsyncContext ;
+import javax.servlet.ServletContext ;
+import javax.servlet.http.HttpServletRequest ;
+import javax.servlet.http.HttpServletRequestWrapper ;
+import javax.servlet.http.HttpServletResponse ;
+
+import org.apache.jena.fuseki.Fuseki ;
+import org.apache.jena.web.HttpSC ;
+import org.apache.shiro.util.ThreadContext ;
+
+import com.hp.hpl.jena.query.QueryExecution ;
+
+/** Execution of requests on a pool of Fuseki threads, using Servlet 3
+ * asynchronous processing, so that the container thread is returned
+ * to the container while the request is processed.  This is off unless
+ * enabled, with {@link #setEnabled} or by {@code fuseki:asyncRequests} in
+ * the server configuration.
+ * <p>
+ * Requests beyond the number of threads wait in a bounded queue rather
+ * than holding container threads; when the queue is full, the request
+ * is rejected with 503.  A request that has not finished within the
+ * timeout is rejected with 503 if it has not started; otherwise its query
+ * execution, if it has one, is aborted, and the request ends with the
+ * error for a cancelled query.  The request is completed only by the
+ * thread doing the work, once it has finished.
+ * <p>
+ * Each request has a pool thread for its whole duration, including
+ * writing the response, which is written with blocking output: a slow
+ * client holds the thread, past the timeout, until the response has been
+ * written or the container's connection idle timeout fails the write.
+ * <p>
+ * The work runs with the security context (Shiro) and context class
+ * loader of the container thread that received the request.
+ */
+public class AsyncRequests
+{
+    private static int nMaxThreads = 50 ;
+    private static int nMaxQueue = 100 ;
+    private static long timeout = 10*60*1000L ;
+    private static volatile boolean enabled = false ;
+
+    private static final AtomicInteger threadCounter = new AtomicInteger(0) ;
+    private static ThreadPoolExecutor executor = createExecutor() ;
+    private static final ScheduledThreadPoolExecutor timer = createTimer() ;
+    // The request being executed by a pool thread.
+    private static final ThreadLocal<RequestTask> currentTask = new ThreadLocal<>() ;
+
+    private static ThreadPoolExecutor createExecutor() {
+        ThreadPoolExecutor x = new ThreadPoolExecutor(nMaxThreads, nMaxThreads,
+                                                      120L, TimeUnit.SECONDS,
+                                                      new ArrayBlockingQueue<Runnable>(nMaxQueue),
+                                                      new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "Fuseki-Request-"+threadCounter.incrementAndGet()) ;
+                t.setDaemon(true) ;
+                return t ;
+            }
+        }, new ThreadPoolExecutor.AbortPolicy()) ;
+        x.allowCoreThreadTimeOut(true) ;
+        return x ;
+    }
+
+    private static ScheduledThreadPoolExecutor createTimer() {
+        ScheduledThreadPoolExecutor x = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "Fuseki-Request-Timer") ;
+                t.setDaemon(true) ;
+                return t ;
+            }
+        }) ;
+        x.setRemoveOnCancelPolicy(true) ;
+        return x ;
+    }
+
+    private AsyncRequests() {}
+
+    /** Whether requests are executed asynchronously when the container supports it. */
+    public static boolean isEnabled()                   { return enabled ; }
+
+    public static void setEnabled(boolean enabled)      { AsyncRequests.enabled = enabled ; }
+
+    /** The maximum number of requests executing at the same time. */
+    public static synchronized int getMaxThreads()      { return nMaxThreads ; }
+
+    public static synchronized void setMaxThreads(int maxThreads) {
+        if ( maxThreads <= 0 )
+            throw new IllegalArgumentException("Maximum threads must be greater than zero") ;
+        nMaxThreads = maxThreads ;
+        // Order matters: the core size may not exceed the maximum size.
+        if ( maxThreads > executor.getMaximumPoolSize() ) {
+            executor.setMaximumPoolSize(maxThreads) ;
+            executor.setCorePoolSize(maxThreads) ;
+        } else {
+            executor.setCorePoolSize(maxThreads) ;
+            executor.setMaximumPoolSize(maxThreads) ;
+        }
+    }
+
+    /** The maximum number of requests waiting for a thread. */
+    public static synchronized int getMaxQueueLength()  { return nMaxQueue ; }
+
+    /** Set the maximum number of requests waiting for a thread.
+     * Requests already waiting are executed by the current pool.
+     */
+    public static synchronized void setMaxQueueLength(int maxQueue) {
+        if ( maxQueue <= 0 )
+            throw new IllegalArgumentException("Maximum queue length must be greater than zero") ;
+        nMaxQueue = maxQueue ;
+        ThreadPoolExecutor old = executor ;
+        executor = createExecutor() ;
+        old.shutdown() ;
+    }
+
+    /** The time, in milliseconds, a request may take from being received to
+     * finishing, after which it is rejected or its query execution aborted. */
+    public static synchronized long getTimeout()        { return timeout ; }
+
+    public static synchronized void setTimeout(long millis) {
+        if ( millis <= 0 )
+            throw new IllegalArgumentException("Timeout must be greater than zero") ;
+        timeout = millis ;
+    }
+
+    /** Number of requests executing now. */
+    public static int getActiveCount()                  { return executor().getActiveCount() ; }
+
+    /** Number of requests waiting for a thread. */
+    public static int getQueuedCount()                  { return executor().getQueue().size() ; }
+
+    private static synchronized ThreadPoolExecutor executor() { return executor ; }
+
+    /** Work for a request. */
+    public interface RequestWork {
+        public void exec(HttpServletRequest request, HttpServletResponse response) ;
+    }
+
+    /** Record the query execution of the request being worked on by the
+     * calling thread, to be aborted if the request times out, or null when
+     * it is no longer running.  This does nothing if the request is not
+     * being executed asynchronously.
+     */
+    public static void setQueryExecution(QueryExecution qExec) {
+        RequestTask task = currentTask.get() ;
+        if ( task != null )
+            task.setQueryExecution(qExec) ;
+    }
+
+    /** Execute the work for a request.  If possible, the request is put into
+     * asynchronous mode and the work is done on a pool thread, completing
+     * the request when the work finishes, otherwise the work is done on the
+     * calling thread.
+     */
+    public static void execute(HttpServletRequest request, HttpServletResponse response, final RequestWork work) {
+        if ( ! enabled || ! request.isAsyncSupported() || request.isAsyncStarted() ) {
+            work.exec(request, response) ;
+            return ;
+        }
+
+        // The container may reset the paths of the request once the calling
+        // thread returns to it, so the work sees them as they are now.
+        final HttpServletRequest req = new RequestSnapshot(request) ;
+        final HttpServletResponse resp = response ;
+        final AsyncContext asyncContext = request.startAsync(req, resp) ;
+        // No container timeout: it would complete the request while the work
+        // may still be writing the response.  The timer aborts the work instead.
+        asyncContext.setTimeout(0) ;
+        final RequestTask task = new RequestTask(work, req, resp, asyncContext) ;
+        task.scheduleTimeout(getTimeout()) ;
+        ThreadPoolExecutor x = executor() ;
+        try {
+            x.execute(task) ;
+        } catch (RejectedExecutionException ex) {
+            task.reject("Too many requests") ;
+        }
+    }
+
+    /** The work for one request, and the completion of its asynchronous processing. */
+    private static class RequestTask implements Runnable {
+        private static final int QUEUED = 0 ;
+        private static final int RUNNING = 1 ;
+        private static final int DONE = 2 ;
+
+        private final AtomicInteger state = new AtomicInteger(QUEUED) ;
+        private final AtomicBoolean completed = new AtomicBoolean(false) ;
+        private final RequestWork work ;
+        private final HttpServletRequest request ;
+        private final HttpServletResponse response ;
+        private final AsyncContext asyncContext ;
+        // The context of the thread that received the request.
+        private final Map<Object, Object> threadResources ;
+        private final ClassLoader classLoader ;
+        private volatile ScheduledFuture<?> timeout = null ;
+        private volatile boolean timedOut = false ;
+        private volatile QueryExecution queryExecution = null ;
+
+        RequestTask(RequestWork work, HttpServletRequest request, HttpServletResponse response, AsyncContext asyncContext) {
+            this.work = work ;
+            this.request = request ;
+            this.response = response ;
+            this.asyncContext = asyncContext ;
+            this.threadResources = ThreadContext.getResources() ;
+            this.classLoader = Thread.currentThread().getContextClassLoader() ;
+        }
+
+        void scheduleTimeout(long millis) {
+            timeout = timer.schedule(new Runnable() {
+                @Override
+                public void run() { onTimeout() ; }
+            }, millis, TimeUnit.MILLISECONDS) ;
+        }
+
+        @Override
+        public void run() {
+            // Timed out or rejected before starting.
+            if ( ! state.compareAndSet(QUEUED, RUNNING) )
+                return ;
+            Thread thread = Thread.currentThread() ;
+            ClassLoader poolClassLoader = thread.getContextClassLoader() ;
+            thread.setContextClassLoader(classLoader) ;
+            if ( threadResources != null )
+                ThreadContext.setResources(threadResources) ;
+            currentTask.set(this) ;
+            try { work.exec(request, response) ; }
+            finally {
+                currentTask.remove() ;
+                queryExecution = null ;
+                ThreadContext.remove() ;
+                thread.setContextClassLoader(poolClassLoader) ;
+                state.set(DONE) ;
+                complete() ;
+            }
+        }
+
+        void setQueryExecution(QueryExecution qExec) {
+            queryExecution = qExec ;
+            // Timed out before the query execution was created.
+            if ( qExec != null && timedOut )
+                qExec.abort() ;
+        }
+
+        /** Respond with 503 if the work has not started. */
+        void reject(String message) {
+            if ( ! state.compareAndSet(QUEUED, DONE) )
+                return ;
+            Fuseki.serverLog.warn("Request rejected: "+message) ;
+            try { response.sendError(HttpSC.SERVICE_UNAVAILABLE_503, message) ; }
+            catch (IOException | IllegalStateException ex) {}
+            finally { complete() ; }
+        }
+
+        private void onTimeout() {
+            if ( state.get() == QUEUED ) {
+                executor().remove(this) ;
+                reject("Timeout waiting to execute") ;
+                return ;
+            }
+            if ( state.get() != RUNNING )
+                return ;
+            // The work completes the request when it sees the abort.
+            Fuseki.serverLog.warn("Request not finished after "+getTimeout()+"ms: aborting the query execution") ;
+            timedOut = true ;
+            QueryExecution qExec = queryExecution ;
+            if ( qExec != null )
+                qExec.abort() ;
+        }
+
+        // Exactly once, whichever of the work and rejection ends the request.
+        private void complete() {
+            if ( ! completed.compareAndSet(false, true) )
+                return ;
+            ScheduledFuture<?> x = timeout ;
+            if ( x != null )
+                x.cancel(false) ;
+            asyncContext.complete() ;
+        }
+    }
+
+    /** The request with its context and paths fixed at creation. */
+    private static class RequestSnapshot extends HttpServletRequestWrapper {
+        private final ServletContext servletContext ;
+        private final String contextPath ;
+        private final String servletPath ;
+        private final String pathInfo ;
+
+        RequestSnapshot(HttpServletRequest request) {
+            super(request) ;
+            this.servletContext = request.getServletContext() ;
+            this.contextPath = request.getContextPath() ;
+            this.servletPath = request.getServletPath() ;
+            this.pathInfo = request.getPathInfo() ;
+        }
+
+        @Override public ServletContext getServletContext()    { return servletContext ; }
+        @Override public String getContextPath()               { return contextPath ; }
+        @Override public String getServletPath()               { return servletPath ; }
+        @Override public String getPathInfo()                  { return pathInfo ; }
+    }
+}
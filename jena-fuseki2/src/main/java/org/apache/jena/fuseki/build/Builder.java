@@ -24,20 +24,25 @@ import static org.apache.jena.fuseki.FusekiLib.query ;
 import org.apache.jena.fuseki.Fuseki ;
 import org.apache.jena.fuseki.FusekiConfigException ;
 import org.apache.jena.fuseki.FusekiLib ;
+import org.apache.jena.fuseki.async.AsyncRequests ;
+import org.apache.jena.fuseki.server.AdmissionControl ;
 import org.apache.jena.fuseki.server.DataAccessPoint ;
 import org.apache.jena.fuseki.server.DataService ;
-import org.apache.jena.fuseki.server.Endpoint ;
+import org.apache.jena.fuseki.server.FusekiVocab ;
 import org.apache.jena.fuseki.server.OperationName ;
 import org.slf4j.Logger ;
 
 import com.hp.hpl.jena.assembler.Assembler ;
+import com.hp.hpl.jena.datatypes.DatatypeFormatException ;
 import com.hp.hpl.jena.datatypes.xsd.XSDDatatype ;
 import com.hp.hpl.jena.query.Dataset ;
 import com.hp.hpl.jena.query.QuerySolution ;
 import com.hp.hpl.jena.query.ResultSet ;
 import com.hp.hpl.jena.rdf.model.Literal ;
+import com.hp.hpl.jena.rdf.model.Property ;
 import com.hp.hpl.jena.rdf.model.RDFNode ;
 import com.hp.hpl.jena.rdf.model.Resource ;
+import com.hp.hpl.jena.shared.BadBooleanException ;
 import com.hp.hpl.jena.sparql.core.DatasetGraph ;
 import com.hp.hpl.jena.sparql.util.FmtUtils ;
 import com.hp.hpl.jena.tdb.TDB ;
@@ -83,6 +88,8 @@ public class Builder
         addServiceEP(dataService, OperationName.GSP_R,  svc,    "fu:serviceReadGraphStore") ;
         addServiceEP(dataService, OperationName.GSP,    svc,    "fu:serviceReadWriteGraphStore") ;
         
+        dataService.setAdmissionControl(buildAdmissionControl(svc)) ;
+
         if ( ! dataService.getOperation(OperationName.GSP).isEmpty() )
             dataService.addEndpoint(OperationName.Quads, "") ;
         else if ( ! dataService.getOperation(OperationName.GSP_R).isEmpty() )
@@ -137,13 +144,91 @@ public class Builder
         ResultSet rs = query("SELECT * { ?svc " + property + " ?ep}", svc.getModel(), "svc", svc) ;
         for ( ; rs.hasNext() ; ) {
             QuerySolution soln = rs.next() ;
-            String epName = soln.getLiteral("ep").getLexicalForm() ;
-            Endpoint operation = new Endpoint(opName, epName) ;
+            RDFNode ep = soln.get("ep") ;
+            // Either the endpoint name or a description with fu:name and settings.
+            String epName ;
+            AdmissionControl ac = null ;
+            if ( ep.isLiteral() )
+                epName = ep.asLiteral().getLexicalForm() ;
+            else {
+                Resource epDesc = ep.asResource() ;
+                RDFNode n = getOne(epDesc, "fu:name") ;
+                if ( ! n.isLiteral() )
+                    throw new FusekiConfigException("Not a literal for endpoint name: "+FmtUtils.stringForRDFNode(n)) ;
+                epName = n.asLiteral().getLexicalForm() ;
+                ac = buildAdmissionControl(epDesc) ;
+            }
             addServiceEP(dataService, opName, epName); 
+            if ( ac != null )
+                dataService.getOperation(epName).setAdmissionControl(ac) ;
             //log.info("  " + opName.name + " = " + dataAccessPoint.getName() + "/" + epName) ;
         }
     }
 
+    /** Limits on concurrent requests, from fu:maxConcurrentRequests, fu:maxQueueLength
+     * and fu:maxQueueWait (milliseconds), or null if there is no limit. */
+    public static AdmissionControl buildAdmissionControl(Resource r) {
+        if ( ! r.hasProperty(FusekiVocab.pMaxConcurrentRequests) )
+            return null ;
+        int maxConcurrent = getInt(r, FusekiVocab.pMaxConcurrentRequests) ;
+        int maxQueueLength = AdmissionControl.DefaultMaxQueueLength ;
+        long maxQueueWait = AdmissionControl.DefaultMaxQueueWait ;
+        if ( r.hasProperty(FusekiVocab.pMaxQueueLength) )
+            maxQueueLength = getInt(r, FusekiVocab.pMaxQueueLength) ;
+        if ( r.hasProperty(FusekiVocab.pMaxQueueWait) )
+            maxQueueWait = getInt(r, FusekiVocab.pMaxQueueWait) ;
+        try {
+            AdmissionControl ac = new AdmissionControl(maxConcurrent, maxQueueLength, maxQueueWait) ;
+            log.info("  " + ac) ;
+            return ac ;
+        } catch (IllegalArgumentException ex) {
+            throw new FusekiConfigException(ex.getMessage()+": "+nodeLabel(r)) ;
+        }
+    }
+
+    /** Asynchronous execution of requests ({@link AsyncRequests}), for the whole server,
+     * from fu:asyncRequests, fu:asyncMaxThreads, fu:asyncMaxQueueLength and
+     * fu:asyncTimeout (milliseconds).  Settings not given are left unchanged. */
+    public static void configureAsyncRequests(Resource server) {
+        try {
+            if ( server.hasProperty(FusekiVocab.pAsyncMaxThreads) )
+                AsyncRequests.setMaxThreads(getInt(server, FusekiVocab.pAsyncMaxThreads)) ;
+            if ( server.hasProperty(FusekiVocab.pAsyncMaxQueueLength) )
+                AsyncRequests.setMaxQueueLength(getInt(server, FusekiVocab.pAsyncMaxQueueLength)) ;
+            if ( server.hasProperty(FusekiVocab.pAsyncTimeout) )
+                AsyncRequests.setTimeout(getInt(server, FusekiVocab.pAsyncTimeout)) ;
+        } catch (IllegalArgumentException ex) {
+            throw new FusekiConfigException(ex.getMessage()+": "+nodeLabel(server)) ;
+        }
+        if ( server.hasProperty(FusekiVocab.pAsyncRequests) ) {
+            boolean enabled = getBoolean(server, FusekiVocab.pAsyncRequests) ;
+            AsyncRequests.setEnabled(enabled) ;
+            if ( enabled )
+                log.info(format("Asynchronous requests: threads=%d queue=%d timeout=%dms",
+                                AsyncRequests.getMaxThreads(), AsyncRequests.getMaxQueueLength(), AsyncRequests.getTimeout())) ;
+        }
+    }
+
+    private static boolean getBoolean(Resource r, Property p) {
+        RDFNode n = r.getProperty(p).getObject() ;
+        if ( ! n.isLiteral() )
+            throw new FusekiConfigException("Not a boolean for "+FmtUtils.stringForRDFNode(p)+": "+FmtUtils.stringForRDFNode(n)) ;
+        try { return n.asLiteral().getBoolean() ; }
+        catch (DatatypeFormatException | BadBooleanException ex) {
+            throw new FusekiConfigException("Not a boolean for "+FmtUtils.stringForRDFNode(p)+": "+FmtUtils.stringForRDFNode(n)) ;
+        }
+    }
+
+    private static int getInt(Resource r, Property p) {
+        RDFNode n = r.getProperty(p).getObject() ;
+        if ( ! n.isLiteral() )
+            throw new FusekiConfigException("Not a number for "+FmtUtils.stringForRDFNode(p)+": "+FmtUtils.stringForRDFNode(n)) ;
+        try { return n.asLiteral().getInt() ; }
+        catch (DatatypeFormatException | NumberFormatException ex) {
+            throw new FusekiConfigException("Not an integer for "+FmtUtils.stringForRDFNode(p)+": "+FmtUtils.stringForRDFNode(n)) ;
+        }
+    }
+
 
 }
 
@@ -91,6 +91,7 @@ public class FusekiConfig {
     private static void processServer(Resource server) {
         // Global, currently.
         AssemblerUtils.setContext(server, Fuseki.getContext()) ;
+        Builder.configureAsyncRequests(server) ;
 
         StmtIterator sIter = server.listProperties(JA.loadClass) ;
         for ( ; sIter.hasNext() ; ) {
@@ -27,6 +27,7 @@ import org.apache.jena.atlas.lib.FileOps ;
 import org.apache.jena.fuseki.Fuseki ;
 import org.apache.jena.fuseki.FusekiException ;
 import org.apache.jena.fuseki.mgt.MgtJMX ;
+import org.apache.jena.fuseki.servlets.ResponseCompression ;
 import org.eclipse.jetty.security.* ;
 import org.eclipse.jetty.security.authentication.BasicAuthenticator ;
 import org.eclipse.jetty.server.* ;
@@ -201,6 +202,8 @@ public class JettyFuseki {
         else
             defaultServerConfig(serverConfig.port, serverConfig.loopback) ;
 
+        // Response compression is negotiated per request by the Fuseki servlets.
+        ResponseCompression.enabled = enableCompression ;
         WebAppContext webapp = createWebApp(contextPath) ;
         server.setHandler(webapp) ;
         // Replaced by Shiro.
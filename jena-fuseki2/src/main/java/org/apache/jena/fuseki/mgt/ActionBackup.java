@@ -32,6 +32,16 @@ import com.hp.hpl.jena.sparql.core.DatasetGraph ;
 
 public class ActionBackup extends ActionAsyncTask
 {
+    /** Parameter for the kind of backup: {@link #typeNQuads} (the default),
+     * {@link #typeFiles} or {@link #typeIncremental}. */
+    public static final String paramType        = "type" ;
+    /** Write the data as gzipped N-Quads. */
+    public static final String typeNQuads       = "nquads" ;
+    /** Copy the files of a TDB database while it is in use. */
+    public static final String typeFiles        = "files" ;
+    /** Copy the blocks of the files of a TDB database changed since the last file backup. */
+    public static final String typeIncremental  = "incremental" ;
+
     public ActionBackup() { super() ; }
     
     // Only POST
@@ -48,8 +58,20 @@ public class ActionBackup extends ActionAsyncTask
             ServletOps.errorOccurred("Null for dataset name in item request");
             return null ;
         }
-        action.log.info(format("[%d] Backup dataset %s", action.id, name)) ;
-        return new BackupTask(action) ;
+        String type = action.request.getParameter(paramType) ;
+        if ( type == null )
+            type = typeNQuads ;
+        if ( ! type.equals(typeNQuads) && ! type.equals(typeFiles) && ! type.equals(typeIncremental) ) {
+            ServletOps.errorBadRequest("Unknown backup type: "+type) ;
+            return null ;
+        }
+        if ( ! type.equals(typeNQuads) 
+             && Backup.fileBackupLocation(action.getDataAccessPoint().getDataService().getDataset()) == null ) {
+            ServletOps.errorBadRequest("Backup of files is only possible for a TDB dataset: "+name) ;
+            return null ;
+        }
+        action.log.info(format("[%d] Backup dataset %s (%s)", action.id, name, type)) ;
+        return new BackupTask(action, type) ;
     }
 
     static class BackupTask implements Runnable {
@@ -58,19 +80,27 @@ public class ActionBackup extends ActionAsyncTask
         private final long actionId ;
         private final DatasetGraph dataset ;
         private final String datasetName ;
+        private final String type ;
         
-        public BackupTask(HttpAction action) {
+        public BackupTask(HttpAction action, String type) {
             this.actionId = action.id ;
             action.getDataAccessPoint() ;
             action.getDataAccessPoint().getDataService() ;
             action.getDataAccessPoint().getDataService().getDataset() ;
             this.dataset = action.getDataAccessPoint().getDataService().getDataset() ;
             this.datasetName = action.getDatasetName() ;
+            this.type = type ;
         }
 
         @Override
         public void run() {
             try {
+                if ( ! type.equals(typeNQuads) ) {
+                    log.info(format("[%d] >>>> Start %s backup %s", actionId, type, datasetName)) ;
+                    String backupDir = Backup.backupFiles(dataset, datasetName, type.equals(typeIncremental)) ;
+                    log.info(format("[%d] <<<< Finish %s backup %s -> %s", actionId, type, datasetName, backupDir)) ;
+                    return ;
+                }
                 String backupFilename = Backup.chooseFileName(datasetName) ;
                 log.info(format("[%d] >>>> Start backup %s -> %s", actionId, datasetName, backupFilename)) ;
                 Backup.backup(dataset, backupFilename) ;
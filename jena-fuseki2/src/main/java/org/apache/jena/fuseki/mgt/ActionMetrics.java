@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.fuseki.mgt;
+import static java.lang.String.format ;
+
+import javax.servlet.http.HttpServletRequest ;
+import javax.servlet.http.HttpServletResponse ;
+
+import org.apache.jena.atlas.json.JsonBuilder ;
+import org.apache.jena.atlas.json.JsonValue ;
+import org.apache.jena.fuseki.Fuseki ;
+import org.apache.jena.fuseki.server.DataAccessPoint ;
+import org.apache.jena.fuseki.server.DataAccessPointRegistry ;
+import org.apache.jena.fuseki.servlets.ActionBase ;
+import org.apache.jena.fuseki.servlets.HttpAction ;
+import org.apache.jena.fuseki.servlets.ServletOps ;
+import org.apache.jena.web.HttpSC ;
+
+import com.hp.hpl.jena.sparql.core.DatasetGraph ;
+import com.hp.hpl.jena.tdb.StoreConnection ;
+import com.hp.hpl.jena.tdb.base.file.Location ;
+import com.hp.hpl.jena.tdb.mgt.TDBMetrics ;
+import com.hp.hpl.jena.tdb.mgt.TimeHistogram ;
+
+/** Metrics of the storage: TDB caches, B+Tree page reads, journal replay,
+ * file syncs and waits for write transactions, and the journal size of each
+ * TDB dataset. The {@link ActionStats} service gives request counts.
+ */
+public class ActionMetrics extends ActionBase
+{
+    public ActionMetrics() { super(Fuseki.serverLog) ; }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) {
+        doCommon(request, response);
+    }
+
+    @Override
+    protected void execCommonWorker(HttpAction action) {
+        if ( ! action.request.getMethod().equals(METHOD_GET) )
+            ServletOps.error(HttpSC.METHOD_NOT_ALLOWED_405) ;
+        log.info(format("[%d] Metrics", action.id));
+        ServletOps.setNoCache(action) ;
+        ServletOps.sendJsonReponse(action, metrics());
+    }
+
+    public static JsonValue metrics() {
+        TDBMetrics m = TDBMetrics.get() ;
+        JsonBuilder builder = new JsonBuilder() ;
+        builder.startObject("top") ;
+
+        builder.key("blockCache").startObject("blockCache") ;
+        builder.key("readHits").value(m.getBlockCacheReadHits()) ;
+        builder.key("writeHits").value(m.getBlockCacheWriteHits()) ;
+        builder.key("misses").value(m.getBlockCacheMisses()) ;
+        builder.key("hitRate").value(m.getBlockCacheHitRate()) ;
+        builder.finishObject("blockCache") ;
+
+        builder.key("nodeCache").startObject("nodeCache") ;
+        builder.key("hits").value(m.getNodeCacheHits()) ;
+        builder.key("misses").value(m.getNodeCacheMisses()) ;
+        builder.key("hitRate").value(m.getNodeCacheHitRate()) ;
+        builder.finishObject("nodeCache") ;
+
+        builder.key("bptreePageReads").value(m.getBPTreePageReads()) ;
+
+        histogram(builder, "journalReplay", TDBMetrics.journalReplay) ;
+        histogram(builder, "sync", TDBMetrics.sync) ;
+        histogram(builder, "writerWait", TDBMetrics.writerWait) ;
+
+        builder.key(JsonConst.datasets).startObject("datasets") ;
+        for ( String name : DataAccessPointRegistry.get().keys() ) {
+            DataAccessPoint access = DataAccessPointRegistry.get().get(name) ;
+            DatasetGraph dsg = access.getDataService().getDataset() ;
+            Location location = Backup.fileBackupLocation(dsg) ;
+            if ( location == null )
+                continue ;
+            StoreConnection sConn = StoreConnection.getExisting(location) ;
+            if ( sConn == null )
+                continue ;
+            builder.key(name).startObject() ;
+            builder.key("journalSize").value(sConn.getJournal().size()) ;
+            builder.finishObject() ;
+        }
+        builder.finishObject("datasets") ;
+
+        builder.finishObject("top") ;
+        return builder.build() ;
+    }
+
+    // Times in microseconds.
+    private static void histogram(JsonBuilder builder, String name, TimeHistogram h) {
+        builder.key(name).startObject(name) ;
+        builder.key("count").value(h.getCount()) ;
+        builder.key("mean").value(h.getMean()/1000) ;
+        builder.key("max").value(h.getMax()/1000) ;
+        builder.key("p50").value(h.getPercentile(0.5)) ;
+        builder.key("p99").value(h.getPercentile(0.99)) ;
+        builder.finishObject(name) ;
+    }
+}
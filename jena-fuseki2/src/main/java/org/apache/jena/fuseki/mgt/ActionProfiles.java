@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.fuseki.mgt;
+import static java.lang.String.format ;
+
+import javax.servlet.http.HttpServletRequest ;
+import javax.servlet.http.HttpServletResponse ;
+
+import org.apache.jena.atlas.json.JsonArray ;
+import org.apache.jena.atlas.json.JsonValue ;
+import org.apache.jena.fuseki.Fuseki ;
+import org.apache.jena.fuseki.servlets.ActionBase ;
+import org.apache.jena.fuseki.servlets.HttpAction ;
+import org.apache.jena.fuseki.servlets.QueryProfiles ;
+import org.apache.jena.fuseki.servlets.ServletOps ;
+import org.apache.jena.web.HttpSC ;
+
+/** Execution profiles of recent queries run with the "profile" parameter.
+ * GET on the container lists the request ids; GET on a request id returns
+ * that profile.
+ */
+public class ActionProfiles extends ActionBase
+{
+    public ActionProfiles() { super(Fuseki.serverLog) ; }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) {
+        doCommon(request, response);
+    }
+
+    private static String prefix = "/" ;
+
+    @Override
+    protected void execCommonWorker(HttpAction action) {
+        if ( ! action.request.getMethod().equals(METHOD_GET) )
+            ServletOps.error(HttpSC.METHOD_NOT_ALLOWED_405) ;
+        String name = extractItemName(action) ;
+        if ( name != null && name.startsWith(prefix) )
+            name = name.substring(prefix.length()) ;
+
+        JsonValue responseBody = null ;
+        if ( name == null || name.isEmpty() ) {
+            log.info(format("[%d] Profiles", action.id));
+            JsonArray array = new JsonArray() ;
+            for ( Long id : QueryProfiles.ids() )
+                array.add(id) ;
+            responseBody = array ;
+        } else {
+            log.info(format("[%d] Profile %s", action.id, name));
+            try {
+                responseBody = QueryProfiles.get(Long.parseLong(name)) ;
+            } catch (NumberFormatException ex) {
+                ServletOps.errorBadRequest("Not a request id: '"+name+"'") ;
+            }
+        }
+
+        if ( responseBody == null )
+            ServletOps.errorNotFound("Profile '"+name+"' not found") ;
+        ServletOps.setNoCache(action) ;
+        ServletOps.sendJsonReponse(action, responseBody);
+    }
+}
@@ -19,6 +19,7 @@
 package org.apache.jena.fuseki.mgt;
 
 import java.io.* ;
+import java.util.Arrays ;
 import java.util.HashSet ;
 import java.util.Set ;
 import java.util.zip.GZIPOutputStream ;
@@ -32,7 +33,14 @@ import org.apache.jena.riot.Lang ;
 import org.apache.jena.riot.RDFDataMgr ;
 
 import com.hp.hpl.jena.sparql.core.DatasetGraph ;
+import com.hp.hpl.jena.sparql.core.DatasetGraphWrapper ;
 import com.hp.hpl.jena.sparql.util.Utils ;
+import com.hp.hpl.jena.tdb.TDBBackup ;
+import com.hp.hpl.jena.tdb.base.file.Location ;
+import com.hp.hpl.jena.tdb.store.DatasetGraphTDB ;
+import com.hp.hpl.jena.tdb.sys.Names ;
+import com.hp.hpl.jena.tdb.transaction.DatasetGraphTransaction ;
+import com.hp.hpl.jena.tdb.transaction.FileBackup ;
 
 /** Perform a backup */ 
 public class Backup
@@ -48,6 +56,9 @@ public class Backup
         return filename ;
     }
     
+    /** Suffix of the directory of a backup of the database files. */
+    public static final String FileBackupSuffix = ".tdb" ;
+
     // Rcord of all backups so we don't attempt to backup the
     // same dataset multiple times at the same time. 
     private static Set<DatasetGraph> activeBackups = new HashSet<>() ;
@@ -98,5 +109,63 @@ public class Backup
             }
         }
     }
+
+    /** The location of a TDB dataset, or null if the dataset can't be backed up
+     * by copying its files. */
+    public static Location fileBackupLocation(DatasetGraph dsg) {
+        while ( dsg instanceof DatasetGraphWrapper )
+            dsg = ((DatasetGraphWrapper)dsg).getWrapped() ;
+        Location loc = null ;
+        if ( dsg instanceof DatasetGraphTransaction )
+            loc = ((DatasetGraphTransaction)dsg).getLocation() ;
+        else if ( dsg instanceof DatasetGraphTDB )
+            loc = ((DatasetGraphTDB)dsg).getLocation() ;
+        if ( loc == null || loc.isMem() )
+            return null ;
+        return loc ;
+    }
+
+    /** Back up a TDB dataset by copying its files while it is in use.
+     * An incremental backup only copies the blocks changed since the most recent
+     * file backup of the dataset; if there is none, it is a full backup.
+     * @return The backup directory. 
+     */
+    public static String backupFiles(DatasetGraph dsg, String dsName, boolean incremental) {
+        Location location = fileBackupLocation(dsg) ;
+        if ( location == null )
+            throw new FusekiException("Not a TDB dataset: "+dsName) ;
+        synchronized(activeBackups) {
+            if ( activeBackups.contains(dsg) )
+                Log.warn(Fuseki.serverLog, "Backup already in progress") ;
+            activeBackups.add(dsg) ;
+        }
+        try {
+            String previous = incremental ? latestFileBackup(dsName) : null ;
+            String backupDir = chooseFileName(dsName)+FileBackupSuffix ;
+            TDBBackup.backupFiles(location, backupDir, previous) ;
+            return backupDir ;
+        } finally {
+            synchronized(activeBackups) {
+                activeBackups.remove(dsg) ;
+            }
+        }
+    }
+
+    /** The most recent complete file backup of a dataset, or null. */
+    private static String latestFileBackup(String dsName) {
+        final String prefix = ( dsName.startsWith("/") ? dsName.substring(1) : dsName ) + "_" ;
+        File[] dirs = new File(BackupArea).listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File f) {
+                return f.isDirectory() && f.getName().startsWith(prefix) && f.getName().endsWith(FileBackupSuffix)
+                    && new File(f, FileBackup.ManifestName+"."+Names.extMeta).exists() ;
+            }
+        }) ;
+        if ( dirs == null || dirs.length == 0 )
+            return null ;
+        // Names include a sortable timestamp.
+        Arrays.sort(dirs) ;
+        return dirs[dirs.length-1].getPath() ;
+    }
 }
 
@@ -26,5 +26,7 @@ public class MgtConst {
     public static final String  opStats     = "stats" ;  
     public static final String  opDatasets  = "datasets" ;
     public static final String  opServer    = "server" ;
+    public static final String  opProfiles  = "profiles" ;
+    public static final String  opMetrics   = "metrics" ;
 }
 
@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.fuseki.server;
+
+import java.util.PriorityQueue ;
+import java.util.concurrent.atomic.AtomicLong ;
+
+import org.apache.jena.atlas.lib.Cache ;
+import org.apache.jena.atlas.lib.CacheFactory ;
+
+/** Limit on the number of requests executing at the same time on a dataset
+ * or an endpoint.
+ * <p>
+ * Requests over the limit wait, for at most a fixed time, in a queue of
+ * limited length; requests that would exceed the queue length or wait too
+ * long are rejected. Waiting requests are admitted in order of arrival time
+ * plus expected duration, where the expected duration is the average of
+ * previous executions of the same request, so short requests go ahead of
+ * long ones but a long request is not overtaken indefinitely.
+ */
+public class AdmissionControl
+{
+    public static final int  DefaultMaxQueueLength   = 100 ;
+    public static final long DefaultMaxQueueWait     = 10*1000 ;
+
+    // Number of requests for which execution times are kept.
+    private static final int historySize = 1000 ;
+
+    private final int maxConcurrent ;
+    private final int maxQueueLength ;
+    private final long maxQueueWait ;
+
+    // Guarded by this object.
+    private int running = 0 ;
+    private long sequence = 0 ;
+    private final PriorityQueue<Waiter> waiting = new PriorityQueue<>() ;
+
+    // Guarded by the history object.
+    private final Cache<String, Average> history = CacheFactory.createCache(historySize) ;
+    private final Average overall = new Average() ;
+
+    private final AtomicLong admitted = new AtomicLong(0) ;
+    private final AtomicLong rejected = new AtomicLong(0) ;
+
+    /**
+     * @param maxConcurrent     Maximum number of requests executing.
+     * @param maxQueueLength    Maximum number of requests waiting.
+     * @param maxQueueWait      Maximum time, in milliseconds, a request waits.
+     */
+    public AdmissionControl(int maxConcurrent, int maxQueueLength, long maxQueueWait) {
+        if ( maxConcurrent <= 0 )
+            throw new IllegalArgumentException("Maximum concurrent requests must be greater than zero") ;
+        if ( maxQueueLength < 0 )
+            throw new IllegalArgumentException("Maximum queue length is negative") ;
+        this.maxConcurrent = maxConcurrent ;
+        this.maxQueueLength = maxQueueLength ;
+        this.maxQueueWait = maxQueueWait ;
+    }
+
+    public int getMaxConcurrent()               { return maxConcurrent ; }
+    public int getMaxQueueLength()              { return maxQueueLength ; }
+    public long getMaxQueueWait()               { return maxQueueWait ; }
+
+    public synchronized int getRunning()        { return running ; }
+    public synchronized int getWaiting()        { return waiting.size() ; }
+    public long getAdmitted()                   { return admitted.get() ; }
+    public long getRejected()                   { return rejected.get() ; }
+
+    /** Wait until the request may execute.
+     * Every successful call must be followed by a call of {@link #release()}.
+     * @param key   The request, for the expected duration, or null if not known.
+     * @return true if the request may execute, false if it is rejected.
+     */
+    public boolean admit(String key) {
+        long now = System.currentTimeMillis() ;
+        long expected = expectedDuration(key) ;
+        synchronized(this) {
+            if ( running < maxConcurrent && waiting.isEmpty() ) {
+                running++ ;
+                admitted.incrementAndGet() ;
+                return true ;
+            }
+            if ( waiting.size() >= maxQueueLength ) {
+                rejected.incrementAndGet() ;
+                return false ;
+            }
+            Waiter w = new Waiter(now+expected, sequence++) ;
+            waiting.add(w) ;
+            long deadline = now+maxQueueWait ;
+            try {
+                while ( ! w.admitted ) {
+                    long remaining = deadline-System.currentTimeMillis() ;
+                    if ( remaining <= 0 ) {
+                        waiting.remove(w) ;
+                        rejected.incrementAndGet() ;
+                        return false ;
+                    }
+                    wait(remaining) ;
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt() ;
+                if ( ! w.admitted ) {
+                    waiting.remove(w) ;
+                    rejected.incrementAndGet() ;
+                    return false ;
+                }
+            }
+            admitted.incrementAndGet() ;
+            return true ;
+        }
+    }
+
+    /** The request has finished executing. */
+    public synchronized void release() {
+        running-- ;
+        // Hand the place directly to the next request.
+        Waiter w = waiting.poll() ;
+        if ( w != null ) {
+            w.admitted = true ;
+            running++ ;
+            notifyAll() ;
+        }
+    }
+
+    /** Record the time a request took to execute. */
+    public void record(String key, long duration) {
+        synchronized(history) {
+            overall.add(duration) ;
+            if ( key == null )
+                return ;
+            Average avg = history.get(key) ;
+            if ( avg == null ) {
+                avg = new Average() ;
+                history.put(key, avg) ;
+            }
+            avg.add(duration) ;
+        }
+    }
+
+    /** Expected duration of a request, in milliseconds. Requests not seen
+     * before are expected to take the average time of all requests. */
+    public long expectedDuration(String key) {
+        synchronized(history) {
+            Average avg = ( key == null ) ? null : history.get(key) ;
+            if ( avg == null )
+                avg = overall ;
+            return avg.get() ;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AdmissionControl[max=%d, queue=%d, wait=%dms]", maxConcurrent, maxQueueLength, maxQueueWait) ;
+    }
+
+    /** Moving average, weighted towards recent values. */
+    private static class Average
+    {
+        private double value = 0 ;
+        private boolean set = false ;
+
+        void add(long x) {
+            value = set ? 0.8*value+0.2*x : x ;
+            set = true ;
+        }
+
+        long get()      { return (long)value ; }
+    }
+
+    private static class Waiter implements Comparable<Waiter>
+    {
+        final long priority ;
+        final long sequence ;
+        boolean admitted = false ;
+
+        Waiter(long priority, long sequence) {
+            this.priority = priority ;
+            this.sequence = sequence ;
+        }
+
+        @Override
+        public int compareTo(Waiter other) {
+            if ( priority != other.priority )
+                return priority < other.priority ? -1 : 1 ;
+            return sequence < other.sequence ? -1 : ( sequence == other.sequence ? 0 : 1 ) ;
+        }
+    }
+}
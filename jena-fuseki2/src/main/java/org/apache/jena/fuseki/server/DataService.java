@@ -65,6 +65,8 @@ public class DataService { //implements DatasetMXBean {
     private final AtomicLong    requestCounter          = new AtomicLong(0) ;   
     private final AtomicBoolean offlineInProgress       = new AtomicBoolean(false) ;
     private final AtomicBoolean acceptingRequests       = new AtomicBoolean(true) ;
+    // Limit on concurrent requests, or null for no limit.
+    private volatile AdmissionControl admissionControl  = null ;
 
     public DataService(DataServiceDesc desc, DatasetGraph dataset) {
         this.svcDesc = desc ;
@@ -121,6 +123,11 @@ public class DataService { //implements DatasetMXBean {
         return acceptingRequests.get() ;
     }
     
+    /** The limit on requests executing at the same time on this dataset, or null */
+    public AdmissionControl getAdmissionControl()           { return admissionControl ; }
+
+    public void setAdmissionControl(AdmissionControl ac)    { this.admissionControl = ac ; }
+
     //@Override
     public  CounterSet getCounters() { return counters ; }
     
@@ -150,6 +157,9 @@ public class DataService { //implements DatasetMXBean {
     /** Cumulative counter of writer transactions */
     public AtomicLong   totalWriteTxn           = new AtomicLong(0) ;
 
+    /** Counter of finished writer transactions, changes whenever the data may have changed */
+    public AtomicLong   dataGeneration          = new AtomicLong(0) ;
+
     public void startTxn(ReadWrite mode)
     {
         switch(mode)
@@ -173,6 +183,7 @@ public class DataService { //implements DatasetMXBean {
                 activeReadTxn.decrementAndGet() ;
                 break ;
             case WRITE:
+                dataGeneration.getAndIncrement() ;
                 activeWriteTxn.decrementAndGet() ;
                 break ;
         }
@@ -26,6 +26,8 @@ public class Endpoint implements Counters {
     public final String endpointName ;
     // Endpoint-level counters.
     private final CounterSet counters           = new CounterSet() ;
+    // Limit on concurrent requests, or null for no limit.
+    private volatile AdmissionControl admissionControl = null ;
 
     public Endpoint(OperationName opName, String endpointName) {
         this.opName = opName ;
@@ -50,6 +52,11 @@ public class Endpoint implements Counters {
     }
 
     public String getEndpoint()         { return endpointName ; }
+
+    /** The limit on requests executing at the same time on this endpoint, or null */
+    public AdmissionControl getAdmissionControl()           { return admissionControl ; }
+
+    public void setAdmissionControl(AdmissionControl ac)    { this.admissionControl = ac ; }
     
     //@Override 
     public long getRequests() { 
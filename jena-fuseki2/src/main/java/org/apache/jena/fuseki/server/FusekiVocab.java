@@ -44,6 +44,17 @@ public class FusekiVocab
 
     public static final Property pAllowTimeoutOverride = property("allowTimeoutOverride");
     public static final Property pMaximumTimeoutOverride = property("maximumTimeoutOverride");
+
+    // Admission control, for a service or an endpoint.
+    public static final Property pMaxConcurrentRequests = property("maxConcurrentRequests") ;
+    public static final Property pMaxQueueLength = property("maxQueueLength") ;
+    public static final Property pMaxQueueWait = property("maxQueueWait") ;
+
+    // Asynchronous execution of requests, for the server.
+    public static final Property pAsyncRequests = property("asyncRequests") ;
+    public static final Property pAsyncMaxThreads = property("asyncMaxThreads") ;
+    public static final Property pAsyncMaxQueueLength = property("asyncMaxQueueLength") ;
+    public static final Property pAsyncTimeout = property("asyncTimeout") ;
     
     // Internal
     
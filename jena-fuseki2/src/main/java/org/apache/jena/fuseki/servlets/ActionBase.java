@@ -101,6 +101,11 @@ public abstract class ActionBase extends ServletBase
                 log.warn(format("[%d] RC = %d : %s", id, HttpSC.INTERNAL_SERVER_ERROR_500, ex.getMessage()), ex) ;
                 ServletOps.responseSendError(response, HttpSC.INTERNAL_SERVER_ERROR_500, ex.getMessage()) ;
             }
+            try {
+                action.response.finishOutput() ;
+            } catch (IOException ex) {
+                log.warn(format("[%d] IO Exception completing the response (client left?) : %s", id, ex.getMessage())) ;
+            }
     
             action.setFinishTime() ;
             printResponse(action) ;
@@ -34,6 +34,9 @@ import org.apache.jena.riot.RiotException ;
 import org.apache.jena.riot.system.ErrorHandler ;
 import org.apache.jena.riot.system.ErrorHandlerFactory ;
 import org.apache.jena.riot.system.StreamRDF ;
+import org.apache.jena.riot.system.StreamRDFLimited ;
+import org.apache.jena.riot.web.HttpNames ;
+import org.apache.jena.web.HttpSC ;
 
 import com.hp.hpl.jena.query.QueryCancelledException ;
 
@@ -127,7 +130,7 @@ public abstract class ActionSPARQL extends ActionBase
             }
 
             try {
-                perform(action) ;
+                performAdmitted(action) ;
                 // Success
                 incCounter(csOperation, RequestsGood) ;
                 incCounter(csService, RequestsGood) ;
@@ -141,6 +144,55 @@ public abstract class ActionSPARQL extends ActionBase
         }
     }
     
+    /** Perform the request once within the limits on concurrent requests of
+     * the endpoint and the dataset, or reject it with 503 if those are
+     * exceeded.
+     */
+    private void performAdmitted(HttpAction action) {
+        AdmissionControl acEndpoint = action.getEndpoint().getAdmissionControl() ;
+        AdmissionControl acService = action.getDataService().getAdmissionControl() ;
+        if ( acEndpoint == null && acService == null ) {
+            perform(action) ;
+            return ;
+        }
+        String key = requestKey(action) ;
+        // Always endpoint, then dataset.
+        admit(action, acEndpoint, key) ;
+        try {
+            admit(action, acService, key) ;
+            try {
+                long start = System.currentTimeMillis() ;
+                perform(action) ;
+                long duration = System.currentTimeMillis() - start ;
+                if ( acEndpoint != null )
+                    acEndpoint.record(key, duration) ;
+                if ( acService != null )
+                    acService.record(key, duration) ;
+            } finally {
+                if ( acService != null )
+                    acService.release() ;
+            }
+        } finally {
+            if ( acEndpoint != null )
+                acEndpoint.release() ;
+        }
+    }
+
+    private static void admit(HttpAction action, AdmissionControl ac, String key) {
+        if ( ac == null || ac.admit(key) )
+            return ;
+        action.response.setHeader(HttpNames.hRetryAfter, "1") ;
+        ServletOps.error(HttpSC.SERVICE_UNAVAILABLE_503, "Too many requests") ;
+    }
+
+    /** A key identifying the work of the request, so that the expected
+     * execution time can be judged from previous requests, or null.
+     * @param action HTTP Action
+     */
+    protected String requestKey(HttpAction action) {
+        return null ;
+    }
+
     /**
      * Map request {@link HttpAction} to uri in the registry.
      * A return of ull means no mapping done (passthrough).
@@ -202,6 +254,7 @@ public abstract class ActionSPARQL extends ActionBase
             r.setErrorHandler(errorHandler); 
             r.read(input, base, null, dest, null) ; 
         } 
+        catch (StreamRDFLimited.LimitExceededException ex) { ServletOps.error(HttpSC.REQUEST_ENTITY_TOO_LARGE_413, ex.getMessage()) ; }
         catch (RiotException ex) { ServletOps.errorBadRequest("Parse error: "+ex.getMessage()) ; }
     }
 }
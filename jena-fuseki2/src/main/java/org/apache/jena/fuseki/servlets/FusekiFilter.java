@@ -25,6 +25,7 @@ import javax.servlet.http.HttpServletRequest ;
 import javax.servlet.http.HttpServletResponse ;
 
 import org.apache.jena.fuseki.Fuseki ;
+import org.apache.jena.fuseki.async.AsyncRequests ;
 import org.apache.jena.fuseki.server.DataAccessPointRegistry ;
 import org.slf4j.Logger ;
 
@@ -68,7 +69,13 @@ public class FusekiFilter implements Filter {
                 if ( DataAccessPointRegistry.get().isRegistered(datasetUri) ) {
                     if ( LogFilter )
                         log.info("Filter: dispatch") ;
-                    überServlet.doCommon(req, resp) ;
+                    // Free the container thread while the request executes.
+                    AsyncRequests.execute(req, resp, new AsyncRequests.RequestWork() {
+                        @Override
+                        public void exec(HttpServletRequest request, HttpServletResponse response) {
+                            überServlet.doCommon(request, response) ;
+                        }
+                    }) ;
                     return ;
                 }
             }
@@ -19,22 +19,73 @@
 package org.apache.jena.fuseki.servlets;
 
 import java.io.IOException ;
+import java.io.OutputStreamWriter ;
+import java.io.PrintWriter ;
 
+import javax.servlet.ServletOutputStream ;
 import javax.servlet.http.HttpServletResponse ;
 import javax.servlet.http.HttpServletResponseWrapper ;
 
 import org.apache.jena.atlas.logging.Log ;
 
-/** Intercepting wrapper so we can track the response settings for logging purposes */
+/** Intercepting wrapper so we can track the response settings for logging purposes,
+ * and compress the response body if the client accepts it.
+ */
 
 public class HttpServletResponseTracker extends HttpServletResponseWrapper
 {
     private final HttpAction action ;
+    // Content encoding, or null.
+    private final String encoding ;
+    private ResponseCompression.CompressedOutputStream compressed = null ;
+    private PrintWriter writer = null ;
 
     public HttpServletResponseTracker(HttpAction action, HttpServletResponse response)
     {
         super(response) ;
         this.action = action ;
+        this.encoding = ResponseCompression.negotiate(action.request) ;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException
+    {
+        if ( encoding == null )
+            return super.getOutputStream() ;
+        if ( compressed == null ) {
+            setHeader(ResponseCompression.hContentEncoding, encoding) ;
+            compressed = (ResponseCompression.CompressedOutputStream)ResponseCompression.compress(super.getOutputStream(), encoding) ;
+        }
+        return compressed ;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException
+    {
+        if ( encoding == null )
+            return super.getWriter() ;
+        if ( writer == null )
+            writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding())) ;
+        return writer ;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException
+    {
+        if ( writer != null )
+            writer.flush() ;
+        if ( compressed != null )
+            compressed.flush() ;
+        super.flushBuffer() ;
+    }
+
+    /** Complete the response body. Compressed output is only complete after this call. */
+    public void finishOutput() throws IOException
+    {
+        if ( writer != null )
+            writer.flush() ;
+        if ( compressed != null )
+            compressed.finish() ;
     }
 
     @Override
@@ -42,6 +93,7 @@ public class HttpServletResponseTracker extends HttpServletResponseWrapper
     {
         action.statusCode = sc ;
         action.message = msg ;
+        abandonCompression() ;
         super.sendError(sc, msg) ;
     }
 
@@ -50,9 +102,26 @@ public class HttpServletResponseTracker extends HttpServletResponseWrapper
     {
         action.statusCode = sc ;
         action.message = null ;
+        abandonCompression() ;
         super.sendError(sc) ;
     }
 
+    // The error page is written by the servlet container, uncompressed.
+    // If the response has been committed, the client gets compressed data
+    // with no end, and can tell that it is incomplete.
+    private void abandonCompression()
+    {
+        if ( compressed == null )
+            return ;
+        compressed.abandon() ;
+        writer = null ;
+        if ( ! isCommitted() ) {
+            // A null value removes the header.
+            super.setHeader(ResponseCompression.hContentEncoding, null) ;
+            action.headers.remove(ResponseCompression.hContentEncoding) ;
+        }
+    }
+
     @Override
     public void setHeader(String name, String value)
     {
@@ -87,7 +156,17 @@ public class HttpServletResponseTracker extends HttpServletResponseWrapper
     public void setContentLength(int len)
     {
         action.contentLength = len ;
-        super.setContentLength(len) ;
+        // The length is not known until the compressed body has been written.
+        if ( encoding == null )
+            super.setContentLength(len) ;
+    }
+
+    @Override
+    public void setContentLengthLong(long len)
+    {
+        action.contentLength = (int)len ;
+        if ( encoding == null )
+            super.setContentLengthLong(len) ;
     }
 
     @Override
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.fuseki.servlets;
+
+import java.util.ArrayList ;
+import java.util.Collections ;
+import java.util.List ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.json.JsonObject ;
+import org.apache.jena.atlas.lib.Cache ;
+import org.apache.jena.atlas.lib.CacheFactory ;
+
+import com.hp.hpl.jena.sparql.engine.main.QueryProfile ;
+import com.hp.hpl.jena.sparql.util.Utils ;
+
+/** Execution profiles of recent queries, by request id.
+ * <p>
+ * Query results are streamed so the profile of a query is only complete
+ * after the response has been sent; the response carries the request id
+ * (header {@code Fuseki-Request-ID}) and the profile is kept here for
+ * the admin service to return.
+ */
+public class QueryProfiles
+{
+    /** Number of profiles kept. */
+    public static final int size = 100 ;
+
+    // Guarded by the cache object.
+    private static final Cache<Long, JsonObject> profiles = CacheFactory.createCache(size) ;
+
+    /** Record the profile of the query executed by a request. */
+    public static void record(HttpAction action, String queryString, QueryProfile profile) {
+        JsonObject obj = new JsonObject() ;
+        obj.put("id", action.id) ;
+        obj.put("dataset", action.getDatasetName()) ;
+        obj.put("query", queryString) ;
+        obj.put("finished", Utils.nowAsXSDDateTimeString()) ;
+        obj.put("profile", profile.asJson()) ;
+        synchronized(profiles) {
+            profiles.put(action.id, obj) ;
+        }
+    }
+
+    /** Get the profile for a request, or null if there is none. */
+    public static JsonObject get(long id) {
+        synchronized(profiles) {
+            return profiles.get(id) ;
+        }
+    }
+
+    /** Request ids of the profiles kept, in ascending order. */
+    public static List<Long> ids() {
+        List<Long> x ;
+        synchronized(profiles) {
+            x = new ArrayList<>(Iter.toList(profiles.keys())) ;
+        }
+        Collections.sort(x) ;
+        return x ;
+    }
+
+    public static void clear() {
+        synchronized(profiles) {
+            profiles.clear() ;
+        }
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.fuseki.servlets;
+
+import java.util.ArrayList ;
+import java.util.List ;
+import java.util.concurrent.TimeUnit ;
+import java.util.concurrent.atomic.AtomicLong ;
+
+import org.apache.jena.atlas.lib.Cache ;
+import org.apache.jena.atlas.lib.CacheFactory ;
+import org.apache.jena.atlas.lib.Lib ;
+import org.apache.jena.fuseki.server.DataService ;
+
+import com.hp.hpl.jena.query.Query ;
+import com.hp.hpl.jena.query.QuerySolution ;
+import com.hp.hpl.jena.query.ResultSet ;
+import com.hp.hpl.jena.rdf.model.Model ;
+import com.hp.hpl.jena.rdf.model.ModelFactory ;
+import com.hp.hpl.jena.sparql.algebra.Op ;
+import com.hp.hpl.jena.sparql.algebra.OpDeterministic ;
+import com.hp.hpl.jena.sparql.core.DatasetGraph ;
+import com.hp.hpl.jena.sparql.core.DatasetGraphWrapper ;
+import com.hp.hpl.jena.sparql.core.ResultBinding ;
+import com.hp.hpl.jena.sparql.engine.QueryCache ;
+import com.hp.hpl.jena.sparql.engine.ResultSetStream ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory ;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterPlainWrapper ;
+import com.hp.hpl.jena.sparql.resultset.SPARQLResult ;
+import com.hp.hpl.jena.tdb.transaction.DatasetGraphTransaction ;
+import com.hp.hpl.jena.tdb.transaction.SysTxnState ;
+
+/** Opt-in cache of query results for datasets hosted by the server.
+ * <p>
+ * Results are keyed on the algebra of the query, so queries that differ only
+ * in layout or prefix names share an entry, together with the data service
+ * and a generation number of its data. The generation changes whenever a
+ * write transaction finishes, either through the server or, for TDB, on the
+ * underlying storage, so a cached result is never served for data that has
+ * since been changed.
+ * <p>
+ * Results, not their serialized form, are cached so a cached result can be
+ * sent in whatever format the request negotiates. Results with more than
+ * {@link #getMaxRows()} rows or triples are not cached, and entries expire
+ * after {@link #getTimeToLive()} milliseconds. A cached model is not itself
+ * handed out; each use gets a copy.
+ * <p>
+ * Only queries whose results depend on nothing but the data are cached
+ * ({@link #isDeterministic}).
+ */
+public class QueryResultCache
+{
+    private static boolean enabled     = false ;
+    private static int maxEntries      = 1000 ;
+    private static int maxRows         = 10000 ;
+    private static long timeToLive     = TimeUnit.MINUTES.toMillis(10) ;
+
+    private static Cache<Key, Entry> cache = CacheFactory.createCache(maxEntries) ;
+    private static final AtomicLong hits    = new AtomicLong(0) ;
+    private static final AtomicLong misses  = new AtomicLong(0) ;
+
+    private QueryResultCache() {}
+
+    /** Whether query results are cached. Off by default. */
+    public static boolean isEnabled()                   { return enabled ; }
+
+    public static void setEnabled(boolean enabled) {
+        QueryResultCache.enabled = enabled ;
+        if ( ! enabled )
+            clear() ;
+    }
+
+    /** Maximum number of cached results. */
+    public static int getMaxEntries()                   { return maxEntries ; }
+
+    public static synchronized void setMaxEntries(int maxEntries) {
+        if ( maxEntries <= 0 )
+            throw new IllegalArgumentException("Maximum entries must be greater than zero") ;
+        QueryResultCache.maxEntries = maxEntries ;
+        cache = CacheFactory.createCache(maxEntries) ;
+    }
+
+    /** Maximum number of rows, or triples, in a result for it to be cached. */
+    public static int getMaxRows()                      { return maxRows ; }
+
+    public static void setMaxRows(int maxRows)          { QueryResultCache.maxRows = maxRows ; }
+
+    /** Time in milliseconds for which a cached result may be used. */
+    public static long getTimeToLive()                  { return timeToLive ; }
+
+    public static void setTimeToLive(long timeToLive)   { QueryResultCache.timeToLive = timeToLive ; }
+
+    public static synchronized void clear()             { cache.clear() ; }
+
+    public static synchronized long size()              { return cache.size() ; }
+
+    public static long getHits()                        { return hits.get() ; }
+
+    public static long getMisses()                      { return misses.get() ; }
+
+    /** The generation of the data of the action's dataset, or -1 if a write
+     * transaction is active and so the generation is about to change.
+     */
+    public static long generation(HttpAction action) {
+        DataService dataService = action.getDataService() ;
+        if ( dataService == null )
+            return -1 ;
+        if ( dataService.activeWriteTxn.get() > 0 )
+            return -1 ;
+        long gen = dataService.dataGeneration.get() ;
+        DatasetGraph dsg = unwrap(dataService.getDataset()) ;
+        if ( dsg instanceof DatasetGraphTransaction ) {
+            SysTxnState state = ((DatasetGraphTransaction)dsg).getTransMgrState() ;
+            if ( state != null ) {
+                if ( state.activeWriters > 0 )
+                    return -1 ;
+                gen += state.committedWriters ;
+            }
+        }
+        return gen ;
+    }
+
+    private static DatasetGraph unwrap(DatasetGraph dsg) {
+        while ( dsg instanceof DatasetGraphWrapper )
+            dsg = ((DatasetGraphWrapper)dsg).getWrapped() ;
+        return dsg ;
+    }
+
+    /** Whether the results of a query depend only on the data of the dataset:
+     * see {@link OpDeterministic}.
+     */
+    public static boolean isDeterministic(Query query) {
+        return OpDeterministic.isDeterministic(QueryCache.compile(query)) ;
+    }
+
+    /** Key for a query on the action's dataset at a data generation. */
+    public static Key key(HttpAction action, Query query, long generation) {
+        if ( ! enabled || generation < 0 )
+            return null ;
+        // The algebra does not include the CONSTRUCT template or the DESCRIBE
+        // resources, so those forms are also keyed on the query itself.
+        String form = ( query.isSelectType() || query.isAskType() ) ? null : query.serialize() ;
+        return new Key(action.getDataService(), generation, query.getQueryType(), form, QueryCache.compile(query)) ;
+    }
+
+    /** Get a cached result, or null. */
+    public static SPARQLResult get(Key key) {
+        Entry entry ;
+        synchronized(QueryResultCache.class) {
+            entry = cache.get(key) ;
+            if ( entry != null && entry.expires < System.currentTimeMillis() ) {
+                cache.remove(key) ;
+                entry = null ;
+            }
+        }
+        if ( entry == null ) {
+            misses.incrementAndGet() ;
+            return null ;
+        }
+        hits.incrementAndGet() ;
+        return entry.result() ;
+    }
+
+    /** Arrange for the result to be cached, returning the result to send.
+     * A result set is recorded as it is sent and cached when it has been
+     * completely sent.
+     */
+    public static SPARQLResult record(Key key, SPARQLResult result) {
+        if ( result.isResultSet() )
+            return new SPARQLResult(new RecordingResultSet(key, result.getResultSet())) ;
+        if ( result.isGraph() ) {
+            if ( result.getModel().size() <= maxRows )
+                put(key, new Entry(result.getModel())) ;
+        } else if ( result.isBoolean() )
+            put(key, new Entry(result.getBooleanResult())) ;
+        return result ;
+    }
+
+    private static synchronized void put(Key key, Entry entry) {
+        cache.put(key, entry) ;
+    }
+
+    public static final class Key
+    {
+        private final DataService dataService ;
+        private final long generation ;
+        private final int queryType ;
+        private final String form ;
+        private final Op op ;
+
+        private Key(DataService dataService, long generation, int queryType, String form, Op op) {
+            this.dataService = dataService ;
+            this.generation = generation ;
+            this.queryType = queryType ;
+            this.form = form ;
+            this.op = op ;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(dataService) ^ (int)(generation ^ (generation >>> 32)) ^ queryType ^ op.hashCode() ;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if ( this == other ) return true ;
+            if ( ! ( other instanceof Key ) ) return false ;
+            Key k = (Key)other ;
+            return dataService == k.dataService && generation == k.generation
+                && queryType == k.queryType && Lib.equal(form, k.form) && Lib.equal(op, k.op) ;
+        }
+    }
+
+    private static final class Entry
+    {
+        final long expires = System.currentTimeMillis() + timeToLive ;
+        final List<String> vars ;
+        final List<Binding> rows ;
+        final Model model ;
+        final Boolean bool ;
+
+        Entry(List<String> vars, List<Binding> rows) { this.vars = vars ; this.rows = rows ; this.model = null ; this.bool = null ; }
+        Entry(Model model)                           { this.vars = null ; this.rows = null ; this.model = model ; this.bool = null ; }
+        Entry(boolean bool)                          { this.vars = null ; this.rows = null ; this.model = null ; this.bool = bool ; }
+
+        SPARQLResult result() {
+            if ( rows != null )
+                return new SPARQLResult(new ResultSetStream(vars, null, new QueryIterPlainWrapper(rows.iterator()))) ;
+            if ( model != null ) {
+                // The cached model is shared: each use gets its own copy.
+                Model copy = ModelFactory.createDefaultModel() ;
+                copy.setNsPrefixes(model) ;
+                copy.add(model) ;
+                return new SPARQLResult(copy) ;
+            }
+            return new SPARQLResult(bool) ;
+        }
+    }
+
+    /** Pass through a result set, keeping the rows and caching them when
+     * the end is reached, unless there are too many. */
+    private static class RecordingResultSet implements ResultSet
+    {
+        private final Key key ;
+        private final ResultSet rs ;
+        private List<Binding> rows = new ArrayList<>() ;
+
+        RecordingResultSet(Key key, ResultSet rs) {
+            this.key = key ;
+            this.rs = rs ;
+        }
+
+        @Override
+        public boolean hasNext() {
+            boolean b = rs.hasNext() ;
+            if ( ! b && rows != null ) {
+                put(key, new Entry(rs.getResultVars(), rows)) ;
+                rows = null ;
+            }
+            return b ;
+        }
+
+        @Override
+        public Binding nextBinding() {
+            Binding b = rs.nextBinding() ;
+            if ( rows != null ) {
+                // Copy, the binding may refer to storage of the transaction.
+                if ( rows.size() < maxRows )
+                    rows.add(BindingFactory.materialize(b)) ;
+                else
+                    rows = null ;
+            }
+            return b ;
+        }
+
+        @Override
+        public QuerySolution next()             { return new ResultBinding(rs.getResourceModel(), nextBinding()) ; }
+
+        @Override
+        public QuerySolution nextSolution()     { return next() ; }
+
+        @Override
+        public int getRowNumber()               { return rs.getRowNumber() ; }
+
+        @Override
+        public List<String> getResultVars()     { return rs.getResultVars() ; }
+
+        @Override
+        public Model getResourceModel()         { return rs.getResourceModel() ; }
+
+        @Override
+        public void remove()                    { throw new UnsupportedOperationException() ; }
+    }
+}
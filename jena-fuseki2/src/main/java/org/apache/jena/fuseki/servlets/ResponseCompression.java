@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.fuseki.servlets;
+
+import java.io.IOException ;
+import java.io.OutputStream ;
+import java.util.zip.CRC32 ;
+import java.util.zip.Deflater ;
+import java.util.zip.DeflaterOutputStream ;
+
+import javax.servlet.ServletOutputStream ;
+import javax.servlet.WriteListener ;
+import javax.servlet.http.HttpServletRequest ;
+
+import org.apache.jena.riot.web.HttpNames ;
+
+/** Content encoding of responses, negotiated per request from the
+ * Accept-Encoding header.
+ * <p>
+ * The response is compressed as it is written, in blocks of
+ * {@link #bufferSize} bytes, so results are sent, chunked, while they are
+ * being produced.
+ * <p>
+ * The compressor's native memory is released when the response is finished,
+ * or abandoned for an error response, not left for the garbage collector.
+ */
+public class ResponseCompression
+{
+    public static final String encGZip          = "gzip" ;
+    public static final String encDeflate       = "deflate" ;
+    public static final String hContentEncoding = "Content-Encoding" ;
+
+    /** Compress responses if the client accepts it. */
+    public static boolean enabled = true ;
+
+    /** Size of the compression buffer, which is also the size of the chunks sent. */
+    public static int bufferSize = 64*1024 ;
+
+    /** Choose the content encoding for the response to a request.
+     * @return The encoding, or null for none.
+     */
+    public static String negotiate(HttpServletRequest request) {
+        if ( ! enabled )
+            return null ;
+        if ( HttpNames.METHOD_HEAD.equalsIgnoreCase(request.getMethod()) )
+            return null ;
+        String header = request.getHeader(HttpNames.hAcceptEncoding) ;
+        if ( header == null )
+            return null ;
+        double qGZip = -1 ;
+        double qDeflate = -1 ;
+        double qAny = -1 ;
+        for ( String item : header.split(",") ) {
+            String[] parts = item.split(";") ;
+            String coding = parts[0].trim().toLowerCase() ;
+            double q = 1 ;
+            for ( int i = 1 ; i < parts.length ; i++ ) {
+                String p = parts[i].trim() ;
+                if ( p.startsWith("q=") ) {
+                    try { q = Double.parseDouble(p.substring(2)) ; }
+                    catch (NumberFormatException ex) { q = 0 ; }
+                }
+            }
+            switch (coding) {
+                case encGZip: case "x-gzip":    qGZip = q ;     break ;
+                case encDeflate:                qDeflate = q ;  break ;
+                case "*":                       qAny = q ;      break ;
+            }
+        }
+        if ( qGZip < 0 )
+            qGZip = qAny ;
+        if ( qDeflate < 0 )
+            qDeflate = qAny ;
+        if ( qGZip <= 0 && qDeflate <= 0 )
+            return null ;
+        return ( qGZip >= qDeflate ) ? encGZip : encDeflate ;
+    }
+
+    /** Wrap an output stream to compress with the given encoding. */
+    public static ServletOutputStream compress(ServletOutputStream out, String encoding) throws IOException {
+        switch (encoding) {
+            case encGZip: {
+                // Raw deflate data; GZipStream adds the gzip header and trailer.
+                Deflater def = new Deflater(Deflater.DEFAULT_COMPRESSION, true) ;
+                return new CompressedOutputStream(out, new GZipStream(out, def, bufferSize), def) ;
+            }
+            case encDeflate: {
+                Deflater def = new Deflater() ;
+                return new CompressedOutputStream(out, new DeflaterOutputStream(out, def, bufferSize, true), def) ;
+            }
+            default:
+                throw new IllegalArgumentException("Unsupported content encoding: "+encoding) ;
+        }
+    }
+
+    /** The compressing stream for a response.
+     * {@link #finish} completes the compressed data without closing the response;
+     * {@link #abandon} stops without completing it.  Either releases the compressor.
+     */
+    static class CompressedOutputStream extends ServletOutputStream
+    {
+        private final ServletOutputStream base ;
+        private final DeflaterOutputStream out ;
+        private final Deflater def ;
+        private boolean finished = false ;
+
+        CompressedOutputStream(ServletOutputStream base, DeflaterOutputStream out, Deflater def) {
+            this.base = base ;
+            this.out = out ;
+            this.def = def ;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            checkNotFinished() ;
+            out.write(b) ;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            checkNotFinished() ;
+            out.write(b, off, len) ;
+        }
+
+        private void checkNotFinished() throws IOException {
+            if ( finished )
+                throw new IOException("Compressed response already finished") ;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if ( ! finished )
+                out.flush() ;
+        }
+
+        public void finish() throws IOException {
+            if ( finished )
+                return ;
+            finished = true ;
+            try { out.finish() ; }
+            finally { def.end() ; }
+            base.flush() ;
+        }
+
+        /** Stop compressing, without writing the end of the compressed data. */
+        public void abandon() {
+            if ( finished )
+                return ;
+            finished = true ;
+            def.end() ;
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish() ;
+            base.close() ;
+        }
+
+        @Override
+        public boolean isReady()                                { return base.isReady() ; }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) { base.setWriteListener(writeListener) ; }
+    }
+
+    /** The gzip format (RFC 1952) around raw deflate data from a given Deflater,
+     * which, unlike that of {@link java.util.zip.GZIPOutputStream}, the caller can end. */
+    static class GZipStream extends DeflaterOutputStream
+    {
+        private static final byte[] header = { 0x1f, (byte)0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 } ;
+        private final CRC32 crc = new CRC32() ;
+        private boolean finished = false ;
+
+        GZipStream(OutputStream out, Deflater def, int size) throws IOException {
+            super(out, def, size, true) ;
+            out.write(header) ;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            super.write(b, off, len) ;
+            crc.update(b, off, len) ;
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if ( finished )
+                return ;
+            finished = true ;
+            super.finish() ;
+            writeInt((int)crc.getValue()) ;
+            writeInt((int)def.getBytesRead()) ;
+        }
+
+        private void writeInt(int x) throws IOException {
+            // Little endian.
+            out.write(x & 0xFF) ;
+            out.write((x >> 8) & 0xFF) ;
+            out.write((x >> 16) & 0xFF) ;
+            out.write((x >> 24) & 0xFF) ;
+        }
+    }
+}
@@ -131,6 +131,10 @@ public class SPARQL_GSP_RW extends SPARQL_GSP_R
             upload.setExistedBefore(existedBefore) ;
             action.commit() ;
             return upload ;
+        } catch (ActionErrorException ex) {
+            // Parse error or too much data, already mapped to a response.
+            action.abort() ;
+            throw ex ;
         } catch (RiotException ex) { 
             // Parse error
             action.abort() ;
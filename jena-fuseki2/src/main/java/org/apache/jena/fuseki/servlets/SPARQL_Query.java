@@ -49,6 +49,7 @@ import org.apache.jena.atlas.web.ContentType ;
 import org.apache.jena.fuseki.Fuseki ;
 import org.apache.jena.fuseki.FusekiException ;
 import org.apache.jena.fuseki.FusekiLib ;
+import org.apache.jena.fuseki.async.AsyncRequests ;
 import org.apache.jena.riot.web.HttpNames ;
 import org.apache.jena.riot.web.HttpOp ;
 import org.apache.jena.web.HttpSC ;
@@ -56,7 +57,10 @@ import org.apache.jena.web.HttpSC ;
 import com.hp.hpl.jena.query.* ;
 import com.hp.hpl.jena.rdf.model.Model ;
 import com.hp.hpl.jena.sparql.core.Prologue ;
+import com.hp.hpl.jena.sparql.engine.QueryCache ;
+import com.hp.hpl.jena.sparql.engine.main.QueryProfile ;
 import com.hp.hpl.jena.sparql.resultset.SPARQLResult ;
+import com.hp.hpl.jena.sparql.util.Context ;
 
 /** Handle SPARQL Query requests overt eh SPARQL Protocol. 
  * Subclasses provide this algorithm with the actual dataset to query, whether
@@ -118,11 +122,16 @@ public abstract class SPARQL_Query extends SPARQL_Protocol
         ServletOps.error(HttpSC.UNSUPPORTED_MEDIA_TYPE_415, "Bad content type: " + incoming) ;
     }
 
+    /** Request parameter: if "true", record an execution profile of the query.
+     * The profile is available from the admin service by the request id. */
+    public static final String paramProfile = "profile" ;
+
     // All the params we support
 
     protected static List<String> allParams = Arrays.asList(paramQuery, paramDefaultGraphURI, paramNamedGraphURI,
                                                             paramQueryRef, paramStyleSheet, paramAccept, paramOutput1,
-                                                            paramOutput2, paramCallback, paramForceAccept, paramTimeout) ;
+                                                            paramOutput2, paramCallback, paramForceAccept, paramTimeout,
+                                                            paramProfile) ;
 
     /**
      * Validate the request, checking HTTP method and HTTP Parameters.
@@ -205,6 +214,15 @@ public abstract class SPARQL_Query extends SPARQL_Protocol
         }
     }
 
+    /** The query string, when it is a parameter of the request */
+    @Override
+    protected String requestKey(HttpAction action) {
+        ContentType ct = FusekiLib.getContentType(action.request) ;
+        if ( ct != null && matchContentType(ctSPARQLQuery, ct) )
+            return null ;
+        return action.request.getParameter(paramQuery) ;
+    }
+
     private void executeWithParameter(HttpAction action) {
         String queryString = action.request.getParameter(paramQuery) ;
         execute(queryString, action) ;
@@ -231,7 +249,8 @@ public abstract class SPARQL_Query extends SPARQL_Protocol
         Query query = null ;
         try {
             // NB syntax is ARQ (a superset of SPARQL)
-            query = QueryFactory.create(queryString, QueryParseBase, Syntax.syntaxARQ) ;
+            // The query may be shared with other requests and must not be modified.
+            query = QueryCache.parse(queryString, QueryParseBase, Syntax.syntaxARQ) ;
             queryStringLog = formatForLog(query) ;
             validateQuery(action, query) ;
         } catch (ActionErrorException ex) {
@@ -245,13 +264,42 @@ public abstract class SPARQL_Query extends SPARQL_Protocol
         }
 
         // Assumes finished whole thing by end of sendResult.
+        long generation = cacheable(action, query) ? QueryResultCache.generation(action) : -1 ;
         try {
             action.beginRead() ;
+            // Only cache if the data did not change while starting the read.
+            QueryResultCache.Key cacheKey = null ;
+            if ( generation >= 0 && generation == QueryResultCache.generation(action) )
+                cacheKey = QueryResultCache.key(action, query, generation) ;
+            if ( cacheKey != null ) {
+                SPARQLResult result = QueryResultCache.get(cacheKey) ;
+                if ( result != null ) {
+                    action.log.info(format("[%d] exec/cached", action.id)) ;
+                    sendResults(action, result, query.getPrologue()) ;
+                    return ;
+                }
+            }
             Dataset dataset = decideDataset(action, query, queryStringLog) ;
+            Context context ;
             try ( QueryExecution qExec = createQueryExecution(query, dataset) ; ) {
-                SPARQLResult result = executeQuery(action, qExec, query, queryStringLog) ;
-                // Deals with exceptions itself.
-                sendResults(action, result, query.getPrologue()) ;
+                // Aborted if the request times out while executing asynchronously.
+                AsyncRequests.setQueryExecution(qExec) ;
+                try {
+                    context = qExec.getContext() ;
+                    if ( profiling(action) )
+                        context.set(ARQ.profile, true) ;
+                    SPARQLResult result = executeQuery(action, qExec, query, queryStringLog) ;
+                    if ( cacheKey != null )
+                        result = QueryResultCache.record(cacheKey, result) ;
+                    // Deals with exceptions itself.
+                    sendResults(action, result, query.getPrologue()) ;
+                } finally { AsyncRequests.setQueryExecution(null) ; }
+            }
+            // The profile is complete when the query execution has been closed.
+            QueryProfile profile = QueryProfile.get(context) ;
+            if ( profile != null ) {
+                action.log.info(format("[%d] Profile = \n%s", action.id, profile)) ;
+                QueryProfiles.record(action, queryString, profile) ;
             }
         } catch (QueryCancelledException ex) {
             // Additional counter information.
@@ -260,6 +308,21 @@ public abstract class SPARQL_Query extends SPARQL_Protocol
         } finally { action.endRead() ; }
     }
 
+    private static boolean profiling(HttpAction action) {
+        String x = action.request.getParameter(paramProfile) ;
+        return x != null && x.equalsIgnoreCase("true") ;
+    }
+
+    /**
+     * Whether the results of the query may be served from, and added to, the
+     * {@link QueryResultCache}. The default is no.
+     * @param action HTTP Action
+     * @param query  SPARQL Query
+     */
+    protected boolean cacheable(HttpAction action, Query query) {
+        return false ;
+    }
+
     /**
      * Check the query - if unacceptable, throw ActionErrorException or call
      * super.error
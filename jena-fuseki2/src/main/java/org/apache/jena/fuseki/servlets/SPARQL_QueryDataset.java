@@ -40,6 +40,18 @@ public class SPARQL_QueryDataset extends SPARQL_Query
     protected void validateQuery(HttpAction action, Query query) 
     { }
    
+    /** Cache results of queries on the hosted dataset, when the cache is
+     * enabled, unless the request or query describes another dataset or the
+     * results do not depend only on the data */
+    @Override
+    protected boolean cacheable(HttpAction action, Query query)
+    {
+        return QueryResultCache.isEnabled()
+            && ! query.hasDatasetDescription()
+            && getDatasetDescription(action) == null
+            && QueryResultCache.isDeterministic(query) ;
+    }
+
     @Override
     protected Dataset decideDataset(HttpAction action, Query query, String queryStringLog) 
     { 
@@ -125,32 +125,13 @@ public class SPARQL_Upload extends ActionSPARQL
      * are caught before inserting any data. 
      */
      private static long uploadNonTxn(HttpAction action, String base) {
-         UploadDetails upload = uploadWorker(action, base) ;
-         String graphName = upload.graphName ;
-         DatasetGraph dataTmp = upload.data ;
-         long count = upload.count ;
-         
-         if ( graphName == null )
-             action.log.info(format("[%d] Upload: %d Quads(s)",action.id, count)) ;
-         else
-             action.log.info(format("[%d] Upload: Graph: %s, %d triple(s)", action.id, graphName,  count)) ;
-
-         Node gn = null ;
-         if ( graphName != null ) {
-             gn = graphName.equals(HttpNames.valueDefault)
-                 ? Quad.defaultGraphNodeGenerated 
-                 : NodeFactory.createURI(graphName) ;
-         }
-
+         UploadDetails upload = uploadWorker(action, base, null) ;
+         logUpload(action, upload) ;
          action.beginWrite() ;
          try {
-             if ( gn != null )
-                 FusekiLib.addDataInto(dataTmp.getDefaultGraph(), action.getActiveDSG(), gn) ;
-             else
-                 FusekiLib.addDataInto(dataTmp, action.getActiveDSG()) ;
-
+             addBuffered(action, upload) ;
              action.commit() ;
-             return count ;
+             return upload.count ;
          } catch (RuntimeException ex)
         {
             // If anything went wrong, try to backout.
@@ -161,19 +142,55 @@ public class SPARQL_Upload extends ActionSPARQL
         finally { action.endWrite() ; }
     }
 
-     /** Transactional - we'd like data to go straight to the destination, with an abort on parse error.
-      * But file upload with a name means that the name can be after the data
-      * (it is in the Fuseki default pages).
-      * Use Graph Store protocol for bulk uploads.
-      * (It would be possible to process the incoming stream and see the graph name first.)
+     /** Transactional - data goes straight to the destination, with an abort on parse error,
+      * when the destination is known before the data: the data is quads, or the graph name
+      * field is before the file. Otherwise, the file upload has the name after the data, so
+      * the data is first parsed to a temporary dataset. 
       */
       private static long uploadTxn(HttpAction action, String base) {
-          // We can't do better than the non-transaction approach.
-          return uploadNonTxn(action, base) ;
+          action.beginWrite() ;
+          try {
+              UploadDetails upload = uploadWorker(action, base, action.getActiveDSG()) ;
+              logUpload(action, upload) ;
+              addBuffered(action, upload) ;
+              action.commit() ;
+              return upload.count ;
+          } catch (ActionErrorException ex) {
+              action.abort() ;
+              throw ex ;
+          } catch (RuntimeException ex) {
+              action.abort() ;
+              ServletOps.errorOccurred(ex.getMessage()) ;
+              return -1 ;
+          } finally { action.endWrite() ; }
+      }
+
+      private static void logUpload(HttpAction action, UploadDetails upload) {
+          if ( upload.graphName == null )
+              action.log.info(format("[%d] Upload: %d Quads(s)",action.id, upload.count)) ;
+          else
+              action.log.info(format("[%d] Upload: Graph: %s, %d triple(s)", action.id, upload.graphName,  upload.count)) ;
+      }
+
+      /** Add any data parsed to a temporary dataset to the dataset of the action. */
+      private static void addBuffered(HttpAction action, UploadDetails upload) {
+          if ( upload.data == null )
+              return ;
+          if ( upload.graphName != null )
+              FusekiLib.addDataInto(upload.data.getDefaultGraph(), action.getActiveDSG(), graphNode(upload.graphName)) ;
+          else
+              FusekiLib.addDataInto(upload.data, action.getActiveDSG()) ;
+      }
+
+      private static Node graphNode(String graphName) {
+          return graphName.equals(HttpNames.valueDefault)
+              ? Quad.defaultGraphNodeGenerated 
+              : NodeFactory.createURI(graphName) ;
       }
      
     static class UploadDetails {
         final String graphName  ;
+        // Null if the data went straight to the destination.
         final DatasetGraph data ;
         final long count ;
         UploadDetails(String gn, DatasetGraph dsg, long parserCount) {
@@ -184,15 +201,19 @@ public class SPARQL_Upload extends ActionSPARQL
     }
       
     /** Process an HTTP file upload of RDF with additiona name field for the graph name.
-     *  We can't stream straight into a dataset because the graph name can be after the data. 
+     *  Data is parsed straight into the destination, if there is one, when it is quads
+     *  or the graph name has already been seen; otherwise it is parsed into a temporary
+     *  dataset because the graph name can be after the data. 
+     *  @param destination Dataset to parse into, or null to always use a temporary dataset. 
      *  @return graph name and count
      */
     
     // ?? Combine with Upload.fileUploadWorker
     // Difference is the handling of names for graphs.  
-    static private UploadDetails uploadWorker(HttpAction action, String base)
+    static private UploadDetails uploadWorker(HttpAction action, String base, DatasetGraph destination)
     {
-        DatasetGraph dsgTmp = DatasetGraphFactory.createMem() ;
+        DatasetGraph dsgTmp = null ;
+        boolean graphNameSeen = false ;
         ServletFileUpload upload = new ServletFileUpload();
         String graphName = null ;
         boolean isQuads = false ;
@@ -215,6 +236,7 @@ public class SPARQL_Upload extends ActionSPARQL
                     if ( fieldName.equals(HttpNames.paramGraph) )
                     {
                         graphName = value ;
+                        graphNameSeen = true ;
                         if ( graphName != null && ! graphName.equals("") && ! graphName.equals(HttpNames.valueDefault) )
                         {
                             IRI iri = IRIResolver.parseIRI(value) ;
@@ -234,8 +256,10 @@ public class SPARQL_Upload extends ActionSPARQL
                             } 
                         }
                     }
-                    else if ( fieldName.equals(HttpNames.paramDefaultGraphURI) )
+                    else if ( fieldName.equals(HttpNames.paramDefaultGraphURI) ) {
                         graphName = null ;
+                        graphNameSeen = true ;
+                    }
                     else
                         // Add file type?
                         action.log.info(format("[%d] Upload: Field=%s ignored", action.id, fieldName)) ;
@@ -268,7 +292,20 @@ public class SPARQL_Upload extends ActionSPARQL
                     action.log.info(format("[%d] Upload: Filename: %s, Content-Type=%s, Charset=%s => %s", 
                                     action.id, name,  ct.getContentType(), ct.getCharset(), lang.getName())) ;
                     
-                    StreamRDF x = StreamRDFLib.dataset(dsgTmp) ;
+                    StreamRDF x ;
+                    if ( destination != null && isQuads )
+                        x = StreamRDFLib.dataset(destination) ;
+                    else if ( destination != null && graphNameSeen ) {
+                        if ( graphName == null || graphName.equals("") || graphName.equals(HttpNames.valueDefault) )
+                            x = StreamRDFLib.graph(destination.getDefaultGraph()) ;
+                        else
+                            x = StreamRDFLib.graph(destination.getGraph(NodeFactory.createURI(graphName))) ;
+                    } else {
+                        if ( dsgTmp == null )
+                            dsgTmp = DatasetGraphFactory.createMem() ;
+                        x = StreamRDFLib.dataset(dsgTmp) ;
+                    }
+                    x = StreamRDFLib.limit(x, Upload.getMaxTuples()) ;
                     StreamRDFCounting dest =  StreamRDFLib.count(x) ;
                     ActionSPARQL.parse(action, dest, stream, lang, base);
                     count = dest.count() ;
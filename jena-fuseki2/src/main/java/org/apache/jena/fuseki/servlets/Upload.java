@@ -42,6 +42,14 @@ import org.apache.jena.riot.system.StreamRDF ;
 import org.apache.jena.riot.system.StreamRDFLib ;
 
 public class Upload {
+    private static volatile long maxTuples = -1 ;
+
+    /** Maximum number of triples and quads accepted by one request, or -1 for no limit.
+     * Requests with more are rejected with 413 (Request Entity Too Large). */
+    public static long getMaxTuples()                   { return maxTuples ; }
+
+    public static void setMaxTuples(long maxTuples)     { Upload.maxTuples = maxTuples ; }
+
     public static UploadDetails incomingData(HttpAction action, StreamRDF dest) {
         ContentType ct = FusekiLib.getContentType(action) ;
         
@@ -67,7 +75,7 @@ public class Upload {
     
         int len = action.request.getContentLength() ;
 
-        StreamRDFCounting countingDest = StreamRDFLib.count(dest) ;
+        StreamRDFCounting countingDest = StreamRDFLib.count(StreamRDFLib.limit(dest, maxTuples)) ;
         try {
             ActionSPARQL.parse(action, countingDest, input, lang, base) ;
             UploadDetails details = new UploadDetails(countingDest.count(), countingDest.countTriples(),countingDest.countQuads()) ;
@@ -94,7 +102,7 @@ public class Upload {
         //log.info(format("[%d] Upload: Field=%s ignored", action.id, fieldName)) ;
         
         // Overall counting.
-        StreamRDFCounting countingDest =  StreamRDFLib.count(dest) ;
+        StreamRDFCounting countingDest =  StreamRDFLib.count(StreamRDFLib.limit(dest, maxTuples)) ;
         
         try {
             FileItemIterator iter = upload.getItemIterator(action.request);
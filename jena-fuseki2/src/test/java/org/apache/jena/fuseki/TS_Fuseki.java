@@ -22,6 +22,7 @@ import org.apache.jena.atlas.logging.LogCtl ;
 import org.apache.jena.fuseki.http.TestDatasetAccessorHTTP ;
 import org.apache.jena.fuseki.http.TestDatasetGraphAccessorHTTP ;
 import org.apache.jena.fuseki.http.TestHttpOp ;
+import org.apache.jena.fuseki.servlets.TestResponseCompression ;
 import org.junit.BeforeClass ;
 import org.junit.runner.RunWith ;
 import org.junit.runners.Suite ;
@@ -38,6 +39,9 @@ import org.junit.runners.Suite ;
     , TestDatasetOps.class
     , TestFileUpload.class
     , TestAdmin.class
+    , TestAdmissionControl.class
+    , TestAsyncRequests.class
+    , TestResponseCompression.class
 })
 public class TS_Fuseki extends ServerTest
 { 
@@ -21,6 +21,7 @@ package org.apache.jena.fuseki;
 import static org.apache.jena.fuseki.ServerTest.datasetPath ;
 import static org.apache.jena.fuseki.ServerTest.urlRoot ;
 import static org.apache.jena.fuseki.mgt.MgtConst.opDatasets ;
+import static org.apache.jena.fuseki.mgt.MgtConst.opMetrics ;
 import static org.apache.jena.fuseki.mgt.MgtConst.opPing ;
 import static org.apache.jena.fuseki.mgt.MgtConst.opServer ;
 import static org.apache.jena.fuseki.mgt.MgtConst.opStats ;
@@ -281,6 +282,19 @@ public class TestAdmin extends BaseTest {
         deleteDataset(dsTest) ;
     }
 
+    // ---- Metrics
+
+    @Test public void metrics_1() {
+        JsonValue v = execGetJSON(urlRoot+"$/"+opMetrics) ;
+        assertTrue(v.isObject()) ;
+        JsonObject obj = v.getAsObject() ;
+        assertTrue(obj.hasKey("blockCache")) ;
+        assertTrue(obj.hasKey("nodeCache")) ;
+        assertTrue(obj.hasKey("bptreePageReads")) ;
+        assertTrue(obj.get("sync").getAsObject().hasKey("count")) ;
+        assertTrue(obj.get(JsonConst.datasets).isObject()) ;
+    }
+
     // Sync task testing
     
     @Test public void task_1() {
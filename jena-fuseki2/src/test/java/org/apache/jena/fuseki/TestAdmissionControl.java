@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.fuseki;
+
+import java.util.ArrayList ;
+import java.util.Collections ;
+import java.util.List ;
+import java.util.concurrent.CountDownLatch ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.fuseki.server.AdmissionControl ;
+import org.junit.Test ;
+
+public class TestAdmissionControl extends BaseTest
+{
+    @Test public void admission_01() {
+        AdmissionControl ac = new AdmissionControl(2, 0, 100) ;
+        assertTrue(ac.admit(null)) ;
+        assertTrue(ac.admit(null)) ;
+        // No queue.
+        assertFalse(ac.admit(null)) ;
+        ac.release() ;
+        assertTrue(ac.admit(null)) ;
+        assertEquals(3, ac.getAdmitted()) ;
+        assertEquals(1, ac.getRejected()) ;
+    }
+
+    @Test public void admission_02() {
+        // Waits, then gives up.
+        AdmissionControl ac = new AdmissionControl(1, 10, 50) ;
+        assertTrue(ac.admit(null)) ;
+        long start = System.currentTimeMillis() ;
+        assertFalse(ac.admit(null)) ;
+        assertTrue(System.currentTimeMillis()-start >= 50) ;
+        assertEquals(0, ac.getWaiting()) ;
+    }
+
+    @Test public void admission_03() throws Exception {
+        // Waits, then is admitted.
+        final AdmissionControl ac = new AdmissionControl(1, 10, 5000) ;
+        assertTrue(ac.admit(null)) ;
+        Thread t = new Thread() {
+            @Override public void run() {
+                try { Thread.sleep(50) ; } catch (InterruptedException ex) {}
+                ac.release() ;
+            }
+        } ;
+        t.start() ;
+        assertTrue(ac.admit(null)) ;
+        assertEquals(1, ac.getRunning()) ;
+        t.join() ;
+    }
+
+    @Test public void admission_04() throws Exception {
+        // Shorter requests go first.
+        final AdmissionControl ac = new AdmissionControl(1, 10, 5000) ;
+        ac.record("long", 10000) ;
+        ac.record("short", 1) ;
+        assertTrue(ac.admit(null)) ;
+
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>()) ;
+        final CountDownLatch done = new CountDownLatch(2) ;
+        Thread t1 = waiter(ac, "long", order, done) ;
+        t1.start() ;
+        while ( ac.getWaiting() < 1 ) Thread.sleep(5) ;
+        Thread t2 = waiter(ac, "short", order, done) ;
+        t2.start() ;
+        while ( ac.getWaiting() < 2 ) Thread.sleep(5) ;
+        ac.release() ;
+        done.await() ;
+        assertEquals("short", order.get(0)) ;
+        assertEquals("long", order.get(1)) ;
+    }
+
+    private static Thread waiter(final AdmissionControl ac, final String key, final List<String> order, final CountDownLatch done) {
+        return new Thread() {
+            @Override public void run() {
+                if ( ac.admit(key) ) {
+                    order.add(key) ;
+                    ac.release() ;
+                }
+                done.countDown() ;
+            }
+        } ;
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void admission_05() {
+        new AdmissionControl(0, 10, 100) ;
+    }
+}
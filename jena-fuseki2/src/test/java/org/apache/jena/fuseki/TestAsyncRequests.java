@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.fuseki;
+
+import java.lang.reflect.InvocationHandler ;
+import java.lang.reflect.Method ;
+import java.lang.reflect.Proxy ;
+import java.util.concurrent.CountDownLatch ;
+import java.util.concurrent.TimeUnit ;
+import java.util.concurrent.atomic.AtomicInteger ;
+
+import javax.servlet.AsyncContext ;
+import javax.servlet.http.HttpServletRequest ;
+import javax.servlet.http.HttpServletResponse ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.fuseki.async.AsyncRequests ;
+import org.apache.jena.fuseki.build.Builder ;
+import org.apache.jena.fuseki.server.FusekiVocab ;
+import org.junit.After ;
+import org.junit.Before ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.query.QueryExecution ;
+import com.hp.hpl.jena.rdf.model.Model ;
+import com.hp.hpl.jena.rdf.model.ModelFactory ;
+import com.hp.hpl.jena.rdf.model.Resource ;
+
+public class TestAsyncRequests extends BaseTest
+{
+    private boolean enabled ;
+    private int maxThreads ;
+    private int maxQueue ;
+    private long timeout ;
+
+    @Before public void before() {
+        enabled = AsyncRequests.isEnabled() ;
+        maxThreads = AsyncRequests.getMaxThreads() ;
+        maxQueue = AsyncRequests.getMaxQueueLength() ;
+        timeout = AsyncRequests.getTimeout() ;
+        AsyncRequests.setEnabled(true) ;
+    }
+
+    @After public void after() {
+        AsyncRequests.setEnabled(enabled) ;
+        AsyncRequests.setMaxThreads(maxThreads) ;
+        AsyncRequests.setMaxQueueLength(maxQueue) ;
+        AsyncRequests.setTimeout(timeout) ;
+    }
+
+    /** The calls made on a request, its response and its asynchronous context. */
+    static class Calls {
+        final AtomicInteger completed = new AtomicInteger(0) ;
+        final AtomicInteger errorStatus = new AtomicInteger(0) ;
+        final CountDownLatch done = new CountDownLatch(1) ;
+    }
+
+    @Test public void async_01() throws Exception {
+        // Timeout while running: the query execution is aborted, and the
+        // request is completed once, by the work.
+        AsyncRequests.setTimeout(50) ;
+        final Calls calls = new Calls() ;
+        final CountDownLatch aborted = new CountDownLatch(1) ;
+        final AtomicInteger completedBeforeEnd = new AtomicInteger(-1) ;
+        AsyncRequests.execute(request(calls), response(calls), new AsyncRequests.RequestWork() {
+            @Override
+            public void exec(HttpServletRequest request, HttpServletResponse response) {
+                AsyncRequests.setQueryExecution(queryExecution(aborted)) ;
+                try { aborted.await(10, TimeUnit.SECONDS) ; }
+                catch (InterruptedException ex) {}
+                completedBeforeEnd.set(calls.completed.get()) ;
+                AsyncRequests.setQueryExecution(null) ;
+            }
+        }) ;
+        assertTrue(calls.done.await(10, TimeUnit.SECONDS)) ;
+        assertEquals(0, aborted.getCount()) ;
+        assertEquals(0, completedBeforeEnd.get()) ;
+        Thread.sleep(50) ;
+        assertEquals(1, calls.completed.get()) ;
+        assertEquals(0, calls.errorStatus.get()) ;
+    }
+
+    @Test public void async_02() throws Exception {
+        // Timeout while waiting for a thread: rejected with 503, and not run.
+        AsyncRequests.setMaxThreads(1) ;
+        // A new pool, without the idle threads of the old one.
+        AsyncRequests.setMaxQueueLength(10) ;
+        AsyncRequests.setTimeout(100) ;
+        final CountDownLatch release = new CountDownLatch(1) ;
+        final AtomicInteger runs = new AtomicInteger(0) ;
+        AsyncRequests.RequestWork work = new AsyncRequests.RequestWork() {
+            @Override
+            public void exec(HttpServletRequest request, HttpServletResponse response) {
+                runs.incrementAndGet() ;
+                try { release.await(10, TimeUnit.SECONDS) ; }
+                catch (InterruptedException ex) {}
+            }
+        } ;
+        Calls calls1 = new Calls() ;
+        Calls calls2 = new Calls() ;
+        AsyncRequests.execute(request(calls1), response(calls1), work) ;
+        AsyncRequests.execute(request(calls2), response(calls2), work) ;
+        assertTrue(calls2.done.await(10, TimeUnit.SECONDS)) ;
+        assertEquals(503, calls2.errorStatus.get()) ;
+        // The running request is not completed until its work has finished.
+        assertEquals(0, calls1.completed.get()) ;
+        release.countDown() ;
+        assertTrue(calls1.done.await(10, TimeUnit.SECONDS)) ;
+        Thread.sleep(50) ;
+        assertEquals(1, runs.get()) ;
+        assertEquals(1, calls1.completed.get()) ;
+        assertEquals(1, calls2.completed.get()) ;
+    }
+
+    @Test public void async_config_01() {
+        AsyncRequests.setEnabled(false) ;
+        Model model = ModelFactory.createDefaultModel() ;
+        Resource server = model.createResource()
+            .addProperty(FusekiVocab.pAsyncRequests, model.createTypedLiteral(true))
+            .addProperty(FusekiVocab.pAsyncMaxThreads, model.createTypedLiteral(7))
+            .addProperty(FusekiVocab.pAsyncTimeout, model.createTypedLiteral(1234)) ;
+        Builder.configureAsyncRequests(server) ;
+        assertTrue(AsyncRequests.isEnabled()) ;
+        assertEquals(7, AsyncRequests.getMaxThreads()) ;
+        assertEquals(1234, AsyncRequests.getTimeout()) ;
+    }
+
+    @Test(expected=FusekiConfigException.class)
+    public void async_config_02() {
+        Model model = ModelFactory.createDefaultModel() ;
+        Resource server = model.createResource()
+            .addProperty(FusekiVocab.pAsyncMaxThreads, model.createTypedLiteral(0)) ;
+        Builder.configureAsyncRequests(server) ;
+    }
+
+    private static QueryExecution queryExecution(final CountDownLatch aborted) {
+        return proxy(QueryExecution.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ( method.getName().equals("abort") )
+                    aborted.countDown() ;
+                return null ;
+            }
+        }) ;
+    }
+
+    private static HttpServletRequest request(final Calls calls) {
+        final AsyncContext asyncContext = proxy(AsyncContext.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ( method.getName().equals("complete") ) {
+                    calls.completed.incrementAndGet() ;
+                    calls.done.countDown() ;
+                }
+                return null ;
+            }
+        }) ;
+        return proxy(HttpServletRequest.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                switch (method.getName()) {
+                    case "isAsyncSupported":    return true ;
+                    case "isAsyncStarted":      return false ;
+                    case "startAsync":          return asyncContext ;
+                    default:                    return null ;
+                }
+            }
+        }) ;
+    }
+
+    private static HttpServletResponse response(final Calls calls) {
+        return proxy(HttpServletResponse.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ( method.getName().equals("sendError") )
+                    calls.errorStatus.set((Integer)args[0]) ;
+                return null ;
+            }
+        }) ;
+    }
+
+    private static <T> T proxy(Class<T> cls, InvocationHandler h) {
+        return cls.cast(Proxy.newProxyInstance(cls.getClassLoader(), new Class<?>[]{cls}, h)) ;
+    }
+}
@@ -19,12 +19,15 @@
 package org.apache.jena.fuseki;
 
 import static org.apache.jena.fuseki.ServerTest.serviceREST ;
+import org.apache.jena.atlas.web.HttpException ;
 import org.apache.jena.atlas.web.TypedInputStream ;
 import org.apache.jena.fuseki.http.TestDatasetAccessorHTTP ;
 import org.apache.jena.fuseki.http.TestHttpOp ;
+import org.apache.jena.fuseki.servlets.Upload ;
 import org.apache.jena.riot.RDFDataMgr ;
 import org.apache.jena.riot.RDFLanguages ;
 import org.apache.jena.riot.web.HttpOp ;
+import org.apache.jena.web.HttpSC ;
 import org.junit.Test ;
 
 import com.hp.hpl.jena.query.DatasetAccessor ;
@@ -125,4 +128,30 @@ public class TestFileUpload extends AbstractFusekiTest
         assertEquals(0, m.size()) ;
     }
 
+    @Test public void upload_limit_01() {
+        Upload.setMaxTuples(1) ;
+        try {
+            HttpOp.execHttpPost(serviceREST+"?default", "text/turtle",
+                                "<http://example/s> <http://example/p> 1, 2 .") ;
+            fail("Upload over the limit accepted") ;
+        } catch (HttpException ex) {
+            assertEquals(HttpSC.REQUEST_ENTITY_TOO_LARGE_413, ex.getResponseCode()) ;
+        } finally {
+            Upload.setMaxTuples(-1) ;
+        }
+        DatasetAccessor du = DatasetAccessorFactory.createHTTP(serviceREST) ;
+        assertEquals(0, du.getModel().size()) ;
+    }
+
+    @Test public void upload_limit_02() {
+        Upload.setMaxTuples(2) ;
+        try {
+            HttpOp.execHttpPost(serviceREST+"?default", "text/turtle",
+                                "<http://example/s> <http://example/p> 1, 2 .") ;
+        } finally {
+            Upload.setMaxTuples(-1) ;
+        }
+        DatasetAccessor du = DatasetAccessorFactory.createHTTP(serviceREST) ;
+        assertEquals(2, du.getModel().size()) ;
+    }
 }
@@ -19,8 +19,11 @@
 package org.apache.jena.fuseki;
 
 import java.io.IOException ;
+import java.io.InputStream ;
 import java.net.HttpURLConnection ;
 import java.net.URL ;
+import java.util.zip.GZIPInputStream ;
+import java.util.zip.InflaterInputStream ;
 
 import static org.apache.jena.fuseki.ServerTest.* ;
 
@@ -28,15 +31,31 @@ import org.junit.AfterClass ;
 import org.junit.Assert ;
 import org.junit.BeforeClass ;
 import org.junit.Test ;
+import org.apache.jena.atlas.io.IO ;
+import org.apache.jena.atlas.json.JSON ;
+import org.apache.jena.atlas.json.JsonObject ;
 import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.atlas.lib.Lib ;
+import org.apache.jena.atlas.web.TypedInputStream ;
+import org.apache.jena.fuseki.async.AsyncRequests ;
+import org.apache.jena.fuseki.mgt.MgtConst ;
+import org.apache.jena.fuseki.servlets.QueryProfiles ;
+import org.apache.jena.fuseki.servlets.QueryResultCache ;
+import org.apache.jena.fuseki.servlets.ResponseCompression ;
+import org.apache.jena.fuseki.servlets.SPARQL_Query ;
+import org.apache.jena.riot.web.HttpOp ;
 import com.hp.hpl.jena.query.* ;
+import com.hp.hpl.jena.rdf.model.Model ;
 import com.hp.hpl.jena.sparql.core.Var ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.http.QueryEngineHTTP ;
 import com.hp.hpl.jena.sparql.resultset.ResultSetCompare ;
 import com.hp.hpl.jena.sparql.sse.Item ;
 import com.hp.hpl.jena.sparql.sse.SSE ;
 import com.hp.hpl.jena.sparql.sse.builders.BuilderResultSet ;
 import com.hp.hpl.jena.sparql.util.Convert ;
+import com.hp.hpl.jena.update.UpdateExecutionFactory ;
+import com.hp.hpl.jena.update.UpdateFactory ;
 
 public class TestQuery extends BaseTest 
 {
@@ -67,6 +86,17 @@ public class TestQuery extends BaseTest
         execQuery("SELECT * {?s ?p ?o}", 1) ;
     }
     
+    @Test public void query_async_01()
+    {
+        // Executed on a Fuseki thread, not the container's.
+        boolean enabled = AsyncRequests.isEnabled() ;
+        AsyncRequests.setEnabled(true) ;
+        try {
+            execQuery("SELECT * {?s ?p ?o}", 1) ;
+            execQuery("SELECT * {?s ?p ?o FILTER(false)}", 0) ;
+        } finally { AsyncRequests.setEnabled(enabled) ; }
+    }
+
     @Test public void query_recursive_01()
     {
         String query = "SELECT * WHERE { SERVICE <" + serviceQuery + "> { ?s ?p ?o . BIND(?o AS ?x) } }";
@@ -97,19 +127,137 @@ public class TestQuery extends BaseTest
         Assert.assertTrue(conn.getHeaderField("Fuseki-Request-ID") != null);
     }
 
+    @Test public void query_compressed_01() throws IOException
+    {
+        String qs = Convert.encWWWForm("SELECT * {?s ?p ?o}") ;
+        URL u = new URL(serviceQuery+"?query="+qs);
+        HttpURLConnection conn = (HttpURLConnection) u.openConnection();
+        conn.setRequestProperty("Accept-Encoding", "deflate;q=0.5, gzip") ;
+        conn.setRequestProperty("Accept", "application/sparql-results+json") ;
+        assertEquals(ResponseCompression.encGZip, conn.getHeaderField("Content-Encoding")) ;
+        try ( InputStream in = new GZIPInputStream(conn.getInputStream()) ) {
+            ResultSet rs = ResultSetFactory.fromJSON(in) ;
+            assertEquals(1, ResultSetFormatter.consume(rs)) ;
+        }
+    }
+
+    @Test public void query_compressed_02() throws IOException
+    {
+        String qs = Convert.encWWWForm("SELECT * {?s ?p ?o}") ;
+        URL u = new URL(serviceQuery+"?query="+qs);
+        HttpURLConnection conn = (HttpURLConnection) u.openConnection();
+        conn.setRequestProperty("Accept-Encoding", "gzip;q=0, deflate") ;
+        conn.setRequestProperty("Accept", "application/sparql-results+json") ;
+        assertEquals(ResponseCompression.encDeflate, conn.getHeaderField("Content-Encoding")) ;
+        try ( InputStream in = new InflaterInputStream(conn.getInputStream()) ) {
+            ResultSet rs = ResultSetFactory.fromJSON(in) ;
+            assertEquals(1, ResultSetFormatter.consume(rs)) ;
+        }
+    }
+
+    @Test public void query_compressed_03() throws IOException
+    {
+        String qs = Convert.encWWWForm("ASK{}") ;
+        URL u = new URL(serviceQuery+"?query="+qs);
+        HttpURLConnection conn = (HttpURLConnection) u.openConnection();
+        conn.setRequestProperty("Accept-Encoding", "identity") ;
+        assertNull(conn.getHeaderField("Content-Encoding")) ;
+        try ( InputStream in = conn.getInputStream() ) {
+            IO.readWholeFileAsUTF8(in) ;
+        }
+    }
+
+    @Test public void query_compressed_04()
+    {
+        try ( QueryEngineHTTP qExec = (QueryEngineHTTP)QueryExecutionFactory.sparqlService(serviceQuery, "CONSTRUCT WHERE {?s ?p ?o}") ) {
+            qExec.setAllowGZip(true) ;
+            Model m = qExec.execConstruct() ;
+            assertEquals(1, m.size()) ;
+        }
+    }
+
+    @Test public void query_profile_01() throws IOException
+    {
+        String qs = Convert.encWWWForm("SELECT * {?s ?p ?o}") ;
+        URL u = new URL(serviceQuery+"?query="+qs+"&"+SPARQL_Query.paramProfile+"=true");
+        HttpURLConnection conn = (HttpURLConnection) u.openConnection();
+        String id = conn.getHeaderField("Fuseki-Request-ID") ;
+        Assert.assertNotNull(id) ;
+        try ( InputStream in = conn.getInputStream() ) {
+            IO.readWholeFileAsUTF8(in) ;
+        }
+        // The profile is recorded after the results have been sent.
+        JsonObject obj = null ;
+        for ( int i = 0 ; i < 50 && obj == null ; i++ ) {
+            if ( QueryProfiles.ids().contains(Long.parseLong(id)) ) {
+                try ( TypedInputStream in = HttpOp.execHttpGet(urlRoot+"$/"+MgtConst.opProfiles+"/"+id) ) {
+                    obj = JSON.parse(in) ;
+                }
+            } else
+                Lib.sleep(100) ;
+        }
+        Assert.assertNotNull(obj) ;
+        JsonObject profile = obj.get("profile").getAsObject() ;
+        JsonObject bgp = profile.get("children").getAsArray().get(0).getAsObject() ;
+        assertEquals(1, bgp.get("rows").getAsNumber().value().intValue()) ;
+    }
+
+    @Test public void query_cache_01()
+    {
+        String queryString = "SELECT * { GRAPH <urn:cache:g> {?s ?p ?o} }" ;
+        QueryResultCache.setEnabled(true) ;
+        try {
+            execQuery(queryString, 0) ;
+            long hits = QueryResultCache.getHits() ;
+            execQuery(queryString, 0) ;
+            assertEquals(hits+1, QueryResultCache.getHits()) ;
+            // A change to the data is seen.
+            execUpdate("INSERT DATA { GRAPH <urn:cache:g> { <x> <p> 1 } }") ;
+            execQuery(queryString, 1) ;
+            execQuery(queryString, 1) ;
+        } finally {
+            execUpdate("DROP SILENT GRAPH <urn:cache:g>") ;
+            QueryResultCache.setEnabled(false) ;
+        }
+    }
+
+    @Test public void query_cache_02()
+    {
+        // Results that vary between executions are not cached.
+        String queryString = "SELECT * { BIND(RAND() AS ?r) GRAPH <urn:cache:g> {?s ?p ?o} }" ;
+        QueryResultCache.setEnabled(true) ;
+        try {
+            long hits = QueryResultCache.getHits() ;
+            long misses = QueryResultCache.getMisses() ;
+            execQuery(queryString, 0) ;
+            execQuery(queryString, 0) ;
+            assertEquals(hits, QueryResultCache.getHits()) ;
+            assertEquals(misses, QueryResultCache.getMisses()) ;
+        } finally {
+            QueryResultCache.setEnabled(false) ;
+        }
+    }
+
+    private void execUpdate(String updateString)
+    {
+        UpdateExecutionFactory.createRemote(UpdateFactory.create(updateString), serviceUpdate).execute() ;
+    }
+
     private void execQuery(String queryString, int exceptedRowCount)
     {
-        QueryExecution qExec = QueryExecutionFactory.sparqlService(serviceQuery, queryString) ;
-        ResultSet rs = qExec.execSelect() ;
-        int x = ResultSetFormatter.consume(rs) ;
-        assertEquals(exceptedRowCount, x) ;
+        try ( QueryExecution qExec = QueryExecutionFactory.sparqlService(serviceQuery, queryString) ) {
+            ResultSet rs = qExec.execSelect() ;
+            int x = ResultSetFormatter.consume(rs) ;
+            assertEquals(exceptedRowCount, x) ;
+        }
     }
     
     private void execQuery(String queryString, ResultSet expectedResultSet)
     {
-        QueryExecution qExec = QueryExecutionFactory.sparqlService(serviceQuery, queryString) ;
-        ResultSet rs = qExec.execSelect() ;
-        boolean b = ResultSetCompare.equalsByTerm(rs, expectedResultSet) ;
-        assertTrue("Result sets different", b) ;
+        try ( QueryExecution qExec = QueryExecutionFactory.sparqlService(serviceQuery, queryString) ) {
+            ResultSet rs = qExec.execSelect() ;
+            boolean b = ResultSetCompare.equalsByTerm(rs, expectedResultSet) ;
+            assertTrue("Result sets different", b) ;
+        }
     }
 }
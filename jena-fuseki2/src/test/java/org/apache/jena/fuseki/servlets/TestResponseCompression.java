@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.fuseki.servlets;
+
+import java.io.ByteArrayInputStream ;
+import java.io.ByteArrayOutputStream ;
+import java.io.IOException ;
+import java.io.InputStream ;
+import java.lang.reflect.InvocationHandler ;
+import java.lang.reflect.Method ;
+import java.lang.reflect.Proxy ;
+import java.nio.charset.StandardCharsets ;
+import java.util.HashMap ;
+import java.util.Map ;
+import java.util.zip.GZIPInputStream ;
+import java.util.zip.InflaterInputStream ;
+
+import javax.servlet.ServletContext ;
+import javax.servlet.ServletOutputStream ;
+import javax.servlet.WriteListener ;
+import javax.servlet.http.HttpServletRequest ;
+import javax.servlet.http.HttpServletResponse ;
+
+import org.apache.jena.atlas.RuntimeIOException ;
+import org.apache.jena.atlas.io.IO ;
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.junit.Test ;
+import org.slf4j.LoggerFactory ;
+
+public class TestResponseCompression extends BaseTest
+{
+    private static final String text ;
+    static {
+        StringBuilder sb = new StringBuilder() ;
+        for ( int i = 0 ; i < 10000 ; i++ )
+            sb.append("Line ").append(i).append('\n') ;
+        text = sb.toString() ;
+    }
+
+    private static ByteArrayOutputStream compress(String encoding) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream() ;
+        ServletOutputStream out = ResponseCompression.compress(new BytesOutputStream(bytes), encoding) ;
+        out.write(text.getBytes(StandardCharsets.UTF_8)) ;
+        out.write('!') ;
+        out.close() ;
+        return bytes ;
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try {
+            return new String(IO.readWholeFile(in), StandardCharsets.UTF_8) ;
+        } finally { in.close() ; }
+    }
+
+    @Test public void compress_gzip() throws IOException {
+        ByteArrayOutputStream bytes = compress(ResponseCompression.encGZip) ;
+        assertEquals(text+"!", read(new GZIPInputStream(new ByteArrayInputStream(bytes.toByteArray())))) ;
+    }
+
+    @Test public void compress_deflate() throws IOException {
+        ByteArrayOutputStream bytes = compress(ResponseCompression.encDeflate) ;
+        assertEquals(text+"!", read(new InflaterInputStream(new ByteArrayInputStream(bytes.toByteArray())))) ;
+    }
+
+    @Test public void compress_finish() throws IOException {
+        // Finishing twice, then closing, is safe; writing after finishing is not.
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream() ;
+        ResponseCompression.CompressedOutputStream out =
+            (ResponseCompression.CompressedOutputStream)ResponseCompression.compress(new BytesOutputStream(bytes), ResponseCompression.encGZip) ;
+        out.write(text.getBytes(StandardCharsets.UTF_8)) ;
+        out.finish() ;
+        out.finish() ;
+        out.close() ;
+        assertEquals(text, read(new GZIPInputStream(new ByteArrayInputStream(bytes.toByteArray())))) ;
+        try {
+            out.write('x') ;
+            fail("Write after finish") ;
+        } catch (IOException ex) {}
+    }
+
+    @Test public void compress_abandon() throws IOException {
+        // No gzip trailer: the client can tell the data is incomplete.
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream() ;
+        ResponseCompression.CompressedOutputStream out =
+            (ResponseCompression.CompressedOutputStream)ResponseCompression.compress(new BytesOutputStream(bytes), ResponseCompression.encGZip) ;
+        out.write(text.getBytes(StandardCharsets.UTF_8)) ;
+        out.flush() ;
+        out.abandon() ;
+        out.finish() ;
+        out.close() ;
+        try {
+            read(new GZIPInputStream(new ByteArrayInputStream(bytes.toByteArray()))) ;
+            fail("Complete gzip data") ;
+        } catch (RuntimeIOException ex) {}
+    }
+
+    @Test public void compress_send_error() throws IOException {
+        // An error after compression started: the error page is not compressed.
+        Map<String, String> headers = new HashMap<>() ;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream() ;
+        HttpAction action = new HttpAction(1, LoggerFactory.getLogger(TestResponseCompression.class),
+                                           request("gzip"), response(headers, bytes), false) ;
+        HttpServletResponseTracker response = action.response ;
+        response.getWriter().print("Partial") ;
+        assertEquals(ResponseCompression.encGZip, headers.get(ResponseCompression.hContentEncoding)) ;
+        response.sendError(503, "Timeout") ;
+        assertFalse(headers.containsKey(ResponseCompression.hContentEncoding)) ;
+        assertFalse(action.headers.containsKey(ResponseCompression.hContentEncoding)) ;
+        assertEquals("503", headers.get("status")) ;
+        // Nothing more is written.
+        int len = bytes.size() ;
+        response.finishOutput() ;
+        assertEquals(len, bytes.size()) ;
+    }
+
+    private static HttpServletRequest request(final String acceptEncoding) {
+        final ServletContext cxt = proxy(ServletContext.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                return null ;
+            }
+        }) ;
+        return proxy(HttpServletRequest.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                switch (method.getName()) {
+                    case "getServletContext":   return cxt ;
+                    case "getRequestURI":       return "/ds/query" ;
+                    case "getMethod":           return "GET" ;
+                    case "getHeader":           return "Accept-Encoding".equalsIgnoreCase((String)args[0]) ? acceptEncoding : null ;
+                    default:                    return null ;
+                }
+            }
+        }) ;
+    }
+
+    // Records the headers and status set, and the body written.
+    private static HttpServletResponse response(final Map<String, String> headers, ByteArrayOutputStream bytes) {
+        final ServletOutputStream out = new BytesOutputStream(bytes) ;
+        return proxy(HttpServletResponse.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                switch (method.getName()) {
+                    case "setHeader":
+                        if ( args[1] == null )
+                            headers.remove(args[0]) ;
+                        else
+                            headers.put((String)args[0], (String)args[1]) ;
+                        return null ;
+                    case "sendError":           headers.put("status", args[0].toString()) ; return null ;
+                    case "getOutputStream":     return out ;
+                    case "getCharacterEncoding": return "UTF-8" ;
+                    case "isCommitted":         return false ;
+                    default:                    return null ;
+                }
+            }
+        }) ;
+    }
+
+    private static <T> T proxy(Class<T> cls, InvocationHandler h) {
+        return cls.cast(Proxy.newProxyInstance(cls.getClassLoader(), new Class<?>[]{cls}, h)) ;
+    }
+
+    private static class BytesOutputStream extends ServletOutputStream
+    {
+        private final ByteArrayOutputStream bytes ;
+
+        BytesOutputStream(ByteArrayOutputStream bytes) { this.bytes = bytes ; }
+
+        @Override
+        public void write(int b)                                { bytes.write(b) ; }
+
+        @Override
+        public boolean isReady()                                { return true ; }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) { }
+    }
+}
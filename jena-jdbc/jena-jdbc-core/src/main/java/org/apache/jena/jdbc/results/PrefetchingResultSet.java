@@ -0,0 +1,258 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.jdbc.results;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.jena.atlas.lib.Closeable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hp.hpl.jena.query.QueryExecution;
+import com.hp.hpl.jena.query.QuerySolution;
+import com.hp.hpl.jena.query.ResultSet;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.sparql.core.ResultBinding;
+import com.hp.hpl.jena.sparql.engine.binding.Binding;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory;
+
+/**
+ * A SPARQL result set which reads ahead of the consumer, decoding the rows of
+ * an underlying result set on a background thread into a bounded buffer
+ * <p>
+ * This is intended for result sets where producing each row is expensive
+ * relative to consuming it, e.g. results parsed from a HTTP response, so that
+ * the parsing overlaps with whatever the consumer does with each row. The
+ * buffer size bounds the number of rows held in memory.
+ * </p>
+ * <p>
+ * The underlying result set is only ever accessed from the background thread
+ * so this must not be used where the underlying results are tied to the
+ * thread that created them, e.g. results from a TDB transaction.
+ * </p>
+ */
+public class PrefetchingResultSet implements ResultSet, Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PrefetchingResultSet.class);
+    private static final AtomicInteger THREAD_ID = new AtomicInteger(0);
+
+    /**
+     * How long, in milliseconds, closing waits for the background thread to
+     * finish with the underlying results
+     */
+    private static final long CLOSE_TIMEOUT = TimeUnit.SECONDS.toMillis(5);
+
+    /**
+     * Marker placed in the buffer when the underlying results are exhausted
+     */
+    private static final Binding END = BindingFactory.binding();
+
+    private final List<String> vars;
+    private final Model model;
+    private final BlockingQueue<Binding> buffer;
+    private final Thread prefetcher;
+    private final QueryExecution qe;
+    private volatile Throwable error = null;
+    private volatile boolean closed = false;
+    private Binding next = null;
+    private boolean finished = false;
+    private int rowNumber = 0;
+
+    /**
+     * Creates a new prefetching result set, the background thread is started
+     * immediately
+     *
+     * @param results
+     *            Underlying results
+     * @param bufferSize
+     *            Maximum number of rows to read ahead
+     */
+    public PrefetchingResultSet(ResultSet results, int bufferSize) {
+        this(results, null, bufferSize);
+    }
+
+    /**
+     * Creates a new prefetching result set, the background thread is started
+     * immediately
+     *
+     * @param results
+     *            Underlying results
+     * @param qe
+     *            Query execution producing the results, aborted when this is
+     *            closed so that the background thread is not left blocked
+     *            reading them, may be null
+     * @param bufferSize
+     *            Maximum number of rows to read ahead
+     */
+    public PrefetchingResultSet(final ResultSet results, QueryExecution qe, int bufferSize) {
+        if (results == null)
+            throw new IllegalArgumentException("Inner result set cannot be null");
+        if (bufferSize <= 0)
+            throw new IllegalArgumentException("Buffer size must be greater than zero");
+        this.vars = results.getResultVars();
+        this.model = results.getResourceModel();
+        this.buffer = new ArrayBlockingQueue<Binding>(bufferSize);
+        this.qe = qe;
+        this.prefetcher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                prefetch(results);
+            }
+        }, "JenaJDBC-Prefetch-" + THREAD_ID.incrementAndGet());
+        this.prefetcher.setDaemon(true);
+        this.prefetcher.start();
+    }
+
+    private void prefetch(ResultSet results) {
+        try {
+            while (!this.closed && results.hasNext()) {
+                this.buffer.put(results.nextBinding());
+            }
+        } catch (InterruptedException e) {
+            // Closed while waiting for the consumer
+            return;
+        } catch (Throwable e) {
+            if (this.closed) {
+                // Expected if the underlying stream was closed under us
+                LOGGER.debug("Error reading ahead after results were closed", e);
+                return;
+            }
+            this.error = e;
+        }
+
+        if (this.closed)
+            return;
+        try {
+            this.buffer.put(END);
+        } catch (InterruptedException e) {
+            // Closed while waiting for the consumer
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (this.next != null)
+            return true;
+        if (this.finished || this.closed)
+            return false;
+
+        Binding b;
+        try {
+            b = this.buffer.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for further results", e);
+        }
+        if (b == END) {
+            this.finished = true;
+            Throwable e = this.error;
+            if (e instanceof RuntimeException)
+                throw (RuntimeException) e;
+            if (e instanceof Error)
+                throw (Error) e;
+            if (e != null)
+                throw new IllegalStateException("Error while reading ahead results", e);
+            return false;
+        }
+        this.next = b;
+        return true;
+    }
+
+    @Override
+    public QuerySolution next() {
+        return new ResultBinding(this.model, this.nextBinding());
+    }
+
+    @Override
+    public QuerySolution nextSolution() {
+        return this.next();
+    }
+
+    @Override
+    public Binding nextBinding() {
+        if (!this.hasNext())
+            throw new NoSuchElementException();
+        Binding b = this.next;
+        this.next = null;
+        this.rowNumber++;
+        return b;
+    }
+
+    @Override
+    public int getRowNumber() {
+        return this.rowNumber;
+    }
+
+    @Override
+    public List<String> getResultVars() {
+        return this.vars;
+    }
+
+    @Override
+    public Model getResourceModel() {
+        return this.model;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove() is not supported");
+    }
+
+    /**
+     * Stops reading ahead and discards any buffered rows, this does not close
+     * the underlying results which remain the responsibility of the caller
+     * <p>
+     * If a query execution was given it is aborted first, so that a
+     * background thread blocked reading a row, e.g. waiting on a HTTP
+     * response, is released. This then waits a bounded time for the
+     * background thread to finish with the underlying results so that the
+     * caller can safely close them.
+     * </p>
+     */
+    @Override
+    public void close() {
+        if (this.closed)
+            return;
+        this.closed = true;
+        if (this.qe != null) {
+            try {
+                this.qe.abort();
+            } catch (Throwable e) {
+                LOGGER.warn("Error aborting query execution while closing read ahead results", e);
+            }
+        }
+        this.prefetcher.interrupt();
+        this.buffer.clear();
+        this.next = null;
+        try {
+            this.prefetcher.join(CLOSE_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (this.prefetcher.isAlive())
+            LOGGER.warn("Background thread " + this.prefetcher.getName()
+                    + " did not stop reading ahead within " + CLOSE_TIMEOUT + "ms of the results being closed");
+    }
+}
@@ -55,24 +55,29 @@ public abstract class QueryExecutionResults extends JenaResultSet {
      */
     @Override
     public final void close() throws SQLException {
-        if (this.qe != null) {
-            try {
-                // Close the query execution
-                this.qe.close();
-            } catch (Exception e) {
-                LOGGER.error("Unexpected error closing underlying Jena query execution", e);
-                throw new SQLException("Unexpected error closing the query execution", e);
-            } finally {
-                this.qe = null;
-                
-                // Commit if necessary
-                if (this.commit) {
-                    LOGGER.info("Result Set associated with an auto-committing transaction, performing a commit now");
-                    this.getStatement().getConnection().commit();
+        try {
+            // Stop consuming the results before closing the query execution
+            // that produces them
+            this.closeInternal();
+        } finally {
+            if (this.qe != null) {
+                try {
+                    // Close the query execution
+                    this.qe.close();
+                } catch (Exception e) {
+                    LOGGER.error("Unexpected error closing underlying Jena query execution", e);
+                    throw new SQLException("Unexpected error closing the query execution", e);
+                } finally {
+                    this.qe = null;
+
+                    // Commit if necessary
+                    if (this.commit) {
+                        LOGGER.info("Result Set associated with an auto-committing transaction, performing a commit now");
+                        this.getStatement().getConnection().commit();
+                    }
                 }
             }
         }
-        this.closeInternal();
     }
     
     /**
@@ -38,6 +38,7 @@ public abstract class StreamedResults<T> extends QueryExecutionResults {
     private T currItem;
     private boolean finished = false;
     private int currRow = 0;
+    private int fetchSize;
 
     /**
      * Creates new streamed results
@@ -53,6 +54,7 @@ public abstract class StreamedResults<T> extends QueryExecutionResults {
      */
     public StreamedResults(JenaStatement statement, QueryExecution qe, boolean commit) throws SQLException {
         super(statement, qe, commit);
+        this.fetchSize = statement.getFetchSize();
     }
 
     /**
@@ -178,9 +180,7 @@ public abstract class StreamedResults<T> extends QueryExecutionResults {
 
     @Override
     public final int getFetchSize() throws SQLException {
-        // TODO Need a buffering wrapper around ResultSet to make this
-        // configurable
-        return 0;
+        return this.fetchSize;
     }
 
     @Override
@@ -280,14 +280,25 @@ public abstract class StreamedResults<T> extends QueryExecutionResults {
 
     @Override
     public final void setFetchDirection(int direction) throws SQLException {
-        if (direction != ResultSet.FETCH_FORWARD)
+        // The direction is only a hint, forward is the only one we can honour
+        // but there is no harm in being told the direction is unknown
+        if (direction != ResultSet.FETCH_FORWARD && direction != ResultSet.FETCH_UNKNOWN)
             throw new SQLFeatureNotSupportedException("Jena JDBC Result Sets only support forward fetch");
     }
 
+    /**
+     * Sets the fetch size, this is a hint as to how many rows should be read
+     * ahead of the consumer. Whether read ahead happens is determined by the
+     * statement when the results are created, see
+     * {@link JenaStatement#getFetchSize()}, so changing this after the results
+     * were created does not resize any existing read ahead buffer.
+     */
     @Override
     public final void setFetchSize(int rows) throws SQLException {
-        // TODO Need to provide some buffering wrapper over a ResultSet to make
-        // this possible
-        throw new SQLFeatureNotSupportedException();
+        if (this.isClosed())
+            throw new SQLException("Result Set is closed");
+        if (rows < 0)
+            throw new SQLException("Fetch size must be greater than or equal to zero");
+        this.fetchSize = rows;
     }
 }
@@ -95,6 +95,15 @@ public class DatasetPreparedStatement extends JenaPreparedStatement {
         return QueryExecutionFactory.create(q, this.dsConn.getJenaDataset());
     }
 
+    /**
+     * Queries over the dataset are executed locally which supports binding
+     * parameters to a parsed query
+     */
+    @Override
+    protected boolean supportsParameterBinding() {
+        return true;
+    }
+
     /**
      * Creates an update execution over the dataset
      */
@@ -40,29 +40,64 @@ import java.sql.SQLXML;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.sql.Types;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
 import java.util.TimeZone;
 
 import org.apache.jena.iri.IRI;
 import org.apache.jena.jdbc.connections.JenaConnection;
 import org.apache.jena.jdbc.statements.metadata.JenaParameterMetadata;
 import org.apache.jena.jdbc.utils.JdbcNodeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
 import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.graph.NodeFactory;
 import com.hp.hpl.jena.query.ParameterizedSparqlString;
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QueryFactory;
 import com.hp.hpl.jena.rdf.model.RDFNode;
+import com.hp.hpl.jena.sparql.ARQException;
+import com.hp.hpl.jena.sparql.core.ResultBinding;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory;
+import com.hp.hpl.jena.sparql.engine.binding.BindingMap;
 import com.hp.hpl.jena.sparql.util.NodeFactoryExtra;
 
 /**
  * Abstract Jena JDBC implementation of a prepared statement
- * 
+ * <p>
+ * Where the statement implementation supports it (see
+ * {@link #supportsParameterBinding()}) a prepared SELECT or ASK query is parsed
+ * only once and each execution binds the current parameter values to the
+ * variables standing in for the parameters. The algebra is still optimised on
+ * every execution, after the parameter values have been substituted into it.
+ * This is deliberate: the optimiser makes use of the values, e.g. a filter
+ * comparing a variable with a parameter can only be turned into a
+ * substitution once the parameter is a constant. Substituting first also
+ * reaches parameters used inside sub-queries, as substituting into the command
+ * text does, whereas optimising first would rename those apart.
+ * </p>
  */
 public abstract class JenaPreparedStatement extends JenaStatement implements PreparedStatement {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(JenaPreparedStatement.class);
+
+    /**
+     * Prefix for the variables which stand in for positional parameters in a
+     * parsed query template
+     */
+    private static final String PARAMETER_VAR_PREFIX = "_jdbcParam";
+
     private ParameterizedSparqlString sparqlStr = new ParameterizedSparqlString();
     private ParameterMetaData paramMetadata;
+    private boolean templatePrepared = false;
+    private Query queryTemplate;
+    private List<Var> parameterVars;
+    private long templateLimit;
 
     /**
      * Creates a new prepared statement
@@ -105,12 +140,134 @@ public abstract class JenaPreparedStatement extends JenaStatement implements Pre
 
     @Override
     public boolean execute() throws SQLException {
+        Query q = this.getBoundQueryTemplate();
+        if (q != null)
+            return this.executeQuery(q, this.getParameterBinding());
         return this.execute(this.sparqlStr.toString());
     }
 
     @Override
     public ResultSet executeQuery() throws SQLException {
-        return this.executeQuery(this.sparqlStr.toString());
+        Query q = this.getBoundQueryTemplate();
+        if (q == null)
+            return this.executeQuery(this.sparqlStr.toString());
+        if (this.executeQuery(q, this.getParameterBinding())) {
+            return this.getResultSet();
+        } else {
+            throw new SQLException("Query did not produce a result set");
+        }
+    }
+
+    /**
+     * Gets whether the query executions created by this statement support
+     * {@link com.hp.hpl.jena.query.QueryExecution#setInitialBinding(com.hp.hpl.jena.query.QuerySolution)}
+     * <p>
+     * When they do a prepared query is parsed only once, with its parameters
+     * treated as variables, and the parameter values are bound to those
+     * variables on each execution. Otherwise the parameter values are
+     * substituted into the command text which is parsed again on every
+     * execution.
+     * </p>
+     * <p>
+     * The default implementation returns false, implementations which execute
+     * queries locally should override this.
+     * </p>
+     * 
+     * @return True if parameters may be bound to a parsed query
+     */
+    protected boolean supportsParameterBinding() {
+        return false;
+    }
+
+    /**
+     * Gets the parsed query template ready for execution with the current
+     * parameters
+     * 
+     * @return Query template or null if parameters must be substituted into
+     *         the command text
+     * @throws SQLException
+     */
+    private Query getBoundQueryTemplate() throws SQLException {
+        if (!this.templatePrepared) {
+            this.templatePrepared = true;
+            this.queryTemplate = this.prepareQueryTemplate();
+        }
+        if (this.queryTemplate == null)
+            return null;
+        // Pre-processors may expect to see the command text with the
+        // parameters substituted
+        if (this.getJenaConnection().getPreProcessors().hasNext())
+            return null;
+        // Leave it to the usual parsing to report unset parameters
+        if (this.sparqlStr.getPositionalParameters().size() < this.parameterVars.size())
+            return null;
+
+        // Executing a query may have applied the max rows limit to it so
+        // restore the limit given in the query
+        this.queryTemplate.setLimit(this.templateLimit);
+        return this.queryTemplate;
+    }
+
+    /**
+     * Parses the command text with variables standing in for the positional
+     * parameters
+     * 
+     * @return Query template or null if the command cannot be executed this
+     *         way
+     * @throws SQLException
+     */
+    private Query prepareQueryTemplate() throws SQLException {
+        if (!this.supportsParameterBinding())
+            return null;
+
+        ParameterizedSparqlString template = new ParameterizedSparqlString(this.sparqlStr.getCommandText());
+        ParameterizedSparqlString check = new ParameterizedSparqlString(this.sparqlStr.getCommandText());
+        List<Var> vars = new ArrayList<Var>();
+        for (int i = 0; i < this.paramMetadata.getParameterCount(); i++) {
+            Var v = Var.alloc(PARAMETER_VAR_PREFIX + i);
+            template.setParam(i, v);
+            check.setParam(i, NodeFactory.createLiteral(""));
+            vars.add(v);
+        }
+
+        Query q;
+        try {
+            // Detects parameters inside literals, which are not variables
+            check.toString();
+            q = QueryFactory.create(template.toString());
+        } catch (ARQException e) {
+            // Updates, or parameters where variables are not permitted, so
+            // must substitute the text every time
+            return null;
+        }
+        // For CONSTRUCT and DESCRIBE binding the parameters is not equivalent
+        // to substituting them into the text
+        if (!q.isSelectType() && !q.isAskType())
+            return null;
+        if (q.isQueryResultStar()) {
+            // The parameters must not become result columns
+            q.getProjectVars().removeAll(vars);
+            q.setQueryResultStar(false);
+        }
+
+        LOGGER.debug("Prepared query will be parsed once and executed with its parameters bound");
+        this.parameterVars = vars;
+        this.templateLimit = q.getLimit();
+        return q;
+    }
+
+    /**
+     * Gets the current parameter values as bindings for the variables of the
+     * query template
+     * 
+     * @return Parameter bindings
+     */
+    private ResultBinding getParameterBinding() {
+        BindingMap binding = BindingFactory.create();
+        for (Map.Entry<Integer, Node> param : this.sparqlStr.getPositionalParameters().entrySet()) {
+            binding.add(this.parameterVars.get(param.getKey()), param.getValue());
+        }
+        return new ResultBinding(null, binding);
     }
 
     @Override
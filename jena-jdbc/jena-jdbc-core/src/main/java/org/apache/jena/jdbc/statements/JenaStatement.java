@@ -35,6 +35,7 @@ import org.apache.jena.jdbc.JdbcCompatibility;
 import org.apache.jena.jdbc.connections.JenaConnection;
 import org.apache.jena.jdbc.results.AskResults;
 import org.apache.jena.jdbc.results.MaterializedSelectResults;
+import org.apache.jena.jdbc.results.PrefetchingResultSet;
 import org.apache.jena.jdbc.results.SelectResults;
 import org.apache.jena.jdbc.results.TripleIteratorResults;
 import org.apache.jena.jdbc.results.TripleListResults;
@@ -44,6 +45,7 @@ import org.slf4j.LoggerFactory;
 import com.hp.hpl.jena.query.Query;
 import com.hp.hpl.jena.query.QueryExecution;
 import com.hp.hpl.jena.query.QueryFactory;
+import com.hp.hpl.jena.query.QuerySolution;
 import com.hp.hpl.jena.query.ReadWrite;
 import com.hp.hpl.jena.query.ResultSetFactory;
 import com.hp.hpl.jena.update.UpdateFactory;
@@ -294,6 +296,24 @@ public abstract class JenaStatement implements Statement {
     }
 
     private boolean executeQuery(Query q) throws SQLException {
+        return this.executeQuery(q, null);
+    }
+
+    /**
+     * Executes a query which has already been parsed
+     * 
+     * @param q
+     *            Query
+     * @param initialBinding
+     *            Initial values for variables of the query, may be null if
+     *            there are none. Only applicable if the query executions
+     *            created by {@link #createQueryExecution(Query)} support
+     *            {@link QueryExecution#setInitialBinding(QuerySolution)}
+     * @return True if the query produced a result set, false otherwise
+     * @throws SQLException
+     *             Thrown if there is a problem executing the query
+     */
+    protected final boolean executeQuery(Query q, QuerySolution initialBinding) throws SQLException {
         if (this.isClosed())
             throw new SQLException("The Statement is closed");
 
@@ -336,6 +356,9 @@ public abstract class JenaStatement implements Statement {
 
             // Create the query execution
             QueryExecution qe = this.createQueryExecution(q);
+            if (initialBinding != null) {
+                qe.setInitialBinding(initialBinding);
+            }
 
             // Manipulate the query execution if appropriate
             if (this.timeout > NO_LIMIT) {
@@ -351,8 +374,13 @@ public abstract class JenaStatement implements Statement {
                     break;
                 case ResultSet.TYPE_FORWARD_ONLY:
                 default:
-                    this.currResults = new SelectResults(this, qe, this.connection.applyPostProcessors(qe.execSelect()),
-                            needsCommit);
+                    com.hp.hpl.jena.query.ResultSet rset = this.connection.applyPostProcessors(qe.execSelect());
+                    int prefetch = this.getPrefetchSize();
+                    if (prefetch > 0) {
+                        LOGGER.debug("Reading up to {} result rows ahead of the consumer", prefetch);
+                        rset = new PrefetchingResultSet(rset, qe, prefetch);
+                    }
+                    this.currResults = new SelectResults(this, qe, rset, needsCommit);
                     break;
                 }
             } else if (q.isAskType()) {
@@ -427,6 +455,25 @@ public abstract class JenaStatement implements Statement {
      */
     protected abstract QueryExecution createQueryExecution(Query q) throws SQLException;
 
+    /**
+     * Gets how many rows of forward only {@code SELECT} results should be read
+     * ahead of the consumer on a background thread
+     * <p>
+     * The default implementation returns zero which disables read ahead, the
+     * results are then produced on the thread that moves through them.
+     * Derived implementations may override this when their results are
+     * expensive to produce and safe to produce from another thread, typically
+     * using {@link #getFetchSize()} to size the read ahead buffer.
+     * </p>
+     * 
+     * @return Number of rows to read ahead, zero or less for no read ahead
+     * @throws SQLException
+     *             Thrown if the statement is unable to determine this
+     */
+    protected int getPrefetchSize() throws SQLException {
+        return 0;
+    }
+
     private int executeUpdate(UpdateRequest u) throws SQLException {
         if (this.isClosed())
             throw new SQLException("The Statement is closed");
@@ -853,6 +900,8 @@ public abstract class JenaStatement implements Statement {
 
     @Override
     public void setFetchSize(int rows) throws SQLException {
+        if (rows < 0)
+            throw new SQLException("Fetch size must be greater than or equal to zero");
         this.fetchSize = rows;
     }
 
@@ -19,6 +19,7 @@
 package org.apache.jena.jdbc;
 
 import org.apache.jena.jdbc.metadata.results.TestMetaResultSet;
+import org.apache.jena.jdbc.results.TestPrefetchingResultSet;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
@@ -29,7 +30,8 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
     TestCompatibility.class,
-    TestMetaResultSet.class
+    TestMetaResultSet.class,
+    TestPrefetchingResultSet.class
 })
 public class TS_JdbcCore {
 
@@ -500,7 +500,53 @@ public abstract class AbstractJenaConnectionTests {
         Assert.assertTrue(conn.isClosed());
     }
 
-   
+    /**
+     * Tests that a prepared statement may be executed repeatedly with
+     * different parameter values
+     *
+     * @throws SQLException
+     * @throws MalformedURLException
+     */
+    @Test
+    public void connection_prepared_statement_select_04() throws SQLException, MalformedURLException {
+        // Prepare a dataset
+        Dataset ds = DatasetFactory.createMem();
+        ds.asDatasetGraph().add(
+                new Quad(NodeFactory.createURI("http://example/graph"), NodeFactory.createURI("http://example/subject"),
+                        NodeFactory.createURI("http://example/predicate"), NodeFactory.createLiteral("value")));
+        ds.asDatasetGraph().add(
+                new Quad(NodeFactory.createURI("http://example/graph"), NodeFactory.createURI("http://example/other"),
+                        NodeFactory.createURI("http://example/predicate"), NodeFactory.createLiteral("other")));
+
+        // Work with the connection
+        JenaConnection conn = this.getConnection(ds);
+        conn.setJdbcCompatibilityLevel(JdbcCompatibility.HIGH);
+        PreparedStatement stmt = conn.prepareStatement("SELECT * WHERE { GRAPH ?g { ?s ?p ? } }");
+
+        String[] values = new String[] { "value", "other", "missing" };
+        String[] subjects = new String[] { "http://example/subject", "http://example/other", null };
+        for (int i = 0; i < values.length; i++) {
+            stmt.setString(1, values[i]);
+            ResultSet rset = stmt.executeQuery();
+            Assert.assertNotNull(rset);
+
+            // Parameters do not become result columns
+            checkSelectMetadata(rset, 3);
+
+            if (subjects[i] != null) {
+                Assert.assertTrue(rset.next());
+                Assert.assertEquals(subjects[i], rset.getString("s"));
+            }
+            Assert.assertFalse(rset.next());
+            rset.close();
+        }
+
+        // Close things
+        stmt.close();
+        Assert.assertTrue(stmt.isClosed());
+        conn.close();
+        Assert.assertTrue(conn.isClosed());
+    }
 
     /**
      * Runs a SELECT query on a non-empty database with max rows set and checks
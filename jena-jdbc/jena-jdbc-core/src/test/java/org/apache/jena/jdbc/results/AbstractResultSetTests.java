@@ -1854,6 +1854,39 @@ public abstract class AbstractResultSetTests {
         Assert.assertTrue(rset.isClosed());
     }
 
+    /**
+     * Tests setting fetch hints on SELECT results
+     * 
+     * @throws SQLException
+     */
+    @Test
+    public void results_select_fetch_size_01() throws SQLException {
+        ResultSet rset = this.createResults(ds, "SELECT * { ?s ?p ?o . }", ResultSet.TYPE_FORWARD_ONLY);
+        Assert.assertNotNull(rset);
+        Assert.assertEquals(ResultSet.FETCH_FORWARD, rset.getFetchDirection());
+
+        // Fetch size and direction are hints which forward only results accept
+        rset.setFetchSize(2);
+        Assert.assertEquals(2, rset.getFetchSize());
+        rset.setFetchDirection(ResultSet.FETCH_UNKNOWN);
+        try {
+            rset.setFetchDirection(ResultSet.FETCH_REVERSE);
+            Assert.fail("Should not be permitted to fetch in reverse in a FORWARD_ONLY result set");
+        } catch (SQLException e) {
+            // Expected
+        }
+
+        // Should still be able to move through all the results
+        int count = 0;
+        while (rset.next()) {
+            count++;
+        }
+        Assert.assertTrue(count > 0);
+        Assert.assertTrue(rset.isAfterLast());
+        rset.close();
+        Assert.assertTrue(rset.isClosed());
+    }
+
     /**
      * Tests movement through SELECT results
      * 
@@ -0,0 +1,218 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.jdbc.results;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.hp.hpl.jena.graph.NodeFactory;
+import com.hp.hpl.jena.query.DatasetFactory;
+import com.hp.hpl.jena.query.QueryFactory;
+import com.hp.hpl.jena.query.ResultSet;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.engine.QueryExecutionBase;
+import com.hp.hpl.jena.sparql.engine.QueryIterator;
+import com.hp.hpl.jena.sparql.engine.ResultSetStream;
+import com.hp.hpl.jena.sparql.engine.binding.Binding;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterPlainWrapper;
+
+/**
+ * Tests for the {@link PrefetchingResultSet}
+ * 
+ */
+public class TestPrefetchingResultSet {
+
+    private static final Var X = Var.alloc("x");
+
+    private static ResultSet createResults(int rows) {
+        List<Binding> bindings = new ArrayList<Binding>();
+        for (int i = 0; i < rows; i++) {
+            bindings.add(BindingFactory.binding(X, NodeFactory.createLiteral(Integer.toString(i))));
+        }
+        List<String> vars = new ArrayList<String>();
+        vars.add(X.getVarName());
+        QueryIterator iter = new QueryIterPlainWrapper(bindings.iterator());
+        return new ResultSetStream(vars, null, iter);
+    }
+
+    /**
+     * Check empty results
+     */
+    @Test
+    public void prefetch_results_01() {
+        PrefetchingResultSet results = new PrefetchingResultSet(createResults(0), 10);
+        Assert.assertEquals(1, results.getResultVars().size());
+        Assert.assertFalse(results.hasNext());
+        Assert.assertEquals(0, results.getRowNumber());
+        results.close();
+    }
+
+    /**
+     * Check all results are seen in order when there are more results than
+     * the buffer holds
+     */
+    @Test
+    public void prefetch_results_02() {
+        PrefetchingResultSet results = new PrefetchingResultSet(createResults(1000), 7);
+        int i = 0;
+        while (results.hasNext()) {
+            Binding b = results.nextBinding();
+            Assert.assertEquals(Integer.toString(i), b.get(X).getLiteralLexicalForm());
+            i++;
+            Assert.assertEquals(i, results.getRowNumber());
+        }
+        Assert.assertEquals(1000, i);
+        Assert.assertFalse(results.hasNext());
+        results.close();
+    }
+
+    /**
+     * Check closing part way through discards remaining results
+     */
+    @Test
+    public void prefetch_results_03() {
+        PrefetchingResultSet results = new PrefetchingResultSet(createResults(1000), 5);
+        Assert.assertTrue(results.hasNext());
+        results.nextBinding();
+        results.close();
+        Assert.assertFalse(results.hasNext());
+    }
+
+    /**
+     * Check moving past the end is an error
+     */
+    @Test(expected = NoSuchElementException.class)
+    public void prefetch_results_04() {
+        PrefetchingResultSet results = new PrefetchingResultSet(createResults(1), 5);
+        try {
+            results.nextBinding();
+            results.nextBinding();
+        } finally {
+            results.close();
+        }
+    }
+
+    /**
+     * Check errors in the underlying results are seen by the consumer
+     */
+    @Test(expected = IllegalStateException.class)
+    public void prefetch_results_05() {
+        List<String> vars = new ArrayList<String>();
+        vars.add(X.getVarName());
+        QueryIterator iter = new QueryIterPlainWrapper(new FailingIterator());
+        PrefetchingResultSet results = new PrefetchingResultSet(new ResultSetStream(vars, null, iter), 5);
+        try {
+            Assert.assertTrue(results.hasNext());
+            results.nextBinding();
+            results.hasNext();
+        } finally {
+            results.close();
+        }
+    }
+
+    /**
+     * Check closing aborts the query execution so that a background thread
+     * blocked reading a row is released, rather than waiting on it
+     */
+    @Test(timeout = 3000)
+    public void prefetch_results_06() throws InterruptedException {
+        final CountDownLatch reading = new CountDownLatch(1);
+        final CountDownLatch aborted = new CountDownLatch(1);
+        QueryExecutionBase qe = new QueryExecutionBase(QueryFactory.create("SELECT * { }"), DatasetFactory.createMem(),
+                null, null) {
+            @Override
+            public void abort() {
+                aborted.countDown();
+            }
+        };
+        List<String> vars = new ArrayList<String>();
+        vars.add(X.getVarName());
+        QueryIterator iter = new QueryIterPlainWrapper(new BlockingIterator(reading, aborted));
+        PrefetchingResultSet results = new PrefetchingResultSet(new ResultSetStream(vars, null, iter), qe, 5);
+        reading.await();
+        results.close();
+        Assert.assertEquals(0, aborted.getCount());
+        Assert.assertFalse(results.hasNext());
+    }
+
+    /**
+     * An iterator which blocks reading its first row until released, ignoring
+     * interrupts as a blocking socket read would
+     */
+    private static class BlockingIterator implements java.util.Iterator<Binding> {
+        private final CountDownLatch reading;
+        private final CountDownLatch release;
+
+        public BlockingIterator(CountDownLatch reading, CountDownLatch release) {
+            this.reading = reading;
+            this.release = release;
+        }
+
+        @Override
+        public boolean hasNext() {
+            this.reading.countDown();
+            while (true) {
+                try {
+                    this.release.await();
+                    throw new IllegalStateException("Aborted");
+                } catch (InterruptedException e) {
+                    // Ignored
+                }
+            }
+        }
+
+        @Override
+        public Binding next() {
+            throw new NoSuchElementException();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class FailingIterator implements java.util.Iterator<Binding> {
+        private boolean first = true;
+
+        @Override
+        public boolean hasNext() {
+            if (this.first)
+                return true;
+            throw new IllegalStateException("Failed");
+        }
+
+        @Override
+        public Binding next() {
+            this.first = false;
+            return BindingFactory.binding();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -33,6 +33,7 @@ import org.apache.jena.jdbc.remote.statements.RemoteEndpointPreparedStatement;
 import org.apache.jena.jdbc.remote.statements.RemoteEndpointStatement;
 import org.apache.jena.jdbc.statements.JenaPreparedStatement;
 import org.apache.jena.jdbc.statements.JenaStatement;
+import org.apache.jena.riot.WebContent;
 
 /**
  * Represents a connection to a remote endpoint
@@ -40,6 +41,21 @@ import org.apache.jena.jdbc.statements.JenaStatement;
  */
 public class RemoteEndpointConnection extends JenaConnection {
 
+    /**
+     * The results type requested for {@code SELECT} queries when no specific
+     * type has been configured for the connection. TSV is compact, keeps full
+     * RDF term information and is parsed as a stream. Should an endpoint
+     * respond with some other supported format regardless that will still be
+     * understood.
+     */
+    public static final String DEFAULT_SELECT_RESULTS_TYPE = WebContent.contentTypeTextTSV;
+
+    /**
+     * The number of rows of {@code SELECT} results that are read ahead of the
+     * consumer when a statement has no fetch size set
+     */
+    public static final int DEFAULT_PREFETCH_SIZE = 1000;
+
     private String queryService, updateService;
     private boolean closed = false;
     private boolean readonly = false;
@@ -179,7 +195,7 @@ public class RemoteEndpointConnection extends JenaConnection {
      * {@code SELECT} queries
      * 
      * @return Select results type if set, otherwise null which indicates that
-     *         the ARQ default will be used
+     *         {@link #DEFAULT_SELECT_RESULTS_TYPE} will be used
      */
     public String getSelectResultsType() {
         return this.selectResultsType;
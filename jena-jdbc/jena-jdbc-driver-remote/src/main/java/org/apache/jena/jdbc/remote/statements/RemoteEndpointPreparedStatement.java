@@ -110,6 +110,8 @@ public class RemoteEndpointPreparedStatement extends JenaPreparedStatement {
         // Set result types
         if (this.remoteConn.getSelectResultsType() != null) {
             exec.setSelectContentType(this.remoteConn.getSelectResultsType());
+        } else {
+            exec.setSelectContentType(RemoteEndpointConnection.DEFAULT_SELECT_RESULTS_TYPE);
         }
         if (this.remoteConn.getModelResultsType() != null) {
             exec.setModelContentType(this.remoteConn.getModelResultsType());
@@ -119,6 +121,18 @@ public class RemoteEndpointPreparedStatement extends JenaPreparedStatement {
         return exec;
     }
 
+    /**
+     * Remote results are parsed from the HTTP response as they are consumed so
+     * they are read ahead on a background thread, buffering up to the fetch
+     * size rows or {@link RemoteEndpointConnection#DEFAULT_PREFETCH_SIZE} if no
+     * fetch size is set
+     */
+    @Override
+    protected int getPrefetchSize() throws SQLException {
+        int fetchSize = this.getFetchSize();
+        return fetchSize > 0 ? fetchSize : RemoteEndpointConnection.DEFAULT_PREFETCH_SIZE;
+    }
+
     @Override
     protected UpdateProcessor createUpdateProcessor(UpdateRequest u) {
         UpdateProcessRemoteBase proc = (UpdateProcessRemoteBase) UpdateExecutionFactory.createRemote(u,
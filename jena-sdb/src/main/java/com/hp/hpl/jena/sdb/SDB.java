@@ -64,6 +64,9 @@ public class SDB
     public static final Symbol jdbcFetchSize            = SDBConstants.allocSymbol("jdbcFetchSize") ;
     // See also SDBConstants.jdbcFetchSizeOff
     
+    /** Size of the per-query cache of nodes decoded from results, keyed by node table hash/id (0 to disable) */
+    public static final Symbol nodeResultCacheSize      = SDBConstants.allocSymbol("nodeResultCacheSize") ;
+    
     public static final Symbol annotateGeneratedSQL     = SDBConstants.allocSymbol("annotateGeneratedSQL") ;
     // ----------------------------------
     
@@ -149,6 +149,15 @@ public abstract class QueryCompilerMain implements QueryCompiler
 
             SqlNode sqlNode = opSQL.getSqlNode() ;
             
+            // Aggregate results computed in SQL are needed by the ARQ
+            // operations above (e.g. the extend that renames them).
+            if ( sqlNode.isSelectBlock() )
+            {
+                for ( Var v : sqlNode.asSelectBlock().getAggregates().keySet() )
+                    if ( ! projectVars.contains(v) )
+                        projectVars.add(v) ;
+            }
+            
             SQLBridgeFactory f = request.getStore().getSQLBridgeFactory() ;
             
             SQLBridge bridge = f.create(request, sqlNode, projectVars) ;
@@ -23,6 +23,7 @@ package com.hp.hpl.jena.sdb.compiler;
 import com.hp.hpl.jena.sdb.SDB;
 import com.hp.hpl.jena.sdb.Store;
 import com.hp.hpl.jena.sdb.core.SDBRequest;
+import com.hp.hpl.jena.sdb.store.LayoutType;
 import com.hp.hpl.jena.sdb.util.StoreUtils;
 import com.hp.hpl.jena.sparql.algebra.Op;
 import com.hp.hpl.jena.sparql.core.Substitute;
@@ -57,6 +58,9 @@ public class SDBCompile
         // LeftJoinTranslation = true ;         -- Does the DB support general join expressions? 
         // LimitOffsetTranslation = false ;     -- Does the DB grok the Limit/Offset SQL?
         // DistinctTranslation = true ;         -- Some DBs can't do DISTINCT on CLOBS.
+        // GroupTranslation = false ;           -- GROUP BY/COUNT: layout2 only.
+        
+        request.GroupTranslation = isLayout2(store) ;
         
         
         if ( StoreUtils.isHSQL(store) )
@@ -129,5 +133,11 @@ public class SDBCompile
         return op2 ;
     }
     
+    private static boolean isLayout2(Store store)
+    {
+        LayoutType layout = store.getLayoutType() ;
+        return layout == LayoutType.LayoutTripleNodesHash || layout == LayoutType.LayoutTripleNodesIndex ;
+    }
+    
 
 }
@@ -48,6 +48,7 @@ import com.hp.hpl.jena.sparql.algebra.op.OpBGP ;
 import com.hp.hpl.jena.sparql.algebra.op.OpDatasetNames ;
 import com.hp.hpl.jena.sparql.algebra.op.OpDistinct ;
 import com.hp.hpl.jena.sparql.algebra.op.OpFilter ;
+import com.hp.hpl.jena.sparql.algebra.op.OpGroup ;
 import com.hp.hpl.jena.sparql.algebra.op.OpJoin ;
 import com.hp.hpl.jena.sparql.algebra.op.OpLeftJoin ;
 import com.hp.hpl.jena.sparql.algebra.op.OpProject ;
@@ -55,6 +56,13 @@ import com.hp.hpl.jena.sparql.algebra.op.OpQuadPattern ;
 import com.hp.hpl.jena.sparql.algebra.op.OpService ;
 import com.hp.hpl.jena.sparql.algebra.op.OpTable ;
 import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.core.VarExprList ;
+import com.hp.hpl.jena.sparql.expr.Expr ;
+import com.hp.hpl.jena.sparql.expr.ExprAggregator ;
+import com.hp.hpl.jena.sparql.expr.aggregate.AggCount ;
+import com.hp.hpl.jena.sparql.expr.aggregate.AggCountVar ;
+import com.hp.hpl.jena.sparql.expr.aggregate.AggCountVarDistinct ;
+import com.hp.hpl.jena.sparql.expr.aggregate.Aggregator ;
 
 public class TransformSDB extends TransformCopy
 {
@@ -188,6 +196,48 @@ public class TransformSDB extends TransformCopy
   
     // ---- Modifiers
     
+    @Override
+    public Op transform(OpGroup opGroup, Op subOp)
+    {
+        if ( ! request.GroupTranslation || ! SDB_QC.isOpSQL(subOp) )
+            return super.transform(opGroup, subOp) ;
+        
+        // Grouping is on node ids so only plain variables and counts can be done in SQL.
+        // Anything else (SUM, MIN, GROUP_CONCAT, ..., GROUP BY expression) needs
+        // the values and is left to ARQ. 
+        SqlNode sqlSubOp = ((OpSQL)subOp).getSqlNode() ;
+        VarExprList groupVars = opGroup.getGroupVars() ;
+        for ( Var v : groupVars.getVars() )
+        {
+            if ( groupVars.hasExpr(v) || ! sqlSubOp.getIdScope().hasColumnForVar(v) )
+                return super.transform(opGroup, subOp) ;
+        }
+        for ( ExprAggregator agg : opGroup.getAggregators() )
+        {
+            if ( ! isCountInSQL(agg.getAggregator(), sqlSubOp) )
+                return super.transform(opGroup, subOp) ;
+        }
+
+        SqlSelectBlock block = SqlSelectBlock.group(request, sqlSubOp, groupVars.getVars()) ;
+        for ( ExprAggregator agg : opGroup.getAggregators() )
+        {
+            Aggregator a = agg.getAggregator() ;
+            Var countVar = ( a instanceof AggCount ) ? null : a.getExpr().asVar() ;
+            block.addCount(agg.getVar(), countVar, a instanceof AggCountVarDistinct) ;
+        }
+        return new OpSQL(block, opGroup, request) ;
+    }
+    
+    private static boolean isCountInSQL(Aggregator agg, SqlNode sqlNode)
+    {
+        if ( agg instanceof AggCount )
+            return true ;
+        if ( ! ( agg instanceof AggCountVar ) && ! ( agg instanceof AggCountVarDistinct ) )
+            return false ;
+        Expr expr = agg.getExpr() ;
+        return expr.isVariable() && sqlNode.getIdScope().hasColumnForVar(expr.asVar()) ;
+    }
+    
     @Override
     public Op transform(OpDistinct opDistinct, Op subOp)
     { 
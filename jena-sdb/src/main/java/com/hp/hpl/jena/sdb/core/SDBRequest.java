@@ -47,6 +47,7 @@ public class SDBRequest extends StoreHolder
     public boolean LeftJoinTranslation = true ;     // Does the DB support general join expressions? 
     public boolean LimitOffsetTranslation = false ; // Does the DB grok the Limit/Offset SQL?
     public boolean DistinctTranslation = true ;     // Some DBs can't do DISTINCt on CLOBS.
+    public boolean GroupTranslation = false ;       // GROUP BY/COUNT in SQL (needs layout2 results)
     
     private Context context ;
 
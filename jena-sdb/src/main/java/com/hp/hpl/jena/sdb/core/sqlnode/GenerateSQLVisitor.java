@@ -117,6 +117,10 @@ public class GenerateSQLVisitor implements SqlNodeVisitor
         // WHERE
         if ( sqlSelectBlock.getConditions().size() > 0 )
             genWHERE(sqlSelectBlock.getConditions()) ;
+        
+        // GROUP BY
+        if ( sqlSelectBlock.getGroupBy().size() > 0 )
+            genGROUPBY(sqlSelectBlock.getGroupBy()) ;
 
         // LIMIT/OFFSET
         out.ensureStartOfLine() ;
@@ -204,6 +208,19 @@ public class GenerateSQLVisitor implements SqlNodeVisitor
         }
     }
 
+    private void genGROUPBY(List<SqlColumn> groupBy)
+    {
+        out.ensureStartOfLine() ;
+        out.print("GROUP BY ") ;
+        String sep = "" ;
+        for ( SqlColumn col : groupBy )
+        {
+            out.print(sep) ;
+            out.print(col.getFullColumnName()) ;
+            sep = ", " ;
+        }
+    }
+
     private void genWHERE(SqlExprList conditions)
     {
         out.print("WHERE") ;
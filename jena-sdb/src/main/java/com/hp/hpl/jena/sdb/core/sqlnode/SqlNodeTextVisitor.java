@@ -222,6 +222,8 @@ public class SqlNodeTextVisitor implements SqlNodeVisitor
         out.incIndent() ;
         print(sqlNode.getCols()) ;
         print(sqlNode.getConditions()) ;
+        if ( sqlNode.getGroupBy().size() > 0 )
+            out.println("Group: "+sqlNode.getGroupBy()) ;
         out.decIndent() ;
         
         if ( sqlNode.getStart() >= 0 || sqlNode.getLength() >= 0 )
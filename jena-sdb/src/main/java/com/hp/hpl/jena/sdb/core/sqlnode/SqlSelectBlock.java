@@ -20,7 +20,9 @@ package com.hp.hpl.jena.sdb.core.sqlnode;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.hp.hpl.jena.sdb.core.*;
 import com.hp.hpl.jena.sdb.core.sqlexpr.SqlColumn;
@@ -58,6 +60,10 @@ public class SqlSelectBlock extends SqlNodeBase1
     private long start = NOT_SET ;
     private long length = NOT_SET ;
     private boolean distinct = false ;
+    private List<SqlColumn> groupBy = new ArrayList<SqlColumn>() ;
+    // Columns of this block computed by aggregates (not node ids).
+    private Map<Var, SqlColumn> aggregates = new LinkedHashMap<Var, SqlColumn>() ;
+    private Generator aggGen = null ;
     
     private SqlTable vTable ;           // Naming base for renamed columns
     private Scope idScope = null ;      // Scopes are as the wrapped SqlNode unless explicitly changed.
@@ -115,6 +121,60 @@ public class SqlSelectBlock extends SqlNodeBase1
         return block ;
     }
     
+    /** Group the rows of an SqlNode by the node ids of some variables.
+     *  The grouping variables must be in the id scope of the SqlNode.
+     *  The new block has only the grouping variables in scope; aggregates are added with
+     *  {@link #addCount}.  
+     */
+    static public SqlSelectBlock group(SDBRequest request, SqlNode sqlNode, Collection<Var> groupVars)
+    {
+        // Select blocks are given a column view and then wrapped: grouping is
+        // done after any distinct/limit/offset of the sub-block.
+        if ( sqlNode.isSelectBlock() )
+            sqlNode = view(request, sqlNode) ;
+        SqlSelectBlock block = _create(request, sqlNode) ;
+        ScopeBase idScopeGroup = new ScopeBase() ;
+        block.aggGen = Gensym.create("X") ;
+        for ( Var v : groupVars )
+        {
+            ScopeEntry e = sqlNode.getIdScope().findScopeForVar(v) ;
+            if ( e == null )
+                throw new SDBInternalError("Group variable not in scope: "+v) ;
+            SqlColumn col = e.getColumn() ;
+            SqlColumn newCol = new SqlColumn(block.vTable, block.aggGen.next()) ;
+            block.add(new ColAlias(col, newCol)) ;
+            block.groupBy.add(col) ;
+            idScopeGroup.setColumnForVar(v, newCol) ;
+        }
+        block.idScope = idScopeGroup ;
+        // Values are added (by the bridge) outside the grouping.
+        block.nodeScope = new ScopeBase() ;
+        return block ;
+    }
+    
+    /** Add a count to a grouping block: COUNT(*) if <tt>var</tt> is null,
+     *  otherwise COUNT(col) or COUNT(DISTINCT col) for the node id column of the variable.
+     */
+    public void addCount(Var aggVar, Var var, boolean isDistinct)
+    {
+        if ( aggGen == null )
+            throw new SDBInternalError("Not a grouping block") ;
+        String expr = "*" ;
+        if ( var != null )
+        {
+            ScopeEntry e = getSubNode().getIdScope().findScopeForVar(var) ;
+            if ( e == null )
+                throw new SDBInternalError("Count variable not in scope: "+var) ;
+            expr = e.getColumn().getFullColumnName() ;
+            if ( isDistinct )
+                expr = "DISTINCT "+expr ;
+        }
+        SqlColumn aggCol = new SqlColumnFunction(vTable, "COUNT("+expr+")") ;
+        SqlColumn newCol = new SqlColumn(vTable, aggGen.next()) ;
+        add(new ColAlias(aggCol, newCol)) ;
+        aggregates.put(aggVar, newCol) ;
+    }
+    
     static public SqlNode view(SDBRequest request, SqlNode sqlNode)
     {
         SqlSelectBlock block = blockWithView(request, sqlNode) ;
@@ -183,12 +243,17 @@ public class SqlSelectBlock extends SqlNodeBase1
         idScope = null ;
         nodeScope = null ;
         cols.clear() ;
-        if ( !distinct && ! hasConditions() && ! hasSlice() )
+        if ( !distinct && ! hasConditions() && ! hasSlice() && ! hasGroupBy() )
             return getSubNode() ;
         return this ;
     }
     
     public SqlExprList getConditions()      { return exprs ; }
+    
+    public List<SqlColumn> getGroupBy()     { return groupBy ; }
+    public boolean hasGroupBy()             { return aggGen != null ; }
+    /** Aggregate variables and the column of this block holding the (integer) value */
+    public Map<Var, SqlColumn> getAggregates()  { return aggregates ; }
 
     public boolean hasSlice()               { return (start != NOT_SET )  || ( length != NOT_SET ) ; }
     public boolean hasConditions()          { return exprs.size() > 0 ; }
@@ -228,6 +293,15 @@ public class SqlSelectBlock extends SqlNodeBase1
         this.distinct = isDistinct ;
     }
 
+    // A computed column e.g. an aggregate: the "column name" is the SQL expression.
+    private static class SqlColumnFunction extends SqlColumn
+    {
+        SqlColumnFunction(SqlTable table, String sqlExpr) { super(table, sqlExpr) ; }
+        
+        @Override
+        public String getFullColumnName() { return getColumnName() ; }
+    }
+
     private static SqlSelectBlock blockWithView(SDBRequest request,SqlNode sqlNode)
     {
         if ( sqlNode instanceof SqlSelectBlock )
@@ -32,6 +32,7 @@ import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.graph.Triple;
 import com.hp.hpl.jena.sdb.SDBException;
 import com.hp.hpl.jena.sdb.Store;
+import com.hp.hpl.jena.sdb.layout2.TupleLoaderBase.PreparedNode;
 import com.hp.hpl.jena.sdb.sql.SDBConnection;
 import com.hp.hpl.jena.sdb.sql.SDBConnectionHolder;
 import com.hp.hpl.jena.sdb.sql.SDBExceptionSQL;
@@ -65,6 +66,8 @@ public class LoaderTuplesNodes
     int chunkSize = 20000;
     
 	private Class<? extends TupleLoader> tupleLoaderClass;
+	// Encode nodes in the calling thread so hashing overlaps with database work. 
+	private boolean prepareInCaller;
 
 	private Store store;
 	
@@ -72,6 +75,7 @@ public class LoaderTuplesNodes
     {
         super(connection) ;
         this.tupleLoaderClass = tupleLoaderClass ;
+        this.prepareInCaller = TupleLoaderBase.class.isAssignableFrom(tupleLoaderClass) ;
     }
     
     public void setStore(Store store) {
@@ -171,6 +175,7 @@ public class LoaderTuplesNodes
 	
     static class TupleChange {
     	public Node[] tuple;
+    	public PreparedNode[] prepared; // Encoded form of tuple, if already done
     	public boolean toAdd;
     	public TableDesc table;
     	
@@ -192,6 +197,8 @@ public class LoaderTuplesNodes
 	    if (threading)
 	    {
 	        checkThreadStatus();
+	        if (prepareInCaller && tuple.toAdd && tuple.tuple.length == tuple.table.getColNames().size())
+	            tuple.prepared = TupleLoaderBase.prepare(tuple.tuple);
 	        try
 	        {
 	        	queue.put(tuple);
@@ -296,7 +303,9 @@ public class LoaderTuplesNodes
     		}
     	}
     	
-    	if (tuple.toAdd) currentLoader.load(tuple.tuple);
+    	if (tuple.toAdd && tuple.prepared != null && currentLoader instanceof TupleLoaderBase)
+    		((TupleLoaderBase) currentLoader).load(tuple.prepared);
+    	else if (tuple.toAdd) currentLoader.load(tuple.tuple);
     	else currentLoader.unload(tuple.tuple);
     }
     
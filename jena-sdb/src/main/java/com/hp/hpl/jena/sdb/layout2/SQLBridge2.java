@@ -21,7 +21,11 @@ package com.hp.hpl.jena.sdb.layout2;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
+import org.apache.jena.atlas.lib.Cache ;
+import org.apache.jena.atlas.lib.CacheFactory ;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -31,6 +35,7 @@ import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
 import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.graph.NodeFactory ;
 import com.hp.hpl.jena.rdf.model.AnonId;
+import com.hp.hpl.jena.sdb.SDB;
 import com.hp.hpl.jena.sdb.compiler.SqlBuilder;
 import com.hp.hpl.jena.sdb.core.AliasesSql;
 import com.hp.hpl.jena.sdb.core.SDBRequest;
@@ -42,6 +47,7 @@ import com.hp.hpl.jena.sdb.core.sqlexpr.SqlExpr;
 import com.hp.hpl.jena.sdb.core.sqlnode.SqlNode;
 import com.hp.hpl.jena.sdb.core.sqlnode.SqlTable;
 import com.hp.hpl.jena.sdb.sql.ResultSetJDBC;
+import com.hp.hpl.jena.sdb.sql.SDBExceptionSQL;
 import com.hp.hpl.jena.sdb.sql.SQLUtils;
 import com.hp.hpl.jena.sdb.store.SQLBridgeBase;
 import com.hp.hpl.jena.sparql.core.Var;
@@ -56,10 +62,37 @@ public class SQLBridge2 extends SQLBridgeBase
     // Result nodes tables 
     private static final String NodeBase = AliasesSql.NodesResultAliasBase ;
     //private Generator genNodeResultAlias = null ;
+    
+    /** Default size of the cache of nodes built from results. */ 
+    public static final int NodeResultCacheSize = 10000 ;
+    
+    // Nodes already built, by node table hash/id.
+    // Repeated values only need the type and key columns read from the row.
+    // The other columns are still selected (the SQL cannot depend on the cache)
+    // but are not read, so a lexical form held as a LOB is not fetched.
+    private final Cache<Long, Node> nodeCache ;
+    
+    // Aggregate (count) variables and the result column label.
+    private final Map<Var, String> aggLabels = new HashMap<Var, String>() ;
 
     public SQLBridge2(SDBRequest request, SqlNode sqlNode, Collection<Var> projectVars)
     { 
         super(request, sqlNode, projectVars) ;
+        int size = nodeCacheSize(request) ;
+        nodeCache = ( size > 0 ) ? CacheFactory.<Long, Node>createCache(size) : null ;
+    }
+    
+    private static int nodeCacheSize(SDBRequest request)
+    {
+        String str = ( request == null ) ? null : request.getContext().getAsString(SDB.nodeResultCacheSize) ;
+        if ( str == null )
+            return NodeResultCacheSize ;
+        try { return Integer.parseInt(str) ; }
+        catch (NumberFormatException ex)
+        { 
+            log.warn("Bad number for node result cache size: "+str) ;
+            return NodeResultCacheSize ;
+        }
     }
     
     @Override
@@ -76,6 +109,8 @@ public class SQLBridge2 extends SQLBridgeBase
     {
         for ( Var v : getProject() )
         {
+            if ( buildProjectAggregate(v) )
+                continue ;
             if ( ! v.isNamedVar() )
                 continue ;
             ScopeEntry e = getSqlNode().getNodeScope().findScopeForVar(v) ;
@@ -108,7 +143,12 @@ public class SQLBridge2 extends SQLBridgeBase
     
             String vType = SQLUtils.gen(sqlVarName,"type") ;
             SqlColumn cType = new SqlColumn(table, "type") ;
+            
+            String vRef = SQLUtils.gen(sqlVarName,"ref") ;
+            SqlColumn cRef = new SqlColumn(table, request.getStore().getNodeTableDesc().getNodeRefColName()) ;
     
+            if ( nodeCache != null )
+                addProject(cRef, vRef) ;
             addProject(cLex, vLex) ;
             // Oracle NCLOB support
             if (cLexNChar != null) {
@@ -123,6 +163,28 @@ public class SQLBridge2 extends SQLBridgeBase
         setAnnotation() ; 
     }
     
+    // Counts computed in SQL by a grouping select block (see TransformSDB).
+    // These are values, not node ids, so are read directly.
+    private boolean buildProjectAggregate(Var v)
+    {
+        SqlNode sqlNodeGroup = getSqlExprNode() ;
+        if ( ! sqlNodeGroup.isSelectBlock() )
+            return false ;
+        SqlColumn col = sqlNodeGroup.asSelectBlock().getAggregates().get(v) ;
+        if ( col == null )
+            return false ;
+        if ( getSqlNode() == sqlNodeGroup )
+            // Nothing added around the grouping block - the column is already in the SELECT. 
+            aggLabels.put(v, col.getColumnName()) ;
+        else
+        {
+            String label = SQLUtils.gen(allocSqlName(v),"count") ;
+            addProject(col, label) ;
+            aggLabels.put(v, label) ;
+        }
+        return true ;
+    }
+    
     /**
      * Intended to be overridden by an Oracle-specific impl to handle nclob selection. 
      * @see SQLBridge2Oracle
@@ -187,6 +249,20 @@ public class SQLBridge2 extends SQLBridgeBase
         ResultSet rs = rsHolder.get() ;
         for ( Var v : super.getProject() )
         {
+            String aggLabel = aggLabels.get(v) ;
+            if ( aggLabel != null )
+            {
+                try {
+                    long count = rs.getLong(aggLabel) ;
+                    b.add(v, NodeFactory.createLiteral(Long.toString(count), null, XSDDatatype.XSDinteger)) ;
+                } catch (SQLException ex)
+                {
+                    // The column was added to the SELECT for this variable.
+                    throw new SDBExceptionSQL("SQLBridge2: count for "+v, ex) ;
+                }
+                continue ;
+            }
+
             if ( ! v.isNamedVar() )
                 // Skip bNodes and system variables
                 continue ;
@@ -201,6 +277,18 @@ public class SQLBridge2 extends SQLBridgeBase
                 // Test with "wasNull()" for safety
                 if ( rs.wasNull() )
                     continue ;
+                
+                Long ref = null ;
+                if ( nodeCache != null )
+                {
+                    ref = rs.getLong(SQLUtils.gen(codename,"ref")) ;
+                    Node r = nodeCache.get(ref) ;
+                    if ( r != null )
+                    {
+                        b.add(v, r) ;
+                        continue ;
+                    }
+                }
 
                 String lexColName = SQLUtils.gen(codename,"lex") ;
                 // Get lexical - overriden by Oracle-specific code.
@@ -212,6 +300,8 @@ public class SQLBridge2 extends SQLBridgeBase
                 String lang     = rs.getString(SQLUtils.gen(codename,"lang")) ;
                 ValueType vType = ValueType.lookup(type) ;
                 Node r          = makeNode(lex, datatype, lang, vType) ;
+                if ( ref != null )
+                    nodeCache.put(ref, r) ;
                 b.add(v, r) ;
             } catch (SQLException ex)
             { // Unknown variable?
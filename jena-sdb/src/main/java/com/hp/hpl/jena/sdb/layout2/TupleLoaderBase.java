@@ -20,7 +20,9 @@ package com.hp.hpl.jena.sdb.layout2;
 
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import com.hp.hpl.jena.graph.Node;
@@ -33,6 +35,8 @@ public abstract class TupleLoaderBase extends com.hp.hpl.jena.sdb.store.TupleLoa
 	
 	PreparedStatement insertTupleLoader;
     PreparedStatement insertNodeLoader;
+    PreparedStatement insertTupleLoaderMulti; // Multi-row VALUES, if supported
+    PreparedStatement insertNodeLoaderMulti;
     String insertNodes;
     String insertTuples;
     PreparedStatement deleteTuples;
@@ -40,11 +44,17 @@ public abstract class TupleLoaderBase extends com.hp.hpl.jena.sdb.store.TupleLoa
     PreparedStatement clearTupleLoader;
     PreparedStatement clearNodeLoader;
 	
+    /** Rows per INSERT statement for databases that support multi-row VALUES lists */
+    protected static final int MultiRowInsertSize = 100;
+    
     int chunkSize;
+    int rowsPerInsert;
     boolean amLoading; // flag for whether we're loading or deleting
     int tupleNum;
     
     Set<Long> seenNodes; // For suppressing duplicate nodes
+    List<PreparedNode> pendingNodes; // Distinct nodes of the current chunk
+    List<long[]> pendingTuples; // Tuples (as hashes) of the current chunk
     
 	public TupleLoaderBase(SDBConnection connection,
 			TableDesc tableDesc, int chunkSize) {
@@ -53,6 +63,8 @@ public abstract class TupleLoaderBase extends com.hp.hpl.jena.sdb.store.TupleLoa
 		this.amLoading = true;
 		this.tupleNum = 0;
 		this.seenNodes = new HashSet<Long>();
+		this.pendingNodes = new ArrayList<PreparedNode>();
+		this.pendingTuples = new ArrayList<long[]>();
 		try {
 			init();
 		} catch (SQLException e) {
@@ -65,6 +77,11 @@ public abstract class TupleLoaderBase extends com.hp.hpl.jena.sdb.store.TupleLoa
 		// Prepare those statements
 		insertNodeLoader = connection().prepareStatement(getInsertTempNodes());
 		insertTupleLoader = connection().prepareStatement(getInsertTempTuples());
+		rowsPerInsert = Math.max(1, Math.min(getRowsPerInsert(), chunkSize));
+		if (rowsPerInsert > 1) {
+			insertNodeLoaderMulti = connection().prepareStatement(getInsertTempNodes(rowsPerInsert));
+			insertTupleLoaderMulti = connection().prepareStatement(getInsertTempTuples(rowsPerInsert));
+		}
 		insertNodes = getLoadNodes();
 		insertTuples = getLoadTuples();
 		deleteTuples = connection().prepareStatement(getDeleteTuples());
@@ -79,6 +96,17 @@ public abstract class TupleLoaderBase extends com.hp.hpl.jena.sdb.store.TupleLoa
 	
 	@Override
     public void load(Node... row) {
+		if (row.length != this.getTableWidth())
+			throw new IllegalArgumentException("Tuple size mismatch");
+		load(prepare(row));
+	}
+	
+	/**
+	 * Load a row whose nodes have already been encoded with {@link #prepare}.
+	 * This allows the (relatively expensive) hashing to be done by
+	 * a thread other than the one talking to the database.
+	 */
+	public void load(PreparedNode... row) {
 		if (!amLoading) {
 			flush();
 			amLoading = true;
@@ -87,21 +115,26 @@ public abstract class TupleLoaderBase extends com.hp.hpl.jena.sdb.store.TupleLoa
 		if (row.length != this.getTableWidth())
 			throw new IllegalArgumentException("Tuple size mismatch");
 		
-		try {
-			for (int i = 0; i < row.length; i++) {
-				PreparedNode pNode = new PreparedNode(row[i]);
-				if (seenNodes.add(pNode.hash)) // if true, this is new...
-					pNode.addToStatement(insertNodeLoader);
-				insertTupleLoader.setLong(i + 1, pNode.hash);
-			}
-			insertTupleLoader.addBatch();
-		} catch (SQLException e) {
-			throw new SDBException("Problem adding to prepared loader statements", e);
+		long[] tuple = new long[row.length];
+		for (int i = 0; i < row.length; i++) {
+			PreparedNode pNode = row[i];
+			if (seenNodes.add(pNode.hash)) // if true, this is new...
+				pendingNodes.add(pNode);
+			tuple[i] = pNode.hash;
 		}
+		pendingTuples.add(tuple);
 		
 		tupleNum++;
 		if (tupleNum >= chunkSize) flush();
 	}
+	
+	/** Encode nodes ready for {@link #load(PreparedNode...)} */
+	public static PreparedNode[] prepare(Node... row) {
+		PreparedNode[] pRow = new PreparedNode[row.length];
+		for (int i = 0; i < row.length; i++)
+			pRow[i] = new PreparedNode(row[i]);
+		return pRow;
+	}
 
 	@Override
     public void unload(Node... row) {
@@ -178,6 +211,8 @@ public abstract class TupleLoaderBase extends com.hp.hpl.jena.sdb.store.TupleLoa
 	        // and cuyrsors are a scarce resource that need managing carefully.
 	        connection().closePreparedStatement(insertTupleLoader) ;
 	        connection().closePreparedStatement(insertNodeLoader);
+	        connection().closePreparedStatement(insertTupleLoaderMulti);
+	        connection().closePreparedStatement(insertNodeLoaderMulti);
 	        connection().closePreparedStatement(deleteTuples);
 	        connection().closePreparedStatement(deleteAllTuples);
 	        connection().closePreparedStatement(clearTupleLoader);
@@ -211,8 +246,8 @@ public abstract class TupleLoaderBase extends com.hp.hpl.jena.sdb.store.TupleLoa
 		
 		try {
 			if (amLoading) {
-				insertNodeLoader.executeBatch();
-				insertTupleLoader.executeBatch();
+				writeTempNodes();
+				writeTempTuples();
 				connection().execUpdate(insertNodes);
 				connection().execUpdate(insertTuples);
 				if (!handleTransaction || !clearsOnCommit()) {
@@ -235,7 +270,52 @@ public abstract class TupleLoaderBase extends com.hp.hpl.jena.sdb.store.TupleLoa
 		} finally {
 			tupleNum = 0;
 			seenNodes = new HashSet<Long>();
+			pendingNodes.clear();
+			pendingTuples.clear();
+		}
+	}
+	
+	// Send the pending nodes to the temporary table: as many full multi-row
+	// statements as possible, then the remainder row-by-row, all as JDBC batches. 
+	private void writeTempNodes() throws SQLException {
+		int width = getNodeColTypes().length;
+		int i = 0;
+		if (insertNodeLoaderMulti != null) {
+			for (; i + rowsPerInsert <= pendingNodes.size(); i += rowsPerInsert) {
+				for (int j = 0; j < rowsPerInsert; j++)
+					pendingNodes.get(i + j).setParameters(insertNodeLoaderMulti, j * width);
+				insertNodeLoaderMulti.addBatch();
+			}
+			if (i > 0) insertNodeLoaderMulti.executeBatch();
+		}
+		if (i == pendingNodes.size()) return;
+		for (; i < pendingNodes.size(); i++)
+			pendingNodes.get(i).addToStatement(insertNodeLoader);
+		insertNodeLoader.executeBatch();
+	}
+	
+	private void writeTempTuples() throws SQLException {
+		int width = getTableWidth();
+		int i = 0;
+		if (insertTupleLoaderMulti != null) {
+			for (; i + rowsPerInsert <= pendingTuples.size(); i += rowsPerInsert) {
+				for (int j = 0; j < rowsPerInsert; j++) {
+					long[] tuple = pendingTuples.get(i + j);
+					for (int k = 0; k < width; k++)
+						insertTupleLoaderMulti.setLong(j * width + k + 1, tuple[k]);
+				}
+				insertTupleLoaderMulti.addBatch();
+			}
+			if (i > 0) insertTupleLoaderMulti.executeBatch();
 		}
+		if (i == pendingTuples.size()) return;
+		for (; i < pendingTuples.size(); i++) {
+			long[] tuple = pendingTuples.get(i);
+			for (int k = 0; k < width; k++)
+				insertTupleLoader.setLong(k + 1, tuple[k]);
+			insertTupleLoader.addBatch();
+		}
+		insertTupleLoader.executeBatch();
 	}
 	
 	/** These are the SQL 'bits' we use to construct the loader statements **/
@@ -285,27 +365,36 @@ public abstract class TupleLoaderBase extends com.hp.hpl.jena.sdb.store.TupleLoa
 	}
 	
 	public String getInsertTempNodes() {
-		StringBuilder stmt = new StringBuilder();
-		
-		stmt.append("INSERT INTO ").append(getNodeLoader()).append(" VALUES (");
-		for (int i = 0; i < getNodeColTypes().length; i++) {
-			if (i != 0) stmt.append(" , ");
-			stmt.append("?");
-		}
-		stmt.append(" )");
-		
-		return stmt.toString();
+		return getInsertTempNodes(1);
 	}
 	
 	public String getInsertTempTuples() {
+		return getInsertTempTuples(1);
+	}
+	
+	/** Insert into the node loader table, with a VALUES list of <tt>rows</tt> rows */
+	public String getInsertTempNodes(int rows) {
+		return insertValues(getNodeLoader(), getNodeColTypes().length, rows);
+	}
+	
+	/** Insert into the tuple loader table, with a VALUES list of <tt>rows</tt> rows */
+	public String getInsertTempTuples(int rows) {
+		return insertValues(getTupleLoader(), this.getTableWidth(), rows);
+	}
+	
+	private static String insertValues(String table, int width, int rows) {
 		StringBuilder stmt = new StringBuilder();
 		
-		stmt.append("INSERT INTO ").append(getTupleLoader()).append(" VALUES (");
-		for (int i = 0; i < this.getTableWidth(); i++) {
-			if (i != 0) stmt.append(" , ");
-			stmt.append("?");
+		stmt.append("INSERT INTO ").append(table).append(" VALUES ");
+		for (int r = 0; r < rows; r++) {
+			if (r != 0) stmt.append(" , ");
+			stmt.append("(");
+			for (int i = 0; i < width; i++) {
+				if (i != 0) stmt.append(" , ");
+				stmt.append("?");
+			}
+			stmt.append(" )");
 		}
-		stmt.append(" )");
 		
 		return stmt.toString();
 	}
@@ -336,6 +425,11 @@ public abstract class TupleLoaderBase extends com.hp.hpl.jena.sdb.store.TupleLoa
 	@Override
     public boolean clearsOnCommit() { return false; }
 	
+	/** Number of rows sent in each INSERT into the loader tables.
+	 *  Databases that accept multi-row VALUES lists override this. */
+	@Override
+    public int getRowsPerInsert() { return 1; }
+	
 	// ---- Temporary table creation.
 	// Some databases (MySQL, MS SQL) do not make the temnporary tables visible to a metadata probe.
 	// 
@@ -462,11 +556,7 @@ public abstract class TupleLoaderBase extends com.hp.hpl.jena.sdb.store.TupleLoa
         public void addToStatement(PreparedStatement s)
         	throws SQLException
         {
-        	s.setLong(1, hash);
-        	s.setString(2, lex);
-        	s.setString(3, lang);
-        	s.setString(4, datatype);
-        	s.setInt(5, typeId);
+        	setParameters(s, 0);
         	/*if (valInt != null)
         		s.setInt(6, valInt);
         	else
@@ -482,6 +572,17 @@ public abstract class TupleLoaderBase extends com.hp.hpl.jena.sdb.store.TupleLoa
         	s.addBatch();
         }
         
+        /** Set the parameters for this node, starting after parameter <tt>offset</tt>. */
+        public void setParameters(PreparedStatement s, int offset)
+            throws SQLException
+        {
+            s.setLong(offset + 1, hash);
+            s.setString(offset + 2, lex);
+            s.setString(offset + 3, lang);
+            s.setString(offset + 4, datatype);
+            s.setInt(offset + 5, typeId);
+        }
+        
         @Override
         public int hashCode()
         {
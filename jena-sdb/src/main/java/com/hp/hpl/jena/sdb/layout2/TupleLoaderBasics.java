@@ -28,4 +28,5 @@ public interface TupleLoaderBasics {
 	public String getClearTempNodes();
 	public String getClearTempTuples();
 	public boolean clearsOnCommit();
+	public int getRowsPerInsert();
 }
@@ -62,4 +62,7 @@ public class TupleLoaderHashDerby extends TupleLoaderHashBase {
 	
 	@Override
 	public boolean clearsOnCommit() { return true; }
+	
+	@Override
+	public int getRowsPerInsert() { return MultiRowInsertSize; }
 }
@@ -58,4 +58,7 @@ public class TupleLoaderHashH2 extends TupleLoaderHashBase {
 	public String getTupleLoader() {
 		return super.getTupleLoader() + hashCode();
 	}
+	
+	@Override
+	public int getRowsPerInsert() { return MultiRowInsertSize; }
 }
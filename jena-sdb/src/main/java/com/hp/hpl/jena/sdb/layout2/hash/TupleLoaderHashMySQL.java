@@ -71,4 +71,7 @@ public class TupleLoaderHashMySQL extends TupleLoaderHashBase {
 		
 		return stmt.toString();
 	}
+	
+	@Override
+	public int getRowsPerInsert() { return MultiRowInsertSize; }
 }
@@ -62,4 +62,7 @@ public class TupleLoaderHashPGSQL extends TupleLoaderHashBase {
         public String getLoadNodes() {
             return "LOCK TABLE Nodes; " + super.getLoadNodes();
         }
+	
+	@Override
+	public int getRowsPerInsert() { return MultiRowInsertSize; }
 }
@@ -56,4 +56,7 @@ public class TupleLoaderHashSQLServer extends TupleLoaderHashBase {
 		// In SQL Server temp tables start with a #
 		return "#"+super.getTupleLoader();
 	}
+	
+	@Override
+	public int getRowsPerInsert() { return MultiRowInsertSize; }
 }
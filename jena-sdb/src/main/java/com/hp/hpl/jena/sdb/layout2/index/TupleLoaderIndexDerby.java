@@ -62,4 +62,7 @@ public class TupleLoaderIndexDerby extends TupleLoaderIndexBase {
 	
 	@Override
 	public boolean clearsOnCommit() { return true; }
+	
+	@Override
+	public int getRowsPerInsert() { return MultiRowInsertSize; }
 }
@@ -59,4 +59,7 @@ public class TupleLoaderIndexH2 extends TupleLoaderIndexBase {
 	public String getTupleLoader() {
 		return super.getTupleLoader() + hashCode();
 	}
+	
+	@Override
+	public int getRowsPerInsert() { return MultiRowInsertSize; }
 }
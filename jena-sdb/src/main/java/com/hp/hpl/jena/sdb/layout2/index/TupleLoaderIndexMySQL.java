@@ -106,4 +106,7 @@ public class TupleLoaderIndexMySQL extends TupleLoaderIndexBase {
 
             return stmt.toString();
 	}
+	
+	@Override
+	public int getRowsPerInsert() { return MultiRowInsertSize; }
 }
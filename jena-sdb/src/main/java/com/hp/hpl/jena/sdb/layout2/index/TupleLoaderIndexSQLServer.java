@@ -55,4 +55,7 @@ public class TupleLoaderIndexSQLServer extends TupleLoaderIndexBase {
 		// In SQL Server temp tables start with a #
 		return "#"+super.getTupleLoader();
 	}
+	
+	@Override
+	public int getRowsPerInsert() { return MultiRowInsertSize; }
 }
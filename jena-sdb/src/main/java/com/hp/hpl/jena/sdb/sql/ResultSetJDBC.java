@@ -22,8 +22,8 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 
-//import org.slf4j.Logger;
-//import org.slf4j.LoggerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /* Indirect for possible statement management later.
  * Currectly, one statement - one result set so close both together. 
@@ -34,7 +34,7 @@ import java.sql.Statement;
 
 public class ResultSetJDBC
 {
-    //static private Logger log = LoggerFactory.getLogger(ResultSetJDBC.class) ;
+    static private Logger log = LoggerFactory.getLogger(ResultSetJDBC.class) ;
     
     private Statement statement ;
     private ResultSet resultSet ;
@@ -46,6 +46,17 @@ public class ResultSetJDBC
     
     public ResultSet get() { return resultSet ; }
     
+    /** Ask the database to abandon the query, if the driver supports it.
+     *  Used when the results are not going to be read to the end.  
+     */
+    public void cancel()
+    {
+        // Not supported or already finished: the statement is closed anyway.
+        try { statement.cancel() ; }
+        catch (SQLException ex)                     { log.debug("Statement cancel failed", ex) ; }
+        catch (UnsupportedOperationException ex)    { log.debug("Statement cancel not supported", ex) ; }
+    }
+    
     public void close()
     {
         try {
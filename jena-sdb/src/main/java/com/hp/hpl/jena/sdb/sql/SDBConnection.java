@@ -232,10 +232,10 @@ public class SDBConnection
     
     /** Close a prepared statement **/
     public void closePreparedStatement(PreparedStatement ps) throws SQLException {
-        if ( loggingSQLStatements() )
-            writeLog("closePrepareStatement", ps.toString()) ;
         if ( ps == null )
             return ;
+        if ( loggingSQLStatements() )
+            writeLog("closePrepareStatement", ps.toString()) ;
         try {
             ps.close() ;
         } catch (SQLException ex) {
@@ -154,6 +154,7 @@ public abstract class SQLBridgeBase implements SQLBridge
     {
         boolean ready = false ;
         boolean hasNext = false ;
+        boolean finished = false ;  // Result set read to the end.
         private ResultSetJDBC jdbcResultSet ;
         private Binding parent ;
         
@@ -167,6 +168,12 @@ public abstract class SQLBridgeBase implements SQLBridge
         @Override
         protected void closeIterator()
         {
+            if ( jdbcResultSet == null )
+                return ;
+            // Closed early (e.g. LIMIT reached in ARQ) - stop the database
+            // producing rows, and some drivers reading the rest of a streamed result.
+            if ( ! finished )
+                jdbcResultSet.cancel() ;
             RS.close(jdbcResultSet) ;
             jdbcResultSet = null ;
         }
@@ -179,6 +186,7 @@ public abstract class SQLBridgeBase implements SQLBridge
                 try
                 {
                     hasNext = jdbcResultSet.get().next() ;
+                    finished = ! hasNext ;
                 } catch (SQLException ex)
                 {
                     closeIterator() ;
@@ -201,7 +209,11 @@ public abstract class SQLBridgeBase implements SQLBridge
         // Asynchronous request to cancel.  ARQ 2.8.8 and later.
         @Override
         protected void requestCancel()
-        {}
+        {
+            ResultSetJDBC rs = jdbcResultSet ;
+            if ( rs != null )
+                rs.cancel() ;
+        }
         
     }
 }
@@ -26,6 +26,7 @@ import com.hp.hpl.jena.sdb.test.misc.TestExprMatch;
 import com.hp.hpl.jena.sdb.test.misc.TestPrefixMappingSDB;
 import com.hp.hpl.jena.sdb.test.misc.TestRegex;
 import com.hp.hpl.jena.sdb.test.misc.TestRegistry;
+import com.hp.hpl.jena.sdb.test.misc.TestResultStream;
 
 // Collect the misc tests together.
 
@@ -35,7 +36,8 @@ import com.hp.hpl.jena.sdb.test.misc.TestRegistry;
     TestExprMatch.class,
     TestRegex.class,
     TestPrefixMappingSDB.class,
-    TestRegistry.class
+    TestRegistry.class,
+    TestResultStream.class
 } )
 
 public class SDBTestMisc
@@ -77,4 +77,18 @@ public class TestConnection extends ParamAllStoreDesc
         assertTrue(model1.isIsomorphicWith(model2)) ;
         
     }
+    
+    @Test public void connection_2() throws Exception
+    {
+        // Closing the loaders with statement logging on, including statements never prepared.
+        SDBConnection conn1 = SDBFactory.createConnection(conn) ;
+        Store store1 = StoreFactory.create(storeDesc, conn1) ;
+        store1.getTableFormatter().format();
+        conn1.setLogSQLStatements(true) ;
+        Model model1 = SDBFactory.connectDefaultModel(store1) ;
+        model1.add(model1.createResource(), model1.createProperty("http://example/p"), "value") ;
+        assertEquals(1, model1.size()) ;
+        store1.getLoader().close() ;
+        conn1.closePreparedStatement(null) ;
+    }
 }
@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sdb.test.misc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.query.* ;
+import com.hp.hpl.jena.sdb.SDB;
+import com.hp.hpl.jena.sdb.SDBFactory;
+import com.hp.hpl.jena.sdb.Store;
+import com.hp.hpl.jena.sdb.sql.ResultSetJDBC;
+import com.hp.hpl.jena.sdb.test.junit.SDBTestUtils;
+import com.hp.hpl.jena.sparql.resultset.ResultSetCompare;
+import com.hp.hpl.jena.sparql.sse.SSE;
+
+/** Streamed results from SQL: the node cache, and cancelling abandoned statements. */
+public class TestResultStream
+{
+    static Store store = null ;
+    static Dataset ds = null ;
+
+    @BeforeClass
+    public static void setUpClass()
+    {
+        store = SDBTestUtils.createInMemoryStore() ;
+        Graph graph = SDBFactory.connectDefaultGraph(store) ;
+        // Few distinct objects, repeated: most are found in the cache.
+        for ( int i = 0 ; i < 200 ; i++ )
+        {
+            graph.add(SSE.parseTriple("(<http://example/s"+i+"> <http://example/p> <http://example/o"+(i%5)+">)")) ;
+            graph.add(SSE.parseTriple("(<http://example/s"+i+"> <http://example/q> 'v"+(i%3)+"'@en)")) ;
+            graph.add(SSE.parseTriple("(<http://example/s"+i+"> <http://example/r> "+(i%4)+")")) ;
+        }
+        ds = SDBFactory.connectDataset(store) ;
+    }
+
+    @AfterClass
+    public static void teardownClass()
+    {
+        if ( store != null )
+        {
+            store.getTableFormatter().truncate() ;
+            store.close() ;
+        }
+        store = null ;
+        ds = null ;
+    }
+
+    private static ResultSetRewindable exec(String queryString, String cacheSize)
+    {
+        QueryExecution qExec = QueryExecutionFactory.create(queryString, ds) ;
+        try {
+            if ( cacheSize != null )
+                qExec.getContext().set(SDB.nodeResultCacheSize, cacheSize) ;
+            return ResultSetFactory.copyResults(qExec.execSelect()) ;
+        } finally { qExec.close() ; }
+    }
+
+    @Test public void cache_1()
+    {
+        String qs = "SELECT * { ?s <http://example/p> ?o ; <http://example/q> ?v ; <http://example/r> ?n } ORDER BY ?s" ;
+        ResultSetRewindable rs1 = exec(qs, null) ;
+        ResultSetRewindable rs2 = exec(qs, "0") ;
+        assertEquals(200, rs1.size()) ;
+        assertTrue(ResultSetCompare.equalsByTermAndOrder(rs1, rs2)) ;
+    }
+
+    @Test public void cache_2()
+    {
+        // A cache smaller than the number of distinct values.
+        String qs = "SELECT ?s ?o { ?s <http://example/p> ?o } ORDER BY ?s" ;
+        ResultSetRewindable rs1 = exec(qs, "2") ;
+        ResultSetRewindable rs2 = exec(qs, "0") ;
+        assertEquals(200, rs1.size()) ;
+        assertTrue(ResultSetCompare.equalsByTermAndOrder(rs1, rs2)) ;
+    }
+
+    @Test public void cancel_1()
+    {
+        // Abandon a streamed result part way through, then use the store again.
+        QueryExecution qExec = QueryExecutionFactory.create("SELECT * { ?s ?p ?o }", ds) ;
+        try {
+            ResultSet rs = qExec.execSelect() ;
+            assertTrue(rs.hasNext()) ;
+            rs.next() ;
+        } finally { qExec.close() ; }
+        assertEquals(600, exec("SELECT * { ?s ?p ?o }", null).size()) ;
+    }
+
+    @Test public void cancel_2()
+    {
+        // Cancel failing does not stop the statement being closed.
+        List<String> calls = new ArrayList<String>() ;
+        Statement s = statement(calls, true) ;
+        ResultSetJDBC rs = new ResultSetJDBC(s, resultSet(calls)) ;
+        rs.cancel() ;
+        rs.close() ;
+        assertEquals("[Statement.cancel, ResultSet.close, Statement.close]", calls.toString()) ;
+    }
+
+    @Test public void cancel_3()
+    {
+        List<String> calls = new ArrayList<String>() ;
+        ResultSetJDBC rs = new ResultSetJDBC(statement(calls, false), resultSet(calls)) ;
+        rs.cancel() ;
+        rs.close() ;
+        assertEquals("[Statement.cancel, ResultSet.close, Statement.close]", calls.toString()) ;
+    }
+
+    // Records the calls of cancel and close; cancel may fail.
+    private static Statement statement(final List<String> calls, final boolean cancelFails)
+    {
+        InvocationHandler h = new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+            {
+                calls.add("Statement."+method.getName()) ;
+                if ( cancelFails && method.getName().equals("cancel") )
+                    throw new SQLException("Cancel not supported") ;
+                return null ;
+            }
+        } ;
+        return (Statement)Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{Statement.class}, h) ;
+    }
+
+    private static java.sql.ResultSet resultSet(final List<String> calls)
+    {
+        InvocationHandler h = new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+            {
+                calls.add("ResultSet."+method.getName()) ;
+                return null ;
+            }
+        } ;
+        return (java.sql.ResultSet)Proxy.newProxyInstance(java.sql.ResultSet.class.getClassLoader(),
+                                                          new Class<?>[]{java.sql.ResultSet.class}, h) ;
+    }
+}
@@ -197,6 +197,21 @@ public abstract class TestStoreUpdateBase {
 		assertEquals("Store nodes node size correct", 5, size(nodeT));
 	}
 	
+	@Test public void loadManyChunk()
+	{
+		// Enough rows to use multi-row inserts, with a remainder
+		TableDesc desc = store.getTripleTableDesc();
+		loader.startBulkUpdate();
+		for (int i = 0; i < 250; i++) {
+			loader.addTuple(desc, node("S" + i), node("P"), node("O"));
+			loader.addTuple(desc, node("S" + i), node("P"), node("O"));
+		}
+		loader.finishBulkUpdate();
+		
+		assertEquals("Store added all triples once", 250, size(desc));
+		assertEquals("Store added correct number of nodes", 252, size(nodeT));
+	}
+	
 	@Test(expected = IllegalArgumentException.class) public void arityViolation()
 	{
 		TableDesc desc = store.getQuadTableDesc();
@@ -152,6 +152,15 @@ public class StoreConnection
         return transactionManager.activeTransactions() ; 
     }
     
+    /** The journal of committed transactions not yet written to the base storage.
+     *  Do not modify it.
+     */
+    public Journal getJournal()
+    {
+        checkValid() ;
+        return transactionManager.getJournal() ;
+    }
+
     /** Flush the journal regardless - use with great case - do not use when transactions may be active. */ 
     public void forceRecoverFromJournal()
     {
@@ -41,11 +41,13 @@ import com.hp.hpl.jena.sparql.core.assembler.AssemblerUtils ;
 import com.hp.hpl.jena.sparql.engine.main.StageBuilder ;
 import com.hp.hpl.jena.sparql.engine.main.StageGenerator ;
 import com.hp.hpl.jena.sparql.lib.Metadata ;
+import com.hp.hpl.jena.sparql.mgt.ARQMgt ;
 import com.hp.hpl.jena.sparql.mgt.SystemInfo ;
 import com.hp.hpl.jena.sparql.util.Context ;
 import com.hp.hpl.jena.sparql.util.MappingRegistry ;
 import com.hp.hpl.jena.sparql.util.Symbol ;
 import com.hp.hpl.jena.tdb.assembler.AssemblerTDB ;
+import com.hp.hpl.jena.tdb.mgt.TDBMetrics ;
 import com.hp.hpl.jena.tdb.modify.UpdateEngineTDB ;
 import com.hp.hpl.jena.tdb.setup.DatasetBuilderStd ;
 import com.hp.hpl.jena.tdb.solver.QueryEngineTDB ;
@@ -89,6 +91,29 @@ public class TDB {
     /** Symbol to use the union of named graphs as the default graph of a query */
     public static final Symbol  symUnionDefaultGraph             = SystemTDB.allocSymbol("unionDefaultGraph") ;
 
+    /**
+     * Symbol for adaptive execution of basic graph patterns: the number of
+     * matches of each triple pattern is recorded and used to choose the order
+     * of the remaining patterns as execution proceeds, and by later queries
+     * that are also executed adaptively. Default is false.
+     */
+    public static final Symbol  symAdaptiveExecution             = SystemTDB.allocSymbol("adaptiveExecution") ;
+
+    /**
+     * Symbol to control matching basic graph patterns whose variables form a
+     * cycle (triangles, cliques) by a leapfrog triejoin over the indexes,
+     * rather than one triple pattern after another, when that is estimated to
+     * be cheaper. Default is false.
+     */
+    public static final Symbol  symLeapfrogJoin                  = SystemTDB.allocSymbol("leapfrogJoin") ;
+
+    /**
+     * Symbol to control answering a query, or part of one, from the
+     * materialized views of the dataset (see
+     * {@link com.hp.hpl.jena.tdb.store.MaterializedViews}). Default is true.
+     */
+    public static final Symbol  symMaterializedViews             = SystemTDB.allocSymbol("materializedViews") ;
+
     /**
      * A String enum Symbol that specifies the type of temporary storage for
      * transaction journal write blocks.
@@ -231,6 +256,7 @@ public class TDB {
         AssemblerTDB.init() ;
         QueryEngineTDB.register() ;
         UpdateEngineTDB.register() ;
+        ARQMgt.register(PATH + ".system:type=Metrics", TDBMetrics.get()) ;
         MappingRegistry.addPrefixMapping(TDB.tdbSymbolPrefix, TDB.tdbParamNS) ;
 
         wireIntoExecution() ;
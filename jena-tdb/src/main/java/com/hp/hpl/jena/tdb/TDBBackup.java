@@ -29,9 +29,14 @@ import com.hp.hpl.jena.query.Dataset ;
 import com.hp.hpl.jena.query.ReadWrite ;
 import com.hp.hpl.jena.tdb.base.file.Location ;
 import com.hp.hpl.jena.tdb.transaction.DatasetGraphTxn ;
+import com.hp.hpl.jena.tdb.transaction.FileBackup ;
 
 /**
  * Backup a database.
+ * <p>
+ * {@link #backup(Location, String)} writes the data as N-Quads.
+ * {@link #backupFiles(Location, String)} copies the database files while
+ * the database is in use, and can be incremental; see {@link FileBackup}.
  */
 
 public class TDBBackup
@@ -59,5 +64,24 @@ public class TDBBackup
         RDFDataMgr.write(backupfile, dsg, Lang.NQUADS) ;
         dsg.end();
     }
+
+    /** Copy the database files to a new directory, while the database is in use. */
+    public static void backupFiles(Location location, String backupDir)
+    {
+        FileBackup.backup(location, backupDir) ;
+    }
+
+    /** Copy the blocks of the database files that have changed since a previous
+     * file backup to a new directory, while the database is in use. */
+    public static void backupFiles(Location location, String backupDir, String previousBackupDir)
+    {
+        FileBackup.backup(location, backupDir, previousBackupDir) ;
+    }
+
+    /** Restore a file backup, full or incremental, to an empty location. */
+    public static void restoreFiles(String backupDir, Location location)
+    {
+        FileBackup.restore(backupDir, location) ;
+    }
 }
 
@@ -26,6 +26,8 @@ import org.apache.jena.atlas.lib.CacheFactory ;
 import org.slf4j.Logger ;
 import org.slf4j.LoggerFactory ;
 
+import com.hp.hpl.jena.tdb.mgt.TDBMetrics ;
+
 /** Caching block manager - this is an LRU cache */
 public class BlockMgrCache extends BlockMgrSync
 {
@@ -103,6 +105,7 @@ public class BlockMgrCache extends BlockMgrSync
         if ( blk != null )
         {
             cacheReadHits++ ;
+            TDBMetrics.blockCacheReadHits.incrementAndGet() ;
             log("Hit(r->r) : %d", id) ;
             return blk ;
         }
@@ -117,11 +120,13 @@ public class BlockMgrCache extends BlockMgrSync
         if ( blk != null )
         {
             cacheWriteHits++ ;
+            TDBMetrics.blockCacheWriteHits.incrementAndGet() ;
             log("Hit(r->w) : %d",id) ;
             return blk ;
         }
         
         cacheMisses++ ;
+        TDBMetrics.blockCacheMisses.incrementAndGet() ;
         log("Miss/r: %d", id) ;
         blk = super.getRead(id) ;
         readCache.put(id, blk) ;
@@ -148,6 +153,7 @@ public class BlockMgrCache extends BlockMgrSync
         if ( blk != null )
         {
             cacheWriteHits++ ;
+            TDBMetrics.blockCacheWriteHits.incrementAndGet() ;
             log("Hit(w->w) : %d", id) ;
             return blk ;
         }
@@ -159,6 +165,7 @@ public class BlockMgrCache extends BlockMgrSync
         {
             blk = readCache.get(id) ;
             cacheReadHits++ ;
+            TDBMetrics.blockCacheReadHits.incrementAndGet() ;
             log("Hit(w->r) : %d", id) ;
             blk = promote(blk) ;
             return blk ;
@@ -166,6 +173,7 @@ public class BlockMgrCache extends BlockMgrSync
         
         // Did not find.
         cacheMisses++ ;
+        TDBMetrics.blockCacheMisses.incrementAndGet() ;
         log("Miss/w: %d", id) ;
         // Pass operation to wrapper.
         blk = super.getWrite(id);
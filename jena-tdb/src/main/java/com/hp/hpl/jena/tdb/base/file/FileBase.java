@@ -27,6 +27,8 @@ import org.apache.jena.atlas.lib.Sync ;
 import org.slf4j.Logger ;
 import org.slf4j.LoggerFactory ;
 
+import com.hp.hpl.jena.tdb.mgt.TDBMetrics ;
+
 public final class FileBase implements Sync, Closeable
 {
     static private Logger log = LoggerFactory.getLogger(FileBase.class) ; 
@@ -104,10 +106,12 @@ public final class FileBase implements Sync, Closeable
     {
         if ( DebugThis ) 
             log.debug("sync: ["+id+"]: "+filename) ;
+        long start = System.nanoTime() ;
         try {
             channel.force(false) ;
         } catch (IOException ex)
         { throw new FileException("FileBase.sync", ex) ; }
+        TDBMetrics.sync.recordSince(start) ;
     }
 
     public String getFilename() { return filename ; }  
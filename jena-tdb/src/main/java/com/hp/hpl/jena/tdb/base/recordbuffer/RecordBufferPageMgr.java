@@ -29,6 +29,7 @@ import com.hp.hpl.jena.tdb.base.block.BlockType;
 import com.hp.hpl.jena.tdb.base.page.PageBlockMgr ;
 import com.hp.hpl.jena.tdb.base.record.RecordException;
 import com.hp.hpl.jena.tdb.base.record.RecordFactory;
+import com.hp.hpl.jena.tdb.mgt.TDBMetrics ;
 
 /** Manager for a block that is all records.  
  *  This must be compatible with B+Tree records nodes and with hash buckets. 
@@ -50,6 +51,7 @@ public class RecordBufferPageMgr extends PageBlockMgr<RecordBufferPage>
     
     public RecordBufferPage getReadIterator(int id)
     { 
+        TDBMetrics.pageRead() ;
         Block block = blockMgr.getReadIterator(id) ;
         RecordBufferPage page = pageFactory.fromBlock(block) ;
         return page ;
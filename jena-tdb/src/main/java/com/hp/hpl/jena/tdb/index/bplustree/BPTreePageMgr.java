@@ -21,6 +21,7 @@ package com.hp.hpl.jena.tdb.index.bplustree;
 import com.hp.hpl.jena.tdb.base.block.BlockConverter ;
 import com.hp.hpl.jena.tdb.base.block.BlockMgr ;
 import com.hp.hpl.jena.tdb.base.page.PageBlockMgr ;
+import com.hp.hpl.jena.tdb.mgt.TDBMetrics ;
 
 abstract class BPTreePageMgr<T extends BPTreePage> extends PageBlockMgr<T>
 {
@@ -35,4 +36,11 @@ abstract class BPTreePageMgr<T extends BPTreePage> extends PageBlockMgr<T>
         super(pageFactory, blockMgr) ;
         this.bpTree = bpTree ;
     }
+
+    @Override
+    public T getRead(int id)
+    {
+        TDBMetrics.pageRead() ;
+        return super.getRead(id) ;
+    }
 }
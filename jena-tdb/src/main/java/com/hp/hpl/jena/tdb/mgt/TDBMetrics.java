@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.mgt;
+
+import java.util.concurrent.atomic.AtomicLong ;
+
+/** Counters and timings for TDB internals: block cache, node table cache,
+ * B+Tree page reads, journal replay, file syncs and write transaction waits.
+ * <p>
+ * The counters are for all datasets in the JVM. They are updated without
+ * locking so the values read while TDB is active may be momentarily
+ * inconsistent with each other.
+ */
+public class TDBMetrics implements TDBMetricsMBean
+{
+    private static final TDBMetrics metrics = new TDBMetrics() ;
+
+    public static TDBMetrics get() { return metrics ; }
+
+    public static final AtomicLong blockCacheReadHits   = new AtomicLong(0) ;
+    public static final AtomicLong blockCacheWriteHits  = new AtomicLong(0) ;
+    public static final AtomicLong blockCacheMisses     = new AtomicLong(0) ;
+    public static final AtomicLong nodeCacheHits        = new AtomicLong(0) ;
+    public static final AtomicLong nodeCacheMisses      = new AtomicLong(0) ;
+    public static final AtomicLong bptreePageReads      = new AtomicLong(0) ;
+
+    public static final TimeHistogram journalReplay     = new TimeHistogram() ;
+    public static final TimeHistogram sync              = new TimeHistogram() ;
+    public static final TimeHistogram writerWait        = new TimeHistogram() ;
+
+    // Page reads by this thread, for per-query figures.
+    private static final ThreadLocal<long[]> threadPageReads = new ThreadLocal<long[]>() {
+        @Override protected long[] initialValue() { return new long[1] ; }
+    } ;
+
+    private TDBMetrics() {}
+
+    /** Record a B+Tree page read. */
+    public static void pageRead() {
+        bptreePageReads.incrementAndGet() ;
+        threadPageReads.get()[0]++ ;
+    }
+
+    /** Number of B+Tree pages read by the current thread. */
+    public static long threadPageReads() {
+        return threadPageReads.get()[0] ;
+    }
+
+    /** Set all counters and timings to zero. */
+    public static void reset() {
+        blockCacheReadHits.set(0) ;
+        blockCacheWriteHits.set(0) ;
+        blockCacheMisses.set(0) ;
+        nodeCacheHits.set(0) ;
+        nodeCacheMisses.set(0) ;
+        bptreePageReads.set(0) ;
+        journalReplay.reset() ;
+        sync.reset() ;
+        writerWait.reset() ;
+    }
+
+    private static double rate(long hits, long misses) {
+        long total = hits+misses ;
+        return total == 0 ? 0 : (double)hits/total ;
+    }
+
+    private static double millis(long nanos) {
+        return nanos/1.0e6 ;
+    }
+
+    @Override
+    public long getBlockCacheReadHits()         { return blockCacheReadHits.get() ; }
+    @Override
+    public long getBlockCacheWriteHits()        { return blockCacheWriteHits.get() ; }
+    @Override
+    public long getBlockCacheMisses()           { return blockCacheMisses.get() ; }
+    @Override
+    public double getBlockCacheHitRate()
+    { return rate(getBlockCacheReadHits()+getBlockCacheWriteHits(), getBlockCacheMisses()) ; }
+
+    @Override
+    public long getNodeCacheHits()              { return nodeCacheHits.get() ; }
+    @Override
+    public long getNodeCacheMisses()            { return nodeCacheMisses.get() ; }
+    @Override
+    public double getNodeCacheHitRate()         { return rate(getNodeCacheHits(), getNodeCacheMisses()) ; }
+
+    @Override
+    public long getBPTreePageReads()            { return bptreePageReads.get() ; }
+
+    @Override
+    public long getJournalReplayCount()         { return journalReplay.getCount() ; }
+    @Override
+    public double getJournalReplayTimeMean()    { return millis(journalReplay.getMean()) ; }
+    @Override
+    public double getJournalReplayTimeMax()     { return millis(journalReplay.getMax()) ; }
+
+    @Override
+    public long getSyncCount()                  { return sync.getCount() ; }
+    @Override
+    public double getSyncTimeMean()             { return millis(sync.getMean()) ; }
+    @Override
+    public double getSyncTimeMax()              { return millis(sync.getMax()) ; }
+
+    @Override
+    public long getWriterWaitCount()            { return writerWait.getCount() ; }
+    @Override
+    public double getWriterWaitTimeMean()       { return millis(writerWait.getMean()) ; }
+    @Override
+    public double getWriterWaitTimeMax()        { return millis(writerWait.getMax()) ; }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.mgt;
+
+/** Counters and timings for TDB internals, over all datasets in this JVM. */
+public interface TDBMetricsMBean
+{
+    /** Block cache reads found in the cache */
+    long getBlockCacheReadHits() ;
+
+    /** Block cache writes found in the cache */
+    long getBlockCacheWriteHits() ;
+
+    /** Block cache accesses not found in the cache */
+    long getBlockCacheMisses() ;
+
+    /** Fraction of block cache accesses found in the cache */
+    double getBlockCacheHitRate() ;
+
+    /** Node table cache look-ups found in the cache */
+    long getNodeCacheHits() ;
+
+    /** Node table cache look-ups that went to the node table */
+    long getNodeCacheMisses() ;
+
+    /** Fraction of node table cache look-ups found in the cache */
+    double getNodeCacheHitRate() ;
+
+    /** B+Tree pages read */
+    long getBPTreePageReads() ;
+
+    /** Number of journal replays (write-back of committed transactions) */
+    long getJournalReplayCount() ;
+
+    /** Mean time of a journal replay, in milliseconds */
+    double getJournalReplayTimeMean() ;
+
+    /** Longest journal replay, in milliseconds */
+    double getJournalReplayTimeMax() ;
+
+    /** Number of file syncs */
+    long getSyncCount() ;
+
+    /** Mean time of a file sync, in milliseconds */
+    double getSyncTimeMean() ;
+
+    /** Longest file sync, in milliseconds */
+    double getSyncTimeMax() ;
+
+    /** Number of write transactions that started */
+    long getWriterWaitCount() ;
+
+    /** Mean time a write transaction waited to start, in milliseconds */
+    double getWriterWaitTimeMean() ;
+
+    /** Longest time a write transaction waited to start, in milliseconds */
+    double getWriterWaitTimeMax() ;
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.mgt;
+
+import java.util.concurrent.TimeUnit ;
+import java.util.concurrent.atomic.AtomicLong ;
+import java.util.concurrent.atomic.AtomicLongArray ;
+
+/** Lock-free histogram of durations.
+ * Durations are recorded in buckets by powers of two of microseconds:
+ * bucket 0 is under 1 microsecond, bucket i is from 2<sup>i-1</sup>
+ * up to 2<sup>i</sup> microseconds. The last bucket takes everything larger.
+ */
+public class TimeHistogram
+{
+    public static final int NumBuckets = 32 ;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(NumBuckets) ;
+    private final AtomicLong count = new AtomicLong(0) ;
+    private final AtomicLong total = new AtomicLong(0) ;
+    private final AtomicLong max = new AtomicLong(0) ;
+
+    /** Record a duration, in nanoseconds. */
+    public void record(long nanos) {
+        if ( nanos < 0 )
+            nanos = 0 ;
+        buckets.incrementAndGet(bucket(nanos)) ;
+        count.incrementAndGet() ;
+        total.addAndGet(nanos) ;
+        long m = max.get() ;
+        while ( nanos > m && ! max.compareAndSet(m, nanos) )
+            m = max.get() ;
+    }
+
+    /** Record the time since {@code startNanos}, as from {@link System#nanoTime()}. */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime()-startNanos) ;
+    }
+
+    private static int bucket(long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos) ;
+        int b = 64-Long.numberOfLeadingZeros(micros) ;
+        return Math.min(b, NumBuckets-1) ;
+    }
+
+    /** Number of durations recorded. */
+    public long getCount()      { return count.get() ; }
+
+    /** Total of the durations recorded, in nanoseconds. */
+    public long getTotal()      { return total.get() ; }
+
+    /** Longest duration recorded, in nanoseconds. */
+    public long getMax()        { return max.get() ; }
+
+    /** Mean duration, in nanoseconds, or 0 if none recorded. */
+    public long getMean() {
+        long c = count.get() ;
+        return c == 0 ? 0 : total.get()/c ;
+    }
+
+    /** Counts for each bucket. */
+    public long[] getBuckets() {
+        long[] x = new long[NumBuckets] ;
+        for ( int i = 0 ; i < NumBuckets ; i++ )
+            x[i] = buckets.get(i) ;
+        return x ;
+    }
+
+    /** Upper bound, in microseconds, of the bucket holding the given
+     * fraction (0 to 1) of the durations recorded, or 0 if none recorded. */
+    public long getPercentile(double fraction) {
+        long[] x = getBuckets() ;
+        long c = 0 ;
+        for ( long n : x )
+            c += n ;
+        if ( c == 0 )
+            return 0 ;
+        long target = (long)Math.ceil(fraction*c) ;
+        long seen = 0 ;
+        for ( int i = 0 ; i < NumBuckets ; i++ ) {
+            seen += x[i] ;
+            if ( seen >= target && x[i] > 0 )
+                return 1L << i ;
+        }
+        return 1L << (NumBuckets-1) ;
+    }
+
+    public void reset() {
+        for ( int i = 0 ; i < NumBuckets ; i++ )
+            buckets.set(i, 0) ;
+        count.set(0) ;
+        total.set(0) ;
+        max.set(0) ;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%dus max=%dus p99<=%dus", getCount(),
+                             TimeUnit.NANOSECONDS.toMicros(getMean()),
+                             TimeUnit.NANOSECONDS.toMicros(getMax()),
+                             getPercentile(0.99)) ;
+    }
+}
@@ -31,6 +31,7 @@ import org.slf4j.Logger ;
 import com.hp.hpl.jena.query.ARQ ;
 import com.hp.hpl.jena.sparql.engine.main.QC ;
 import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderLib ;
+import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderFeedback ;
 import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderTransformation ;
 import com.hp.hpl.jena.sparql.sse.SSEParseException ;
 import com.hp.hpl.jena.tdb.TDB ;
@@ -212,7 +213,14 @@ public class DatasetBuilderStd implements DatasetBuilder {
         QuadTable quadTable = makeQuadTable(location, nodeTable, policy, params) ;
         DatasetPrefixesTDB prefixes = makePrefixTable(location, policy, params) ;
 
-        ReorderTransformation transform = (_transform == null) ? chooseReorderTransformation(location) : _transform ;
+        ReorderTransformation transform = _transform ;
+        if ( transform == null ) {
+            transform = chooseReorderTransformation(location) ;
+            // Learns from, and is used by, adaptive execution (TDB.symAdaptiveExecution).
+            // Otherwise queries use the transformation it wraps.
+            if ( transform != null )
+                transform = new ReorderFeedback(transform) ;
+        }
 
         StorageConfig storageConfig = new StorageConfig(location, params, writeable, 
                                                         recorder.blockMgrs, recorder.bufferChannels, recorder.nodeTables) ;
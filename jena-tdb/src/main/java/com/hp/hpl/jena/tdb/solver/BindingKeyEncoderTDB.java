@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.solver;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingKeyEncoder ;
+import com.hp.hpl.jena.tdb.store.NodeId ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeTable ;
+
+/** Encode terms as their NodeId (8 bytes) where the term is in the node
+ * table, so DISTINCT and REDUCED over TDB results do not need to retrieve
+ * nodes.  Terms not in the node table, such as those calculated by BIND,
+ * are written out as nodes.
+ */
+public class BindingKeyEncoderTDB extends BindingKeyEncoder
+{
+    private static final byte TagNodeId = 16 ;
+    private final NodeTable nodeTable ;
+
+    public BindingKeyEncoderTDB(NodeTable nodeTable)
+    {
+        this.nodeTable = nodeTable ;
+    }
+
+    @Override
+    public void writeTerm(Binding binding, Var var, KeyBuffer key)
+    {
+        NodeId id = null ;
+        if ( binding instanceof BindingTDB )
+            id = ((BindingTDB)binding).getNodeId(var) ;
+        if ( id == null )
+        {
+            // Not from the node table: the same term must give the same key
+            // whichever way it was produced.
+            Node node = binding.get(var) ;
+            id = nodeTable.getNodeIdForNode(node) ;
+            // Inline values are canonicalized, so only use the NodeId if it
+            // is exactly this term.
+            if ( NodeId.isDoesNotExist(id) || ( NodeId.isInline(id) && ! node.equals(NodeId.extract(id)) ) )
+            {
+                writeNode(node, key) ;
+                return ;
+            }
+        }
+        key.writeByte(TagNodeId) ;
+        key.writeLong(id.getId()) ;
+    }
+}
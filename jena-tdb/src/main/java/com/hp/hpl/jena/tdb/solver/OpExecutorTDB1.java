@@ -36,15 +36,21 @@ import com.hp.hpl.jena.sparql.core.Substitute ;
 import com.hp.hpl.jena.sparql.core.Var ;
 import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
 import com.hp.hpl.jena.sparql.engine.QueryIterator ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingKeyEncoder ;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterDistinct ;
 import com.hp.hpl.jena.sparql.engine.iterator.QueryIterPeek ;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterReduced ;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterRoot ;
 import com.hp.hpl.jena.sparql.engine.main.OpExecutor ;
 import com.hp.hpl.jena.sparql.engine.main.OpExecutorFactory ;
 import com.hp.hpl.jena.sparql.engine.main.QC ;
 import com.hp.hpl.jena.sparql.engine.main.iterator.QueryIterGraph ;
+import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderFeedback ;
 import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderProc ;
 import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderTransformation ;
 import com.hp.hpl.jena.sparql.expr.ExprList ;
 import com.hp.hpl.jena.sparql.mgt.Explain ;
+import com.hp.hpl.jena.tdb.TDB ;
 import com.hp.hpl.jena.tdb.store.DatasetGraphTDB ;
 import com.hp.hpl.jena.tdb.store.GraphTDB ;
 import com.hp.hpl.jena.tdb.store.NodeId ;
@@ -94,13 +100,57 @@ public class OpExecutorTDB1 extends OpExecutor
     @Override
     protected QueryIterator execute(OpDistinct opDistinct, QueryIterator input)
     {
-        return super.execute(opDistinct, input) ;
+        if ( ! isForTDB )
+            return super.execute(opDistinct, input) ;
+        QueryIterator qIter = exec(opDistinct.getSubOp(), input) ;
+        return new QueryIterDistinct(qIter, execCxt, keyEncoder()) ;
     }
     
     @Override
     protected QueryIterator execute(OpReduced opReduced, QueryIterator input)
     {
-        return super.execute(opReduced, input) ;
+        if ( ! isForTDB )
+            return super.execute(opReduced, input) ;
+        QueryIterator qIter = exec(opReduced.getSubOp(), input) ;
+        return new QueryIterReduced(qIter, execCxt, keyEncoder()) ;
+    }
+
+    @Override
+    protected QueryIterator execute(OpTopN opTop, QueryIterator input)
+    {
+        if ( isForTDB && input instanceof QueryIterRoot && input.hasNext() )
+        {
+            // (top (N ?x) (bgp/quadpattern of one triple)) on the default graph.
+            BasicPattern bgp = null ;
+            Node gn = null ;
+            if ( opTop.getSubOp() instanceof OpBGP )
+            {
+                bgp = ((OpBGP)opTop.getSubOp()).getPattern() ;
+                gn = ((GraphTDB)execCxt.getActiveGraph()).getGraphName() ;
+            }
+            else if ( opTop.getSubOp() instanceof OpQuadPattern )
+            {
+                OpQuadPattern opQuads = (OpQuadPattern)opTop.getSubOp() ;
+                bgp = opQuads.getBasicPattern() ;
+                gn = opQuads.getGraphNode() ;
+            }
+            if ( bgp != null && bgp.size() == 1 && isDefaultGraphStorage(gn) && QC2.getFilter(execCxt.getContext()) == null )
+            {
+                GraphTDB graph = (GraphTDB)execCxt.getActiveGraph() ;
+                QueryIterator qIter = SolverIndexOrder.topN(graph.getDSG(), bgp.get(0), opTop.getConditions(),
+                                                            opTop.getLimit(), input, execCxt) ;
+                if ( qIter != null )
+                    return qIter ;
+            }
+        }
+        return super.execute(opTop, input) ;
+    }
+
+    // Bindings from TDB are keyed by NodeId.
+    private BindingKeyEncoder keyEncoder()
+    {
+        GraphTDB graph = (GraphTDB)execCxt.getActiveGraph() ;
+        return new BindingKeyEncoderTDB(graph.getDSG().getTripleTable().getNodeTupleTable().getNodeTable()) ;
     }
     
     @Override
@@ -200,7 +250,7 @@ public class OpExecutorTDB1 extends OpExecutor
         if ( pattern.size() >= 2 )
         {
             // Must be 2 or triples to reorder. 
-            ReorderTransformation transform = graph.getDSG().getReorderTransform() ;
+            ReorderTransformation transform = reorderTransform(graph.getDSG(), execCxt) ;
             if ( transform != null )
             {
                 QueryIterPeek peek = QueryIterPeek.create(input, execCxt) ;
@@ -237,7 +287,7 @@ public class OpExecutorTDB1 extends OpExecutor
         // ---- Execute quads+filters
         if ( bgp.size() >= 2 )
         {
-            ReorderTransformation transform = ds.getReorderTransform() ;
+            ReorderTransformation transform = reorderTransform(ds, execCxt) ;
     
             if ( transform != null )
             {
@@ -274,6 +324,16 @@ public class OpExecutorTDB1 extends OpExecutor
         return QC.execute(op, input, ec2) ;
     }
 
+    /** The reorder transformation of the dataset. What has been observed of execution
+     *  is only used when execution is adaptive (see {@link TDB#symAdaptiveExecution}). */
+    private static ReorderTransformation reorderTransform(DatasetGraphTDB dsg, ExecutionContext execCxt)
+    {
+        ReorderTransformation transform = dsg.getReorderTransform() ;
+        if ( transform instanceof ReorderFeedback && ! execCxt.getContext().isTrue(TDB.symAdaptiveExecution) )
+            return ((ReorderFeedback)transform).getBase() ;
+        return transform ;
+    }
+
     private static BasicPattern reorder(BasicPattern pattern, QueryIterPeek peek, ReorderTransformation transform)
     {
         if ( transform != null )
@@ -85,6 +85,15 @@ public class QueryEngineTDB extends QueryEngineMain
     protected Op modifyOp(Op op)
     {
         op = Substitute.substitute(op, initialInput) ;
+        // Materialized views. Their results are of the real default graph.
+        if ( dataset instanceof DatasetGraphTDB && context.isTrueOrUndef(TDB.symMaterializedViews)
+             && ! context.isTrue(TDB.symUnionDefaultGraph) )
+        {
+            Op op2 = ((DatasetGraphTDB)dataset).getMaterializedViews().rewrite(op, (DatasetGraphTDB)dataset) ;
+            if ( op2 != op )
+                Explain.explain("REWRITE(Materialized views)", op2, context) ;
+            op = op2 ;
+        }
         // Optimize (high-level)
         op = super.modifyOp(op) ;
 
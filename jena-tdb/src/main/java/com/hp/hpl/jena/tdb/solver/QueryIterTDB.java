@@ -25,11 +25,17 @@ import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
 import com.hp.hpl.jena.sparql.engine.QueryIterator ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
 import com.hp.hpl.jena.sparql.engine.iterator.QueryIterPlainWrapper ;
+import com.hp.hpl.jena.sparql.engine.main.QueryProfile ;
+import com.hp.hpl.jena.sparql.engine.main.QueryProfile.ProfileNode ;
+import com.hp.hpl.jena.tdb.mgt.TDBMetrics ;
 
 public class QueryIterTDB extends QueryIterPlainWrapper
 {
     final private QueryIterator originalInput ;
     private List<Abortable> killList ;
+    // Null if not profiling.
+    final private QueryProfile profile ;
+    final private ProfileNode profileNode ;
     
     // The original input needs closing as well.
     public QueryIterTDB(Iterator<Binding> iterBinding, List<Abortable> killList , QueryIterator originalInput, ExecutionContext execCxt)
@@ -37,6 +43,32 @@ public class QueryIterTDB extends QueryIterPlainWrapper
         super(iterBinding, execCxt) ;
         this.originalInput = originalInput ;
         this.killList = killList ;
+        this.profile = QueryProfile.get(execCxt.getContext()) ;
+        this.profileNode = QueryProfile.current(execCxt) ;
+    }
+
+    // Index access happens as the results are pulled through the iterator,
+    // so B+Tree page reads by this thread during these calls are for this
+    // basic graph pattern.
+
+    @Override
+    protected boolean hasNextBinding()
+    {
+        if ( profile == null )
+            return super.hasNextBinding() ;
+        long pages = TDBMetrics.threadPageReads() ;
+        try { return super.hasNextBinding() ; }
+        finally { profile.count(profileNode, QueryProfile.PageReads, TDBMetrics.threadPageReads()-pages) ; }
+    }
+
+    @Override
+    protected Binding moveToNextBinding()
+    {
+        if ( profile == null )
+            return super.moveToNextBinding() ;
+        long pages = TDBMetrics.threadPageReads() ;
+        try { return super.moveToNextBinding() ; }
+        finally { profile.count(profileNode, QueryProfile.PageReads, TDBMetrics.threadPageReads()-pages) ; }
     }
     
     @Override
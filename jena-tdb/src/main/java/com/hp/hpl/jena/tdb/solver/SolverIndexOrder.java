@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.solver;
+
+import java.util.Iterator ;
+import java.util.List ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.iterator.Transform ;
+import org.apache.jena.atlas.lib.ColumnMap ;
+import org.apache.jena.atlas.lib.Tuple ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.query.Query ;
+import com.hp.hpl.jena.query.SortCondition ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.sparql.engine.QueryIterator ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterSlice ;
+import com.hp.hpl.jena.sparql.engine.main.QueryProfile ;
+import com.hp.hpl.jena.tdb.store.DatasetGraphTDB ;
+import com.hp.hpl.jena.tdb.store.IntegerNode ;
+import com.hp.hpl.jena.tdb.store.NodeId ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeTable ;
+import com.hp.hpl.jena.tdb.store.nodetupletable.NodeTupleTable ;
+import com.hp.hpl.jena.tdb.store.tupletable.TupleIndex ;
+import com.hp.hpl.jena.tdb.store.tupletable.TupleIndexRecord ;
+import com.hp.hpl.jena.tdb.sys.DatasetControl ;
+
+/** Top-N ({@code ORDER BY ?x LIMIT N}) of a single triple pattern on the default
+ *  graph, read in index order.
+ *  <p>
+ *  When the sort variable is the slot of an index that follows the constants of
+ *  the pattern, and every value in that slot is an inline integer, the NodeIds
+ *  are in value order within the negative and the non-negative integers. The
+ *  two ranges are read in turn and reading stops after N rows, so there is no
+ *  sort and nodes are only decoded when the results are used.
+ *  <p>
+ *  Other cases (descending order, other datatypes, IRIs and strings, whose NodeIds
+ *  are not in value order) return null and are executed as usual.
+ */
+public class SolverIndexOrder
+{
+    private static final int TypeShift = 56 ;
+    private static final NodeId IntegerLow      = NodeId.create(((long)NodeId.INTEGER)<<TypeShift) ;
+    private static final NodeId IntegerNegative = NodeId.create(IntegerNode.pack(IntegerNode.MIN)) ;
+    private static final NodeId IntegerHigh     = NodeId.create(((long)NodeId.INTEGER+1)<<TypeShift) ;
+
+    /** Execute, returning null if the pattern and order can not be done in index order.
+     *  The input is the root of the query; it is only used if the result is not null.
+     */
+    public static QueryIterator topN(DatasetGraphTDB dsg, Triple triple, List<SortCondition> conditions, long limit,
+                                     QueryIterator input, ExecutionContext execCxt)
+    {
+        if ( conditions.size() != 1 || limit < 0 )
+            return null ;
+        SortCondition cond = conditions.get(0) ;
+        if ( cond.getDirection() == Query.ORDER_DESCENDING || ! cond.getExpression().isVariable() )
+            return null ;
+        Var sortVar = cond.getExpression().asVar() ;
+
+        // Variables must be distinct so every index entry is a result.
+        Node[] nodes = { triple.getSubject(), triple.getPredicate(), triple.getObject() } ;
+        int sortSlot = -1 ;
+        for ( int i = 0 ; i < nodes.length ; i++ )
+        {
+            if ( ! Var.isVar(nodes[i]) )
+                continue ;
+            for ( int j = 0 ; j < i ; j++ )
+                if ( nodes[i].equals(nodes[j]) )
+                    return null ;
+            if ( nodes[i].equals(sortVar) )
+                sortSlot = i ;
+        }
+        if ( sortSlot < 0 )
+            return null ;
+
+        NodeTupleTable ntt = dsg.getTripleTable().getNodeTupleTable() ;
+        NodeTable nodeTable = ntt.getNodeTable() ;
+        TupleIndexRecord index = chooseIndex(ntt.getTupleTable().getIndexes(), nodes, sortSlot) ;
+        if ( index == null )
+            return null ;
+
+        NodeId[] ids = new NodeId[nodes.length] ;
+        for ( int i = 0 ; i < nodes.length ; i++ )
+        {
+            if ( Var.isVar(nodes[i]) )
+                continue ;
+            ids[i] = nodeTable.getNodeIdForNode(nodes[i]) ;
+            if ( NodeId.isDoesNotExist(ids[i]) )
+                return null ;
+        }
+        Tuple<NodeId> pattern = Tuple.create(ids) ;
+
+        DatasetControl policy = ntt.getPolicy() ;
+        Iterator<Tuple<NodeId>> tuples ;
+        try {
+            policy.startRead() ;
+            // Only inline integers in the sort slot?
+            if ( ! isEmpty(index.findRange(pattern, null, IntegerLow)) )
+                return null ;
+            if ( ! isEmpty(index.findRange(pattern, IntegerHigh, null)) )
+                return null ;
+            Iterator<Tuple<NodeId>> negative = index.findRange(pattern, IntegerNegative, IntegerHigh) ;
+            Iterator<Tuple<NodeId>> positive = index.findRange(pattern, IntegerLow, IntegerNegative) ;
+            tuples = policy.iteratorControl(Iter.concat(negative, positive)) ;
+        } finally { policy.finishRead() ; }
+
+        QueryProfile.count(execCxt, QueryProfile.IndexScans, 2) ;
+        Binding parent = input.nextBinding() ;
+        Iterator<BindingNodeId> chain = Iter.map(tuples, binder(nodes, parent)) ;
+        Iterator<Binding> iterBinding = SolverLib.convertToNodes(chain, nodeTable) ;
+        QueryIterator qIter = new QueryIterTDB(iterBinding, null, input, execCxt) ;
+        return new QueryIterSlice(qIter, 0, limit, execCxt) ;
+    }
+
+    private static boolean isEmpty(Iterator<Tuple<NodeId>> iter)
+    {
+        boolean b = ! iter.hasNext() ;
+        Iter.close(iter) ;
+        return b ;
+    }
+
+    /** An index where the constants are the leading slots, followed by the sort slot. */
+    private static TupleIndexRecord chooseIndex(TupleIndex[] indexes, Node[] nodes, int sortSlot)
+    {
+        int numConstants = 0 ;
+        for ( Node n : nodes )
+            if ( ! Var.isVar(n) )
+                numConstants++ ;
+        for ( TupleIndex index : indexes )
+        {
+            if ( ! ( index instanceof TupleIndexRecord ) )
+                continue ;
+            ColumnMap colMap = index.getColumnMap() ;
+            boolean ok = ( colMap.fetchSlotIdx(numConstants) == sortSlot ) ;
+            for ( int i = 0 ; ok && i < numConstants ; i++ )
+                ok = ! Var.isVar(nodes[colMap.fetchSlotIdx(i)]) ;
+            if ( ok )
+                return (TupleIndexRecord)index ;
+        }
+        return null ;
+    }
+
+    private static Transform<Tuple<NodeId>, BindingNodeId> binder(final Node[] nodes, final Binding parent)
+    {
+        return new Transform<Tuple<NodeId>, BindingNodeId>()
+        {
+            @Override
+            public BindingNodeId convert(Tuple<NodeId> tuple)
+            {
+                BindingNodeId output = new BindingNodeId(parent) ;
+                for ( int i = 0 ; i < nodes.length ; i++ )
+                {
+                    if ( Var.isVar(nodes[i]) )
+                        output.put(Var.alloc(nodes[i]), tuple.get(i)) ;
+                }
+                return output ;
+            }
+        } ;
+    }
+}
@@ -39,12 +39,18 @@ import com.hp.hpl.jena.sparql.engine.binding.Binding ;
 import com.hp.hpl.jena.sparql.engine.binding.BindingFactory ;
 import com.hp.hpl.jena.sparql.engine.binding.BindingMap ;
 import com.hp.hpl.jena.sparql.engine.iterator.QueryIterNullIterator ;
+import com.hp.hpl.jena.sparql.engine.main.QueryProfile ;
+import com.hp.hpl.jena.sparql.engine.main.QueryProfile.ProfileNode ;
+import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderFeedback ;
+import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderTransformation ;
+import com.hp.hpl.jena.tdb.TDB ;
 import com.hp.hpl.jena.tdb.TDBException ;
 import com.hp.hpl.jena.tdb.lib.NodeLib ;
 import com.hp.hpl.jena.tdb.store.DatasetGraphTDB ;
 import com.hp.hpl.jena.tdb.store.GraphTDB ;
 import com.hp.hpl.jena.tdb.store.NodeId ;
 import com.hp.hpl.jena.tdb.store.nodetable.NodeTable ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeTableWrapper ;
 import com.hp.hpl.jena.tdb.store.nodetupletable.NodeTupleTable ;
 import com.hp.hpl.jena.tdb.sys.TDBInternal ;
 
@@ -60,7 +66,8 @@ public class SolverLib
     {
         // Maybe default graph or named graph.
         NodeTupleTable ntt = graph.getNodeTupleTable() ;
-        return execute(ntt, graph.getGraphName(), pattern, input, filter, execCxt) ;
+        return execute(ntt, graph.getGraphName(), pattern, input, filter,
+                       graph.getDSG().getReorderTransform(), feedback(graph.getDSG(), execCxt), execCxt) ;
     }
     
     /** Non-reordering execution of a quad pattern, given a iterator of bindings as input.
@@ -72,7 +79,17 @@ public class SolverLib
                                         ExecutionContext execCxt)
     {
         NodeTupleTable ntt = ds.chooseNodeTupleTable(graphNode) ;
-        return execute(ntt, graphNode, pattern, input, filter, execCxt) ;
+        return execute(ntt, graphNode, pattern, input, filter, ds.getReorderTransform(), feedback(ds, execCxt), execCxt) ;
+    }
+
+    /** The place to record what is observed during execution, if execution is adaptive (see {@link TDB#symAdaptiveExecution}) */
+    private static ReorderFeedback feedback(DatasetGraphTDB ds, ExecutionContext execCxt)
+    {
+        if ( ! execCxt.getContext().isTrue(TDB.symAdaptiveExecution) )
+            return null ;
+        if ( ds.getReorderTransform() instanceof ReorderFeedback )
+            return (ReorderFeedback)ds.getReorderTransform() ;
+        return null ;
     }
     
     public static Iterator<BindingNodeId> convertToIds(Iterator<Binding> iterBindings, NodeTable nodeTable)
@@ -90,6 +107,7 @@ public class SolverLib
 
     private static QueryIterator execute(NodeTupleTable nodeTupleTable, Node graphNode, BasicPattern pattern, 
                                          QueryIterator input, Filter<Tuple<NodeId>> filter,
+                                         ReorderTransformation reorder, ReorderFeedback feedback,
                                          ExecutionContext execCxt)
     {
         if ( Quad.isUnionGraph(graphNode) )
@@ -111,10 +129,14 @@ public class SolverLib
         
         // Convert from a QueryIterator (Bindings of Var/Node) to BindingNodeId
         NodeTable nodeTable = nodeTupleTable.getNodeTable() ;
+        QueryProfile profile = QueryProfile.get(execCxt.getContext()) ;
+        if ( profile != null )
+            nodeTable = new NodeTableProfile(nodeTable, profile, QueryProfile.current(execCxt)) ;
         
         Iterator<BindingNodeId> chain = Iter.map(input, SolverLib.convFromBinding(nodeTable)) ;
         List<Abortable> killList = new ArrayList<>() ;
         
+        List<Tuple<Node>> tuples = new ArrayList<>(triples.size()) ;
         for ( Triple triple : triples )
         {
             Tuple<Node> tuple = null ;
@@ -124,8 +146,33 @@ public class SolverLib
             else
                 // 4-tuples.
                 tuple = Tuple.createTuple(graphNode, triple.getSubject(), triple.getPredicate(), triple.getObject()) ;
-            chain = solve(nodeTupleTable, tuple, anyGraph, chain, filter, execCxt) ;
-            chain = makeAbortable(chain, killList) ; 
+            tuples.add(tuple) ;
+        }
+
+        if ( feedback != null && tuples.size() >= 3 )
+        {
+            // Adaptive: the order of the patterns after the first is chosen again as results are seen.
+            chain = new StageMatchTuple(nodeTupleTable, chain, tuples.get(0), anyGraph, filter, feedback, execCxt) ;
+            chain = makeAbortable(chain, killList) ;
+            StageAdaptive adaptive = new StageAdaptive(nodeTupleTable, chain, tuples.subList(1, tuples.size()), anyGraph, filter, feedback, execCxt) ;
+            // Aborts the stages of each batch as they are made.
+            killList.add(adaptive) ;
+            chain = makeAbortable(adaptive, killList) ;
+        }
+        else if ( filter == null && ! anyGraph && execCxt.getContext().isTrue(TDB.symLeapfrogJoin)
+                  && StageLeapfrog.isApplicable(nodeTupleTable, tuples, reorder) )
+        {
+            // Cyclic: a worst-case optimal join over the indexes.
+            chain = new StageLeapfrog(nodeTupleTable, chain, tuples, reorder, execCxt) ;
+            chain = makeAbortable(chain, killList) ;
+        }
+        else
+        {
+            for ( Tuple<Node> tuple : tuples )
+            {
+                chain = new StageMatchTuple(nodeTupleTable, chain, tuple, anyGraph, filter, feedback, execCxt) ;
+                chain = makeAbortable(chain, killList) ; 
+            }
         }
         
         // DEBUG POINT
@@ -152,6 +199,34 @@ public class SolverLib
         return new QueryIterTDB(iterBinding, killList, input, execCxt) ;
     }
     
+    /** Count node table look-ups for the operator being profiled. Nodes in
+     * results may be looked up later, after the operator has been built, so
+     * the operator is fixed when the node table is wrapped. */
+    private static class NodeTableProfile extends NodeTableWrapper
+    {
+        private final QueryProfile profile ;
+        private final ProfileNode node ;
+
+        NodeTableProfile(NodeTable nodeTable, QueryProfile profile, ProfileNode node) {
+            super(nodeTable) ;
+            this.profile = profile ;
+            this.node = node ;
+        }
+
+        @Override
+        public NodeId getNodeIdForNode(Node n) {
+            profile.count(node, QueryProfile.NodeIdLookups, 1) ;
+            return super.getNodeIdForNode(n) ;
+        }
+
+        @Override
+        public Node getNodeForNodeId(NodeId id) {
+            if ( id.isConcrete() && ! NodeId.isInline(id) )
+                profile.count(node, QueryProfile.NodeLookups, 1) ;
+            return super.getNodeForNodeId(id) ;
+        }
+    }
+
     /** Create an abortable iterator, storing it in the killList.
      *  Just return the input iterator if kilList is null. 
      */
@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.solver;
+
+import java.util.ArrayList ;
+import java.util.HashSet ;
+import java.util.Iterator ;
+import java.util.List ;
+import java.util.NoSuchElementException ;
+import java.util.Set ;
+
+import org.apache.jena.atlas.iterator.Filter ;
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.lib.Closeable ;
+import org.apache.jena.atlas.lib.Tuple ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.query.QueryCancelledException ;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.sparql.engine.optimizer.reorder.PatternElements ;
+import com.hp.hpl.jena.sparql.engine.optimizer.reorder.PatternTriple ;
+import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderFeedback ;
+import com.hp.hpl.jena.sparql.mgt.Explain ;
+import com.hp.hpl.jena.sparql.sse.Item ;
+import com.hp.hpl.jena.tdb.store.NodeId ;
+import com.hp.hpl.jena.tdb.store.nodetupletable.NodeTupleTable ;
+
+/** Adaptive execution of the rest of a basic graph pattern.
+ * <p>
+ * The input bindings are taken in batches. For each batch, the order of the
+ * remaining patterns is chosen again, greedily, using the number of matches per
+ * evaluation observed so far (which includes the previous batches of this
+ * execution), scaled as {@link ReorderFeedback} does, and the estimates of the
+ * planner for patterns not yet seen.
+ * A pattern that shares no variable with those before it is only chosen when
+ * there is no other choice. With no observations, the order is the order given.
+ * <p>
+ * Aborting this aborts the stages of the batch being executed, and any batch
+ * after it, so a scan already running stops as it does for a fixed order.
+ */
+public class StageAdaptive implements Iterator<BindingNodeId>, Closeable, Abortable
+{
+    public static final int BatchSize = 100 ;
+
+    private final NodeTupleTable nodeTupleTable ;
+    private final Iterator<BindingNodeId> input ;
+    private final List<Tuple<Node>> tuples ;
+    private final boolean anyGraph ;
+    private final Filter<Tuple<NodeId>> filter ;
+    private final ReorderFeedback feedback ;
+    private final ExecutionContext execCxt ;
+    private Iterator<BindingNodeId> current = null ;
+    private List<Tuple<Node>> currentOrder = null ;
+    // The stages of the current batch, which may be aborted from another thread.
+    private volatile List<Abortable> killList = null ;
+    private volatile boolean abortFlag = false ;
+
+    public StageAdaptive(NodeTupleTable nodeTupleTable, Iterator<BindingNodeId> input,
+                         List<Tuple<Node>> tuples, boolean anyGraph,
+                         Filter<Tuple<NodeId>> filter, ReorderFeedback feedback,
+                         ExecutionContext execCxt)
+    {
+        this.nodeTupleTable = nodeTupleTable ;
+        this.input = input ;
+        this.tuples = tuples ;
+        this.anyGraph = anyGraph ;
+        this.filter = filter ;
+        this.feedback = feedback ;
+        this.execCxt = execCxt ;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        while ( current == null || ! current.hasNext() )
+        {
+            Iter.close(current) ;
+            current = null ;
+            if ( abortFlag )
+                throw new QueryCancelledException() ;
+            if ( ! input.hasNext() )
+                return false ;
+            List<BindingNodeId> batch = new ArrayList<>(BatchSize) ;
+            while ( batch.size() < BatchSize && input.hasNext() )
+                batch.add(input.next()) ;
+
+            List<Tuple<Node>> order = plan(batch.get(0)) ;
+            if ( currentOrder != null && ! order.equals(currentOrder) )
+                Explain.explain(execCxt.getContext(), "Adaptive reorder: %s", order) ;
+            currentOrder = order ;
+
+            List<Abortable> stages = new ArrayList<>(order.size()) ;
+            Iterator<BindingNodeId> chain = batch.iterator() ;
+            for ( Tuple<Node> tuple : order )
+            {
+                chain = new StageMatchTuple(nodeTupleTable, chain, tuple, anyGraph, filter, feedback, execCxt) ;
+                chain = SolverLib.makeAbortable(chain, stages) ;
+            }
+            killList = stages ;
+            // An abort may have missed the new stages.
+            if ( abortFlag )
+                abortAll(stages) ;
+            current = chain ;
+        }
+        return true ;
+    }
+
+    @Override
+    public BindingNodeId next()
+    {
+        if ( ! hasNext() )
+            throw new NoSuchElementException("StageAdaptive") ;
+        return current.next() ;
+    }
+
+    @Override
+    public void remove()
+    { throw new UnsupportedOperationException() ; }
+
+    /** Can call asynchronously at anytime */
+    @Override
+    public void abort()
+    {
+        abortFlag = true ;
+        List<Abortable> stages = killList ;
+        if ( stages != null )
+            abortAll(stages) ;
+    }
+
+    private static void abortAll(List<Abortable> stages)
+    {
+        for ( Abortable a : stages )
+            a.abort() ;
+    }
+
+    @Override
+    public void close()
+    {
+        Iter.close(current) ;
+        Iter.close(input) ;
+    }
+
+    /** Choose the order of the patterns for bindings like this one. */
+    List<Tuple<Node>> plan(BindingNodeId binding)
+    {
+        Set<Var> bound = new HashSet<>() ;
+        for ( Tuple<Node> tuple : tuples )
+        {
+            for ( Node n : tuple.tuple() )
+                if ( Var.isVar(n) && binding.containsKey(Var.alloc(n)) )
+                    bound.add(Var.alloc(n)) ;
+        }
+
+        List<Tuple<Node>> remaining = new ArrayList<>(tuples) ;
+        List<Tuple<Node>> order = new ArrayList<>(tuples.size()) ;
+        while ( ! remaining.isEmpty() )
+        {
+            List<PatternTriple> candidates = new ArrayList<>(remaining.size()) ;
+            for ( Tuple<Node> tuple : remaining )
+                candidates.add(connected(tuple, bound) ? patternTriple(tuple, bound) : null) ;
+            double scale = feedback.scale(candidates) ;
+
+            int choice = -1 ;
+            double min = Double.MAX_VALUE ;
+            int firstConnected = -1 ;
+            for ( int i = 0 ; i < remaining.size() ; i++ )
+            {
+                PatternTriple pt = candidates.get(i) ;
+                if ( pt == null )
+                    continue ;
+                if ( firstConnected < 0 )
+                    firstConnected = i ;
+                double w = feedback.estimate(pt, scale) ;
+                if ( w >= 0 && w < min )
+                {
+                    min = w ;
+                    choice = i ;
+                }
+            }
+            if ( choice < 0 )
+                choice = ( firstConnected >= 0 ) ? firstConnected : 0 ;
+            Tuple<Node> tuple = remaining.remove(choice) ;
+            order.add(tuple) ;
+            for ( Node n : tuple.tuple() )
+                if ( Var.isVar(n) )
+                    bound.add(Var.alloc(n)) ;
+        }
+        return order ;
+    }
+
+    private static boolean connected(Tuple<Node> tuple, Set<Var> bound)
+    {
+        boolean anyVar = false ;
+        for ( Node n : tuple.tuple() )
+        {
+            if ( ! Var.isVar(n) )
+                continue ;
+            anyVar = true ;
+            if ( bound.contains(Var.alloc(n)) )
+                return true ;
+        }
+        return ! anyVar ;
+    }
+
+    private static PatternTriple patternTriple(Tuple<Node> tuple, Set<Var> bound)
+    {
+        int offset = tuple.size()-3 ;
+        return new PatternTriple(item(tuple.get(offset), bound),
+                                 item(tuple.get(offset+1), bound),
+                                 item(tuple.get(offset+2), bound)) ;
+    }
+
+    private static Item item(Node n, Set<Var> bound)
+    {
+        if ( Var.isVar(n) && bound.contains(Var.alloc(n)) )
+            return PatternElements.TERM ;
+        return Item.createNode(n) ;
+    }
+}
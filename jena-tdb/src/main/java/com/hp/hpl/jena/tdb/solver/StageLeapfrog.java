@@ -0,0 +1,676 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.solver;
+
+import java.util.* ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.iterator.NullIterator ;
+import org.apache.jena.atlas.iterator.RepeatApplyIterator ;
+import org.apache.jena.atlas.iterator.SingletonIterator ;
+import org.apache.jena.atlas.lib.Tuple ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.sparql.engine.main.QueryProfile ;
+import com.hp.hpl.jena.sparql.engine.optimizer.reorder.* ;
+import com.hp.hpl.jena.sparql.sse.Item ;
+import com.hp.hpl.jena.tdb.store.NodeId ;
+import com.hp.hpl.jena.tdb.store.nodetable.NodeTable ;
+import com.hp.hpl.jena.tdb.store.nodetupletable.NodeTupleTable ;
+import com.hp.hpl.jena.tdb.store.tupletable.TupleIndex ;
+import com.hp.hpl.jena.tdb.store.tupletable.TupleIndexRecord ;
+import com.hp.hpl.jena.tdb.sys.DatasetControl ;
+
+/** Match a basic graph pattern with a leapfrog triejoin.
+ * <p>
+ * The variables are put in an order, and each pattern is read from an index
+ * whose key is the constants of the pattern, then its variables in that order.
+ * Values are found for one variable at a time by seeking forward in all the
+ * patterns that mention it to the next value common to all of them. Unlike
+ * matching one pattern after another, no intermediate result is produced that
+ * does not extend to a value of the next variable, which matters for cyclic
+ * patterns (triangles, cliques).
+ * <p>
+ * There must be an index with a suitable order for every pattern. The order of
+ * the variables is the one with the fewest estimated intermediate results,
+ * using the weights of the dataset's reorder transformation, and the join is
+ * only used if that is fewer than matching the patterns one after another in
+ * the order the reorder transformation chose. If there is no suitable order
+ * for the variables left unbound by an input binding, or it is not cheaper,
+ * the patterns are matched one after another for that binding. Without
+ * weights, the first suitable order is used.
+ * <p>
+ * Each pattern is read by a live range iterator over its index, moving forward
+ * record by record, and starting a new range only to jump further ahead. Reads
+ * follow the {@link DatasetControl} policy of the node tuple table.
+ */
+public class StageLeapfrog extends RepeatApplyIterator<BindingNodeId>
+{
+    /** Largest number of variables for which orders are tried. */
+    private static final int MaxVars = 6 ;
+
+    private final NodeTupleTable nodeTupleTable ;
+    private final List<Tuple<Node>> tuples ;
+    private final ReorderTransformation reorder ;
+    private final ExecutionContext execCxt ;
+    // Plans by the variables bound by the input; null if there is no suitable order.
+    private final Map<Set<Var>, Plan> plans = new HashMap<>() ;
+
+    public StageLeapfrog(NodeTupleTable nodeTupleTable, Iterator<BindingNodeId> input,
+                         List<Tuple<Node>> tuples, ReorderTransformation reorder, ExecutionContext execCxt)
+    {
+        super(input) ;
+        this.nodeTupleTable = nodeTupleTable ;
+        this.tuples = tuples ;
+        this.reorder = reorder ;
+        this.execCxt = execCxt ;
+    }
+
+    /** Whether the patterns are better matched with a leapfrog triejoin:
+     *  they have a cycle of variables, all can be read in one order of the variables,
+     *  and, if there are weights from the reorder transformation (which may be null),
+     *  that is estimated to be cheaper than matching them one after another.
+     */
+    public static boolean isApplicable(NodeTupleTable nodeTupleTable, List<Tuple<Node>> tuples, ReorderTransformation reorder)
+    {
+        return isCyclic(tuples) && plan(nodeTupleTable, tuples, Collections.<Var>emptySet(), reorder) != null ;
+    }
+
+    /** Whether the variables of the patterns have a cycle, counting a pattern as joining all its variables. */
+    static boolean isCyclic(List<Tuple<Node>> tuples)
+    {
+        Map<Var, Var> parent = new HashMap<>() ;
+        for ( Tuple<Node> tuple : tuples )
+        {
+            Var first = null ;
+            for ( Node n : tuple.tuple() )
+            {
+                if ( ! Var.isVar(n) )
+                    continue ;
+                Var v = Var.alloc(n) ;
+                if ( first == null )
+                {
+                    first = v ;
+                    continue ;
+                }
+                Var r1 = root(parent, first) ;
+                Var r2 = root(parent, v) ;
+                if ( r1.equals(r2) )
+                    return true ;
+                parent.put(r2, r1) ;
+            }
+        }
+        return false ;
+    }
+
+    private static Var root(Map<Var, Var> parent, Var v)
+    {
+        Var p ;
+        while ( (p = parent.get(v)) != null )
+            v = p ;
+        return v ;
+    }
+
+    @Override
+    protected Iterator<BindingNodeId> makeNextStage(BindingNodeId input)
+    {
+        Set<Var> bound = new HashSet<>() ;
+        for ( Tuple<Node> tuple : tuples )
+            for ( Node n : tuple.tuple() )
+                if ( Var.isVar(n) && input.containsKey(Var.alloc(n)) )
+                    bound.add(Var.alloc(n)) ;
+        Plan plan ;
+        if ( plans.containsKey(bound) )
+            plan = plans.get(bound) ;
+        else
+        {
+            plan = plan(nodeTupleTable, tuples, bound, reorder) ;
+            plans.put(bound, plan) ;
+        }
+
+        if ( plan == null )
+        {
+            Iterator<BindingNodeId> chain = new SingletonIterator<>(input) ;
+            for ( Tuple<Node> tuple : tuples )
+                chain = new StageMatchTuple(nodeTupleTable, chain, tuple, false, null, execCxt) ;
+            return chain ;
+        }
+
+        // The patterns as NodeIds; variables not bound by the input are null.
+        NodeTable nodeTable = nodeTupleTable.getNodeTable() ;
+        NodeId[][] ids = new NodeId[tuples.size()][] ;
+        for ( int i = 0 ; i < tuples.size() ; i++ )
+        {
+            Tuple<Node> tuple = tuples.get(i) ;
+            ids[i] = new NodeId[tuple.size()] ;
+            for ( int j = 0 ; j < tuple.size() ; j++ )
+            {
+                Node n = tuple.get(j) ;
+                if ( Var.isVar(n) )
+                    ids[i][j] = input.get(Var.alloc(n)) ;
+                else
+                {
+                    NodeId id = nodeTable.getNodeIdForNode(n) ;
+                    QueryProfile.count(execCxt, QueryProfile.NodeIdLookups, 1) ;
+                    if ( NodeId.isDoesNotExist(id) )
+                        return new NullIterator<>() ;
+                    ids[i][j] = id ;
+                }
+            }
+        }
+        return new Join(plan, ids, input, nodeTupleTable.getPolicy(), execCxt) ;
+    }
+
+    /** Choose an order of the variables not bound, and an index for each pattern,
+     * or return null if there is none or it is not estimated to be cheaper than
+     * matching the patterns one after another. */
+    static Plan plan(NodeTupleTable nodeTupleTable, List<Tuple<Node>> tuples, Set<Var> bound, ReorderTransformation reorder)
+    {
+        List<Var> vars = new ArrayList<>() ;
+        for ( Tuple<Node> tuple : tuples )
+        {
+            int count = 0 ;
+            for ( Node n : tuple.tuple() )
+            {
+                if ( ! Var.isVar(n) || bound.contains(Var.alloc(n)) )
+                    continue ;
+                Var v = Var.alloc(n) ;
+                count++ ;
+                for ( Node n2 : tuple.tuple() )
+                    if ( n2 != n && v.equals(n2) )
+                        // Repeated variable in a pattern.
+                        return null ;
+                if ( ! vars.contains(v) )
+                    vars.add(v) ;
+            }
+            if ( count == 0 )
+                return null ;
+        }
+        if ( vars.isEmpty() || vars.size() > MaxVars )
+            return null ;
+
+        TupleIndex[] indexes = nodeTupleTable.getTupleTable().getIndexes() ;
+        for ( TupleIndex index : indexes )
+            if ( ! ( index instanceof TupleIndexRecord ) )
+                return null ;
+        Plan plan = search(tuples, indexes, vars, new ArrayList<Var>(), bound, reorder, null) ;
+        if ( plan == null || plan.cost < 0 )
+            return plan ;
+        double nested = nestedCost(reorder, tuples, bound) ;
+        if ( nested >= 0 && nested <= plan.cost )
+            return null ;
+        return plan ;
+    }
+
+    // Try the orders of the variables that have an index for every pattern, keeping
+    // the one of least cost. Without weights, the first one found is used.
+    private static Plan search(List<Tuple<Node>> tuples, TupleIndex[] indexes, List<Var> vars, List<Var> order,
+                               Set<Var> bound, ReorderTransformation reorder, Plan best)
+    {
+        if ( order.size() == vars.size() )
+        {
+            TupleIndexRecord[] chosen = new TupleIndexRecord[tuples.size()] ;
+            for ( int i = 0 ; i < tuples.size() ; i++ )
+            {
+                chosen[i] = chooseIndex(tuples.get(i), indexes, order, bound) ;
+                if ( chosen[i] == null )
+                    return best ;
+            }
+            double cost = leapfrogCost(reorder, tuples, order, bound) ;
+            if ( best != null && cost >= best.cost )
+                return best ;
+            return new Plan(order.toArray(new Var[order.size()]), tuples, chosen, cost) ;
+        }
+        for ( Var v : vars )
+        {
+            if ( order.contains(v) )
+                continue ;
+            order.add(v) ;
+            best = search(tuples, indexes, vars, order, bound, reorder, best) ;
+            order.remove(order.size()-1) ;
+            if ( best != null && best.cost < 0 )
+                return best ;
+        }
+        return best ;
+    }
+
+    /** Estimated number of intermediate results when the patterns are matched
+     * one after another in the order given, or -1 if there are no weights. */
+    static double nestedCost(ReorderTransformation reorder, List<Tuple<Node>> tuples, Set<Var> bound)
+    {
+        Set<Var> vars = new HashSet<>(bound) ;
+        double rows = 1 ;
+        double cost = 0 ;
+        for ( Tuple<Node> tuple : tuples )
+        {
+            double w = weight(reorder, tuple, vars) ;
+            if ( w < 0 )
+                return -1 ;
+            rows *= w ;
+            cost += rows ;
+            for ( Node n : tuple.tuple() )
+                if ( Var.isVar(n) )
+                    vars.add(Var.alloc(n)) ;
+        }
+        return cost ;
+    }
+
+    /** Estimated number of intermediate results of the join with the variables
+     * in the order given, or -1 if there are no weights. The values of a variable
+     * are those common to the patterns that mention it; the number is estimated
+     * as if the distinct values of each were independent samples of the values
+     * of the variable.
+     */
+    static double leapfrogCost(ReorderTransformation reorder, List<Tuple<Node>> tuples, List<Var> order, Set<Var> bound)
+    {
+        Set<Var> vars = new HashSet<>(bound) ;
+        double rows = 1 ;
+        double cost = 0 ;
+        for ( Var v : order )
+        {
+            double common = 1 ;
+            double domain = 0 ;
+            int count = 0 ;
+            for ( Tuple<Node> tuple : tuples )
+            {
+                if ( ! Arrays.asList(tuple.tuple()).contains(v) )
+                    continue ;
+                double d = distinct(reorder, tuple, v, vars) ;
+                double d0 = distinct(reorder, tuple, v, bound) ;
+                if ( d < 0 || d0 < 0 )
+                    return -1 ;
+                common *= d ;
+                domain = Math.max(domain, d0) ;
+                count++ ;
+            }
+            if ( count > 1 )
+                common = ( domain == 0 ) ? 0 : common/Math.pow(domain, count-1) ;
+            rows *= common ;
+            cost += rows ;
+            vars.add(v) ;
+        }
+        return cost ;
+    }
+
+    // Estimated number of distinct values of a variable in the matches of a pattern.
+    private static double distinct(ReorderTransformation reorder, Tuple<Node> tuple, Var v, Set<Var> bound)
+    {
+        double w = weight(reorder, tuple, bound) ;
+        Set<Var> bound2 = new HashSet<>(bound) ;
+        bound2.add(v) ;
+        double w2 = weight(reorder, tuple, bound2) ;
+        if ( w < 0 || w2 < 0 )
+            return -1 ;
+        return w/Math.max(1, w2) ;
+    }
+
+    /** The weight of a pattern, with some variables bound, from the reorder
+     * transformation, or -1 if there is none. */
+    static double weight(ReorderTransformation reorder, Tuple<Node> tuple, Set<Var> bound)
+    {
+        if ( reorder instanceof ReorderFeedback )
+            reorder = ((ReorderFeedback)reorder).getBase() ;
+        if ( ! ( reorder instanceof ReorderTransformationSubstitution ) )
+            return -1 ;
+        // The triple: the graph does not change the weight.
+        int n = tuple.size() ;
+        PatternTriple pt = new PatternTriple(item(tuple.get(n-3), bound), item(tuple.get(n-2), bound), item(tuple.get(n-1), bound)) ;
+        return ((ReorderTransformationSubstitution)reorder).getWeight(pt) ;
+    }
+
+    private static Item item(Node n, Set<Var> bound)
+    {
+        if ( Var.isVar(n) && bound.contains(Var.alloc(n)) )
+            return PatternElements.TERM ;
+        return Item.createNode(n) ;
+    }
+
+    // An index whose order is the fixed slots of the pattern then its variables in the given order.
+    private static TupleIndexRecord chooseIndex(Tuple<Node> tuple, TupleIndex[] indexes, List<Var> order, Set<Var> bound)
+    {
+        for ( TupleIndex index : indexes )
+        {
+            Tuple<Integer> slots = ((TupleIndexRecord)index).getColumnMap().map(naturalSlots(tuple.size())) ;
+            int last = -1 ;
+            boolean ok = true ;
+            for ( int k = 0 ; ok && k < slots.size() ; k++ )
+            {
+                Node n = tuple.get(slots.get(k)) ;
+                int position = ( Var.isVar(n) && ! bound.contains(Var.alloc(n)) ) ? order.indexOf(Var.alloc(n)) : -1 ;
+                // Fixed slots first, then variables in order.
+                if ( position < 0 )
+                    ok = ( last < 0 ) ;
+                else
+                {
+                    ok = ( position > last ) ;
+                    last = position ;
+                }
+            }
+            if ( ok )
+                return (TupleIndexRecord)index ;
+        }
+        return null ;
+    }
+
+    private static Tuple<Integer> naturalSlots(int len)
+    {
+        Integer[] x = new Integer[len] ;
+        for ( int i = 0 ; i < len ; i++ )
+            x[i] = i ;
+        return Tuple.create(x) ;
+    }
+
+    /** An order of variables and, for each pattern, its index and the slot of each variable. */
+    static class Plan
+    {
+        final Var[] order ;
+        final TupleIndexRecord[] indexes ;
+        // Estimated cost, or -1 if not known.
+        final double cost ;
+        // For each variable (by position in the order), the patterns that mention it and the slot in each.
+        final int[][] patterns ;
+        final int[][] slots ;
+
+        Plan(Var[] order, List<Tuple<Node>> tuples, TupleIndexRecord[] indexes, double cost)
+        {
+            this.order = order ;
+            this.indexes = indexes ;
+            this.cost = cost ;
+            this.patterns = new int[order.length][] ;
+            this.slots = new int[order.length][] ;
+            for ( int d = 0 ; d < order.length ; d++ )
+            {
+                List<int[]> x = new ArrayList<>() ;
+                for ( int i = 0 ; i < tuples.size() ; i++ )
+                {
+                    Tuple<Node> tuple = tuples.get(i) ;
+                    for ( int j = 0 ; j < tuple.size() ; j++ )
+                        if ( order[d].equals(tuple.get(j)) )
+                            x.add(new int[]{i, j}) ;
+                }
+                patterns[d] = new int[x.size()] ;
+                slots[d] = new int[x.size()] ;
+                for ( int k = 0 ; k < x.size() ; k++ )
+                {
+                    patterns[d][k] = x.get(k)[0] ;
+                    slots[d][k] = x.get(k)[1] ;
+                }
+            }
+        }
+
+        @Override
+        public String toString()    { return Arrays.asList(order)+" "+Arrays.asList(indexes) ; }
+    }
+
+    /** The values of one slot of one pattern, in order, given values for the slots before it in the index. */
+    private static class Trie
+    {
+        // Records read forward, for a move, before starting a new range at the value sought.
+        private static final int MaxSteps = 8 ;
+
+        private final TupleIndexRecord index ;
+        private final Tuple<NodeId> pattern ;
+        private final int slot ;
+        private final DatasetControl policy ;
+        private final ExecutionContext execCxt ;
+        private Iterator<Tuple<NodeId>> iter = null ;
+        long key ;
+        boolean atEnd = false ;
+
+        Trie(TupleIndexRecord index, NodeId[] pattern, int slot, DatasetControl policy, ExecutionContext execCxt)
+        {
+            this.index = index ;
+            this.pattern = Tuple.create(pattern) ;
+            this.slot = slot ;
+            this.policy = policy ;
+            this.execCxt = execCxt ;
+            position(null) ;
+        }
+
+        /** Move to the least value at or above x. */
+        void seek(long x)
+        {
+            for ( int i = 0 ; key < x && ! atEnd ; i++ )
+            {
+                if ( i == MaxSteps )
+                {
+                    position(NodeId.create(x)) ;
+                    return ;
+                }
+                step() ;
+            }
+        }
+
+        void next()
+        {
+            long current = key ;
+            for ( int i = 0 ; key == current && ! atEnd ; i++ )
+            {
+                if ( i == MaxSteps )
+                {
+                    position(NodeId.create(current+1)) ;
+                    return ;
+                }
+                step() ;
+            }
+        }
+
+        private void step()
+        {
+            if ( iter.hasNext() )
+                key = iter.next().get(slot).getId() ;
+            else
+                close() ;
+        }
+
+        private void position(NodeId min)
+        {
+            if ( iter != null )
+                Iter.close(iter) ;
+            policy.startRead() ;
+            try {
+                iter = policy.iteratorControl(index.findRange(pattern, min, null)) ;
+            } finally { policy.finishRead() ; }
+            QueryProfile.count(execCxt, QueryProfile.IndexScans, 1) ;
+            step() ;
+        }
+
+        void close()
+        {
+            atEnd = true ;
+            if ( iter != null )
+                Iter.close(iter) ;
+            iter = null ;
+        }
+    }
+
+    /** The values of one variable common to all the patterns that mention it. */
+    private static class Leapfrog
+    {
+        private final Trie[] tries ;
+        private int p = 0 ;
+        long key ;
+        boolean atEnd = false ;
+
+        Leapfrog(Trie[] tries)
+        {
+            this.tries = tries ;
+            for ( Trie t : tries )
+            {
+                if ( t.atEnd )
+                {
+                    close() ;
+                    return ;
+                }
+            }
+            Arrays.sort(tries, new Comparator<Trie>() {
+                @Override
+                public int compare(Trie t1, Trie t2)
+                { return Long.compare(t1.key, t2.key) ; }
+            }) ;
+            search() ;
+        }
+
+        void next()
+        {
+            tries[p].next() ;
+            if ( tries[p].atEnd )
+            {
+                close() ;
+                return ;
+            }
+            p = (p+1) % tries.length ;
+            search() ;
+        }
+
+        private void search()
+        {
+            long max = tries[(p+tries.length-1) % tries.length].key ;
+            for ( ;; )
+            {
+                long x = tries[p].key ;
+                if ( x == max )
+                {
+                    key = x ;
+                    return ;
+                }
+                tries[p].seek(max) ;
+                if ( tries[p].atEnd )
+                {
+                    close() ;
+                    return ;
+                }
+                max = tries[p].key ;
+                p = (p+1) % tries.length ;
+            }
+        }
+
+        void close()
+        {
+            atEnd = true ;
+            for ( Trie t : tries )
+                t.close() ;
+        }
+    }
+
+    /** The results of the leapfrog triejoin for one input binding. */
+    private static class Join implements Iterator<BindingNodeId>
+    {
+        private final Plan plan ;
+        private final NodeId[][] ids ;
+        private final BindingNodeId input ;
+        private final DatasetControl policy ;
+        private final ExecutionContext execCxt ;
+        private final Leapfrog[] levels ;
+        private int depth = -1 ;
+        private boolean finished = false ;
+        private BindingNodeId slot = null ;
+
+        Join(Plan plan, NodeId[][] ids, BindingNodeId input, DatasetControl policy, ExecutionContext execCxt)
+        {
+            this.plan = plan ;
+            this.ids = ids ;
+            this.input = input ;
+            this.policy = policy ;
+            this.execCxt = execCxt ;
+            this.levels = new Leapfrog[plan.order.length] ;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            if ( slot != null )
+                return true ;
+            if ( finished )
+                return false ;
+            if ( depth < 0 )
+            {
+                depth = 0 ;
+                levels[0] = open(0) ;
+            }
+            else
+                levels[depth].next() ;
+
+            for ( ;; )
+            {
+                if ( levels[depth].atEnd )
+                {
+                    if ( depth == 0 )
+                    {
+                        finished = true ;
+                        return false ;
+                    }
+                    depth-- ;
+                    levels[depth].next() ;
+                    continue ;
+                }
+                // Fix the value for later levels.
+                NodeId value = NodeId.create(levels[depth].key) ;
+                for ( int k = 0 ; k < plan.patterns[depth].length ; k++ )
+                    ids[plan.patterns[depth][k]][plan.slots[depth][k]] = value ;
+                if ( depth == levels.length-1 )
+                    break ;
+                depth++ ;
+                levels[depth] = open(depth) ;
+            }
+
+            BindingNodeId output = new BindingNodeId(input) ;
+            for ( int d = 0 ; d < levels.length ; d++ )
+                output.put(plan.order[d], NodeId.create(levels[d].key)) ;
+            slot = output ;
+            return true ;
+        }
+
+        private Leapfrog open(int d)
+        {
+            int[] patterns = plan.patterns[d] ;
+            Trie[] tries = new Trie[patterns.length] ;
+            for ( int k = 0 ; k < patterns.length ; k++ )
+            {
+                int i = patterns[k] ;
+                int s = plan.slots[d][k] ;
+                // This variable and those after it are unset in the pattern.
+                NodeId[] pattern = ids[i].clone() ;
+                pattern[s] = null ;
+                for ( int d2 = d+1 ; d2 < plan.order.length ; d2++ )
+                    for ( int k2 = 0 ; k2 < plan.patterns[d2].length ; k2++ )
+                        if ( plan.patterns[d2][k2] == i )
+                            pattern[plan.slots[d2][k2]] = null ;
+                tries[k] = new Trie(plan.indexes[i], pattern, s, policy, execCxt) ;
+            }
+            return new Leapfrog(tries) ;
+        }
+
+        @Override
+        public BindingNodeId next()
+        {
+            if ( ! hasNext() )
+                throw new NoSuchElementException("StageLeapfrog") ;
+            BindingNodeId b = slot ;
+            slot = null ;
+            return b ;
+        }
+
+        @Override
+        public void remove()
+        { throw new UnsupportedOperationException() ; }
+    }
+}
@@ -28,6 +28,8 @@ import org.apache.jena.atlas.lib.Tuple ;
 import com.hp.hpl.jena.graph.Node;
 import com.hp.hpl.jena.sparql.core.Var;
 import com.hp.hpl.jena.sparql.engine.ExecutionContext;
+import com.hp.hpl.jena.sparql.engine.main.QueryProfile ;
+import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderFeedback ;
 import com.hp.hpl.jena.tdb.store.NodeId;
 import com.hp.hpl.jena.tdb.store.nodetable.NodeTable ;
 import com.hp.hpl.jena.tdb.store.nodetupletable.NodeTupleTable ;
@@ -40,18 +42,44 @@ public class StageMatchTuple extends RepeatApplyIterator<BindingNodeId>
     private final ExecutionContext execCxt ;
     private boolean anyGraphs ;
     private Filter<Tuple<NodeId>> filter ;
+    // Number of nodes in the pattern looked up for each input binding.
+    private final int constants ;
+    // Matches per evaluation, by which triple slots are bound by the input, for adaptive execution.
+    private final ReorderFeedback feedback ;
+    private long[] evaluations = null ;
+    private long[] matches = null ;
 
     public StageMatchTuple(NodeTupleTable nodeTupleTable, Iterator<BindingNodeId> input, 
                             Tuple<Node> tuple, boolean anyGraphs, 
                             Filter<Tuple<NodeId>> filter, 
                             ExecutionContext execCxt)
+    {
+        this(nodeTupleTable, input, tuple, anyGraphs, filter, null, execCxt) ;
+    }
+
+    public StageMatchTuple(NodeTupleTable nodeTupleTable, Iterator<BindingNodeId> input, 
+                            Tuple<Node> tuple, boolean anyGraphs, 
+                            Filter<Tuple<NodeId>> filter, ReorderFeedback feedback,
+                            ExecutionContext execCxt)
     {
         super(input) ;
+        this.feedback = feedback ;
+        if ( feedback != null )
+        {
+            evaluations = new long[8] ;
+            matches = new long[8] ;
+        }
         this.filter = filter ;
         this.nodeTupleTable = nodeTupleTable ; 
         this.patternTuple = tuple ;
         this.execCxt = execCxt ;
         this.anyGraphs = anyGraphs ; 
+        int x = 0 ;
+        for ( int i = 0 ; i < tuple.size() ; i++ ) {
+            if ( tuple.get(i).isConcrete() )
+                x++ ;
+        }
+        this.constants = x ;
     }
 
     /** Prepare a pattern (tuple of nodes), and an existing binding of NodeId, into NodeIds and Variables. 
@@ -87,6 +115,8 @@ public class StageMatchTuple extends RepeatApplyIterator<BindingNodeId>
         prepare(nodeTupleTable.getNodeTable(), patternTuple, input, ids, var) ;
         
         Iterator<Tuple<NodeId>> iterMatches = nodeTupleTable.find(Tuple.create(ids)) ;  
+        QueryProfile.count(execCxt, QueryProfile.IndexScans, 1) ;
+        QueryProfile.count(execCxt, QueryProfile.NodeIdLookups, constants) ;
         
         // ** Allow a triple or quad filter here.
         if ( filter != null )
@@ -141,7 +171,90 @@ public class StageMatchTuple extends RepeatApplyIterator<BindingNodeId>
             }
         } ;
         
-        return Iter.iter(iterMatches).map(binder).removeNulls() ;
+        Iterator<BindingNodeId> iter = Iter.iter(iterMatches).map(binder).removeNulls() ;
+        if ( feedback != null )
+            iter = new IterCount(iter, boundSlots(var)) ;
+        return iter ;
+    }
+
+    // The triple slots that are variables bound by the input, as bits (subject = 4).
+    private int boundSlots(Var[] var)
+    {
+        int offset = patternTuple.size()-3 ;
+        int mask = 0 ;
+        for ( int i = 0 ; i < 3 ; i++ )
+        {
+            mask <<= 1 ;
+            if ( Var.isVar(patternTuple.get(offset+i)) && var[offset+i] == null )
+                mask |= 1 ;
+        }
+        return mask ;
+    }
+
+    /** Count the matches of an evaluation; only evaluations that ran to the end are recorded. */
+    private class IterCount extends IteratorWrapper<BindingNodeId>
+    {
+        private final int mask ;
+        private long count = 0 ;
+        private boolean done = false ;
+
+        IterCount(Iterator<BindingNodeId> iter, int mask)
+        {
+            super(iter) ;
+            this.mask = mask ;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            boolean b = super.hasNext() ;
+            if ( ! b && ! done )
+            {
+                done = true ;
+                evaluations[mask]++ ;
+                matches[mask] += count ;
+            }
+            return b ;
+        }
+
+        @Override
+        public BindingNodeId next()
+        {
+            count++ ;
+            return super.next() ;
+        }
+    }
+
+    @Override
+    protected void hasFinished()
+    {
+        flushFeedback() ;
+    }
+
+    @Override
+    public void close()
+    {
+        flushFeedback() ;
+        super.close() ;
+    }
+
+    private void flushFeedback()
+    {
+        if ( feedback == null )
+            return ;
+        int offset = patternTuple.size()-3 ;
+        Node s = patternTuple.get(offset) ;
+        Node p = patternTuple.get(offset+1) ;
+        Node o = patternTuple.get(offset+2) ;
+        for ( int mask = 0 ; mask < evaluations.length ; mask++ )
+        {
+            if ( evaluations[mask] == 0 )
+                continue ;
+            String shape = ReorderFeedback.shape(s, (mask & 4) != 0, p, (mask & 2) != 0, o, (mask & 1) != 0) ;
+            feedback.record(shape, evaluations[mask], matches[mask]) ;
+            evaluations[mask] = 0 ;
+            matches[mask] = 0 ;
+        }
     }
     
    
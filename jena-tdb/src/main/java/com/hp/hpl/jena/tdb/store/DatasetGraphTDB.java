@@ -35,6 +35,7 @@ import com.hp.hpl.jena.query.Dataset ;
 import com.hp.hpl.jena.sparql.core.DatasetGraphCaching ;
 import com.hp.hpl.jena.sparql.core.DatasetImpl ;
 import com.hp.hpl.jena.sparql.core.Quad ;
+import com.hp.hpl.jena.sparql.core.QuadAction ;
 import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderTransformation ;
 import com.hp.hpl.jena.tdb.base.file.Location ;
 import com.hp.hpl.jena.tdb.lib.NodeLib ;
@@ -65,6 +66,8 @@ public class DatasetGraphTDB extends DatasetGraphCaching
     
     private GraphTDB effectiveDefaultGraph ;
     private boolean closed = false ;
+    private MaterializedViews views = new MaterializedViews() ;
+    private MaterializedViews.Tracker viewTracker = views.tracker() ;
 
     public DatasetGraphTDB(TripleTable tripleTable, QuadTable quadTable, DatasetPrefixesTDB prefixes, 
                            ReorderTransformation transform, StorageConfig config) {
@@ -97,19 +100,31 @@ public class DatasetGraphTDB extends DatasetGraphCaching
  
     @Override
     protected void addToDftGraph(Node s, Node p, Node o)
-    { getTripleTable().add(s,p,o) ; }
+    { 
+        viewTracker.change(QuadAction.ADD, Quad.defaultGraphIRI, s, p, o) ;
+        getTripleTable().add(s,p,o) ;
+    }
 
     @Override
     protected void addToNamedGraph(Node g, Node s, Node p, Node o)
-    { getQuadTable().add(g, s, p, o) ; }
+    {
+        viewTracker.change(QuadAction.ADD, g, s, p, o) ;
+        getQuadTable().add(g, s, p, o) ;
+    }
 
     @Override
     protected void deleteFromDftGraph(Node s, Node p, Node o)
-    { getTripleTable().delete(s,p,o) ; }
+    {
+        viewTracker.change(QuadAction.DELETE, Quad.defaultGraphIRI, s, p, o) ;
+        getTripleTable().delete(s,p,o) ;
+    }
 
     @Override
     protected void deleteFromNamedGraph(Node g, Node s, Node p, Node o)
-    { getQuadTable().delete(g, s, p, o) ; }
+    {
+        viewTracker.change(QuadAction.DELETE, g, s, p, o) ;
+        getQuadTable().delete(g, s, p, o) ;
+    }
     
     public GraphTDB getDefaultGraphTDB() 
     { return (GraphTDB)getDefaultGraph() ; }
@@ -174,6 +189,17 @@ public class DatasetGraphTDB extends DatasetGraphCaching
     
     public DatasetPrefixesTDB getPrefixes()                 { return prefixes ; }
 
+    public MaterializedViews getMaterializedViews()         { return views ; }
+
+    public MaterializedViews.Tracker getViewTracker()       { return viewTracker ; }
+
+    /** Share the views of another dataset over the same storage (e.g. for a transaction). */
+    public void setMaterializedViews(MaterializedViews views, MaterializedViews.Tracker viewTracker)
+    {
+        this.views = views ;
+        this.viewTracker = viewTracker ;
+    }
+
     static private Transform<Tuple<NodeId>, NodeId> project0 = new Transform<Tuple<NodeId>, NodeId>()
     {
         @Override
@@ -201,6 +227,7 @@ public class DatasetGraphTDB extends DatasetGraphCaching
     public void clear()
     {
         // Leave the node table alone.
+        viewTracker.change(QuadAction.DELETE, Node.ANY, Node.ANY, Node.ANY, Node.ANY) ;
         getTripleTable().clearTriples() ;
         getQuadTable().clearQuads() ;
     }
@@ -223,6 +250,7 @@ public class DatasetGraphTDB extends DatasetGraphCaching
         // from the indexes happens.
 
         NodeTupleTable t = chooseNodeTupleTable(g) ;
+        viewTracker.change(QuadAction.DELETE, g, s, p, o) ;
         startUpdate() ;
         @SuppressWarnings("unchecked")
         Tuple<NodeId>[] array = (Tuple<NodeId>[])new Tuple<?>[sliceSize] ;
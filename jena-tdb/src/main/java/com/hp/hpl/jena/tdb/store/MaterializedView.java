@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.store;
+
+import java.util.ArrayList ;
+import java.util.List ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.query.Query ;
+import com.hp.hpl.jena.query.SortCondition ;
+import com.hp.hpl.jena.sparql.algebra.Algebra ;
+import com.hp.hpl.jena.sparql.algebra.Op ;
+import com.hp.hpl.jena.sparql.algebra.OpVisitorBase ;
+import com.hp.hpl.jena.sparql.algebra.OpWalker ;
+import com.hp.hpl.jena.sparql.algebra.op.* ;
+import com.hp.hpl.jena.sparql.core.Quad ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.core.VarExprList ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.expr.* ;
+
+/** A SELECT query whose results are kept by a {@link MaterializedViews}.
+ * <p>
+ * The view records the quad patterns its query reads so that only changes
+ * that may match one of them make the results out of date.
+ */
+public class MaterializedView
+{
+    private final String name ;
+    private final Query query ;
+    private final Op op ;
+    private final List<Var> vars ;
+    // The data the results depend on. A null slot matches anything.
+    private final List<Quad> patterns = new ArrayList<>() ;
+    // The query reads data in a way not described by patterns (paths, property functions, ...).
+    private boolean anyChange = false ;
+
+    // State, guarded by the MaterializedViews.
+    // Version of the views when registered, and when the data read last changed.
+    long registeredAt ;
+    long changedAt ;
+    // Version of the data the results were computed from.
+    long computedAt = -1 ;
+    List<Binding> results = null ;
+
+    MaterializedView(String name, Query query)
+    {
+        this.name = name ;
+        this.query = query ;
+        this.op = Algebra.compile(query) ;
+        this.vars = query.getProjectVars() ;
+        OpWalker.walk(Algebra.toQuadForm(op), new PatternCollector()) ;
+    }
+
+    public String getName()         { return name ; }
+
+    public Query getQuery()         { return query ; }
+
+    /** The algebra expression of the query, as compiled and before optimization. */
+    public Op getOp()               { return op ; }
+
+    public List<Var> getVars()      { return vars ; }
+
+    /** Whether adding or deleting a quad matching the arguments may change the results.
+     * A null or {@link Node#ANY} argument matches anything.
+     */
+    public boolean dependsOn(Node g, Node s, Node p, Node o)
+    {
+        if ( anyChange )
+            return true ;
+        for ( Quad q : patterns )
+        {
+            if ( match(q.getGraph(), g) && match(q.getSubject(), s) && match(q.getPredicate(), p) && match(q.getObject(), o) )
+                return true ;
+        }
+        return false ;
+    }
+
+    private static boolean match(Node pattern, Node node)
+    {
+        if ( pattern == null || node == null || Node.ANY.equals(node) )
+            return true ;
+        // Literals may be stored as another term for the same value.
+        if ( ! pattern.isURI() )
+            return true ;
+        return pattern.equals(node) ;
+    }
+
+    private void addPattern(Node g, Triple triple)
+    {
+        // The default graph may be the union of the named graphs.
+        if ( g == null || ! g.isURI() || Quad.isDefaultGraph(g) )
+            g = null ;
+        patterns.add(new Quad(g, triple)) ;
+    }
+
+    @Override
+    public String toString()    { return name ; }
+
+    private class PatternCollector extends OpVisitorBase
+    {
+        @Override
+        public void visit(OpQuadPattern quadPattern)
+        {
+            for ( Triple t : quadPattern.getBasicPattern() )
+                addPattern(quadPattern.getGraphNode(), t) ;
+        }
+
+        @Override
+        public void visit(OpQuadBlock quadBlock)
+        {
+            for ( Quad q : quadBlock.getPattern() )
+                addPattern(q.getGraph(), q.asTriple()) ;
+        }
+
+        @Override
+        public void visit(OpQuad opQuad)
+        { addPattern(opQuad.getQuad().getGraph(), opQuad.getQuad().asTriple()) ; }
+
+        @Override
+        public void visit(OpBGP opBGP)
+        {
+            // Not in quad form (EXISTS) : any graph.
+            for ( Triple t : opBGP.getPattern() )
+                addPattern(null, t) ;
+        }
+
+        @Override
+        public void visit(OpTriple opTriple)
+        { addPattern(null, opTriple.getTriple()) ; }
+
+        @Override public void visit(OpPath opPath)              { anyChange = true ; }
+        @Override public void visit(OpProcedure opProc)         { anyChange = true ; }
+        @Override public void visit(OpPropFunc opPropFunc)      { anyChange = true ; }
+        @Override public void visit(OpDatasetNames dsNames)     { anyChange = true ; }
+        @Override public void visit(OpExt opExt)                { anyChange = true ; }
+
+        // Expressions with EXISTS read data as well.
+        @Override public void visit(OpFilter opFilter)          { exprs(opFilter.getExprs()) ; }
+        @Override public void visit(OpLeftJoin opLeftJoin)      { exprs(opLeftJoin.getExprs()) ; }
+        @Override public void visit(OpExtend opExtend)          { exprs(opExtend.getVarExprList()) ; }
+        @Override public void visit(OpAssign opAssign)          { exprs(opAssign.getVarExprList()) ; }
+        @Override public void visit(OpOrder opOrder)            { conditions(opOrder.getConditions()) ; }
+        @Override public void visit(OpTopN opTop)               { conditions(opTop.getConditions()) ; }
+
+        @Override
+        public void visit(OpGroup opGroup)
+        {
+            exprs(opGroup.getGroupVars()) ;
+            for ( ExprAggregator agg : opGroup.getAggregators() )
+                expr(agg.getAggregator().getExpr()) ;
+        }
+
+        private void exprs(ExprList exprs)
+        {
+            if ( exprs != null )
+                for ( Expr e : exprs )
+                    expr(e) ;
+        }
+
+        private void exprs(VarExprList exprs)
+        {
+            for ( Expr e : exprs.getExprs().values() )
+                expr(e) ;
+        }
+
+        private void conditions(List<SortCondition> conditions)
+        {
+            for ( SortCondition c : conditions )
+                expr(c.getExpression()) ;
+        }
+
+        private void expr(Expr expr)
+        {
+            ExprWalker.walk(new ExprVisitorBase() {
+                @Override
+                public void visit(ExprFunctionOp funcOp)
+                { OpWalker.walk(funcOp.getGraphPattern(), PatternCollector.this) ; }
+            }, expr) ;
+        }
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.store;
+
+import java.util.* ;
+import java.util.concurrent.ConcurrentHashMap ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.query.* ;
+import com.hp.hpl.jena.sparql.algebra.Op ;
+import com.hp.hpl.jena.sparql.algebra.Table ;
+import com.hp.hpl.jena.sparql.algebra.op.* ;
+import com.hp.hpl.jena.sparql.algebra.table.TableN ;
+import com.hp.hpl.jena.sparql.core.DatasetChanges ;
+import com.hp.hpl.jena.sparql.core.QuadAction ;
+import com.hp.hpl.jena.sparql.core.Quad ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory ;
+import com.hp.hpl.jena.tdb.TDB ;
+import com.hp.hpl.jena.tdb.TDBException ;
+
+/** Materialized views of a TDB dataset: SELECT queries whose results are kept
+ * and used in place of evaluating the query, or the same sub-query of another
+ * query, again.
+ * <p>
+ * Results are computed when first needed, and kept until a change to the
+ * dataset may match one of the patterns the query reads. Changes are seen as
+ * they are made ({@link Tracker}). In a transaction, they take effect when it
+ * commits; until then the writer does not use the views it has changed.
+ * Results are held in memory; views are registered with each use of a
+ * dataset. The bulk loaders write the indexes directly and are not seen.
+ * <p>
+ * A query, or part of one, is answered from a view when its algebra, as
+ * compiled and before optimization, is the same as the view's. Setting
+ * {@link TDB#symMaterializedViews} to false in the context of a query stops this.
+ */
+public class MaterializedViews
+{
+    private final Map<String, MaterializedView> views = new ConcurrentHashMap<>() ;
+    // Counts changes to data read by some view.
+    private long version = 0 ;
+
+    public MaterializedView register(String name, String queryString)
+    {
+        return register(name, QueryFactory.create(queryString)) ;
+    }
+
+    public MaterializedView register(String name, Query query)
+    {
+        if ( ! query.isSelectType() )
+            throw new TDBException("Materialized view "+name+": not a SELECT query") ;
+        MaterializedView view = new MaterializedView(name, query) ;
+        synchronized(this)
+        {
+            view.registeredAt = version ;
+            view.changedAt = version ;
+        }
+        views.put(name, view) ;
+        return view ;
+    }
+
+    public void unregister(String name)
+    {
+        views.remove(name) ;
+    }
+
+    public MaterializedView get(String name)
+    {
+        return views.get(name) ;
+    }
+
+    public Collection<MaterializedView> getViews()
+    {
+        return Collections.unmodifiableCollection(views.values()) ;
+    }
+
+    public boolean isEmpty()
+    {
+        return views.isEmpty() ;
+    }
+
+    /** Replace the parts of the algebra expression that are the same as a view
+     * by a table of its results, if they can be used for a query of the dataset.
+     * Outer expressions are tried first. The results of a view are those of
+     * the default graph, so expressions that change the active graph, or are
+     * not evaluated against this dataset, are left as they are.
+     */
+    public Op rewrite(Op op, DatasetGraphTDB dsg)
+    {
+        if ( views.isEmpty() )
+            return op ;
+        if ( ! readsDefaultGraph(op) )
+            return op ;
+        for ( MaterializedView view : views.values() )
+        {
+            if ( ! view.getOp().equals(op) )
+                continue ;
+            List<Binding> results = results(view, dsg) ;
+            if ( results == null )
+                continue ;
+            Table table = new TableN(view.getVars()) ;
+            for ( Binding b : results )
+                table.addBinding(b) ;
+            return OpTable.create(table) ;
+        }
+
+        if ( op instanceof Op1 )
+        {
+            Op1 op1 = (Op1)op ;
+            Op sub = rewrite(op1.getSubOp(), dsg) ;
+            return ( sub == op1.getSubOp() ) ? op : op1.copy(sub) ;
+        }
+        if ( op instanceof Op2 )
+        {
+            Op2 op2 = (Op2)op ;
+            Op left = rewrite(op2.getLeft(), dsg) ;
+            Op right = rewrite(op2.getRight(), dsg) ;
+            return ( left == op2.getLeft() && right == op2.getRight() ) ? op : op2.copy(left, right) ;
+        }
+        if ( op instanceof OpN )
+        {
+            OpN opN = (OpN)op ;
+            List<Op> elts = new ArrayList<>(opN.size()) ;
+            boolean changed = false ;
+            for ( Op sub : opN.getElements() )
+            {
+                Op sub2 = rewrite(sub, dsg) ;
+                changed = changed || ( sub2 != sub ) ;
+                elts.add(sub2) ;
+            }
+            return changed ? opN.copy(elts) : op ;
+        }
+        return op ;
+    }
+
+    private static boolean readsDefaultGraph(Op op)
+    {
+        if ( op instanceof OpGraph || op instanceof OpService || op instanceof OpDatasetNames )
+            return false ;
+        if ( op instanceof OpQuadPattern )
+            return isDefaultGraph(((OpQuadPattern)op).getGraphNode()) ;
+        if ( op instanceof OpQuad )
+            return isDefaultGraph(((OpQuad)op).getQuad().getGraph()) ;
+        if ( op instanceof OpQuadBlock )
+        {
+            for ( Quad quad : ((OpQuadBlock)op).getPattern() )
+            {
+                if ( ! isDefaultGraph(quad.getGraph()) )
+                    return false ;
+            }
+        }
+        return true ;
+    }
+
+    private static boolean isDefaultGraph(Node g)
+    {
+        return g == null || Quad.isDefaultGraph(g) ;
+    }
+
+    /** The results of a view for a query of the dataset, or null if they cannot be used.
+     * They are computed if they are not up to date.
+     */
+    public List<Binding> results(MaterializedView view, DatasetGraphTDB dsg)
+    {
+        Tracker tracker = dsg.getViewTracker() ;
+        if ( tracker.hasChanged(view) )
+            return null ;
+        long snapshot = tracker.snapshot() ;
+        synchronized(this)
+        {
+            // The dataset does not see the latest changes to the data of the view.
+            if ( snapshot < view.changedAt )
+                return null ;
+            if ( view.results != null && view.computedAt >= view.changedAt )
+                return view.results ;
+        }
+
+        List<Binding> results = new ArrayList<>() ;
+        Dataset ds = DatasetFactory.create(dsg) ;
+        try ( QueryExecution qExec = QueryExecutionFactory.create(view.getQuery(), ds) ) {
+            qExec.getContext().set(TDB.symMaterializedViews, false) ;
+            qExec.getContext().set(TDB.symUnionDefaultGraph, false) ;
+            ResultSet rs = qExec.execSelect() ;
+            // Kept beyond the transaction: no bindings that refer to the node table.
+            while ( rs.hasNext() )
+                results.add(BindingFactory.materialize(rs.nextBinding())) ;
+        }
+        results = Collections.unmodifiableList(results) ;
+
+        synchronized(this)
+        {
+            if ( snapshot >= view.changedAt )
+            {
+                view.results = results ;
+                view.computedAt = snapshot ;
+            }
+        }
+        return results ;
+    }
+
+    private synchronized long version()
+    {
+        return version ;
+    }
+
+    /** A tracker for changes made directly to the dataset, outside a transaction. */
+    public Tracker tracker()
+    {
+        return new Tracker(-1) ;
+    }
+
+    /** A tracker for a transaction that starts now. */
+    public Tracker trackerTxn()
+    {
+        return new Tracker(version()) ;
+    }
+
+    /** Receives the changes to a dataset, and finds the views they affect. */
+    public class Tracker implements DatasetChanges
+    {
+        // The version of the views the dataset sees; -1 for the latest.
+        private final long snapshot ;
+        private final Set<MaterializedView> changed = new HashSet<>() ;
+        private boolean anyChange = false ;
+
+        private Tracker(long snapshot)
+        {
+            this.snapshot = snapshot ;
+        }
+
+        private long snapshot()
+        {
+            return ( snapshot < 0 ) ? version() : snapshot ;
+        }
+
+        private boolean hasChanged(MaterializedView view)
+        {
+            if ( changed.contains(view) )
+                return true ;
+            // Registered after changes that were not checked against it.
+            synchronized(MaterializedViews.this)
+            {
+                return anyChange && view.registeredAt >= snapshot ;
+            }
+        }
+
+        @Override
+        public void start()     {}
+
+        @Override
+        public void change(QuadAction qaction, Node g, Node s, Node p, Node o)
+        {
+            if ( snapshot >= 0 )
+                anyChange = true ;
+            if ( views.isEmpty() )
+                return ;
+            for ( MaterializedView view : views.values() )
+            {
+                if ( changed.contains(view) || ! view.dependsOn(g, s, p, o) )
+                    continue ;
+                if ( snapshot < 0 )
+                    changedNow(view) ;
+                else
+                    changed.add(view) ;
+            }
+        }
+
+        @Override
+        public void finish()    {}
+
+        /** Call before the transaction commits. */
+        public void commitStarts()
+        {
+            synchronized(MaterializedViews.this)
+            {
+                for ( MaterializedView view : views.values() )
+                {
+                    // Views registered since the transaction started did not see its changes.
+                    if ( changed.contains(view) || ( anyChange && view.registeredAt >= snapshot ) )
+                        view.changedAt = version+1 ;
+                }
+            }
+        }
+
+        /** Call after the transaction has committed. */
+        public void commitFinishes()
+        {
+            synchronized(MaterializedViews.this)
+            {
+                if ( anyChange )
+                    version++ ;
+            }
+            changed.clear() ;
+            anyChange = false ;
+        }
+
+        private void changedNow(MaterializedView view)
+        {
+            synchronized(MaterializedViews.this)
+            {
+                version++ ;
+                view.changedAt = version ;
+            }
+        }
+    }
+}
@@ -29,6 +29,7 @@ import org.apache.jena.atlas.logging.Log ;
 
 import com.hp.hpl.jena.graph.Node ;
 import com.hp.hpl.jena.tdb.TDBException ;
+import com.hp.hpl.jena.tdb.mgt.TDBMetrics ;
 import com.hp.hpl.jena.tdb.setup.StoreParams ;
 import com.hp.hpl.jena.tdb.store.NodeId ;
 
@@ -117,8 +118,11 @@ public class NodeTableCache implements NodeTable
         synchronized (lock)
         {
             Node n = cacheLookup(id) ;
-            if ( n != null )
+            if ( n != null ) {
+                TDBMetrics.nodeCacheHits.incrementAndGet() ;
                 return n ; 
+            }
+            TDBMetrics.nodeCacheMisses.incrementAndGet() ;
 
             if ( baseTable == null )
                 System.err.println(""+this) ;
@@ -139,8 +143,11 @@ public class NodeTableCache implements NodeTable
         {
             // Check caches.
             NodeId nodeId = cacheLookup(node) ;
-            if ( nodeId != null )
+            if ( nodeId != null ) {
+                TDBMetrics.nodeCacheHits.incrementAndGet() ;
                 return nodeId ; 
+            }
+            TDBMetrics.nodeCacheMisses.incrementAndGet() ;
 
             if ( allocate )
                 nodeId = baseTable.getAllocateNodeId(node) ;
@@ -181,6 +181,47 @@ public class TupleIndexRecord extends TupleIndexBase
         return tuples ;
     }
     
+    /** Find tuples, in index order, where the leading slots of the index are
+     *  those fixed in the pattern and the next slot of the index is between min
+     *  (inclusive) and max (exclusive).  A null min or max leaves that end of the
+     *  range open.  The pattern is in natural order; its fixed slots must be
+     *  exactly the leading slots of this index.
+     */
+    public Iterator<Tuple<NodeId>> findRange(Tuple<NodeId> patternNaturalOrder, NodeId min, NodeId max)
+    {
+        Tuple<NodeId> pattern = colMap.map(patternNaturalOrder) ;
+        int numLeading = 0 ;
+        while ( numLeading < pattern.size() && ! NodeId.isAny(pattern.get(numLeading)) )
+            numLeading++ ;
+        if ( numLeading >= pattern.size() )
+            throw new TDBException("No slot for the range: "+patternNaturalOrder) ;
+        for ( int i = numLeading ; i < pattern.size() ; i++ )
+        {
+            if ( ! NodeId.isAny(pattern.get(i)) )
+                throw new TDBException("Pattern is not a prefix of index "+getName()+": "+patternNaturalOrder) ;
+        }
+
+        Record minRec = factory.createKeyOnly() ;
+        Record maxRec = factory.createKeyOnly() ;
+        for ( int i = 0 ; i < numLeading ; i++ )
+        {
+            Bytes.setLong(pattern.get(i).getId(), minRec.getKey(), i*SizeOfNodeId) ;
+            Bytes.setLong(pattern.get(i).getId(), maxRec.getKey(), i*SizeOfNodeId) ;
+        }
+        if ( min != null )
+            Bytes.setLong(min.getId(), minRec.getKey(), numLeading*SizeOfNodeId) ;
+        if ( max != null )
+            Bytes.setLong(max.getId(), maxRec.getKey(), numLeading*SizeOfNodeId) ;
+        else if ( numLeading > 0 )
+            // End of the prefix, as findWorker.
+            Bytes.setLong(pattern.get(numLeading-1).getId()+1, maxRec.getKey(), (numLeading-1)*SizeOfNodeId) ;
+        else
+            maxRec = null ;
+
+        Iterator<Record> iter = index.iterator(minRec, maxRec) ;
+        return Iter.map(iter, transformToTuple) ;
+    }
+
     @Override
     public Iterator<Tuple<NodeId>> all()
     {
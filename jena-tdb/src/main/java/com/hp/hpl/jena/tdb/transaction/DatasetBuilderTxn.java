@@ -37,6 +37,7 @@ import com.hp.hpl.jena.tdb.setup.DatasetBuilderStd ;
 import com.hp.hpl.jena.tdb.setup.NodeTableBuilder ;
 import com.hp.hpl.jena.tdb.setup.StoreParams ;
 import com.hp.hpl.jena.tdb.store.DatasetGraphTDB ;
+import com.hp.hpl.jena.tdb.store.MaterializedViews ;
 import com.hp.hpl.jena.tdb.store.nodetable.NodeTable ;
 import com.hp.hpl.jena.tdb.store.nodetable.NodeTableInline ;
 import com.hp.hpl.jena.tdb.store.nodetable.NodeTableReadonly ;
@@ -72,6 +73,9 @@ public class DatasetBuilderTxn
             default: dsgTDB = null ;  // Silly Java.
         }
         
+        MaterializedViews views = dsg.getMaterializedViews() ;
+        dsgTDB.setMaterializedViews(views, views.trackerTxn()) ;
+
         DatasetGraphTxn dsgTxn = new DatasetGraphTxn(dsgTDB, txn) ;
         // Copy context. Changes not propagated back to the base dataset. 
         dsgTxn.getContext().putAll(dsg.getContext()) ;
@@ -20,6 +20,7 @@ package com.hp.hpl.jena.tdb.transaction;
 
 import com.hp.hpl.jena.sparql.core.DatasetGraphWrapper ;
 import com.hp.hpl.jena.tdb.store.DatasetGraphTDB ;
+import com.hp.hpl.jena.tdb.store.MaterializedViews ;
 
 /** A DatasetGraph that is a single transaction.
  * It does not support transactions, it is a transaction (single use).
@@ -41,7 +42,10 @@ public class DatasetGraphTxn extends DatasetGraphWrapper
     
     public void commit()
     {
+        MaterializedViews.Tracker viewTracker = getView().getViewTracker() ;
+        viewTracker.commitStarts() ;
         transaction.commit() ;
+        viewTracker.commitFinishes() ;
     }
 
     public void abort()
@@ -0,0 +1,340 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.transaction;
+
+import java.io.* ;
+import java.util.* ;
+import java.util.zip.Adler32 ;
+import java.util.zip.CRC32 ;
+
+import org.apache.jena.atlas.io.IO ;
+import org.apache.jena.atlas.lib.FileOps ;
+
+import com.hp.hpl.jena.query.ReadWrite ;
+import com.hp.hpl.jena.tdb.StoreConnection ;
+import com.hp.hpl.jena.tdb.TDBException ;
+import com.hp.hpl.jena.tdb.base.file.Location ;
+import com.hp.hpl.jena.tdb.base.file.MetaFile ;
+import com.hp.hpl.jena.tdb.sys.Names ;
+import com.hp.hpl.jena.tdb.sys.SystemTDB ;
+
+/**
+ * Online backup of a TDB database by copying its files.
+ * <p>
+ * A read transaction is held while the files are copied. While there is an
+ * active reader, committed write transactions stay in the journal and are not
+ * written back to the database files, so writers continue and the files do
+ * not change during the copy. The journal is copied up to the last complete
+ * entry at the start of the backup; on restore, the committed transactions in
+ * it are replayed by the normal recovery when the database is opened, and an
+ * incomplete transaction at its end is discarded.
+ * <p>
+ * Node data is not kept in the journal: a committing writer appends it to the
+ * node data file before the commit is written to the journal. The length of
+ * the journal is therefore taken before the lengths of the other files, so
+ * that the node data of every transaction in the copied journal is within the
+ * copied length of the node data file. A commit in between only leaves node
+ * data in the backup that nothing refers to.
+ * <p>
+ * Each file is treated as a sequence of blocks and a checksum is kept for
+ * every block. An incremental backup, against a previous backup, contains
+ * only the blocks that have changed since. A restore copies the full backup
+ * and then applies each incremental backup in turn.
+ * <p>
+ * The database must only be used through transactions while a backup is in
+ * progress.
+ */
+public class FileBackup
+{
+    public static final String ManifestName     = "backup" ;
+    public static final String ChecksumsFile    = "backup.sums" ;
+    public static final String DeltaExt         = "delta" ;
+
+    private static final String keyType         = "tdb.backup.type" ;
+    private static final String keyPrevious     = "tdb.backup.previous" ;
+    private static final String keyCreated      = "tdb.backup.created" ;
+    private static final String keyBlockSize    = "tdb.backup.blocksize" ;
+    private static final String keyFiles        = "tdb.backup.files" ;
+    private static final String keyFilePrefix   = "tdb.backup.file." ;
+
+    private static final String typeFull        = "full" ;
+    private static final String typeIncremental = "incremental" ;
+
+    private static final int BlockSize = SystemTDB.BlockSize ;
+    private static final int IOBufferSize = 1024*1024 ;
+
+    private FileBackup() {}
+
+    /** Copy the database files at the location to a new directory. */
+    public static void backup(Location location, String backupDir) {
+        backup(location, backupDir, null) ;
+    }
+
+    /** Back up the database files at the location to a new directory.
+     * If a previous backup directory is given, only the blocks changed since
+     * that backup are written.
+     */
+    public static void backup(Location location, String backupDir, String previousBackupDir) {
+        if ( location.isMem() )
+            throw new TDBException("Can't back up an in-memory database") ;
+        File dir = new File(backupDir) ;
+        if ( dir.exists() )
+            throw new TDBException("Backup directory already exists: "+backupDir) ;
+        MetaFile previous = null ;
+        if ( previousBackupDir != null ) {
+            previous = manifest(previousBackupDir) ;
+            if ( ! previous.existsMetaData() )
+                throw new TDBException("Not a backup: "+previousBackupDir) ;
+            if ( previous.getPropertyAsInteger(keyBlockSize) != BlockSize )
+                throw new TDBException("Previous backup has a different block size: "+previousBackupDir) ;
+        }
+        FileOps.ensureDir(backupDir) ;
+
+        StoreConnection sConn = StoreConnection.make(location) ;
+        // Pin the database files: no write-back from the journal while there is a reader.
+        DatasetGraphTxn dsg = sConn.begin(ReadWrite.READ, "backup") ;
+        try {
+            SortedMap<String, Long> files = filesToCopy(location, sConn.getJournal()) ;
+            MetaFile manifest = manifest(backupDir) ;
+            manifest.setProperty(keyType, previous == null ? typeFull : typeIncremental) ;
+            if ( previous != null )
+                manifest.setProperty(keyPrevious, relativeName(backupDir, previousBackupDir)) ;
+            manifest.setProperty(keyCreated, Long.toString(System.currentTimeMillis())) ;
+            manifest.setProperty(keyBlockSize, BlockSize) ;
+            manifest.setProperty(keyFiles, join(files.keySet())) ;
+
+            try ( DataOutputStream sums = dataOut(new File(dir, ChecksumsFile)) ) {
+                long sumsIndex = 0 ;
+                for ( Map.Entry<String, Long> e : files.entrySet() ) {
+                    String fn = e.getKey() ;
+                    long length = e.getValue() ;
+                    long[] previousSums = ( previous == null ) ? null : checksums(previousBackupDir, previous, fn) ;
+                    copyFile(new File(location.getDirectoryPath(), fn), length, dir, previousSums, sums) ;
+                    manifest.setProperty(keyFilePrefix+fn+".length", Long.toString(length)) ;
+                    manifest.setProperty(keyFilePrefix+fn+".sums", Long.toString(sumsIndex)) ;
+                    sumsIndex += numBlocks(length) ;
+                }
+            }
+            // The manifest is written last: a backup without one is incomplete.
+            manifest.flush() ;
+        }
+        catch (IOException ex) { IO.exception(ex) ; }
+        finally { dsg.end() ; }
+    }
+
+    /** Restore a backup to an empty location. For an incremental backup, the
+     * backups it is based on must be in the places recorded when it was made. */
+    public static void restore(String backupDir, Location location) {
+        if ( location.isMem() )
+            throw new TDBException("Can't restore to an in-memory location") ;
+        File target = new File(location.getDirectoryPath()) ;
+        String[] existing = target.list() ;
+        if ( existing != null && existing.length > 0 )
+            throw new TDBException("Location is not empty: "+location.getDirectoryPath()) ;
+        FileOps.ensureDir(location.getDirectoryPath()) ;
+
+        // Find the chain of backups back to a full backup.
+        Deque<String> chain = new ArrayDeque<>() ;
+        String current = backupDir ;
+        for ( ;; ) {
+            MetaFile manifest = manifest(current) ;
+            if ( ! manifest.existsMetaData() )
+                throw new TDBException("Not a backup: "+current) ;
+            chain.push(current) ;
+            if ( typeFull.equals(manifest.getProperty(keyType)) )
+                break ;
+            current = resolveName(current, manifest.getProperty(keyPrevious)) ;
+        }
+
+        try {
+            for ( String dir : chain )
+                restoreOne(dir, target) ;
+        }
+        catch (IOException ex) { IO.exception(ex) ; }
+    }
+
+    private static void restoreOne(String backupDir, File target) throws IOException {
+        MetaFile manifest = manifest(backupDir) ;
+        boolean full = typeFull.equals(manifest.getProperty(keyType)) ;
+        Set<String> files = new HashSet<>(Arrays.asList(manifest.getPropertySplit(keyFiles, ""))) ;
+        files.remove("") ;
+        for ( String fn : files ) {
+            long length = Long.parseLong(manifest.getProperty(keyFilePrefix+fn+".length")) ;
+            if ( full ) {
+                File src = new File(backupDir, fn) ;
+                copy(src, new File(target, fn)) ;
+            } else
+                applyDelta(new File(backupDir, fn+"."+DeltaExt), new File(target, fn), length) ;
+        }
+        // Files that no longer exist.
+        String[] existing = target.list() ;
+        if ( existing != null ) {
+            for ( String fn : existing ) {
+                if ( ! files.contains(fn) )
+                    FileOps.delete(new File(target, fn).getPath()) ;
+            }
+        }
+    }
+
+    /** Files of the database, with the length to copy. */
+    private static SortedMap<String, Long> filesToCopy(Location location, Journal journal) {
+        // The journal is appended to by writers; take it up to the last complete entry.
+        // This must come first: a commit appends its node data to the node
+        // data file before it is written to the journal.
+        long journalLength ;
+        synchronized(journal) {
+            journalLength = journal.size() ;
+        }
+        SortedMap<String, Long> files = new TreeMap<>() ;
+        File[] contents = new File(location.getDirectoryPath()).listFiles() ;
+        if ( contents == null )
+            throw new TDBException("Can't list the database directory: "+location.getDirectoryPath()) ;
+        for ( File f : contents ) {
+            String fn = f.getName() ;
+            if ( ! f.isFile() )
+                continue ;
+            // Lock file, and node data of a write transaction that is not committed.
+            if ( fn.equals("tdb.lock") || fn.endsWith("-"+Names.extJournal) )
+                continue ;
+            files.put(fn, f.length()) ;
+        }
+        files.put(Names.journalFile, journalLength) ;
+        return files ;
+    }
+
+    /** Copy a file, or for an incremental backup, the blocks that have changed,
+     * writing the checksums of all blocks. */
+    private static void copyFile(File src, long length, File dir, long[] previousSums, DataOutputStream sums) throws IOException {
+        boolean full = ( previousSums == null ) ;
+        File dest = new File(dir, full ? src.getName() : src.getName()+"."+DeltaExt) ;
+        byte[] block = new byte[BlockSize] ;
+        try ( InputStream in = src.exists() ? new BufferedInputStream(new FileInputStream(src), IOBufferSize)
+                                            : new ByteArrayInputStream(new byte[0]) ;
+              DataOutputStream out = dataOut(dest) ) {
+            DataInputStream input = new DataInputStream(in) ;
+            long n = numBlocks(length) ;
+            for ( long i = 0 ; i < n ; i++ ) {
+                int len = (int)Math.min(BlockSize, length-i*BlockSize) ;
+                input.readFully(block, 0, len) ;
+                long sum = checksum(block, len) ;
+                sums.writeLong(sum) ;
+                if ( full )
+                    out.write(block, 0, len) ;
+                else if ( i >= previousSums.length || previousSums[(int)i] != sum ) {
+                    out.writeLong(i) ;
+                    out.write(block, 0, len) ;
+                }
+            }
+        }
+    }
+
+    /** Apply the changed blocks of a file. */
+    private static void applyDelta(File delta, File file, long length) throws IOException {
+        byte[] block = new byte[BlockSize] ;
+        try ( RandomAccessFile out = new RandomAccessFile(file, "rw") ;
+              DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(delta), IOBufferSize)) ) {
+            out.setLength(length) ;
+            long deltaLength = delta.length() ;
+            long posn = 0 ;
+            while ( posn < deltaLength ) {
+                long i = in.readLong() ;
+                int len = (int)Math.min(BlockSize, length-i*BlockSize) ;
+                in.readFully(block, 0, len) ;
+                out.seek(i*BlockSize) ;
+                out.write(block, 0, len) ;
+                posn += 8+len ;
+            }
+        }
+    }
+
+    private static void copy(File src, File dest) throws IOException {
+        byte[] buffer = new byte[IOBufferSize] ;
+        try ( InputStream in = new FileInputStream(src) ; OutputStream out = new FileOutputStream(dest) ) {
+            int len ;
+            while ( (len = in.read(buffer)) >= 0 )
+                out.write(buffer, 0, len) ;
+        }
+    }
+
+    /** The block checksums of a file in a backup, or an empty array if not in that backup. */
+    private static long[] checksums(String backupDir, MetaFile manifest, String fn) throws IOException {
+        String x = manifest.getProperty(keyFilePrefix+fn+".sums") ;
+        if ( x == null )
+            return new long[0] ;
+        long start = Long.parseLong(x) ;
+        long length = Long.parseLong(manifest.getProperty(keyFilePrefix+fn+".length")) ;
+        long[] sums = new long[(int)numBlocks(length)] ;
+        try ( FileInputStream in = new FileInputStream(new File(backupDir, ChecksumsFile)) ) {
+            in.getChannel().position(8*start) ;
+            DataInputStream input = new DataInputStream(new BufferedInputStream(in, IOBufferSize)) ;
+            for ( int i = 0 ; i < sums.length ; i++ )
+                sums[i] = input.readLong() ;
+        }
+        return sums ;
+    }
+
+    /** 64 bit checksum of a block: CRC32 and Adler32 together. */
+    private static long checksum(byte[] block, int len) {
+        CRC32 crc = new CRC32() ;
+        crc.update(block, 0, len) ;
+        Adler32 adler = new Adler32() ;
+        adler.update(block, 0, len) ;
+        return ( crc.getValue() << 32 ) | adler.getValue() ;
+    }
+
+    private static long numBlocks(long length) {
+        return ( length+BlockSize-1 ) / BlockSize ;
+    }
+
+    private static MetaFile manifest(String backupDir) {
+        return new MetaFile(ManifestName, new File(backupDir, ManifestName).getPath()) ;
+    }
+
+    private static DataOutputStream dataOut(File f) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f), IOBufferSize)) ;
+    }
+
+    // Backups in the same directory refer to each other by name, so they can be moved together.
+    private static String relativeName(String backupDir, String previousBackupDir) {
+        File dir = new File(backupDir).getAbsoluteFile() ;
+        File prev = new File(previousBackupDir).getAbsoluteFile() ;
+        if ( Objects.equals(dir.getParentFile(), prev.getParentFile()) )
+            return prev.getName() ;
+        return prev.getPath() ;
+    }
+
+    private static String resolveName(String backupDir, String name) {
+        if ( name == null )
+            throw new TDBException("Incremental backup without a previous backup: "+backupDir) ;
+        File f = new File(name) ;
+        if ( f.isAbsolute() )
+            return name ;
+        return new File(new File(backupDir).getAbsoluteFile().getParentFile(), name).getPath() ;
+    }
+
+    private static String join(Collection<String> names) {
+        StringBuilder sb = new StringBuilder() ;
+        for ( String n : names ) {
+            if ( sb.length() > 0 )
+                sb.append(',') ;
+            sb.append(n) ;
+        }
+        return sb.toString() ;
+    }
+}
@@ -42,6 +42,7 @@ import com.hp.hpl.jena.tdb.base.file.Location ;
 import com.hp.hpl.jena.tdb.base.objectfile.ObjectFile ;
 import com.hp.hpl.jena.tdb.base.record.RecordFactory ;
 import com.hp.hpl.jena.tdb.index.IndexMap ;
+import com.hp.hpl.jena.tdb.mgt.TDBMetrics ;
 import com.hp.hpl.jena.tdb.store.DatasetGraphTDB ;
 import com.hp.hpl.jena.tdb.store.StorageConfig ;
 import com.hp.hpl.jena.tdb.store.nodetable.NodeTable ;
@@ -238,6 +239,7 @@ public class JournalControl
         if ( journal.size() == 0 )
             return ;
         
+        long start = System.nanoTime() ;
         journal.position(0) ;
         try {
             Iterator<JournalEntry> iter = journal.entries() ; 
@@ -265,6 +267,7 @@ public class JournalControl
             blkMgr.syncForce() ;
         // Must do a hard sync before this.
         journal.truncate(0) ;
+        TDBMetrics.journalReplay.recordSince(start) ;
     }
 
     /** return true for "go on" */
@@ -66,4 +66,10 @@ public class TransactionInfo implements TransactionInfoMBean {
 		return transactionManager.activeReaders.get() ;
 	}
 
+	@Override
+	public long getJournalSize() {
+		Journal journal = transactionManager.getJournal() ;
+		return journal == null ? 0 : journal.size() ;
+	}
+
 }
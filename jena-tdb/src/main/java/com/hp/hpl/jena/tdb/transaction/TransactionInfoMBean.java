@@ -44,4 +44,7 @@ public interface TransactionInfoMBean
 
     /** Number of read transactions executing */
     long getCurrentReadTransactionCount() ; 
+
+    /** Size of the journal, in bytes */
+    long getJournalSize() ;
 }
@@ -41,6 +41,7 @@ import org.slf4j.LoggerFactory ;
 
 import com.hp.hpl.jena.query.ReadWrite ;
 import com.hp.hpl.jena.shared.Lock ;
+import com.hp.hpl.jena.tdb.mgt.TDBMetrics ;
 import com.hp.hpl.jena.tdb.store.DatasetGraphTDB ;
 import com.hp.hpl.jena.tdb.sys.SystemTDB ;
 
@@ -303,12 +304,14 @@ public class TransactionManager
             // Writers take a WRITE permit from the semaphore to ensure there
             // is at most one active writer, else the attempt to start the
             // transaction blocks.
+            long start = System.nanoTime() ;
             try { writersWaiting.acquire() ; }
             catch (InterruptedException e)
             { 
                 log.error(label, e) ;
                 throw new TDBTransactionException(e) ;
             }
+            TDBMetrics.writerWait.recordSince(start) ;
         }
         // entry synchronized part
         return begin$(mode, label) ;
@@ -34,6 +34,7 @@ import com.hp.hpl.jena.tdb.base.objectfile.TS_ObjectFile ;
 import com.hp.hpl.jena.tdb.graph.TS_Graph ;
 import com.hp.hpl.jena.tdb.index.TS_Index ;
 import com.hp.hpl.jena.tdb.lib.TS_LibTDB ;
+import com.hp.hpl.jena.tdb.mgt.TS_Mgt ;
 import com.hp.hpl.jena.tdb.setup.TS_TDBSetup ;
 import com.hp.hpl.jena.tdb.solver.TS_SolverTDB ;
 import com.hp.hpl.jena.tdb.store.TS_Store ;
@@ -64,6 +65,7 @@ import com.hp.hpl.jena.tdb.transaction.TS_TransactionTDB ;
     , TS_TDBAssembler.class
     , TS_TransactionTDB.class
     , TS_ObjectFile.class
+    , TS_Mgt.class
 } )
 
 public class TC_TDB
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.mgt;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.core.DatasetGraph ;
+import com.hp.hpl.jena.sparql.sse.SSE ;
+import com.hp.hpl.jena.tdb.TDBFactory ;
+
+public class TestTDBMetrics extends BaseTest
+{
+    @Test public void histogram_01() {
+        TimeHistogram h = new TimeHistogram() ;
+        assertEquals(0, h.getCount()) ;
+        assertEquals(0, h.getMean()) ;
+        assertEquals(0, h.getPercentile(0.5)) ;
+    }
+
+    @Test public void histogram_02() {
+        TimeHistogram h = new TimeHistogram() ;
+        h.record(500) ;                 // Under 1 microsecond
+        h.record(3000) ;                // 3 microseconds
+        h.record(1000*1000) ;           // 1 millisecond
+        assertEquals(3, h.getCount()) ;
+        assertEquals(1000*1000, h.getMax()) ;
+        assertEquals((500+3000+1000*1000)/3, h.getMean()) ;
+        long[] buckets = h.getBuckets() ;
+        assertEquals(1, buckets[0]) ;
+        assertEquals(1, buckets[2]) ;
+        assertEquals(1, buckets[10]) ;
+        assertEquals(4, h.getPercentile(0.5)) ;
+        assertEquals(1024, h.getPercentile(1.0)) ;
+        h.reset() ;
+        assertEquals(0, h.getCount()) ;
+        assertEquals(0, h.getMax()) ;
+    }
+
+    @Test public void histogram_03() {
+        TimeHistogram h = new TimeHistogram() ;
+        h.record(Long.MAX_VALUE) ;
+        h.record(-1) ;
+        long[] buckets = h.getBuckets() ;
+        assertEquals(1, buckets[TimeHistogram.NumBuckets-1]) ;
+        assertEquals(1, buckets[0]) ;
+    }
+
+    @Test public void metrics_01() {
+        DatasetGraph dsg = TDBFactory.createDatasetGraph() ;
+        for ( int i = 0 ; i < 100 ; i++ )
+            dsg.add(SSE.parseQuad("(_ <http://example/s> <http://example/p> "+i+")")) ;
+        TDBMetricsMBean metrics = TDBMetrics.get() ;
+        long pages = metrics.getBPTreePageReads() ;
+        long nodeLookups = metrics.getNodeCacheHits()+metrics.getNodeCacheMisses() ;
+        long blocks = metrics.getBlockCacheReadHits()+metrics.getBlockCacheWriteHits()+metrics.getBlockCacheMisses() ;
+        Node s = SSE.parseNode("<http://example/s>") ;
+        assertEquals(100, Iter.count(dsg.find(null, s, null, null))) ;
+        assertTrue(metrics.getBPTreePageReads() > pages) ;
+        assertTrue(metrics.getNodeCacheHits()+metrics.getNodeCacheMisses() > nodeLookups) ;
+        assertTrue(metrics.getBlockCacheReadHits()+metrics.getBlockCacheWriteHits()+metrics.getBlockCacheMisses() >= blocks) ;
+        assertTrue(metrics.getNodeCacheHitRate() >= 0 && metrics.getNodeCacheHitRate() <= 1) ;
+    }
+
+    @Test public void metrics_02() {
+        long pages = TDBMetrics.threadPageReads() ;
+        TDBMetrics.pageRead() ;
+        assertEquals(pages+1, TDBMetrics.threadPageReads()) ;
+    }
+}
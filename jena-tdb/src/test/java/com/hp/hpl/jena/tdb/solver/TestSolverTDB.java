@@ -20,18 +20,27 @@ package com.hp.hpl.jena.tdb.solver;
 
 
 import java.util.ArrayList ;
+import java.util.Collections ;
 import java.util.Iterator ;
 import java.util.List ;
+import java.util.Set ;
 
 import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.junit.BaseTest ;
 import org.apache.jena.atlas.lib.StrUtils ;
+import org.apache.jena.atlas.lib.Tuple ;
 import org.junit.BeforeClass ;
 import org.junit.Test ;
 
 import com.hp.hpl.jena.graph.Graph ;
 import com.hp.hpl.jena.graph.Node ;
 import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.query.ARQ ;
+import com.hp.hpl.jena.query.Dataset ;
+import com.hp.hpl.jena.query.DatasetFactory ;
+import com.hp.hpl.jena.query.QueryCancelledException ;
+import com.hp.hpl.jena.query.QueryExecution ;
+import com.hp.hpl.jena.query.QueryExecutionFactory ;
 import com.hp.hpl.jena.query.ResultSet ;
 import com.hp.hpl.jena.query.ResultSetFactory ;
 import com.hp.hpl.jena.query.ResultSetFormatter ;
@@ -43,31 +52,50 @@ import com.hp.hpl.jena.shared.impl.PrefixMappingImpl ;
 import com.hp.hpl.jena.sparql.algebra.Algebra ;
 import com.hp.hpl.jena.sparql.algebra.Op ;
 import com.hp.hpl.jena.sparql.algebra.OpVars ;
+import com.hp.hpl.jena.sparql.core.DatasetGraph ;
 import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
 import com.hp.hpl.jena.sparql.engine.QueryIterator ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.main.QueryProfile ;
+import com.hp.hpl.jena.sparql.engine.main.QueryProfile.ProfileNode ;
+import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderFeedback ;
+import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderLib ;
+import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderTransformation ;
 import com.hp.hpl.jena.sparql.resultset.ResultSetCompare ;
 import com.hp.hpl.jena.sparql.sse.SSE ;
 import com.hp.hpl.jena.tdb.ConfigTest ;
+import com.hp.hpl.jena.tdb.TDB ;
 import com.hp.hpl.jena.tdb.TDBFactory ;
+import com.hp.hpl.jena.tdb.store.DatasetGraphTDB ;
+import com.hp.hpl.jena.tdb.store.nodetupletable.NodeTupleTable ;
+import com.hp.hpl.jena.tdb.sys.TDBInternal ;
 import com.hp.hpl.jena.util.FileManager ;
 
 public class TestSolverTDB extends BaseTest
 {
     static String graphData = null ;
+    static DatasetGraph dsg = null ;
     static Graph graph = null ;
     static PrefixMapping pmap = null ;
+    static DatasetGraph dsgOrder = null ;
 
     @BeforeClass static public void beforeClass()
     { 
         graphData = ConfigTest.getTestingDataRoot()+"/Data/solver-data.ttl" ;
-        graph = TDBFactory.createDatasetGraph().getDefaultGraph() ;
+        dsg = TDBFactory.createDatasetGraph() ;
+        graph = dsg.getDefaultGraph() ;
         Model m = ModelFactory.createModelForGraph(graph) ;
         FileManager.get().readModel(m, graphData) ;
 
         pmap = new PrefixMappingImpl() ;
         pmap.setNsPrefix("", "http://example/") ;
         
+        dsgOrder = TDBFactory.createDatasetGraph() ;
+        for ( String x : new String[]{"5", "-2", "30", "0", "-7", "100"} )
+            dsgOrder.getDefaultGraph().add(SSE.parseTriple("(:s"+x+" :v "+x+")", pmap)) ;
+        for ( String x : new String[]{"3", "1", "2.5", "'a'"} )
+            dsgOrder.getDefaultGraph().add(SSE.parseTriple("(:t :w "+x+")", pmap)) ;
     }
             
     static private void addAll(Graph srcGraph, Graph dstGraph)
@@ -125,6 +153,186 @@ public class TestSolverTDB extends BaseTest
         equals(rs1, rs2) ;
     }
 
+    @Test public void solve_distinct_01()
+    {
+        ResultSet rs1 = query("SELECT DISTINCT ?p { :s ?p ?o }") ;
+        ResultSet rs2 = results("(row (?p :p))") ;
+        equals(rs1, rs2) ;
+    }
+
+    @Test public void solve_distinct_02()
+    {
+        // Terms from the node table and the same terms calculated.
+        ResultSet rs1 = query("SELECT DISTINCT ?o { { :s :p ?o } UNION { BIND(:o AS ?o) } UNION { BIND(10 AS ?o) } }") ;
+        ResultSet rs2 = results("(row (?o :o))",
+                                "(row (?o 10))",
+                                "(row (?o :x))"
+                                ) ;
+        equals(rs1, rs2) ;
+    }
+
+    @Test public void solve_reduced_01()
+    {
+        ResultSet rs1 = query("SELECT REDUCED ?p { :s ?p ?o }") ;
+        ResultSet rs2 = results("(row (?p :p))") ;
+        equals(rs1, rs2) ;
+    }
+
+    @Test public void solve_topN_01()
+    {
+        // Read in index order.
+        ResultSet rs1 = query(dsgOrder, "SELECT ?o { ?s :v ?o } ORDER BY ?o LIMIT 3") ;
+        ResultSet rs2 = results("(row (?o -7))", "(row (?o -2))", "(row (?o 0))") ;
+        assertTrue(ResultSetCompare.equalsByTermAndOrder(rs1, rs2)) ;
+    }
+
+    @Test public void solve_topN_02()
+    {
+        ResultSet rs1 = query(dsgOrder, "SELECT ?s ?o { ?s :v ?o } ORDER BY ?o LIMIT 2 OFFSET 3") ;
+        ResultSet rs2 = results("(row (?s :s5) (?o 5))", "(row (?s :s30) (?o 30))") ;
+        assertTrue(ResultSetCompare.equalsByTermAndOrder(rs1, rs2)) ;
+    }
+
+    @Test public void solve_topN_03()
+    {
+        // Not all integers - sorted as usual.
+        ResultSet rs1 = query(dsgOrder, "SELECT ?o { :t :w ?o } ORDER BY ?o LIMIT 3") ;
+        ResultSet rs2 = results("(row (?o 1))", "(row (?o 2.5))", "(row (?o 3))") ;
+        assertTrue(ResultSetCompare.equalsByTermAndOrder(rs1, rs2)) ;
+    }
+
+    @Test public void solve_topN_04()
+    {
+        ResultSet rs1 = query(dsgOrder, "SELECT ?o { ?s :v ?o } ORDER BY DESC(?o) LIMIT 2") ;
+        ResultSet rs2 = results("(row (?o 100))", "(row (?o 30))") ;
+        assertTrue(ResultSetCompare.equalsByTermAndOrder(rs1, rs2)) ;
+    }
+
+    @Test public void solve_profile_01()
+    {
+        String qs = "PREFIX : <http://example/> SELECT ?s ?y { ?s :p ?z . ?z :q ?y }" ;
+        Model m = ModelFactory.createModelForGraph(graph) ;
+        QueryProfile profile ;
+        try ( QueryExecution qExec = QueryExecutionFactory.create(qs, m) ) {
+            qExec.getContext().set(ARQ.profile, true) ;
+            assertEquals(1, ResultSetFormatter.consume(qExec.execSelect())) ;
+            profile = QueryProfile.get(qExec.getContext()) ;
+        }
+        ProfileNode project = profile.getRoot().getChildren().get(0) ;
+        ProfileNode bgp = project.getChildren().get(0) ;
+        assertEquals("bgp", bgp.getOp().getName()) ;
+        assertEquals(1, bgp.getRows()) ;
+        // One scan for the first triple pattern, one for each match of it.
+        assertTrue(bgp.getCounter(QueryProfile.IndexScans) >= 2) ;
+        assertTrue(bgp.getCounter(QueryProfile.NodeIdLookups) > 0) ;
+        assertTrue(bgp.getCounter(QueryProfile.NodeLookups) > 0) ;
+        assertTrue(bgp.getCounter(QueryProfile.PageReads) > 0) ;
+    }
+
+    @Test public void solve_adaptive_01()
+    {
+        DatasetGraph dsgAdaptive = TDBFactory.createDatasetGraph() ;
+        Graph g = dsgAdaptive.getDefaultGraph() ;
+        for ( int i = 0 ; i < 300 ; i++ )
+        {
+            g.add(SSE.parseTriple("(:s"+i+" :a :m"+i+")", pmap)) ;
+            g.add(SSE.parseTriple("(:m"+i+" :b :k"+(i%3)+")", pmap)) ;
+        }
+        g.add(SSE.parseTriple("(:k1 :c 'x')", pmap)) ;
+
+        String qs = "SELECT * { ?s :a ?m . ?m :b ?k . ?k :c ?x }" ;
+        ResultSet rs1 = query(dsgAdaptive, qs) ;
+        Dataset ds = DatasetFactory.create(dsgAdaptive) ;
+        ResultSet rs2 ;
+        try ( QueryExecution qExec = QueryExecutionFactory.create("PREFIX : <http://example/> "+qs, ds) ) {
+            qExec.getContext().set(TDB.symAdaptiveExecution, true) ;
+            rs2 = ResultSetFactory.copyResults(qExec.execSelect()) ;
+        }
+        ResultSetRewindable rsw1 = ResultSetFactory.makeRewindable(rs1) ;
+        assertEquals(100, rsw1.size()) ;
+        equals(rsw1, rs2) ;
+
+        // Each ?m has one :b.
+        ReorderFeedback feedback = (ReorderFeedback)TDBInternal.getBaseDatasetGraphTDB(dsgAdaptive).getReorderTransform() ;
+        Node b = SSE.parseNode(":b", pmap) ;
+        String shape = ReorderFeedback.shape(Var.alloc("m"), true, b, false, Var.alloc("k"), false) ;
+        assertEquals(1.0, feedback.observed(shape), 0) ;
+    }
+
+    @Test(expected=QueryCancelledException.class)
+    public void solve_adaptive_02()
+    {
+        DatasetGraph dsgAdaptive = TDBFactory.createDatasetGraph() ;
+        Graph g = dsgAdaptive.getDefaultGraph() ;
+        for ( int i = 0 ; i < 10 ; i++ )
+        {
+            g.add(SSE.parseTriple("(:s"+i+" :a :m"+i+")", pmap)) ;
+            g.add(SSE.parseTriple("(:m"+i+" :b :k"+i+")", pmap)) ;
+        }
+        DatasetGraphTDB dsgTDB = TDBInternal.getBaseDatasetGraphTDB(dsgAdaptive) ;
+        NodeTupleTable ntt = dsgTDB.getTripleTable().getNodeTupleTable() ;
+        ReorderFeedback feedback = (ReorderFeedback)dsgTDB.getReorderTransform() ;
+        List<Tuple<Node>> tuples = new ArrayList<>() ;
+        for ( String x : new String[]{"(?s :a ?m)", "(?m :b ?k)"} )
+        {
+            Triple t = SSE.parseTriple(x, pmap) ;
+            tuples.add(Tuple.createTuple(t.getSubject(), t.getPredicate(), t.getObject())) ;
+        }
+        ExecutionContext execCxt = new ExecutionContext(ARQ.getContext().copy(), g, dsgAdaptive, null) ;
+        Iterator<BindingNodeId> input = Iter.singleton(new BindingNodeId()) ;
+        StageAdaptive stage = new StageAdaptive(ntt, input, tuples, false, null, feedback, execCxt) ;
+        assertTrue(stage.hasNext()) ;
+        stage.next() ;
+        // Aborting stops the scans of the batch already running.
+        stage.abort() ;
+        stage.hasNext() ;
+    }
+
+    @Test public void solve_leapfrog_01()
+    {
+        DatasetGraph dsgCycle = TDBFactory.createDatasetGraph() ;
+        for ( int i = 0 ; i < 20 ; i++ )
+            for ( int j = i+1 ; j < 20 ; j++ )
+                if ( (i*j) % 3 != 1 )
+                {
+                    Triple t = SSE.parseTriple("(:n"+i+" :knows :n"+j+")", pmap) ;
+                    dsgCycle.getDefaultGraph().add(t) ;
+                    dsgCycle.add(SSE.parseNode(":g", pmap), t.getSubject(), t.getPredicate(), t.getObject()) ;
+                }
+        List<Tuple<Node>> tuples = new ArrayList<>() ;
+        for ( String x : new String[]{"(?a :knows ?b)", "(?b :knows ?c)", "(?a :knows ?c)"} )
+        {
+            Triple t = SSE.parseTriple(x, pmap) ;
+            tuples.add(Tuple.createTuple(t.getSubject(), t.getPredicate(), t.getObject())) ;
+        }
+        DatasetGraphTDB dsgTDB = TDBInternal.getBaseDatasetGraphTDB(dsgCycle) ;
+        NodeTupleTable ntt = dsgTDB.getTripleTable().getNodeTupleTable() ;
+        assertTrue(StageLeapfrog.isApplicable(ntt, tuples, null)) ;
+        assertFalse(StageLeapfrog.isApplicable(ntt, tuples.subList(0, 2), null)) ;
+        // Estimated to be cheaper than one pattern after another.
+        ReorderTransformation fixed = ReorderLib.fixed() ;
+        assertTrue(StageLeapfrog.isApplicable(ntt, tuples, fixed)) ;
+        Set<Var> none = Collections.emptySet() ;
+        double cost = StageLeapfrog.plan(ntt, tuples, none, fixed).cost ;
+        assertTrue(cost < StageLeapfrog.nestedCost(fixed, tuples, none)) ;
+
+        for ( String qs : new String[]{ "SELECT * { ?a :knows ?b . ?b :knows ?c . ?a :knows ?c }",
+                                        "SELECT * { GRAPH :g { ?a :knows ?b . ?b :knows ?c . ?a :knows ?c } }",
+                                        "SELECT * { ?a :knows ?b . ?b :knows ?c . :n0 :knows ?c . ?a :knows ?c }" } )
+        {
+            Dataset ds = DatasetFactory.create(dsgCycle) ;
+            ResultSet rs1 ;
+            try ( QueryExecution qExec = QueryExecutionFactory.create("PREFIX : <http://example/> "+qs, ds) ) {
+                qExec.getContext().set(TDB.symLeapfrogJoin, true) ;
+                rs1 = ResultSetFactory.copyResults(qExec.execSelect()) ;
+            }
+            ResultSet rs2 = query(dsgCycle, qs) ;
+            ResultSetRewindable rsw1 = ResultSetFactory.makeRewindable(rs1) ;
+            assertTrue(rsw1.size() > 0) ;
+            equals(rsw1, rs2) ;
+        }
+    }
+
     // ------
     
     private static void equals(ResultSet rs1, ResultSet rs2)
@@ -164,6 +372,18 @@ public class TestSolverTDB extends BaseTest
         return ResultSetFactory.create(qIter, Var.varNames(vars)) ;
     }
     
+    private static ResultSet query(String qs)
+    {
+        return query(dsg, qs) ;
+    }
+
+    private static ResultSet query(DatasetGraph dsg, String qs)
+    {
+        Dataset ds = DatasetFactory.create(dsg) ;
+        QueryExecution qExec = QueryExecutionFactory.create("PREFIX : <http://example/> "+qs, ds) ;
+        return ResultSetFactory.copyResults(qExec.execSelect()) ;
+    }
+    
     private static List<Binding> toList(QueryIterator qIter)
     {
         List<Binding> x = new ArrayList<>() ;
@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.store;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.query.* ;
+import com.hp.hpl.jena.sparql.algebra.Algebra ;
+import com.hp.hpl.jena.sparql.algebra.Op ;
+import com.hp.hpl.jena.sparql.core.DatasetGraph ;
+import com.hp.hpl.jena.sparql.core.Quad ;
+import com.hp.hpl.jena.sparql.sse.SSE ;
+import com.hp.hpl.jena.tdb.TDB ;
+import com.hp.hpl.jena.tdb.TDBException ;
+import com.hp.hpl.jena.tdb.TDBFactory ;
+import com.hp.hpl.jena.tdb.sys.TDBInternal ;
+
+public class TestMaterializedViews extends BaseTest
+{
+    private static final String PRE = "PREFIX : <http://example/> " ;
+    private static final String countQuery = PRE+"SELECT (COUNT(*) AS ?n) { ?s :p ?o }" ;
+
+    private static Quad quad(String str)    { return SSE.parseQuad(str) ; }
+    private static Node node(String str)    { return SSE.parseNode(str) ; }
+
+    private static long count(Dataset ds, String qs, boolean useViews)
+    {
+        try ( QueryExecution qExec = QueryExecutionFactory.create(qs, ds) ) {
+            qExec.getContext().set(TDB.symMaterializedViews, useViews) ;
+            return qExec.execSelect().next().getLiteral("n").getLong() ;
+        }
+    }
+
+    private static long count(Dataset ds)
+    {
+        return count(ds, countQuery, true) ;
+    }
+
+    @Test public void view_depends_01()
+    {
+        DatasetGraph dsg = TDBFactory.createDatasetGraph() ;
+        MaterializedViews views = TDBInternal.getBaseDatasetGraphTDB(dsg).getMaterializedViews() ;
+        MaterializedView view = views.register("v", PRE+"SELECT * { ?s :p ?o GRAPH :g { ?s :q 'x' } }") ;
+        assertTrue(view.dependsOn(Quad.defaultGraphIRI, node("<http://example/s>"), node("<http://example/p>"), node("1"))) ;
+        assertTrue(view.dependsOn(node("<http://example/g2>"), node("<http://example/s>"), node("<http://example/p>"), node("1"))) ;
+        assertFalse(view.dependsOn(Quad.defaultGraphIRI, node("<http://example/s>"), node("<http://example/r>"), node("1"))) ;
+        assertTrue(view.dependsOn(node("<http://example/g>"), node("<http://example/s>"), node("<http://example/q>"), node("'y'"))) ;
+        assertFalse(view.dependsOn(node("<http://example/g2>"), node("<http://example/s>"), node("<http://example/q>"), node("'y'"))) ;
+        assertTrue(view.dependsOn(Node.ANY, Node.ANY, Node.ANY, Node.ANY)) ;
+    }
+
+    @Test(expected=TDBException.class)
+    public void view_register_01()
+    {
+        DatasetGraph dsg = TDBFactory.createDatasetGraph() ;
+        TDBInternal.getBaseDatasetGraphTDB(dsg).getMaterializedViews().register("v", PRE+"ASK { ?s :p ?o }") ;
+    }
+
+    @Test public void view_01()
+    {
+        DatasetGraph dsg = TDBFactory.createDatasetGraph() ;
+        dsg.add(quad("(_ :s1 :p 1)")) ;
+        dsg.add(quad("(_ :s2 :p 2)")) ;
+        MaterializedViews views = TDBInternal.getBaseDatasetGraphTDB(dsg).getMaterializedViews() ;
+        MaterializedView view = views.register("count", countQuery) ;
+        Dataset ds = DatasetFactory.create(dsg) ;
+
+        assertEquals(2, count(ds)) ;
+        assertNotNull(view.results) ;
+        long computedAt = view.computedAt ;
+
+        // Not read by the view.
+        dsg.add(quad("(_ :s1 :q 1)")) ;
+        assertEquals(2, count(ds)) ;
+        assertEquals(computedAt, view.computedAt) ;
+
+        dsg.add(quad("(_ :s3 :p 3)")) ;
+        assertEquals(3, count(ds)) ;
+        assertTrue(view.computedAt > computedAt) ;
+        dsg.delete(quad("(_ :s1 :p 1)")) ;
+        assertEquals(2, count(ds)) ;
+        assertEquals(2, count(ds, countQuery, false)) ;
+
+        views.unregister("count") ;
+        assertNull(views.get("count")) ;
+        assertEquals(2, count(ds)) ;
+    }
+
+    @Test public void view_02()
+    {
+        // A part of a query.
+        DatasetGraph dsg = TDBFactory.createDatasetGraph() ;
+        dsg.add(quad("(_ :s1 :p 1)")) ;
+        dsg.add(quad("(_ :s2 :p 2)")) ;
+        DatasetGraphTDB dsgTDB = TDBInternal.getBaseDatasetGraphTDB(dsg) ;
+        dsgTDB.getMaterializedViews().register("count", countQuery) ;
+
+        String qs = PRE+"SELECT ?n { { SELECT (COUNT(*) AS ?n) { ?s :p ?o } } FILTER(?n > 1) }" ;
+        Op op = Algebra.compile(QueryFactory.create(qs)) ;
+        Op op2 = dsgTDB.getMaterializedViews().rewrite(op, dsgTDB) ;
+        assertFalse(op.equals(op2)) ;
+        assertTrue(op2.toString().contains("table")) ;
+        Dataset ds = DatasetFactory.create(dsg) ;
+        assertEquals(2, count(ds, qs, true)) ;
+    }
+
+    @Test public void view_txn_01()
+    {
+        Dataset ds = TDBFactory.createDataset() ;
+        ds.begin(ReadWrite.WRITE) ;
+        ds.asDatasetGraph().add(quad("(_ :s1 :p 1)")) ;
+        ds.commit() ;
+        ds.end() ;
+
+        MaterializedViews views = TDBInternal.getBaseDatasetGraphTDB(ds.asDatasetGraph()).getMaterializedViews() ;
+        MaterializedView view = views.register("count", countQuery) ;
+
+        ds.begin(ReadWrite.READ) ;
+        assertEquals(1, count(ds)) ;
+        ds.end() ;
+        assertNotNull(view.results) ;
+
+        ds.begin(ReadWrite.WRITE) ;
+        ds.asDatasetGraph().add(quad("(_ :s2 :p 2)")) ;
+        // The writer sees its own change.
+        assertEquals(2, count(ds)) ;
+        ds.commit() ;
+        ds.end() ;
+
+        ds.begin(ReadWrite.READ) ;
+        assertEquals(2, count(ds)) ;
+        ds.end() ;
+
+        // Aborted changes.
+        ds.begin(ReadWrite.WRITE) ;
+        ds.asDatasetGraph().add(quad("(_ :s3 :p 3)")) ;
+        assertEquals(3, count(ds)) ;
+        ds.abort() ;
+        ds.end() ;
+
+        ds.begin(ReadWrite.READ) ;
+        assertEquals(2, count(ds)) ;
+        ds.end() ;
+    }
+
+    @Test public void view_graph_01()
+    {
+        // Results are of the default graph: not used inside GRAPH or for the union of the named graphs.
+        DatasetGraph dsg = TDBFactory.createDatasetGraph() ;
+        dsg.add(quad("(_ :s1 :p 1)")) ;
+        dsg.add(quad("(:g :s2 :p 2)")) ;
+        dsg.add(quad("(:g :s3 :p 3)")) ;
+        DatasetGraphTDB dsgTDB = TDBInternal.getBaseDatasetGraphTDB(dsg) ;
+        dsgTDB.getMaterializedViews().register("count", countQuery) ;
+        Dataset ds = DatasetFactory.create(dsg) ;
+        assertEquals(1, count(ds)) ;
+
+        String qs = PRE+"SELECT ?n { GRAPH ?g { SELECT (COUNT(*) AS ?n) { ?s :p ?o } } }" ;
+        Op op = Algebra.compile(QueryFactory.create(qs)) ;
+        assertEquals(op, dsgTDB.getMaterializedViews().rewrite(op, dsgTDB)) ;
+        assertEquals(2, count(ds, qs, true)) ;
+
+        try ( QueryExecution qExec = QueryExecutionFactory.create(countQuery, ds) ) {
+            qExec.getContext().set(TDB.symUnionDefaultGraph, true) ;
+            assertEquals(2, qExec.execSelect().next().getLiteral("n").getLong()) ;
+        }
+    }
+}
@@ -39,6 +39,7 @@ import org.junit.runners.Suite ;
     , TestTransRestart.class
     , TestTransactionTDB.class
     , TestTransactionUnionGraph.class
+    , TestFileBackup.class
 })
 public class TS_TransactionTDB
 {
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.tdb.transaction;
+
+import java.io.File ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.atlas.lib.FileOps ;
+import org.junit.After ;
+import org.junit.Before ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.query.ReadWrite ;
+import com.hp.hpl.jena.sparql.core.Quad ;
+import com.hp.hpl.jena.sparql.sse.SSE ;
+import com.hp.hpl.jena.tdb.ConfigTest ;
+import com.hp.hpl.jena.tdb.StoreConnection ;
+import com.hp.hpl.jena.tdb.TDBException ;
+import com.hp.hpl.jena.tdb.base.file.Location ;
+
+public class TestFileBackup extends BaseTest
+{
+    private static Quad quad1 = SSE.parseQuad("(_ <http://example/s> <http://example/p> 'one')") ;
+    private static Quad quad2 = SSE.parseQuad("(_ <http://example/s> <http://example/p> 'two')") ;
+    private static Quad quad3 = SSE.parseQuad("(<http://example/g> <http://example/s> <http://example/p> 'three')") ;
+
+    private Location location ;
+    private String area ;
+
+    @Before public void before() {
+        String dir = ConfigTest.getCleanDir() ;
+        location = Location.create(dir) ;
+        // Other tests may leave a connection to the same location.
+        StoreConnection.release(location) ;
+        FileOps.clearDirectory(dir) ;
+        area = ConfigTest.getTestingDir()+"/Backups" ;
+        clear(area) ;
+        FileOps.ensureDir(area) ;
+    }
+
+    @After public void after() {
+        StoreConnection.release(location) ;
+        clear(area) ;
+    }
+
+    private static void clear(String dir) {
+        FileOps.clearAll(dir) ;
+        FileOps.deleteSilent(dir) ;
+    }
+
+    private void add(Quad quad) {
+        DatasetGraphTxn dsg = StoreConnection.make(location).begin(ReadWrite.WRITE) ;
+        dsg.add(quad) ;
+        dsg.commit() ;
+        dsg.end() ;
+    }
+
+    private void checkRestore(String backupDir, Quad... quads) {
+        String dir = area+"/restore-"+new File(backupDir).getName() ;
+        Location loc = Location.create(dir) ;
+        FileBackup.restore(backupDir, loc) ;
+        try {
+            DatasetGraphTxn dsg = StoreConnection.make(loc).begin(ReadWrite.READ) ;
+            for ( Quad q : quads )
+                assertTrue(q.toString(), dsg.contains(q)) ;
+            assertEquals(quads.length, Iter.count(dsg.find())) ;
+            dsg.end() ;
+        } finally { StoreConnection.release(loc) ; }
+    }
+
+    @Test public void backup_full_01() {
+        add(quad1) ;
+        String b1 = area+"/b1" ;
+        FileBackup.backup(location, b1) ;
+        checkRestore(b1, quad1) ;
+    }
+
+    @Test public void backup_full_02() {
+        add(quad1) ;
+        // An active reader keeps later commits in the journal.
+        DatasetGraphTxn reader = StoreConnection.make(location).begin(ReadWrite.READ) ;
+        add(quad2) ;
+        add(quad3) ;
+        String b1 = area+"/b1" ;
+        FileBackup.backup(location, b1) ;
+        reader.end() ;
+        checkRestore(b1, quad1, quad2, quad3) ;
+    }
+
+    @Test public void backup_full_03() {
+        add(quad1) ;
+        // Not committed when the backup is taken.
+        DatasetGraphTxn writer = StoreConnection.make(location).begin(ReadWrite.WRITE) ;
+        writer.add(quad2) ;
+        String b1 = area+"/b1" ;
+        FileBackup.backup(location, b1) ;
+        writer.commit() ;
+        writer.end() ;
+        checkRestore(b1, quad1) ;
+    }
+
+    @Test public void backup_incremental_01() {
+        add(quad1) ;
+        String b1 = area+"/b1" ;
+        FileBackup.backup(location, b1) ;
+        add(quad2) ;
+        StoreConnection.make(location).flush() ;
+        String b2 = area+"/b2" ;
+        FileBackup.backup(location, b2, b1) ;
+        add(quad3) ;
+        String b3 = area+"/b3" ;
+        FileBackup.backup(location, b3, b2) ;
+
+        checkRestore(b1, quad1) ;
+        checkRestore(b2, quad1, quad2) ;
+        checkRestore(b3, quad1, quad2, quad3) ;
+    }
+
+    @Test public void backup_incremental_02() {
+        add(quad1) ;
+        String b1 = area+"/b1" ;
+        FileBackup.backup(location, b1) ;
+        String b2 = area+"/b2" ;
+        FileBackup.backup(location, b2, b1) ;
+        // Nothing has changed so only the journal, which is empty, could be different.
+        long size = 0 ;
+        for ( File f : new File(b2).listFiles() ) {
+            if ( f.getName().endsWith("."+FileBackup.DeltaExt) )
+                size += f.length() ;
+        }
+        assertEquals(0, size) ;
+        checkRestore(b2, quad1) ;
+    }
+
+    @Test(expected=TDBException.class)
+    public void backup_exists() {
+        String b1 = area+"/b1" ;
+        FileOps.ensureDir(b1) ;
+        FileBackup.backup(location, b1) ;
+    }
+}